@@ -0,0 +1,78 @@
+package org.expense.tracker.benchmark;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.Money;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Synthetic ledgers for the benchmarks: about five years of dates, a dozen categories with a skewed
+ * spread, amounts from 0.50 to 2,500.00 and a description on most rows. The same seed always gives the
+ * same data, so results from different versions are comparable.
+ */
+public final class BenchmarkData {
+
+    public static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Utilities", "Groceries", "Fun",
+            "Health", "Travel", "Gifts", "Education", "Insurance", "Other"};
+    public static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    public static final int DAYS = 5 * 365;
+
+    private static final long SEED = 20240101L;
+    private static final int CHUNK_ROWS = 50_000;
+
+    private BenchmarkData() {
+    }
+
+    /** Calls {@code consumer} with {@code rows} generated expenses in chunks of at most {@code CHUNK_ROWS}. */
+    public static void generate(int rows, ChunkConsumer consumer) throws IOException {
+        Random random = new Random(SEED);
+        List<Expense> chunk = new ArrayList<>(Math.min(rows, CHUNK_ROWS));
+        for (int i = 0; i < rows; i++) {
+            // Squaring skews the spread so a few categories dominate, as in real ledgers
+            double skew = random.nextDouble();
+            String category = CATEGORIES[(int) (skew * skew * CATEGORIES.length)];
+            String description = random.nextInt(10) == 0 ? null : category.toLowerCase() + " #" + random.nextInt(1000);
+            chunk.add(new Expense(FIRST_DAY.plusDays(random.nextInt(DAYS)), category, description,
+                    Money.toBigDecimal(50 + random.nextInt(250_000))));
+            if (chunk.size() == CHUNK_ROWS) {
+                consumer.accept(chunk);
+                chunk = new ArrayList<>(CHUNK_ROWS);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            consumer.accept(chunk);
+        }
+    }
+
+    /** Opens a fresh embedded store in {@code directory} (without fsync) and fills it with {@code rows} expenses. */
+    public static EmbeddedExpenseRepository embeddedRepository(Path directory, int rows) throws IOException {
+        EmbeddedExpenseRepository repository = new EmbeddedExpenseRepository(directory, false, CHUNK_ROWS);
+        generate(rows, repository::addExpenses);
+        return repository;
+    }
+
+    public static void deleteRecursively(Path directory) throws IOException {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(List<Expense> chunk) throws IOException;
+    }
+}
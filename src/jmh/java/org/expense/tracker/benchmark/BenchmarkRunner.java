@@ -0,0 +1,28 @@
+package org.expense.tracker.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code target/benchmarks.jar}. Accepts the usual JMH command-line options, but always
+ * writes results as JSON, by default to {@code target/jmh-<version>.json}, so runs of different versions
+ * can be compared side by side.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+        String resultFile = commandLine.getResult().orElse("target/jmh-" + (version != null ? version : "dev") + ".json");
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile)
+                .build();
+        new Runner(options).run();
+        System.out.println("Benchmark results written to " + resultFile);
+    }
+}
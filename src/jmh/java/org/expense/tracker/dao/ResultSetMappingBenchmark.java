@@ -0,0 +1,107 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.benchmark.BenchmarkData;
+import org.expense.tracker.model.Expense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads every row of an in-memory H2 database (MySQL mode, {@code expenses} columns as in the README
+ * schema) through {@link ExpenseDAO#mapResultSetToExpense(ResultSet)}, so JDBC row mapping can be measured
+ * without a MySQL server. {@code readOnly} runs the same query without mapping, to separate driver cost
+ * from ours.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ResultSetMappingBenchmark {
+
+    private static final String SELECT_SQL = "SELECT id, date, category, description, amount FROM expenses";
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    private Connection connection;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException, IOException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:expense_bench_" + rows + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE expenses (id INT AUTO_INCREMENT PRIMARY KEY, date DATE NOT NULL, "
+                    + "category VARCHAR(50) NOT NULL, description TEXT, amount DECIMAL(10, 2) NOT NULL)");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO expenses (date, category, description, amount) VALUES (?, ?, ?, ?)")) {
+            BenchmarkData.generate(rows, chunk -> {
+                try {
+                    for (Expense expense : chunk) {
+                        insert.setDate(1, Date.valueOf(expense.getDate()));
+                        insert.setString(2, expense.getCategory());
+                        insert.setString(3, expense.getDescription());
+                        insert.setBigDecimal(4, expense.getAmount());
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                    connection.commit();
+                } catch (SQLException e) {
+                    throw new IOException(e);
+                }
+            });
+        }
+        connection.setAutoCommit(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE expenses");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void mapResultSetToExpense(Blackhole blackhole) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_SQL)) {
+            while (resultSet.next()) {
+                blackhole.consume(ExpenseDAO.mapResultSetToExpense(resultSet));
+            }
+        }
+    }
+
+    @Benchmark
+    public void readOnly(Blackhole blackhole) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(SELECT_SQL)) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getInt(1));
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.benchmark.BenchmarkData;
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.model.DistributionReport;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpenseReport;
+import org.expense.tracker.model.TopSpendersReport;
+import org.expense.tracker.model.TrendReport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service-level hot paths against an embedded store holding {@code rows} synthetic expenses, with and
+ * without the in-memory analytics snapshot. The store is built once per fork, so the largest sizes take
+ * a while to set up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ExpenseServiceBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int rows;
+
+    @Param({"false", "true"})
+    public boolean analyticsSnapshot;
+
+    private Path directory;
+    private EmbeddedExpenseRepository repository;
+    private ExpenseService service;
+    private LocalDate filterStart;
+    private LocalDate filterEnd;
+    private ExpenseQuery reportQuery;
+    private LocalDate trendsAsOf;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("expense-bench");
+        repository = BenchmarkData.embeddedRepository(directory.resolve("store"), rows);
+        service = new ExpenseService(repository, directory.resolve("export"));
+        if (analyticsSnapshot) {
+            service.enableAnalyticsSnapshot();
+            service.getSummary(ExpenseQuery.all());
+        }
+        // A quarter's worth of one busy category: selective, but still thousands of rows at the larger sizes
+        filterStart = BenchmarkData.FIRST_DAY.plusDays(BenchmarkData.DAYS / 2);
+        filterEnd = filterStart.plusDays(90);
+        reportQuery = ExpenseQuery.all().from(BenchmarkData.FIRST_DAY.plusDays(BenchmarkData.DAYS / 5));
+        // Builds the description index outside the measurement
+        service.searchDescriptions("food", ExpenseQuery.all());
+        trendsAsOf = BenchmarkData.FIRST_DAY.plusDays(BenchmarkData.DAYS - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        service.shutdown();
+        BenchmarkData.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public List<Expense> filterExpenses() {
+        return service.filterExpenses(filterStart, filterEnd, "Food", new BigDecimal("10.00"), null);
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> getCategoryTotals() {
+        return service.getCategoryTotals(reportQuery);
+    }
+
+    @Benchmark
+    public Map<String, BigDecimal> getMonthlyTotals() {
+        return service.getMonthlyTotals(reportQuery);
+    }
+
+    @Benchmark
+    public BigDecimal getTotalExpenses() {
+        return service.getTotalExpenses(reportQuery);
+    }
+
+    @Benchmark
+    public List<Expense> searchDescriptions() {
+        // A number prefix and a category substring, narrowed by the report's date filter
+        return service.searchDescriptions("42 roceri", reportQuery);
+    }
+
+    @Benchmark
+    public TrendReport getTrends() {
+        return service.getTrends(trendsAsOf, 7, 30, 90, 365);
+    }
+
+    @Benchmark
+    public DistributionReport getDistributions() {
+        return service.getDistributions(ExpenseQuery.all());
+    }
+
+    @Benchmark
+    public DistributionReport getFilteredDistributions() {
+        return service.getDistributions(reportQuery);
+    }
+
+    @Benchmark
+    public TopSpendersReport getTopSpenders() {
+        return service.getTopSpenders(10);
+    }
+
+    @Benchmark
+    public ExpenseReport getReport() {
+        return service.getReport(reportQuery);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public long exportExpensesToCsv() {
+        return service.exportExpensesToCsv(ExpenseQuery.all(), "benchmark.csv");
+    }
+}
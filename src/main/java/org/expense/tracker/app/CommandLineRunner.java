@@ -0,0 +1,511 @@
+package org.expense.tracker.app;
+
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.model.AmountDistribution;
+import org.expense.tracker.model.DistributionReport;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpenseReport;
+import org.expense.tracker.model.HeavyHitter;
+import org.expense.tracker.model.Money;
+import org.expense.tracker.model.TopSpendersReport;
+import org.expense.tracker.model.TrendReport;
+import org.expense.tracker.service.ExpenseService;
+import org.expense.tracker.service.TimeSeries;
+import org.expense.tracker.util.AsyncExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Runs the tracker without the interactive menu, for cron jobs and ingestion scripts.
+ * <p>
+ * A single command is given as program arguments ({@code add --date 2024-01-31 --category Food --amount 12.50}),
+ * or {@code --script FILE} runs one command per line from a file ({@code -} for stdin) in the same JVM and
+ * connection pool. Consecutive {@code add} lines in a script are collected and inserted as one batch. With
+ * {@code DUPLICATE_POLICY=skip}, adds that repeat a stored expense print {@code skipped<TAB>existing ID}, so
+ * re-running an ingestion script adds nothing.
+ * <p>
+ * Results go to stdout as tab-separated lines, with tabs, newlines and backslashes in values escaped as
+ * {@code \t}, {@code \n} and {@code \\}. Human-readable messages from the services go to stderr, as do errors,
+ * which are reported as {@code ERROR<TAB>line<TAB>message}. The exit code is 0 on success, 1 if any command
+ * failed and 2 for a usage error.
+ */
+class CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CommandLineRunner.class);
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILED = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: expense-tracker <command> [--flag value ...]",
+            "       expense-tracker --script FILE   (one command per line, '-' reads stdin, '#' starts a comment)",
+            "",
+            "Commands:",
+            "  add      --date YYYY-MM-DD --category NAME --amount N [--description TEXT]",
+            "  list     [--limit N] [--sort date_desc|date_asc|amount_desc|amount_asc]",
+            "  filter   [--from DATE] [--to DATE] [--category NAME] [--min N] [--max N] [--limit N] [--sort ORDER]",
+            "  search   --text WORDS [filters] [--limit N]   best description matches first",
+            "  report   [same filters as filter]   prints total, category, month and p50/p90/p99/max lines",
+            "  trends   [--windows 7,30,90] [--as-of DATE]   rolling windows vs the period before",
+            "  top      [--limit 10]                descriptions and categories with the most expenses and spending",
+            "  export   --file NAME [filters]       writes a CSV into EXPORT_PATH",
+            "  dump     --file NAME                 writes a binary backup into EXPORT_PATH",
+            "  restore  --file PATH                 loads a binary backup into an empty ledger",
+            "  duplicates                           prints each group of identical expenses",
+            "  help");
+
+    private final ExpenseService expenseService;
+    private final PrintStream out;
+    private final List<Expense> pendingAdds = new ArrayList<>();
+    private final List<Integer> pendingLines = new ArrayList<>();
+    private int lineNumber;
+    private boolean failed;
+
+    CommandLineRunner(ExpenseService expenseService, PrintStream out) {
+        this.expenseService = expenseService;
+        this.out = out;
+    }
+
+    /** Runs the program arguments as one command, or as a script when they start with {@code --script}. */
+    int run(String[] args) {
+        if (args.length == 0 || "help".equals(args[0]) || "--help".equals(args[0])) {
+            out.println(USAGE);
+            return args.length == 0 ? EXIT_USAGE : EXIT_OK;
+        }
+        if ("--script".equals(args[0])) {
+            if (args.length != 2) {
+                System.err.println(USAGE);
+                return EXIT_USAGE;
+            }
+            return runScript(args[1]);
+        }
+        try {
+            execute(Arrays.asList(args), false);
+        } catch (IllegalArgumentException e) {
+            reportError(0, e.getMessage());
+            System.err.println(USAGE);
+            return EXIT_USAGE;
+        } catch (RuntimeException e) {
+            logger.error("Command failed: {}", e.getMessage());
+            reportError(0, e.getMessage());
+        }
+        return failed ? EXIT_FAILED : EXIT_OK;
+    }
+
+    private int runScript(String path) {
+        long startNanos = System.nanoTime();
+        int commands = 0;
+        try (BufferedReader reader = "-".equals(path)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                commands++;
+                try {
+                    execute(tokenize(trimmed), true);
+                } catch (IllegalArgumentException e) {
+                    reportError(lineNumber, e.getMessage());
+                } catch (RuntimeException e) {
+                    // For example a count the repository could not run; the rest of the script still runs
+                    logger.error("Script line {} failed: {}", lineNumber, e.getMessage());
+                    reportError(lineNumber, e.getMessage());
+                }
+            }
+            try {
+                flushAdds();
+            } catch (RuntimeException e) {
+                logger.error("Script {} failed adding its last lines: {}", path, e.getMessage());
+                reportError(lineNumber, e.getMessage());
+            }
+        } catch (IOException e) {
+            logger.error("Error reading script {}: {}", path, e.getMessage());
+            e.printStackTrace();
+            return EXIT_FAILED;
+        }
+        logger.info("Script {} ran {} commands in {} ms.", path, commands, (System.nanoTime() - startNanos) / 1_000_000);
+        return failed ? EXIT_FAILED : EXIT_OK;
+    }
+
+    private void execute(List<String> tokens, boolean batchAdds) {
+        String command = tokens.get(0).toLowerCase(Locale.ROOT);
+        Map<String, String> flags = parseFlags(tokens.subList(1, tokens.size()));
+        if (!"add".equals(command)) {
+            flushAdds();
+        }
+        switch (command) {
+            case "add":
+                pendingAdds.add(toExpense(flags));
+                pendingLines.add(lineNumber);
+                if (!batchAdds) {
+                    flushAdds();
+                }
+                break;
+            case "list":
+                checkFlags(flags, "limit", "sort");
+                printExpenses(toQuery(flags));
+                break;
+            case "filter":
+                checkFlags(flags, "from", "to", "category", "min", "max", "limit", "sort");
+                printExpenses(toQuery(flags));
+                break;
+            case "search": {
+                checkFlags(flags, "text", "from", "to", "category", "min", "max", "limit");
+                String text = required(flags, "text");
+                expenseService.searchDescriptions(text, toQuery(flags)).forEach(this::printExpense);
+                break;
+            }
+            case "report":
+                checkFlags(flags, "from", "to", "category", "min", "max");
+                printReport(toQuery(flags));
+                break;
+            case "trends": {
+                checkFlags(flags, "windows", "as-of");
+                int[] windows = TimeSeries.parseWindows(flags.getOrDefault("windows", "7,30,90"));
+                LocalDate asOf = flags.containsKey("as-of") ? parseDate(flags.get("as-of")) : LocalDate.now();
+                printTrends(expenseService.getTrends(asOf, windows));
+                break;
+            }
+            case "top": {
+                checkFlags(flags, "limit");
+                int limit;
+                try {
+                    limit = Integer.parseInt(flags.getOrDefault("limit", "10"));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid --limit: " + flags.get("limit"));
+                }
+                printTopSpenders(expenseService.getTopSpenders(limit));
+                break;
+            }
+            case "export": {
+                checkFlags(flags, "file", "from", "to", "category", "min", "max", "limit", "sort");
+                String file = required(flags, "file");
+                long rows = expenseService.exportExpensesToCsv(toQuery(flags), file);
+                printResult(rows, "exported", String.valueOf(rows), expenseService.getExportDirectory().resolve(file).toString());
+                break;
+            }
+            case "dump": {
+                checkFlags(flags, "file");
+                long rows = expenseService.dumpExpenses(required(flags, "file"));
+                printResult(rows, "dumped", String.valueOf(rows));
+                break;
+            }
+            case "restore": {
+                checkFlags(flags, "file");
+                long rows = expenseService.restoreDump(Paths.get(required(flags, "file")));
+                printResult(rows, "restored", String.valueOf(rows));
+                break;
+            }
+            case "duplicates":
+                checkFlags(flags);
+                printDuplicates();
+                break;
+            case "help":
+                out.println(USAGE);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    private void flushAdds() {
+        if (pendingAdds.isEmpty()) {
+            return;
+        }
+        List<Expense> batch = new ArrayList<>(pendingAdds);
+        List<Integer> lines = new ArrayList<>(pendingLines);
+        pendingAdds.clear();
+        pendingLines.clear();
+        // Also for a single add, to learn whether it was skipped as a duplicate or failed
+        int[] skippedAs = new int[batch.size()];
+        expenseService.addExpenses(batch, skippedAs);
+        for (int i = 0; i < batch.size(); i++) {
+            Expense expense = batch.get(i);
+            if (expense.getId() > 0) {
+                out.println(row("added", String.valueOf(expense.getId())));
+            } else if (skippedAs[i] > 0) {
+                out.println(row("skipped", String.valueOf(skippedAs[i])));
+            } else {
+                reportError(lines.get(i), "Expense was not added: " + expense);
+            }
+        }
+    }
+
+    private void printExpenses(ExpenseQuery query) {
+        long rows = expenseService.streamExpenses(query, this::printExpense);
+        // The repository logs and swallows a read error, leaving only the rows printed so far
+        long expected = expenseService.countMatching(query);
+        if (rows != expected) {
+            throw new IllegalStateException("Listed " + rows + " of " + expected + " matching expenses");
+        }
+    }
+
+    private void printExpense(Expense expense) {
+        out.println(row("expense", String.valueOf(expense.getId()), expense.getDate().toString(), expense.getCategory(),
+                expense.getDescription(), expense.getAmount().toPlainString()));
+    }
+
+    private void printDuplicates() {
+        for (List<Expense> group : expenseService.findDuplicateGroups()) {
+            StringBuilder ids = new StringBuilder();
+            for (Expense expense : group) {
+                ids.append(ids.length() > 0 ? "," : "").append(expense.getId());
+            }
+            Expense first = group.get(0);
+            out.println(row("duplicates", String.valueOf(group.size()), ids.toString(), first.getDate().toString(),
+                    first.getCategory(), first.getDescription(), first.getAmount().toPlainString()));
+        }
+    }
+
+    private void printTrends(TrendReport report) {
+        for (TrendReport.Window window : report.getWindows()) {
+            out.println(row("trend", window.getLabel(), window.getCurrentStart().toString(), window.getCurrentEnd().toString(),
+                    window.getCurrent().getTotal().toPlainString(), String.valueOf(window.getCurrent().getCount()),
+                    window.getPrevious().getTotal().toPlainString(), String.valueOf(window.getPrevious().getCount()),
+                    Money.toBigDecimal(window.getDailyAverageCents()).toPlainString()));
+            window.getCurrentByCategory().forEach((category, current) -> out.println(row("trend_category", window.getLabel(), category,
+                    current.getTotal().toPlainString(), window.getPreviousByCategory().get(category).getTotal().toPlainString())));
+        }
+    }
+
+    private void printTopSpenders(TopSpendersReport report) {
+        report.getDescriptionsByCount().forEach(hitter -> printHeavyHitter("description_count", hitter, false));
+        report.getDescriptionsByAmount().forEach(hitter -> printHeavyHitter("description_amount", hitter, true));
+        report.getCategoriesByCount().forEach(hitter -> printHeavyHitter("category_count", hitter, false));
+        report.getCategoriesByAmount().forEach(hitter -> printHeavyHitter("category_amount", hitter, true));
+    }
+
+    private void printHeavyHitter(String kind, HeavyHitter hitter, boolean amount) {
+        out.println(row("top", kind, hitter.getLabel(),
+                amount ? Money.toBigDecimal(hitter.getValue()).toPlainString() : String.valueOf(hitter.getValue()),
+                amount ? Money.toBigDecimal(hitter.getError()).toPlainString() : String.valueOf(hitter.getError())));
+    }
+
+    private void printReport(ExpenseQuery query) {
+        ExpenseReport report;
+        DistributionReport distributions;
+        try {
+            CompletableFuture<ExpenseReport> reportFuture = expenseService.getReportAsync(query);
+            CompletableFuture<DistributionReport> distributionsFuture = expenseService.getDistributionsAsync(query);
+            AsyncExecutor.allOf(reportFuture, distributionsFuture).join();
+            report = reportFuture.join();
+            distributions = distributionsFuture.join();
+        } catch (CompletionException | CancellationException e) {
+            reportError(lineNumber, "Report failed: " + (e.getCause() != null ? e.getCause() : e));
+            return;
+        }
+        out.println(row("total", report.getSummary().getTotal().toPlainString(), String.valueOf(report.getSummary().getCount())));
+        report.getCategories().forEach((category, summary) -> out.println(row("category", category, summary.getTotal().toPlainString())));
+        report.getMonths().forEach((month, summary) -> out.println(row("month", month, summary.getTotal().toPlainString())));
+        out.println(row("quantile_error", String.valueOf(distributions.getOverall().getRelativeError())));
+        printQuantiles("all", "", distributions.getOverall());
+        distributions.getCategories().forEach((category, distribution) -> printQuantiles("category", category, distribution));
+        distributions.getMonths().forEach((month, distribution) -> printQuantiles("month", month, distribution));
+    }
+
+    private void printQuantiles(String group, String name, AmountDistribution distribution) {
+        out.println(row("quantiles", group, name, String.valueOf(distribution.getCount()), distribution.getP50().toPlainString(),
+                distribution.getP90().toPlainString(), distribution.getP99().toPlainString(), distribution.getMax().toPlainString()));
+    }
+
+    private void printResult(long rows, String... values) {
+        if (rows >= 0) {
+            out.println(row(values));
+        } else {
+            reportError(lineNumber, values[0] + " failed; see the log for details");
+        }
+    }
+
+    private void reportError(int line, String message) {
+        failed = true;
+        System.err.println(row("ERROR", String.valueOf(line), message));
+    }
+
+    private static Expense toExpense(Map<String, String> flags) {
+        checkFlags(flags, "date", "category", "amount", "description");
+        String category = required(flags, "category");
+        BigDecimal amount = parseAmount(required(flags, "amount"));
+        if (amount.signum() <= 0) {
+            throw new IllegalArgumentException("--amount must be positive");
+        }
+        String description = flags.get("description");
+        return new Expense(parseDate(required(flags, "date")), category, description == null || description.isEmpty() ? null : description, amount);
+    }
+
+    static ExpenseQuery toQuery(Map<String, String> flags) {
+        ExpenseQuery query = ExpenseQuery.all();
+        if (flags.containsKey("from")) {
+            query.from(parseDate(flags.get("from")));
+        }
+        if (flags.containsKey("to")) {
+            query.to(parseDate(flags.get("to")));
+        }
+        if (flags.containsKey("category")) {
+            query.category(flags.get("category"));
+        }
+        if (flags.containsKey("min")) {
+            query.minAmount(parseAmount(flags.get("min")));
+        }
+        if (flags.containsKey("max")) {
+            query.maxAmount(parseAmount(flags.get("max")));
+        }
+        if (flags.containsKey("sort")) {
+            try {
+                query.sortBy(ExpenseQuery.SortOrder.valueOf(flags.get("sort").toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown --sort: " + flags.get("sort"));
+            }
+        }
+        if (flags.containsKey("limit")) {
+            try {
+                query.limit(Integer.parseInt(flags.get("limit")));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid --limit: " + flags.get("limit"));
+            }
+        }
+        return query;
+    }
+
+    /** Reads {@code --name value} and {@code --name=value} pairs. */
+    static Map<String, String> parseFlags(List<String> tokens) {
+        Map<String, String> flags = new HashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            String token = tokens.get(i);
+            if (!token.startsWith("--") || token.length() == 2) {
+                throw new IllegalArgumentException("Expected a --flag but found: " + token);
+            }
+            int equals = token.indexOf('=');
+            if (equals > 0) {
+                flags.put(token.substring(2, equals), token.substring(equals + 1));
+            } else if (i + 1 < tokens.size()) {
+                flags.put(token.substring(2), tokens.get(++i));
+            } else {
+                throw new IllegalArgumentException("Missing value for " + token);
+            }
+        }
+        return flags;
+    }
+
+    /** Splits a script line on whitespace, honouring single and double quotes and backslash escapes. */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inToken = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\\' && quote != '\'' && i + 1 < line.length()) {
+                current.append(line.charAt(++i));
+                inToken = true;
+            } else if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+                inToken = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                current.append(c);
+                inToken = true;
+            }
+        }
+        if (quote != 0) {
+            throw new IllegalArgumentException("Unterminated quote");
+        }
+        if (inToken) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    /** Joins values with tabs, escaping characters that would break the line format. Null becomes empty. */
+    static String row(String... values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                line.append('\t');
+            }
+            String value = values[i];
+            if (value == null) {
+                continue;
+            }
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\t' -> line.append("\\t");
+                    case '\n' -> line.append("\\n");
+                    case '\r' -> line.append("\\r");
+                    case '\\' -> line.append("\\\\");
+                    default -> line.append(c);
+                }
+            }
+        }
+        return line.toString();
+    }
+
+    private static void checkFlags(Map<String, String> flags, String... allowed) {
+        List<String> known = Arrays.asList(allowed);
+        for (String flag : flags.keySet()) {
+            if (!known.contains(flag)) {
+                throw new IllegalArgumentException("Unknown flag --" + flag);
+            }
+        }
+    }
+
+    private static String required(Map<String, String> flags, String name) {
+        String value = flags.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing --" + name);
+        }
+        return value;
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date (expected YYYY-MM-DD): " + value);
+        }
+    }
+
+    private static BigDecimal parseAmount(String value) {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + value);
+        }
+    }
+}
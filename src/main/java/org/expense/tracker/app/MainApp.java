@@ -1,43 +1,183 @@
 package org.expense.tracker.app;
 
-import org.expense.tracker.dao.ExpenseDAO;
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.dao.SnapshotExpenseRepository;
+import org.expense.tracker.model.AmountDistribution;
+import org.expense.tracker.model.DistributionReport;
 import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseReport;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.HeavyHitter;
+import org.expense.tracker.model.Money;
+import org.expense.tracker.model.TopSpendersReport;
+import org.expense.tracker.model.TrendReport;
+import org.expense.tracker.service.DuplicateIndex;
+import org.expense.tracker.service.ExpenseReplica;
 import org.expense.tracker.service.ExpenseService;
+import org.expense.tracker.service.TimeSeries;
+import org.expense.tracker.util.AsyncExecutor;
+import org.expense.tracker.util.ConnectionPool;
 import org.expense.tracker.util.DBConnection;
 import org.expense.tracker.util.EnvConfig;
+import org.expense.tracker.util.Metrics;
+import org.expense.tracker.util.OperationMetrics;
+import org.expense.tracker.util.StartupProfile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 
 public class MainApp {
 
     private static final Logger logger = LoggerFactory.getLogger(MainApp.class);
-    private final ExpenseService expenseService;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final String DEFAULT_TREND_WINDOWS = "7,30,90";
+    private static final int TOP_SPENDERS_SHOWN = 10;
+    private static final int DEFAULT_CACHE_REFRESH_SECONDS = 5;
+    private final CompletableFuture<Wiring> wiring;
     private final Scanner scanner;
 
+    /**
+     * Returns immediately: loading the configuration, opening storage, warming the database pool and
+     * starting the optional cache all happen on a background thread while the menu renders. The first
+     * command that needs them waits for that thread to finish.
+     */
     public MainApp() {
-        EnvConfig.load(); // Load environment variables at application start
-        this.expenseService = new ExpenseService(new ExpenseDAO());
         this.scanner = new Scanner(System.in);
+        this.wiring = new CompletableFuture<>();
+        Thread startup = new Thread(() -> {
+            try {
+                wiring.complete(wire());
+            } catch (Throwable e) {
+                logger.error("Application startup failed: {}", e.getMessage());
+                e.printStackTrace();
+                wiring.completeExceptionally(e);
+            }
+        }, "expense-startup");
+        startup.setDaemon(true);
+        startup.start();
     }
 
     public static void main(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (arguments.remove("--startup-profile")) {
+            StartupProfile.enable();
+        }
+        if (!arguments.isEmpty()) {
+            System.exit(runCommandLine(arguments.toArray(new String[0])));
+        }
         MainApp app = new MainApp();
         app.run();
     }
 
+    private static Wiring wire() {
+        StartupProfile.time("load configuration", EnvConfig::load);
+        ExpenseRepository repository = StartupProfile.time("open storage", () -> ExpenseRepository.fromEnvironment(true));
+        StartupProfile.time("warm up storage", repository::warmUp);
+        ExpenseService service = StartupProfile.time("wire services", () -> {
+            ExpenseService wired = new ExpenseService(repository);
+            if (EnvConfig.getBoolean("CACHE_ENABLED", false)) {
+                wired.enableReplica(EnvConfig.getInt("CACHE_REFRESH_SECONDS", DEFAULT_CACHE_REFRESH_SECONDS));
+            }
+            if (EnvConfig.getBoolean("ANALYTICS_SNAPSHOT", false)) {
+                wired.enableAnalyticsSnapshot();
+            }
+            if (EnvConfig.getBoolean("METRICS_JMX", false)) {
+                Metrics.enableJmx();
+            }
+            Metrics.startPeriodicLog(EnvConfig.getInt("METRICS_LOG_INTERVAL_SECONDS", 0));
+            return wired;
+        });
+        return new Wiring(repository, service);
+    }
+
+    /**
+     * Runs a subcommand or script without the menu. Results are written to stdout through a buffered
+     * stream; everything else that would print to stdout is sent to stderr so the results stay parseable.
+     */
+    static int runCommandLine(String[] args) {
+        StartupProfile.time("load configuration", EnvConfig::load);
+        PrintStream results = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 64 * 1024),
+                false, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+        ExpenseService service = new ExpenseService(StartupProfile.time("open storage", () -> ExpenseRepository.fromEnvironment(false)));
+        try {
+            return StartupProfile.time("run command", () -> new CommandLineRunner(service, results).run(args));
+        } finally {
+            results.flush();
+            service.shutdown();
+            DBConnection.closeConnection();
+            Metrics.shutdown();
+            if (StartupProfile.isEnabled()) {
+                StartupProfile.print(System.err);
+            }
+        }
+    }
+
+    private ExpenseService expenseService() {
+        return awaitWiring().service();
+    }
+
+    private ExpenseRepository expenseRepository() {
+        return awaitWiring().repository();
+    }
+
+    private Wiring awaitWiring() {
+        if (!wiring.isDone()) {
+            System.out.println("Waiting for storage to finish starting...");
+        }
+        try {
+            return wiring.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Application startup failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void printStartupProfile() {
+        try {
+            wiring.join();
+        } catch (CompletionException e) {
+            // The failed phase is still listed; the error itself was logged by the startup thread
+        }
+        StartupProfile.print(System.out);
+    }
+
     public void run() {
         logger.info("CLI Expense Tracker application started.");
         printWelcomeMessage();
+        boolean firstMenu = true;
         while (true) {
             printMenu();
+            if (firstMenu) {
+                firstMenu = false;
+                StartupProfile.mark("menu rendered");
+                if (StartupProfile.isEnabled()) {
+                    printStartupProfile();
+                    System.out.print("\nEnter your choice (0-13): ");
+                }
+            }
             String choice = scanner.nextLine();
             try {
                 switch (choice) {
@@ -68,10 +208,26 @@ public class MainApp {
                     case "9":
                         showHelp();
                         break;
+                    case "10":
+                        showMaintenance();
+                        break;
+                    case "11":
+                        showStatistics();
+                        break;
+                    case "12":
+                        showTrends();
+                        break;
+                    case "13":
+                        showTopSpenders();
+                        break;
                     case "0":
                         System.out.println("Exiting application. Goodbye!");
                         logger.info("CLI Expense Tracker application stopped.");
+                        if (wiring.isDone() && !wiring.isCompletedExceptionally()) {
+                            wiring.join().service().shutdown();
+                        }
                         DBConnection.closeConnection();
+                        Metrics.shutdown();
                         return;
                     default:
                         System.out.println("Invalid choice. Please try again.");
@@ -103,8 +259,12 @@ public class MainApp {
         System.out.println("7. 📈 Export to CSV");
         System.out.println("8. ⚙️  Settings");
         System.out.println("9. ❓ Help");
+        System.out.println("10. 🛠️  Maintenance");
+        System.out.println("11. 📉 Statistics");
+        System.out.println("12. 📈 Trends");
+        System.out.println("13. 🏆 Top Spenders");
         System.out.println("0. 🚪 Exit");
-        System.out.print("\nEnter your choice (0-9): ");
+        System.out.print("\nEnter your choice (0-13): ");
     }
 
     private void addExpense() {
@@ -118,8 +278,24 @@ public class MainApp {
 
         if (date != null && category != null && !category.trim().isEmpty() && amount != null) {
             Expense newExpense = new Expense(date, category, description, amount);
-            expenseService.addExpense(newExpense);
-            System.out.println("Expense added successfully!");
+            boolean confirmedDuplicate = false;
+            if (expenseService().getDuplicatePolicy() == DuplicateIndex.Policy.FLAG) {
+                List<Expense> duplicates = expenseService().findDuplicatesOf(newExpense);
+                if (!duplicates.isEmpty()) {
+                    System.out.println("This expense looks like a duplicate of:");
+                    displayExpenses(duplicates);
+                    System.out.print("Add it anyway? (yes/no): ");
+                    if (!"yes".equals(scanner.nextLine().trim().toLowerCase())) {
+                        System.out.println("Expense not added.");
+                        return;
+                    }
+                    confirmedDuplicate = true;
+                }
+            }
+            expenseService().addExpense(newExpense, confirmedDuplicate);
+            if (newExpense.getId() > 0) {
+                System.out.println("Expense added successfully!");
+            }
         } else {
             System.out.println("Invalid input. Expense not added.");
         }
@@ -127,14 +303,9 @@ public class MainApp {
 
     private void viewAllExpenses() {
         System.out.println("\n--- View All Expenses ---");
-        List<Expense> expenses = expenseService.getAllExpenses();
-
-        if (expenses.isEmpty()) {
+        if (!browseExpenses(ExpenseQuery.all())) {
             System.out.println("No expenses found.");
-            return;
         }
-
-        displayExpenses(expenses);
     }
 
     private void searchExpenses() {
@@ -145,16 +316,78 @@ public class MainApp {
         String category = scanner.nextLine();
         BigDecimal minAmount = promptForBigDecimalOptional("Enter minimum amount for filter (leave blank for no filter): ");
         BigDecimal maxAmount = promptForBigDecimalOptional("Enter maximum amount for filter (leave blank for no filter): ");
-
-        List<Expense> expenses = expenseService.filterExpenses(startDate, endDate, category, minAmount, maxAmount);
-
-        if (expenses.isEmpty()) {
-            System.out.println("No expenses found matching your criteria.");
+        System.out.print("Enter description words to search for (leave blank for no filter): ");
+        String text = scanner.nextLine().trim();
+
+        ExpenseQuery query = ExpenseService.toQuery(startDate, endDate, category, minAmount, maxAmount);
+        if (!text.isEmpty()) {
+            System.out.println("\n--- Best Matches for \"" + text + "\" ---");
+            List<Expense> matches = expenseService().searchDescriptions(text, query.limit(EnvConfig.getInt("PAGE_SIZE", DEFAULT_PAGE_SIZE)));
+            if (matches.isEmpty()) {
+                System.out.println("No expenses found matching your criteria.");
+            } else {
+                displayExpenses(matches);
+            }
             return;
         }
 
         System.out.println("\n--- Filtered Expenses ---");
-        displayExpenses(expenses);
+        if (!browseExpenses(query)) {
+            System.out.println("No expenses found matching your criteria.");
+        }
+    }
+
+    /**
+     * Shows matching expenses one page at a time with next/previous navigation, then prints totals
+     * for the whole result. Returns false if nothing matched.
+     */
+    private boolean browseExpenses(ExpenseQuery query) {
+        int pageSize = EnvConfig.getInt("PAGE_SIZE", DEFAULT_PAGE_SIZE);
+        ExpensePage page = expenseService().getExpensePage(query, null, ExpensePage.Direction.NEXT, pageSize);
+        if (page.isEmpty()) {
+            return false;
+        }
+
+        int pageNumber = 1;
+        while (true) {
+            System.out.println("\nPage " + pageNumber + ":");
+            displayExpenses(page.getExpenses());
+            if (!page.hasNext() && !page.hasPrevious()) {
+                break;
+            }
+
+            System.out.print("\n" + (page.hasNext() ? "[n]ext  " : "") + (page.hasPrevious() ? "[p]revious  " : "") + "[q]uit: ");
+            String navigation = scanner.nextLine().trim().toLowerCase();
+            if ("n".equals(navigation) && page.hasNext()) {
+                page = expenseService().getExpensePage(query, page.getLastCursor(), ExpensePage.Direction.NEXT, pageSize);
+                pageNumber++;
+            } else if ("p".equals(navigation) && page.hasPrevious()) {
+                page = expenseService().getExpensePage(query, page.getFirstCursor(), ExpensePage.Direction.PREVIOUS, pageSize);
+                pageNumber--;
+            } else if ("q".equals(navigation) || navigation.isEmpty()) {
+                break;
+            } else {
+                System.out.println("Invalid choice.");
+            }
+            if (page.isEmpty()) {
+                // Rows were removed while browsing; start over from the top
+                page = expenseService().getExpensePage(query, null, ExpensePage.Direction.NEXT, pageSize);
+                pageNumber = 1;
+                if (page.isEmpty()) {
+                    break;
+                }
+            }
+        }
+
+        ExpenseSummary summary = expenseService().getSummary(query);
+        System.out.println("Total expenses matched: " + summary.getCount() + " (" + summary.getTotal() + ")");
+
+        Map<String, BigDecimal> categoryTotals = expenseService().getCategoryTotals(query);
+        if (!categoryTotals.isEmpty()) {
+            System.out.println("\nCategory Totals:");
+            categoryTotals.forEach((cat, sum) -> System.out.printf("  %-15s: %.2f\n", cat, sum));
+        }
+        return true;
     }
 
     private void displayExpenses(List<Expense> expenses) {
@@ -170,20 +403,14 @@ public class MainApp {
         }
         System.out.println("--------------------------------------------------------------------------");
 
-        BigDecimal total = expenseService.getTotalExpenses(expenses);
+        BigDecimal total = expenseService().getTotalExpenses(expenses);
         System.out.println("Total expenses displayed: " + total);
-
-        Map<String, BigDecimal> categoryTotals = expenseService.getCategoryTotals(expenses);
-        if (!categoryTotals.isEmpty()) {
-            System.out.println("\nCategory Totals:");
-            categoryTotals.forEach((cat, sum) -> System.out.printf("  %-15s: %.2f\n", cat, sum));
-        }
     }
 
     private void updateExpense() {
         System.out.println("\n--- Update Expense ---");
         int id = promptForInt("Enter ID of expense to update: ");
-        Expense existingExpense = expenseService.getExpenseById(id);
+        Expense existingExpense = expenseService().getExpenseById(id);
 
         if (existingExpense == null) {
             System.out.println("Expense with ID " + id + " not found.");
@@ -207,14 +434,14 @@ public class MainApp {
         if (newAmount == null) newAmount = existingExpense.getAmount();
 
         Expense updatedExpense = new Expense(id, newDate, newCategory, newDescription, newAmount);
-        expenseService.updateExpense(updatedExpense);
+        expenseService().updateExpense(updatedExpense);
         System.out.println("Expense updated successfully!");
     }
 
     private void deleteExpense() {
         System.out.println("\n--- Delete Expense ---");
         int id = promptForInt("Enter ID of expense to delete: ");
-        Expense existingExpense = expenseService.getExpenseById(id);
+        Expense existingExpense = expenseService().getExpenseById(id);
 
         if (existingExpense == null) {
             System.out.println("Expense with ID " + id + " not found.");
@@ -225,7 +452,7 @@ public class MainApp {
         String confirmation = scanner.nextLine().trim().toLowerCase();
 
         if ("yes".equals(confirmation)) {
-            expenseService.deleteExpense(id);
+            expenseService().deleteExpense(id);
             System.out.println("Expense deleted successfully!");
         } else {
             System.out.println("Expense deletion cancelled.");
@@ -237,7 +464,7 @@ public class MainApp {
         System.out.println("Do you want to export all expenses or filtered expenses? (all/filtered): ");
         String exportChoice = scanner.nextLine().trim().toLowerCase();
 
-        List<Expense> expensesToExport;
+        ExpenseQuery query;
         if ("filtered".equals(exportChoice)) {
             LocalDate startDate = promptForDate("Enter start date for filter (YYYY-MM-DD, leave blank for no filter): ");
             LocalDate endDate = promptForDate("Enter end date for filter (YYYY-MM-DD, leave blank for no filter): ");
@@ -246,20 +473,28 @@ public class MainApp {
             BigDecimal minAmount = promptForBigDecimalOptional("Enter minimum amount for filter (leave blank for no filter): ");
             BigDecimal maxAmount = promptForBigDecimalOptional("Enter maximum amount for filter (leave blank for no filter): ");
 
-            expensesToExport = expenseService.filterExpenses(startDate, endDate, category, minAmount, maxAmount);
+            query = ExpenseService.toQuery(startDate, endDate, category, minAmount, maxAmount);
         } else {
-            expensesToExport = expenseService.getAllExpenses();
+            query = ExpenseQuery.all();
         }
 
-        if (expensesToExport.isEmpty()) {
-            System.out.println("No expenses to export.");
+        String timestamp = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + "_" +
+                          java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("HHmmss"));
+        System.out.println("Export as a single CSV file or as compressed monthly files? (single/monthly): ");
+        String formatChoice = scanner.nextLine().trim().toLowerCase();
+        if ("monthly".equals(formatChoice)) {
+            long exported = expenseService().exportExpensesPartitioned(query, "expenses_" + timestamp);
+            if (exported == 0) {
+                System.out.println("No expenses matched; the export contains only the manifest.");
+            }
             return;
         }
 
-        String timestamp = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + "_" +
-                          java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("HHmmss"));
         String filename = "expenses_" + timestamp + ".csv";
-        expenseService.exportExpensesToCsv(expensesToExport, filename);
+        long exported = expenseService().exportExpensesToCsv(query, filename);
+        if (exported == 0) {
+            System.out.println("No expenses matched; the export contains only the header row.");
+        }
     }
 
     private LocalDate promptForDate(String message) {
@@ -339,85 +574,211 @@ public class MainApp {
     private void viewSummaryReports() {
         System.out.println("\n📊 === EXPENSE SUMMARY REPORTS ===");
 
-        List<Expense> allExpenses = expenseService.getAllExpenses();
-        if (allExpenses.isEmpty()) {
+        ExpenseReport report;
+        DistributionReport distributions;
+        try {
+            CompletableFuture<ExpenseReport> reportFuture = expenseService().getReportAsync(ExpenseQuery.all());
+            CompletableFuture<DistributionReport> distributionsFuture = expenseService().getDistributionsAsync(ExpenseQuery.all());
+            AsyncExecutor.allOf(reportFuture, distributionsFuture).join();
+            report = reportFuture.join();
+            distributions = distributionsFuture.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            logger.error("Error building summary reports: {}", cause.toString());
+            System.out.println(cause instanceof TimeoutException
+                    ? "Reports timed out. Try again or raise QUERY_TIMEOUT_SECONDS."
+                    : "Error building reports: " + cause.getMessage());
+            return;
+        }
+
+        ExpenseSummary summary = report.getSummary();
+        if (summary.getCount() == 0) {
             System.out.println("No expenses found for reporting.");
             return;
         }
 
         // Total Expenses
-        BigDecimal totalAmount = expenseService.getTotalExpenses(allExpenses);
-        System.out.println("\n💰 Total Expenses: $" + String.format("%.2f", totalAmount));
+        long totalCents = summary.getTotalCents();
+        System.out.println("\n💰 Total Expenses: $" + Money.format(totalCents));
 
         // Average Expense
-        BigDecimal averageAmount = totalAmount.divide(BigDecimal.valueOf(allExpenses.size()), 2, BigDecimal.ROUND_HALF_UP);
-        System.out.println("📊 Average Expense: $" + String.format("%.2f", averageAmount));
+        System.out.println("📊 Average Expense: $" + Money.format(summary.getAverageCents()));
 
         // Category Breakdown
         System.out.println("\n📈 Category Breakdown:");
         System.out.println("----------------------------------------");
-        Map<String, BigDecimal> categoryTotals = expenseService.getCategoryTotals(allExpenses);
-        categoryTotals.entrySet().stream()
-            .sorted(Map.Entry.<String, BigDecimal>comparingByValue().reversed())
+        report.getCategories().entrySet().stream()
+            .sorted(Map.Entry.<String, ExpenseSummary>comparingByValue(Comparator.comparingLong(ExpenseSummary::getTotalCents)).reversed())
             .forEach(entry -> {
                 String category = entry.getKey();
-                BigDecimal amount = entry.getValue();
-                double percentage = amount.doubleValue() / totalAmount.doubleValue() * 100;
+                BigDecimal amount = entry.getValue().getTotal();
+                double percentage = Money.percentOf(entry.getValue().getTotalCents(), totalCents);
                 System.out.printf("  %-15s: $%8.2f (%5.1f%%)\n", category, amount, percentage);
             });
 
         // Monthly Summary (if we have multiple months)
         System.out.println("\n📅 Monthly Summary:");
         System.out.println("----------------------------------------");
-        Map<String, BigDecimal> monthlyTotals = expenseService.getMonthlyTotals(allExpenses);
-        monthlyTotals.entrySet().stream()
-            .sorted(Map.Entry.comparingByKey())
-            .forEach(entry -> {
-                String month = entry.getKey();
-                BigDecimal amount = entry.getValue();
-                System.out.printf("  %-10s: $%8.2f\n", month, amount);
-            });
-
-        // Recent Trends (last 7 days vs previous 7 days)
-        LocalDate today = LocalDate.now();
-        LocalDate lastWeek = today.minusDays(7);
-        LocalDate twoWeeksAgo = today.minusDays(14);
+        report.getMonths().forEach((month, monthSummary) -> System.out.printf("  %-10s: $%8.2f\n", month, monthSummary.getTotal()));
 
-        List<Expense> last7Days = expenseService.filterExpenses(lastWeek, today, null, null, null);
-        List<Expense> previous7Days = expenseService.filterExpenses(twoWeeksAgo, lastWeek, null, null, null);
+        // Amount distribution per category and per month
+        System.out.printf("\n📐 Amount Distribution (percentiles up to %.1f%% high):\n", distributions.getOverall().getRelativeError() * 100);
+        System.out.println("----------------------------------------");
+        System.out.printf("  %-15s  %10s %10s %10s %10s\n", "", "p50", "p90", "p99", "max");
+        printDistribution("All", distributions.getOverall());
+        distributions.getCategories().forEach(this::printDistribution);
+        distributions.getMonths().forEach(this::printDistribution);
 
-        BigDecimal last7Total = expenseService.getTotalExpenses(last7Days);
-        BigDecimal previous7Total = expenseService.getTotalExpenses(previous7Days);
+        // Recent Trends (last 7 days vs previous 7 days)
+        long last7Cents = report.getRecent().getTotalCents();
+        long previous7Cents = report.getPrevious().getTotalCents();
 
         System.out.println("\n📈 Recent Trends:");
         System.out.println("----------------------------------------");
-        System.out.printf("  Last 7 days:     $%8.2f\n", last7Total);
-        System.out.printf("  Previous 7 days: $%8.2f\n", previous7Total);
+        System.out.printf("  Last %d days:     $%8s\n", report.getTrendDays(), Money.format(last7Cents));
+        System.out.printf("  Previous %d days: $%8s\n", report.getTrendDays(), Money.format(previous7Cents));
+
+        if (previous7Cents > 0) {
+            long changeCents = last7Cents - previous7Cents;
+            double changePercent = Money.percentOf(changeCents, previous7Cents);
+            String trend = changeCents >= 0 ? "📈" : "📉";
+            System.out.printf("  Change:          %s $%8s (%+.1f%%)\n", trend, Money.format(Math.abs(changeCents)), changePercent);
+        }
+    }
+
+    private void printDistribution(String label, AmountDistribution distribution) {
+        System.out.printf("  %-15s: %10s %10s %10s %10s\n", label, Money.format(distribution.getP50Cents()),
+                Money.format(distribution.getP90Cents()), Money.format(distribution.getP99Cents()), Money.format(distribution.getMaxCents()));
+    }
 
-        if (previous7Total.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal change = last7Total.subtract(previous7Total);
-            double changePercent = change.doubleValue() / previous7Total.doubleValue() * 100;
-            String trend = change.compareTo(BigDecimal.ZERO) >= 0 ? "📈" : "📉";
-            System.out.printf("  Change:          %s $%8.2f (%+.1f%%)\n", trend, change.abs(), changePercent);
+    private void showTrends() {
+        System.out.println("\n📈 === SPENDING TRENDS ===");
+        String defaults = EnvConfig.get("TREND_WINDOWS", DEFAULT_TREND_WINDOWS);
+        System.out.print("Enter window sizes in days, comma-separated (leave blank for " + defaults + "): ");
+        String input = scanner.nextLine().trim();
+        int[] windows;
+        try {
+            windows = TimeSeries.parseWindows(input.isEmpty() ? defaults : input);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid window sizes: " + e.getMessage());
+            return;
+        }
+
+        TrendReport report = expenseService().getTrends(LocalDate.now(), windows);
+        for (TrendReport.Window window : report.getWindows()) {
+            long currentCents = window.getCurrent().getTotalCents();
+            long previousCents = window.getPrevious().getTotalCents();
+            System.out.printf("\n%s (%s to %s vs %s to %s):\n", window.getLabel(), window.getCurrentStart(), window.getCurrentEnd(),
+                    window.getPreviousStart(), window.getPreviousEnd());
+            System.out.println("----------------------------------------");
+            System.out.printf("  Current:  $%10s  (%d expenses, $%s per day)\n", Money.format(currentCents),
+                    window.getCurrent().getCount(), Money.format(window.getDailyAverageCents()));
+            System.out.printf("  Previous: $%10s  (%d expenses)\n", Money.format(previousCents), window.getPrevious().getCount());
+            if (previousCents > 0) {
+                long changeCents = currentCents - previousCents;
+                String trend = changeCents >= 0 ? "📈" : "📉";
+                System.out.printf("  Change:   %s $%8s (%+.1f%%)\n", trend, Money.format(Math.abs(changeCents)), Money.percentOf(changeCents, previousCents));
+            }
+            window.getCurrentByCategory().forEach((category, current) -> {
+                long before = window.getPreviousByCategory().get(category).getTotalCents();
+                System.out.printf("    %-15s: $%8s (was $%8s)\n", category, Money.format(current.getTotalCents()), Money.format(before));
+            });
         }
     }
 
+    private void showTopSpenders() {
+        System.out.println("\n🏆 === TOP SPENDERS ===");
+        TopSpendersReport report = expenseService().getTopSpenders(TOP_SPENDERS_SHOWN);
+        if (report.getTotalCount() == 0) {
+            System.out.println("No expenses found for reporting.");
+            return;
+        }
+        System.out.println("\n💸 Descriptions by amount:");
+        System.out.println("----------------------------------------");
+        report.getDescriptionsByAmount().forEach(hitter -> printHeavyHitter(hitter, true, report.getTotalCents()));
+        System.out.println("\n🔁 Descriptions by count:");
+        System.out.println("----------------------------------------");
+        report.getDescriptionsByCount().forEach(hitter -> printHeavyHitter(hitter, false, report.getTotalCount()));
+        System.out.println("\n📂 Categories by amount:");
+        System.out.println("----------------------------------------");
+        report.getCategoriesByAmount().forEach(hitter -> printHeavyHitter(hitter, true, report.getTotalCents()));
+        System.out.println("\n📂 Categories by count:");
+        System.out.println("----------------------------------------");
+        report.getCategoriesByCount().forEach(hitter -> printHeavyHitter(hitter, false, report.getTotalCount()));
+    }
+
+    private void printHeavyHitter(HeavyHitter hitter, boolean amount, long whole) {
+        String value = amount ? "$" + Money.format(hitter.getValue()) : String.valueOf(hitter.getValue());
+        String approximate = hitter.getError() > 0
+                ? " (at least " + (amount ? "$" + Money.format(hitter.getLowerBound()) : String.valueOf(hitter.getLowerBound())) + ")"
+                : "";
+        System.out.printf("  %-25s: %12s (%5.1f%%)%s\n", truncateString(hitter.getLabel(), 25), value,
+                Money.percentOf(hitter.getValue(), whole), approximate);
+    }
+
     private void showSettings() {
         System.out.println("\n⚙️  === APPLICATION SETTINGS ===");
 
         System.out.println("\n📋 Current Configuration:");
         System.out.println("----------------------------------------");
 
+        EmbeddedExpenseRepository embedded = expenseRepository().unwrap(EmbeddedExpenseRepository.class);
+        if (embedded != null) {
+            EmbeddedExpenseRepository.StoreStats storeStats = embedded.getStats();
+            System.out.println("💾 Storage: embedded");
+            System.out.println("  Log: " + storeStats.path());
+            System.out.printf("  Expenses: %d, log size: %d bytes (%d live)\n", storeStats.expenses(), storeStats.logBytes(), storeStats.liveBytes());
+            System.out.printf("  Opened in %d ms from %d records, compactions: %d\n", storeStats.openMillis(), storeStats.recoveredRecords(), storeStats.compactions());
+            if (storeStats.droppedBytes() > 0) {
+                System.out.println("  Recovery dropped " + storeStats.droppedBytes() + " unreadable bytes at the end of the log");
+            }
+        }
+
+        SnapshotExpenseRepository snapshotRepository = expenseRepository().unwrap(SnapshotExpenseRepository.class);
+        if (snapshotRepository != null) {
+            SnapshotExpenseRepository.SnapshotStats snapshotStats = snapshotRepository.getStats();
+            System.out.println("\n⚡ Startup snapshot: " + snapshotStats.path());
+            if (snapshotStats.rows() >= 0) {
+                System.out.printf("  Mapped %d rows in %d ms, %s\n", snapshotStats.rows(), snapshotStats.openMillis(),
+                        snapshotStats.serving() ? "still serving reads" : "retired (reads go to the store)");
+            } else {
+                System.out.println("  No snapshot found at startup");
+            }
+        }
+
         // Database settings
-        System.out.println("🗄️  Database:");
+        System.out.println("\n🗄️  Database:");
         System.out.println("  URL: " + System.getProperty("DB_URL", "Not configured"));
         System.out.println("  User: " + System.getProperty("DB_USER", "Not configured"));
+        ConnectionPool.PoolStats poolStats = DBConnection.getPoolStats();
+        if (poolStats != null) {
+            System.out.printf("  Pool: %d active / %d idle (max %d)\n", poolStats.active(), poolStats.idle(), poolStats.maxConnections());
+            System.out.printf("  Connections created: %d, borrowed: %d, timeouts: %d\n", poolStats.created(), poolStats.borrowed(), poolStats.timeouts());
+            System.out.printf("  Wait time: avg %.2f ms, max %.2f ms\n", poolStats.averageWaitMicros() / 1000.0, poolStats.maxWaitMicros() / 1000.0);
+        } else {
+            System.out.println("  Pool: not started");
+        }
+
+        ExpenseReplica.ReplicaStats replicaStats = expenseService().getReplicaStats();
+        if (replicaStats != null) {
+            System.out.println("\n🧠 Cache:");
+            System.out.printf("  Rows: %d, hits: %d, misses: %d (hit ratio %.1f%%)\n",
+                    replicaStats.rows(), replicaStats.hits(), replicaStats.misses(), replicaStats.hitRatio() * 100);
+            System.out.printf("  Refreshes: %d (failed %d), rows applied: %d, remote deletes: %d\n",
+                    replicaStats.refreshes(), replicaStats.refreshFailures(), replicaStats.rowsApplied(), replicaStats.deletesDetected());
+            System.out.printf("  Staleness: %d ms\n", replicaStats.stalenessMillis());
+        }
+
+        int snapshotRows = expenseService().getAnalyticsSnapshotSize();
+        if (snapshotRows >= 0) {
+            System.out.println("\n🧮 Analytics snapshot: " + snapshotRows + " rows in memory");
+        }
 
         // Application settings
         System.out.println("\n⚙️  Application:");
         System.out.println("  Version: 2.0.0");
         System.out.println("  Log Level: " + System.getProperty("LOG_LEVEL", "INFO"));
-        System.out.println("  Export Path: " + System.getProperty("EXPORT_PATH", "src/main/resources/export/"));
+        System.out.println("  Export Path: " + expenseService().getExportDirectory());
 
         // Performance settings
         System.out.println("\n🚀 Performance:");
@@ -431,6 +792,126 @@ public class MainApp {
         System.out.println("  • Use 'Help' option for usage guidance");
     }
 
+    private void showMaintenance() {
+        System.out.println("\n🛠️  === MAINTENANCE ===");
+        System.out.println("1. Rebuild report rollup (after editing the database directly)");
+        System.out.println("2. Compact storage log (embedded storage only)");
+        System.out.println("3. Save startup snapshot now (SNAPSHOT_ENABLED only)");
+        System.out.println("4. Dump all expenses to a binary backup file");
+        System.out.println("5. Restore expenses from a binary backup file (empty ledger only)");
+        System.out.println("6. Find duplicate expenses");
+        System.out.println("0. Back");
+        System.out.print("\nEnter your choice: ");
+        String choice = scanner.nextLine().trim();
+
+        switch (choice) {
+            case "1":
+                System.out.println("Rebuilding report rollup...");
+                int rows = expenseService().rebuildReportRollup();
+                if (rows >= 0) {
+                    System.out.println("Report rollup rebuilt with " + rows + " day/category rows.");
+                } else {
+                    System.out.println("Error: Failed to rebuild report rollup. Check the logs for details.");
+                }
+                break;
+            case "2":
+                long reclaimed = expenseService().compactStorage();
+                if (reclaimed >= 0) {
+                    System.out.println("Storage compacted, " + reclaimed + " bytes reclaimed.");
+                } else {
+                    System.out.println("Nothing to compact: the current storage does not use a log, or compaction failed.");
+                }
+                break;
+            case "3":
+                SnapshotExpenseRepository snapshotRepository = expenseRepository().unwrap(SnapshotExpenseRepository.class);
+                if (snapshotRepository != null) {
+                    long saved = snapshotRepository.saveSnapshot();
+                    if (saved >= 0) {
+                        System.out.println("Snapshot saved with " + saved + " expenses.");
+                    } else {
+                        System.out.println("Error: Failed to save the snapshot. Check the logs for details.");
+                    }
+                } else {
+                    System.out.println("Snapshots are disabled. Set SNAPSHOT_ENABLED=true to use them.");
+                }
+                break;
+            case "4":
+                String timestamp = LocalDate.now().format(DateTimeFormatter.ofPattern("yyyyMMdd")) + "_" +
+                        java.time.LocalTime.now().format(DateTimeFormatter.ofPattern("HHmmss"));
+                long dumped = expenseService().dumpExpenses("expenses_" + timestamp);
+                if (dumped >= 0) {
+                    System.out.println(dumped + " expenses dumped.");
+                }
+                break;
+            case "5":
+                System.out.print("Enter the path of the dump file: ");
+                String dumpPath = scanner.nextLine().trim();
+                if (dumpPath.isEmpty()) {
+                    System.out.println("No file given.");
+                    break;
+                }
+                long restored = expenseService().restoreDump(Paths.get(dumpPath));
+                if (restored >= 0) {
+                    System.out.println(restored + " expenses restored.");
+                }
+                break;
+            case "6":
+                findDuplicates();
+                break;
+            case "0":
+            case "":
+                break;
+            default:
+                System.out.println("Invalid choice.");
+        }
+    }
+
+    private void findDuplicates() {
+        List<List<Expense>> groups = expenseService().findDuplicateGroups();
+        if (groups.isEmpty()) {
+            System.out.println("No duplicate expenses found.");
+            return;
+        }
+        List<Integer> laterCopies = new ArrayList<>();
+        for (List<Expense> group : groups) {
+            System.out.println("\n" + group.size() + " copies:");
+            displayExpenses(group);
+            for (Expense expense : group.subList(1, group.size())) {
+                laterCopies.add(expense.getId());
+            }
+        }
+        System.out.println("\n" + groups.size() + " duplicate groups, " + laterCopies.size() + " extra copies.");
+        System.out.print("Delete the extra copies, keeping the lowest ID of each group? (yes/no): ");
+        if ("yes".equals(scanner.nextLine().trim().toLowerCase())) {
+            int deleted = expenseService().deleteExpenses(laterCopies);
+            System.out.println(deleted + " duplicate expenses deleted.");
+        }
+    }
+
+    private void showStatistics() {
+        System.out.println("\n📉 === OPERATION STATISTICS ===");
+        System.out.printf("%-36s %9s %7s %11s %10s %10s %10s\n", "Operation", "Calls", "Errors", "Rows", "p50 ms", "p99 ms", "Max ms");
+        System.out.println("-".repeat(99));
+        int shown = 0;
+        for (OperationMetrics metrics : Metrics.operations()) {
+            if (metrics.getCalls() == 0) {
+                continue;
+            }
+            System.out.printf("%-36s %9d %7d %11d %10.3f %10.3f %10.3f\n", metrics.getName(), metrics.getCalls(), metrics.getErrors(),
+                    metrics.getRows(), metrics.getP50Millis(), metrics.getP99Millis(), metrics.getMaxMillis());
+            shown++;
+        }
+        if (shown == 0) {
+            System.out.println("No operations recorded yet" + (EnvConfig.getBoolean("METRICS_ENABLED", true) ? "." : " (METRICS_ENABLED=false)."));
+            return;
+        }
+        System.out.print("\nReset all counters? (y/N): ");
+        if ("y".equalsIgnoreCase(scanner.nextLine().trim())) {
+            Metrics.resetAll();
+            System.out.println("Counters reset.");
+        }
+    }
+
     private void showHelp() {
         System.out.println("\n❓ === CLI EXPENSE TRACKER HELP ===");
 
@@ -446,6 +927,10 @@ public class MainApp {
         System.out.println("  7. Export data to CSV files");
         System.out.println("  8. Check application settings");
         System.out.println("  9. Get help and usage tips");
+        System.out.println("  10. Maintenance tasks such as rebuilding report data or finding duplicates");
+        System.out.println("  11. Per-operation call counts and latencies");
+        System.out.println("  12. Spending over rolling windows compared with the period before");
+        System.out.println("  13. Descriptions and categories with the most expenses and spending");
 
         System.out.println("\n💡 Usage Tips:");
         System.out.println("  • Use descriptive categories for better organization");
@@ -468,4 +953,7 @@ public class MainApp {
         System.out.println("\n🔗 For more information:");
         System.out.println("  Check the README.md file for detailed documentation");
     }
+
+    private record Wiring(ExpenseRepository repository, ExpenseService service) {
+    }
 }
@@ -0,0 +1,102 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.util.AsyncExecutor;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking view of an {@link ExpenseRepository}: every call runs on its own virtual thread of the
+ * given {@link AsyncExecutor} and returns a {@link CompletableFuture}, so independent queries can be
+ * issued together and take as long as the slowest one. Results and failures are the same as the
+ * blocking call's; only timeouts and cancellation are new.
+ */
+public class AsyncExpenseRepository {
+
+    private final ExpenseRepository repository;
+    private final AsyncExecutor executor;
+
+    public AsyncExpenseRepository(ExpenseRepository repository, AsyncExecutor executor) {
+        this.repository = repository;
+        this.executor = executor;
+    }
+
+    public ExpenseRepository getRepository() {
+        return repository;
+    }
+
+    public CompletableFuture<Expense> addExpense(Expense expense) {
+        return executor.submit(() -> {
+            repository.addExpense(expense);
+            return expense;
+        });
+    }
+
+    public CompletableFuture<Expense> getExpenseById(int id) {
+        return executor.submit(() -> repository.getExpenseById(id));
+    }
+
+    public CompletableFuture<List<Expense>> getAllExpenses() {
+        return executor.submit(repository::getAllExpenses);
+    }
+
+    public CompletableFuture<Boolean> updateExpense(Expense expense) {
+        return executor.submit(() -> repository.updateExpense(expense));
+    }
+
+    public CompletableFuture<Boolean> deleteExpense(int id) {
+        return executor.submit(() -> repository.deleteExpense(id));
+    }
+
+    public CompletableFuture<Integer> addExpenses(List<Expense> expenses) {
+        return executor.submit(() -> repository.addExpenses(expenses));
+    }
+
+    public CompletableFuture<Integer> updateExpenses(List<Expense> expenses) {
+        return executor.submit(() -> repository.updateExpenses(expenses));
+    }
+
+    public CompletableFuture<Integer> deleteExpenses(Collection<Integer> ids) {
+        return executor.submit(() -> repository.deleteExpenses(ids));
+    }
+
+    public CompletableFuture<List<Expense>> findExpenses(ExpenseQuery query) {
+        return executor.submit(() -> repository.findExpenses(query));
+    }
+
+    /** {@code consumer} is called on the executor's thread. */
+    public CompletableFuture<Long> streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+        return executor.submit(() -> repository.streamExpenses(query, consumer));
+    }
+
+    public CompletableFuture<Long> countExpenses() {
+        return executor.submit(repository::countExpenses);
+    }
+
+    public CompletableFuture<List<Expense>> getExpensesByIds(Collection<Integer> ids) {
+        return executor.submit(() -> repository.getExpensesByIds(ids));
+    }
+
+    public CompletableFuture<ExpensePage> getExpensePage(ExpenseQuery query, ExpensePage.Cursor cursor,
+                                                         ExpensePage.Direction direction, int pageSize) {
+        return executor.submit(() -> repository.getExpensePage(query, cursor, direction, pageSize));
+    }
+
+    public CompletableFuture<ExpenseSummary> getSummary(ExpenseQuery query) {
+        return executor.submit(() -> repository.getSummary(query));
+    }
+
+    public CompletableFuture<Map<String, ExpenseSummary>> getCategorySummaries(ExpenseQuery query) {
+        return executor.submit(() -> repository.getCategorySummaries(query));
+    }
+
+    public CompletableFuture<Map<String, ExpenseSummary>> getMonthlySummaries(ExpenseQuery query) {
+        return executor.submit(() -> repository.getMonthlySummaries(query));
+    }
+}
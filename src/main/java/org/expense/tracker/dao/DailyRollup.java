@@ -0,0 +1,176 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.Money;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Maintains {@code expense_daily_rollup}, a {@code (date, category) -> count, sum} table that
+ * {@link ExpenseDAO} updates in the same transaction as every write. Reports read from it, so their cost
+ * grows with the number of distinct days and categories rather than with the number of expenses.
+ * <p>
+ * Deltas are collected in memory per transaction with {@link #add}/{@link #subtract} and written by
+ * {@link #flush} as one batch of upserts.
+ */
+class DailyRollup {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyRollup.class);
+
+    static final String TABLE_NAME = "expense_daily_rollup";
+
+    private static final String CREATE_TABLE_SQL = "CREATE TABLE IF NOT EXISTS " + TABLE_NAME + " ("
+            + "date DATE NOT NULL, "
+            + "category VARCHAR(50) NOT NULL, "
+            + "expense_count BIGINT NOT NULL, "
+            + "amount_total DECIMAL(15,2) NOT NULL, "
+            + "PRIMARY KEY (date, category), "
+            + "INDEX idx_rollup_category (category))";
+    private static final String UPSERT_SQL = "INSERT INTO " + TABLE_NAME + " (date, category, expense_count, amount_total) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE expense_count = expense_count + VALUES(expense_count), amount_total = amount_total + VALUES(amount_total)";
+    private static final String DELETE_EMPTY_SQL = "DELETE FROM " + TABLE_NAME + " WHERE date = ? AND category = ? AND expense_count <= 0";
+    private static final String CLEAR_SQL = "DELETE FROM " + TABLE_NAME;
+    private static final String REBUILD_SQL = "INSERT INTO " + TABLE_NAME + " (date, category, expense_count, amount_total) "
+            + "SELECT date, category, COUNT(*), SUM(amount) FROM expenses GROUP BY date, category";
+
+    static final String SELECT_SUMMARY_SQL = "SELECT SUM(expense_count) AS expense_count, SUM(amount_total) AS amount_total FROM " + TABLE_NAME;
+    static final String SELECT_CATEGORY_SUMMARY_SQL = "SELECT category AS group_key, SUM(expense_count) AS expense_count, SUM(amount_total) AS amount_total FROM " + TABLE_NAME;
+    static final String SELECT_DAILY_SUMMARY_SQL = "SELECT date, category, SUM(expense_count) AS expense_count, SUM(amount_total) AS amount_total FROM " + TABLE_NAME;
+    static final String SELECT_MONTHLY_SUMMARY_SQL = "SELECT DATE_FORMAT(date, '%Y-%m') AS group_key, SUM(expense_count) AS expense_count, SUM(amount_total) AS amount_total FROM " + TABLE_NAME;
+
+    private final Map<Key, Delta> pending = new LinkedHashMap<>();
+
+    void add(Expense expense) {
+        apply(expense.getDate(), expense.getCategory(), 1, expense.getAmountCents());
+    }
+
+    void subtract(Expense expense) {
+        apply(expense.getDate(), expense.getCategory(), -1, -expense.getAmountCents());
+    }
+
+    private void apply(LocalDate date, String category, long count, long cents) {
+        Delta delta = pending.computeIfAbsent(new Key(date, category), key -> new Delta());
+        delta.count += count;
+        delta.cents += cents;
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    void clear() {
+        pending.clear();
+    }
+
+    /**
+     * Writes all collected deltas on {@code connection}, which must be inside the caller's transaction.
+     */
+    void flush(Connection connection) throws SQLException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        boolean anyDecrement = false;
+        try (PreparedStatement upsert = connection.prepareStatement(UPSERT_SQL)) {
+            for (Map.Entry<Key, Delta> entry : pending.entrySet()) {
+                Delta delta = entry.getValue();
+                if (delta.count == 0 && delta.cents == 0) {
+                    continue;
+                }
+                upsert.setDate(1, Date.valueOf(entry.getKey().date));
+                upsert.setString(2, entry.getKey().category);
+                upsert.setLong(3, delta.count);
+                upsert.setBigDecimal(4, Money.toBigDecimal(delta.cents));
+                upsert.addBatch();
+                anyDecrement |= delta.count < 0;
+            }
+            upsert.executeBatch();
+        }
+        if (anyDecrement) {
+            try (PreparedStatement deleteEmpty = connection.prepareStatement(DELETE_EMPTY_SQL)) {
+                for (Map.Entry<Key, Delta> entry : pending.entrySet()) {
+                    if (entry.getValue().count < 0) {
+                        deleteEmpty.setDate(1, Date.valueOf(entry.getKey().date));
+                        deleteEmpty.setString(2, entry.getKey().category);
+                        deleteEmpty.addBatch();
+                    }
+                }
+                deleteEmpty.executeBatch();
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Creates the rollup table if it is missing and backfills it from {@code expenses}.
+     * Returns true if the table had to be created.
+     */
+    static boolean ensureTable(Connection connection) throws SQLException {
+        if (tableExists(connection)) {
+            return false;
+        }
+        logger.info("Rollup table {} not found, creating and backfilling it.", TABLE_NAME);
+        rebuild(connection);
+        return true;
+    }
+
+    /**
+     * Recomputes the whole rollup from {@code expenses} in one transaction and returns the number of
+     * rollup rows written.
+     */
+    static int rebuild(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(CREATE_TABLE_SQL);
+            connection.setAutoCommit(false);
+            statement.executeUpdate(CLEAR_SQL);
+            int rows = statement.executeUpdate(REBUILD_SQL);
+            connection.commit();
+            logger.info("Rebuilt {} with {} (date, category) rows.", TABLE_NAME, rows);
+            return rows;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Whether a query can be answered from the rollup: it holds no per-row amounts, so amount
+     * filters still need the base table.
+     */
+    static boolean canAnswer(ExpenseQuery query) {
+        return query.getMinAmount() == null && query.getMaxAmount() == null;
+    }
+
+    static ExpenseSummary toSummary(ResultSet resultSet) throws SQLException {
+        return new ExpenseSummary(resultSet.getLong("expense_count"), resultSet.getBigDecimal("amount_total"));
+    }
+
+    private static boolean tableExists(Connection connection) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, TABLE_NAME, new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    private record Key(LocalDate date, String category) {
+    }
+
+    private static final class Delta {
+        private long count;
+        private long cents;
+    }
+}
@@ -0,0 +1,35 @@
+package org.expense.tracker.dao;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Folds expenses into {@code (day, category) -> count, cents} groups for stores that have no precomputed
+ * rollup, then replays them oldest day first. Categories compare case-insensitively like the MySQL
+ * collation; the first spelling seen is kept.
+ */
+class DailySummaryCollector {
+
+    private final Map<Long, Map<String, long[]>> days = new TreeMap<>();
+
+    void add(long epochDay, String category, long count, long cents) {
+        long[] totals = days.computeIfAbsent(epochDay, day -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER))
+                .computeIfAbsent(category, key -> new long[2]);
+        totals[0] += count;
+        totals[1] += cents;
+    }
+
+    /** Replays the groups into {@code consumer} and returns how many there were. */
+    long emit(ExpenseRepository.DailySummaryConsumer consumer) {
+        long groups = 0;
+        for (Map.Entry<Long, Map<String, long[]>> day : days.entrySet()) {
+            LocalDate date = LocalDate.ofEpochDay(day.getKey());
+            for (Map.Entry<String, long[]> category : day.getValue().entrySet()) {
+                consumer.accept(date, category.getKey(), category.getValue()[0], category.getValue()[1]);
+                groups++;
+            }
+        }
+        return groups;
+    }
+}
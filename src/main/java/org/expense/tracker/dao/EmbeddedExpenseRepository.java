@@ -0,0 +1,1009 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.Money;
+import org.expense.tracker.util.EnvConfig;
+import org.expense.tracker.util.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * An {@link ExpenseRepository} that runs without a database server, keeping expenses in a single
+ * append-only log file on local disk.
+ * <p>
+ * The file starts with an 8-byte header ({@code MAGIC}, format version) followed by records of the form
+ * {@code [int payload length][int CRC32 of payload][payload]}. A PUT record carries the full expense and
+ * its change time; a DELETE record carries only the ID. Every write appends records and (unless
+ * {@code EMBEDDED_FSYNC=false}) forces them to disk before the in-memory state changes, so a write that
+ * returned is durable.
+ * <p>
+ * On open the log is replayed into an ID index plus newest-first date and category indexes; queries never
+ * touch the file. Replay stops at the first short or checksum-failing record, which is what a crash in
+ * the middle of an append leaves behind; the unreadable tail is copied to {@code expenses.log.corrupt}
+ * and cut off. Superseded and deleted records are reclaimed by compaction, which rewrites the live
+ * records into a new file and atomically renames it over the old one. It runs every
+ * {@code EMBEDDED_COMPACT_INTERVAL_SECONDS} once dead records outweigh live ones.
+ */
+public class EmbeddedExpenseRepository implements ExpenseRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedExpenseRepository.class);
+
+    static final String DEFAULT_DATA_DIR = "data";
+    static final String LOG_FILE_NAME = "expenses.log";
+    private static final int MAGIC = 0x45585047;
+    private static final int FORMAT_VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_PAYLOAD_BYTES = 1 << 20;
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final long COMPACT_MIN_GARBAGE_BYTES = 1 << 20;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_COMPACT_INTERVAL_SECONDS = 60;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private static final Comparator<Entry> NEWEST_FIRST = (a, b) -> {
+        int byDay = Long.compare(b.epochDay, a.epochDay);
+        return byDay != 0 ? byDay : Integer.compare(b.id, a.id);
+    };
+    private static final Comparator<Entry> AMOUNT_ASC = Comparator.comparingLong(Entry::cents).thenComparingInt(Entry::id);
+    private static final Comparator<Entry> UPDATED_FIRST = Comparator.comparingLong(Entry::updatedAtMillis).thenComparingInt(Entry::id);
+
+    private final Path logFile;
+    private final Path compactFile;
+    private final Path corruptFile;
+    private final boolean fsync;
+    private final int batchSize;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final Map<Integer, Entry> byId = new HashMap<>();
+    private final NavigableSet<Entry> byDate = new TreeSet<>(NEWEST_FIRST);
+    private final Map<String, NavigableSet<Entry>> byCategory = new HashMap<>();
+    private FileChannel channel;
+    private volatile long logBytes;
+    private long liveBytes;
+    private int nextId = 1;
+    private long lastChangeMillis;
+    private volatile long compactions;
+    private long recoveredRecords;
+    private long droppedBytes;
+    private long openMillis;
+    private ScheduledExecutorService compactor;
+
+    /**
+     * Opens (or creates) the store in {@code dataDir} using the {@code EMBEDDED_FSYNC},
+     * {@code EMBEDDED_COMPACT_INTERVAL_SECONDS} and {@code BATCH_SIZE} settings.
+     */
+    public static EmbeddedExpenseRepository open(Path dataDir) {
+        EmbeddedExpenseRepository repository = new EmbeddedExpenseRepository(dataDir,
+                EnvConfig.getBoolean("EMBEDDED_FSYNC", true),
+                EnvConfig.getInt("BATCH_SIZE", DEFAULT_BATCH_SIZE));
+        repository.startCompactor(EnvConfig.getInt("EMBEDDED_COMPACT_INTERVAL_SECONDS", DEFAULT_COMPACT_INTERVAL_SECONDS));
+        return repository;
+    }
+
+    /**
+     * Opens (or creates) the store in {@code dataDir} and replays its log. No background compaction is
+     * scheduled; call {@link #startCompactor(int)} or {@link #compact()} for that.
+     */
+    public EmbeddedExpenseRepository(Path dataDir, boolean fsync, int batchSize) {
+        this.logFile = dataDir.resolve(LOG_FILE_NAME);
+        this.compactFile = dataDir.resolve(LOG_FILE_NAME + ".compact");
+        this.corruptFile = dataDir.resolve(LOG_FILE_NAME + ".corrupt");
+        this.fsync = fsync;
+        this.batchSize = Math.max(1, batchSize);
+        long start = System.nanoTime();
+        try {
+            Files.createDirectories(dataDir);
+            recover();
+        } catch (IOException e) {
+            logger.error("Failed to open embedded expense store at {}: {}", logFile, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+            throw new IllegalStateException("Failed to open embedded expense store at " + logFile, e);
+        }
+        openMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.info("Embedded expense store opened at {} with {} expenses ({} log records) in {} ms.",
+                logFile, byId.size(), recoveredRecords, openMillis);
+    }
+
+    /**
+     * Checks every {@code intervalSeconds} whether compaction is worthwhile and runs it if so.
+     * Zero or less disables the check.
+     */
+    public synchronized void startCompactor(int intervalSeconds) {
+        if (intervalSeconds <= 0 || compactor != null) {
+            return;
+        }
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expense-log-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactIfNeeded, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (compactor != null) {
+                compactor.shutdownNow();
+                compactor = null;
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(true);
+                channel.close();
+                logger.info("Embedded expense store at {} closed.", logFile);
+            }
+        } catch (IOException e) {
+            logger.error("Error closing embedded expense store: {}", e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void addExpense(Expense expense) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = Entry.of(nextId, expense, nextChangeMillis());
+            append(List.of(entry));
+            expense.setId(entry.id);
+            logger.info("Expense added successfully with ID: {}", expense.getId());
+        } catch (IOException e) {
+            logger.error("Error adding expense: {}", e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Expense getExpenseById(int id) {
+        lock.readLock().lock();
+        try {
+            Entry entry = byId.get(id);
+            if (entry == null) {
+                logger.info("No expense found with ID: {}", id);
+                return null;
+            }
+            return entry.toExpense();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Expense> getAllExpenses() {
+        return findExpenses(ExpenseQuery.all());
+    }
+
+    @Override
+    public boolean updateExpense(Expense expense) {
+        return updateExpenses(List.of(expense)) > 0;
+    }
+
+    @Override
+    public boolean deleteExpense(int id) {
+        return deleteExpenses(List.of(id)) > 0;
+    }
+
+    /**
+     * Appends all expenses, writing and syncing {@code BATCH_SIZE} records at a time. If a chunk fails
+     * to write, the chunks before it are kept and the count so far is returned.
+     */
+    @Override
+    public int addExpenses(List<Expense> expenses) {
+        int inserted = 0;
+        lock.writeLock().lock();
+        try {
+            for (int from = 0; from < expenses.size(); from += batchSize) {
+                List<Expense> chunk = expenses.subList(from, Math.min(from + batchSize, expenses.size()));
+                List<Entry> entries = new ArrayList<>(chunk.size());
+                long now = nextChangeMillis();
+                for (int i = 0; i < chunk.size(); i++) {
+                    entries.add(Entry.of(nextId + i, chunk.get(i), now));
+                }
+                append(entries);
+                for (int i = 0; i < chunk.size(); i++) {
+                    chunk.get(i).setId(entries.get(i).id);
+                }
+                inserted += chunk.size();
+            }
+            logger.info("Batch inserted {} expenses.", inserted);
+        } catch (IOException e) {
+            logger.error("Error batch inserting expenses after {} rows: {}", inserted, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return inserted;
+    }
+
+    @Override
+    public int restoreExpenses(List<Expense> expenses) {
+        int inserted = 0;
+        lock.writeLock().lock();
+        try {
+            for (int from = 0; from < expenses.size(); from += batchSize) {
+                List<Entry> entries = new ArrayList<>();
+                long now = nextChangeMillis();
+                for (Expense expense : expenses.subList(from, Math.min(from + batchSize, expenses.size()))) {
+                    if (byId.containsKey(expense.getId()) || expense.getId() <= 0) {
+                        throw new IOException("Cannot restore expense with ID " + expense.getId() + ": ID is invalid or already in use");
+                    }
+                    entries.add(Entry.of(expense.getId(), expense, now));
+                }
+                append(entries);
+                inserted += entries.size();
+            }
+            logger.info("Restore completed: {} expenses inserted with their original IDs.", inserted);
+        } catch (IOException e) {
+            logger.error("Error restoring expenses after {} of {} rows: {}", inserted, expenses.size(), e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return inserted;
+    }
+
+    @Override
+    public int updateExpenses(List<Expense> expenses) {
+        int updated = 0;
+        lock.writeLock().lock();
+        try {
+            for (int from = 0; from < expenses.size(); from += batchSize) {
+                List<Entry> entries = new ArrayList<>();
+                long now = nextChangeMillis();
+                for (Expense expense : expenses.subList(from, Math.min(from + batchSize, expenses.size()))) {
+                    if (byId.containsKey(expense.getId())) {
+                        entries.add(Entry.of(expense.getId(), expense, now));
+                    } else {
+                        logger.warn("Updating expense with ID {} failed, no rows affected. Expense might not exist.", expense.getId());
+                    }
+                }
+                append(entries);
+                updated += entries.size();
+            }
+            logger.debug("Updated {} of {} expenses.", updated, expenses.size());
+        } catch (IOException e) {
+            logger.error("Error updating expenses after {} rows: {}", updated, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return updated;
+    }
+
+    @Override
+    public int deleteExpenses(Collection<Integer> ids) {
+        int deleted = 0;
+        List<Integer> idList = new ArrayList<>(new HashSet<>(ids));
+        lock.writeLock().lock();
+        try {
+            for (int from = 0; from < idList.size(); from += batchSize) {
+                List<Entry> tombstones = new ArrayList<>();
+                long now = nextChangeMillis();
+                for (int id : idList.subList(from, Math.min(from + batchSize, idList.size()))) {
+                    if (byId.containsKey(id)) {
+                        tombstones.add(Entry.tombstone(id, now));
+                    } else {
+                        logger.warn("Deleting expense with ID {} failed, no rows affected. Expense might not exist.", id);
+                    }
+                }
+                append(tombstones);
+                deleted += tombstones.size();
+            }
+            logger.debug("Deleted {} of {} expenses.", deleted, ids.size());
+        } catch (IOException e) {
+            logger.error("Error deleting expenses after {} rows: {}", deleted, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<Expense> findExpenses(ExpenseQuery query) {
+        List<Entry> entries = select(query);
+        List<Expense> expenses = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            expenses.add(entry.toExpense());
+        }
+        logger.debug("Retrieved {} expenses for {}.", expenses.size(), query);
+        return expenses;
+    }
+
+    /**
+     * Collects the matching index entries under the read lock, then materializes one {@link Expense}
+     * at a time outside it, so the consumer may call back into the repository.
+     */
+    @Override
+    public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+        List<Entry> entries = select(query);
+        for (Entry entry : entries) {
+            consumer.accept(entry.toExpense());
+        }
+        logger.debug("Streamed {} expenses for {}.", entries.size(), query);
+        return entries.size();
+    }
+
+    @Override
+    public Timestamp streamExpensesUpdatedSince(Timestamp since, Consumer<Expense> consumer) {
+        List<Entry> changed = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Entry entry : byId.values()) {
+                if (entry.updatedAtMillis >= since.getTime()) {
+                    changed.add(entry);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        changed.sort(UPDATED_FIRST);
+        Timestamp watermark = since;
+        for (Entry entry : changed) {
+            consumer.accept(entry.toExpense());
+            if (entry.updatedAtMillis > watermark.getTime()) {
+                watermark = new Timestamp(entry.updatedAtMillis);
+            }
+        }
+        logger.debug("Streamed {} expenses updated since {}.", changed.size(), since);
+        return watermark;
+    }
+
+    @Override
+    public long countExpenses() {
+        lock.readLock().lock();
+        try {
+            return byId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Integer> getAllExpenseIds() {
+        lock.readLock().lock();
+        try {
+            return new HashSet<>(byId.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Expense> getExpensesByIds(Collection<Integer> ids) {
+        List<Expense> expenses = new ArrayList<>(ids.size());
+        lock.readLock().lock();
+        try {
+            for (int id : ids) {
+                Entry entry = byId.get(id);
+                if (entry != null) {
+                    expenses.add(entry.toExpense());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return expenses;
+    }
+
+    @Override
+    public ExpensePage getExpensePage(ExpenseQuery query, ExpensePage.Cursor cursor, ExpensePage.Direction direction, int pageSize) {
+        boolean forward = cursor == null || direction == ExpensePage.Direction.NEXT;
+        Bound newest = newestBound(query);
+        Bound oldest = oldestBound(query);
+        if (cursor != null) {
+            Bound seek = new Bound(Entry.probe(cursor.getDate().toEpochDay(), cursor.getId()), false);
+            if (forward) {
+                newest = tighter(newest, seek, NEWEST_FIRST.reversed());
+            } else {
+                oldest = tighter(oldest, seek, NEWEST_FIRST);
+            }
+        }
+        AmountRange amounts = AmountRange.of(query);
+        List<Expense> expenses = new ArrayList<>(pageSize + 1);
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> range = slice(indexFor(query), newest, oldest);
+            for (Entry entry : forward ? range : range.descendingSet()) {
+                if (amounts.matches(entry)) {
+                    expenses.add(entry.toExpense());
+                    if (expenses.size() > pageSize) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        boolean more = expenses.size() > pageSize;
+        if (more) {
+            expenses.remove(expenses.size() - 1);
+        }
+        if (forward) {
+            return new ExpensePage(expenses, more, cursor != null);
+        }
+        Collections.reverse(expenses);
+        return new ExpensePage(expenses, true, more);
+    }
+
+    @Override
+    public ExpenseSummary getSummary(ExpenseQuery query) {
+        AmountRange amounts = AmountRange.of(query);
+        long count = 0;
+        long cents = 0;
+        lock.readLock().lock();
+        try {
+            for (Entry entry : range(query)) {
+                if (amounts.matches(entry)) {
+                    count++;
+                    cents += entry.cents;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new ExpenseSummary(count, cents);
+    }
+
+    @Override
+    public Map<String, ExpenseSummary> getCategorySummaries(ExpenseQuery query) {
+        // Categories compare case-insensitively like the MySQL collation; the first spelling seen is kept
+        return group(query, new TreeMap<>(String.CASE_INSENSITIVE_ORDER), entry -> entry.category);
+    }
+
+    @Override
+    public Map<String, ExpenseSummary> getMonthlySummaries(ExpenseQuery query) {
+        return group(query, new TreeMap<>(), entry -> YearMonth.from(LocalDate.ofEpochDay(entry.epochDay)).toString());
+    }
+
+    @Override
+    public long streamDailySummaries(ExpenseQuery query, DailySummaryConsumer consumer) {
+        AmountRange amounts = AmountRange.of(query);
+        DailySummaryCollector collector = new DailySummaryCollector();
+        lock.readLock().lock();
+        try {
+            for (Entry entry : range(query)) {
+                if (amounts.matches(entry)) {
+                    collector.add(entry.epochDay, entry.category, 1, entry.cents);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return collector.emit(consumer);
+    }
+
+    /**
+     * Rebuilds the date and category indexes from the ID index. Returns the number of distinct
+     * day/category groups.
+     */
+    @Override
+    public int rebuildRollup() {
+        lock.writeLock().lock();
+        try {
+            byDate.clear();
+            byCategory.clear();
+            Set<String> groups = new HashSet<>();
+            for (Entry entry : byId.values()) {
+                index(entry);
+                groups.add(entry.epochDay + "/" + entry.categoryKey());
+            }
+            logger.info("Rebuilt embedded indexes for {} expenses.", byId.size());
+            return groups.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the live records into a fresh log and atomically replaces the old one. Readers keep
+     * running; writers wait until the new file is in place. Returns the bytes reclaimed, or -1 on failure.
+     */
+    @Override
+    public long compact() {
+        compactionLock.lock();
+        lock.readLock().lock();
+        try {
+            long before = logBytes;
+            List<Entry> live = new ArrayList<>(byId.values());
+            live.sort(Comparator.comparingInt(Entry::id));
+            // A tombstone for the highest ID ever issued keeps IDs from being reused after recovery
+            if (nextId > 1 && !byId.containsKey(nextId - 1)) {
+                live.add(Entry.tombstone(nextId - 1, lastChangeMillis));
+            }
+            try (FileChannel out = FileChannel.open(compactFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                writeFully(out, fileHeader(), 0);
+                long position = FILE_HEADER_BYTES;
+                for (int from = 0; from < live.size(); from += batchSize) {
+                    ByteBuffer chunk = encode(live.subList(from, Math.min(from + batchSize, live.size())));
+                    position += writeFully(out, chunk, position);
+                }
+                out.force(true);
+            }
+            channel.close();
+            Files.move(compactFile, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            logBytes = channel.size();
+            compactions++;
+            logger.info("Compacted {} from {} to {} bytes.", logFile, before, logBytes);
+            return before - logBytes;
+        } catch (IOException e) {
+            logger.error("Error compacting {}: {}", logFile, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+            reopenAfterFailedCompaction();
+            return -1;
+        } finally {
+            lock.readLock().unlock();
+            compactionLock.unlock();
+        }
+    }
+
+    public StoreStats getStats() {
+        lock.readLock().lock();
+        try {
+            return new StoreStats(logFile.toString(), byId.size(), logBytes, liveBytes, recoveredRecords,
+                    droppedBytes, openMillis, compactions);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        long garbage;
+        long live;
+        lock.readLock().lock();
+        try {
+            garbage = logBytes - FILE_HEADER_BYTES - liveBytes;
+            live = liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (garbage >= COMPACT_MIN_GARBAGE_BYTES && garbage > live) {
+            compact();
+        }
+    }
+
+    private void reopenAfterFailedCompaction() {
+        try {
+            Files.deleteIfExists(compactFile);
+            if (!channel.isOpen()) {
+                channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        } catch (IOException e) {
+            logger.error("Failed to reopen {} after compaction error: {}", logFile, e.getMessage());
+        }
+    }
+
+    private long nextChangeMillis() {
+        lastChangeMillis = Math.max(lastChangeMillis, System.currentTimeMillis());
+        return lastChangeMillis;
+    }
+
+    /**
+     * Writes the records at the end of the log, syncs them and only then applies them to the indexes.
+     * A failed write is cut off again so the next append does not land behind a torn record.
+     * Must be called with the write lock held.
+     */
+    private void append(List<Entry> entries) throws IOException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        ByteBuffer buffer = encode(entries);
+        long start = logBytes;
+        try {
+            writeFully(channel, buffer, start);
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        logBytes = start + buffer.limit();
+        for (Entry entry : entries) {
+            apply(entry);
+        }
+    }
+
+    private void apply(Entry entry) {
+        Entry previous = entry.deleted ? byId.remove(entry.id) : byId.put(entry.id, entry);
+        if (previous != null) {
+            unindex(previous);
+            liveBytes -= previous.recordBytes();
+        }
+        if (!entry.deleted) {
+            index(entry);
+            liveBytes += entry.recordBytes();
+        }
+        nextId = Math.max(nextId, entry.id + 1);
+        lastChangeMillis = Math.max(lastChangeMillis, entry.updatedAtMillis);
+    }
+
+    private void index(Entry entry) {
+        byDate.add(entry);
+        byCategory.computeIfAbsent(entry.categoryKey(), key -> new TreeSet<>(NEWEST_FIRST)).add(entry);
+    }
+
+    private void unindex(Entry entry) {
+        byDate.remove(entry);
+        NavigableSet<Entry> category = byCategory.get(entry.categoryKey());
+        if (category != null) {
+            category.remove(entry);
+            if (category.isEmpty()) {
+                byCategory.remove(entry.categoryKey());
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        // A leftover compaction file was never renamed into place, so the main log is still authoritative
+        Files.deleteIfExists(compactFile);
+        // A file shorter than the header can only come from a crash while the store was being created
+        if (!Files.exists(logFile) || Files.size(logFile) < FILE_HEADER_BYTES) {
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writeFully(channel, fileHeader(), 0);
+            channel.force(true);
+            logBytes = FILE_HEADER_BYTES;
+            return;
+        }
+
+        long size = Files.size(logFile);
+        long offset = FILE_HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        byte[] payload = new byte[256];
+        try (InputStream file = Files.newInputStream(logFile);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file, READ_BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(logFile + " is not an expense log");
+            }
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported expense log version " + version + " in " + logFile);
+            }
+            while (size - offset >= RECORD_HEADER_BYTES) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length <= 0 || length > MAX_PAYLOAD_BYTES || size - offset - RECORD_HEADER_BYTES < length) {
+                    break;
+                }
+                if (payload.length < length) {
+                    payload = new byte[Math.max(length, payload.length * 2)];
+                }
+                in.readFully(payload, 0, length);
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                apply(Entry.decode(ByteBuffer.wrap(payload, 0, length), RECORD_HEADER_BYTES + length));
+                offset += RECORD_HEADER_BYTES + length;
+                recoveredRecords++;
+            }
+        }
+        logBytes = offset;
+
+        channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (offset < size) {
+            droppedBytes = size - offset;
+            logger.warn("Expense log {} has {} unreadable bytes after offset {} (interrupted write?). "
+                    + "Keeping a copy in {} and truncating.", logFile, droppedBytes, offset, corruptFile);
+            try (FileChannel corrupt = FileChannel.open(corruptFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.transferTo(offset, droppedBytes, corrupt);
+            }
+            channel.truncate(offset);
+            channel.force(true);
+        }
+    }
+
+    private List<Entry> select(ExpenseQuery query) {
+        AmountRange amounts = AmountRange.of(query);
+        int limit = query.getLimit() > 0 ? query.getLimit() : Integer.MAX_VALUE;
+        ExpenseQuery.SortOrder sortOrder = query.getSortOrder();
+        boolean byDateOrder = sortOrder == ExpenseQuery.SortOrder.DATE_DESC || sortOrder == ExpenseQuery.SortOrder.DATE_ASC;
+        List<Entry> entries = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            NavigableSet<Entry> range = range(query);
+            for (Entry entry : sortOrder == ExpenseQuery.SortOrder.DATE_ASC ? range.descendingSet() : range) {
+                if (amounts.matches(entry)) {
+                    entries.add(entry);
+                    // The index already yields date order, so a limit can stop the scan early
+                    if (byDateOrder && entries.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (!byDateOrder) {
+            entries.sort(sortOrder == ExpenseQuery.SortOrder.AMOUNT_ASC ? AMOUNT_ASC : AMOUNT_ASC.reversed());
+            if (entries.size() > limit) {
+                entries = new ArrayList<>(entries.subList(0, limit));
+            }
+        }
+        return entries;
+    }
+
+    private Map<String, ExpenseSummary> group(ExpenseQuery query, Map<String, long[]> totals, Function<Entry, String> key) {
+        AmountRange amounts = AmountRange.of(query);
+        lock.readLock().lock();
+        try {
+            for (Entry entry : range(query)) {
+                if (amounts.matches(entry)) {
+                    long[] total = totals.computeIfAbsent(key.apply(entry), k -> new long[2]);
+                    total[0]++;
+                    total[1] += entry.cents;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<String, ExpenseSummary> summaries = new LinkedHashMap<>();
+        totals.forEach((group, total) -> summaries.put(group, new ExpenseSummary(total[0], total[1])));
+        return summaries;
+    }
+
+    /** Index entries matching the query's category and date range, newest first. Read lock required. */
+    private NavigableSet<Entry> range(ExpenseQuery query) {
+        return slice(indexFor(query), newestBound(query), oldestBound(query));
+    }
+
+    private NavigableSet<Entry> indexFor(ExpenseQuery query) {
+        if (query.getCategory() == null) {
+            return byDate;
+        }
+        NavigableSet<Entry> category = byCategory.get(query.getCategory().toLowerCase(Locale.ROOT));
+        return category != null ? category : Collections.emptyNavigableSet();
+    }
+
+    private static Bound newestBound(ExpenseQuery query) {
+        return query.getEndDate() == null ? null : new Bound(Entry.probe(query.getEndDate().toEpochDay(), Integer.MAX_VALUE), true);
+    }
+
+    private static Bound oldestBound(ExpenseQuery query) {
+        return query.getStartDate() == null ? null : new Bound(Entry.probe(query.getStartDate().toEpochDay(), Integer.MIN_VALUE), true);
+    }
+
+    /** The more restrictive of two bounds, where {@code order} ranks the more restrictive probe first. */
+    private static Bound tighter(Bound current, Bound candidate, Comparator<Entry> order) {
+        if (current == null) {
+            return candidate;
+        }
+        int comparison = order.compare(current.probe, candidate.probe);
+        if (comparison == 0) {
+            return current.inclusive ? candidate : current;
+        }
+        return comparison < 0 ? current : candidate;
+    }
+
+    private static NavigableSet<Entry> slice(NavigableSet<Entry> index, Bound newest, Bound oldest) {
+        if (newest != null && oldest != null) {
+            int comparison = NEWEST_FIRST.compare(newest.probe, oldest.probe);
+            if (comparison > 0 || (comparison == 0 && !(newest.inclusive && oldest.inclusive))) {
+                return Collections.emptyNavigableSet();
+            }
+            return index.subSet(newest.probe, newest.inclusive, oldest.probe, oldest.inclusive);
+        }
+        if (newest != null) {
+            return index.tailSet(newest.probe, newest.inclusive);
+        }
+        if (oldest != null) {
+            return index.headSet(oldest.probe, oldest.inclusive);
+        }
+        return index;
+    }
+
+    private static ByteBuffer fileHeader() {
+        return ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+    }
+
+    private static ByteBuffer encode(List<Entry> entries) {
+        int total = 0;
+        for (Entry entry : entries) {
+            total += entry.recordBytes();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        CRC32 crc = new CRC32();
+        for (Entry entry : entries) {
+            int start = buffer.position();
+            buffer.putInt(entry.recordBytes() - RECORD_HEADER_BYTES).putInt(0);
+            entry.writePayload(buffer);
+            crc.reset();
+            crc.update(buffer.array(), start + RECORD_HEADER_BYTES, entry.recordBytes() - RECORD_HEADER_BYTES);
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+        return buffer.flip();
+    }
+
+    private static int writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += target.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private record Bound(Entry probe, boolean inclusive) {
+    }
+
+    private record AmountRange(long minCents, long maxCents) {
+
+        static AmountRange of(ExpenseQuery query) {
+            return new AmountRange(
+                    query.getMinAmount() != null ? Money.ceilCents(query.getMinAmount()) : Long.MIN_VALUE,
+                    query.getMaxAmount() != null ? Money.floorCents(query.getMaxAmount()) : Long.MAX_VALUE);
+        }
+
+        boolean matches(Entry entry) {
+            return entry.cents >= minCents && entry.cents <= maxCents;
+        }
+    }
+
+    /**
+     * One immutable log record. Live entries are shared by the ID index and both secondary indexes and
+     * are replaced, never mutated, on update.
+     */
+    private record Entry(int id, long epochDay, String category, String description, long cents,
+                         long updatedAtMillis, boolean deleted, byte[] categoryBytes, byte[] descriptionBytes) {
+
+        static Entry of(int id, Expense expense, long updatedAtMillis) {
+            return new Entry(id, expense.getDate().toEpochDay(), expense.getCategory(), expense.getDescription(),
+                    expense.getAmountCents(), updatedAtMillis, false, bytesOf(expense.getCategory()), bytesOf(expense.getDescription()));
+        }
+
+        static Entry tombstone(int id, long updatedAtMillis) {
+            return new Entry(id, 0, null, null, 0, updatedAtMillis, true, null, null);
+        }
+
+        static Entry probe(long epochDay, int id) {
+            return new Entry(id, epochDay, null, null, 0, 0, false, null, null);
+        }
+
+        static Entry decode(ByteBuffer payload, int recordBytes) throws IOException {
+            byte type = payload.get();
+            int id = payload.getInt();
+            long updatedAtMillis = payload.getLong();
+            if (type == TYPE_DELETE) {
+                return tombstone(id, updatedAtMillis);
+            }
+            if (type != TYPE_PUT) {
+                throw new IOException("Unknown record type " + type + " for expense " + id);
+            }
+            long epochDay = payload.getLong();
+            long cents = payload.getLong();
+            byte[] categoryBytes = readBytes(payload);
+            byte[] descriptionBytes = readBytes(payload);
+            Entry entry = new Entry(id, epochDay, stringOf(categoryBytes), stringOf(descriptionBytes), cents,
+                    updatedAtMillis, false, categoryBytes, descriptionBytes);
+            if (entry.recordBytes() != recordBytes) {
+                throw new IOException("Record length mismatch for expense " + id);
+            }
+            return entry;
+        }
+
+        int recordBytes() {
+            if (deleted) {
+                return RECORD_HEADER_BYTES + 1 + 4 + 8;
+            }
+            return RECORD_HEADER_BYTES + 1 + 4 + 8 + 8 + 8 + 4 + lengthOf(categoryBytes) + 4 + lengthOf(descriptionBytes);
+        }
+
+        void writePayload(ByteBuffer buffer) {
+            buffer.put(deleted ? TYPE_DELETE : TYPE_PUT).putInt(id).putLong(updatedAtMillis);
+            if (!deleted) {
+                buffer.putLong(epochDay).putLong(cents);
+                writeBytes(buffer, categoryBytes);
+                writeBytes(buffer, descriptionBytes);
+            }
+        }
+
+        String categoryKey() {
+            return category == null ? "" : category.toLowerCase(Locale.ROOT);
+        }
+
+        Expense toExpense() {
+            return new Expense(id, LocalDate.ofEpochDay(epochDay), category, description, Money.toBigDecimal(cents));
+        }
+
+        private static byte[] bytesOf(String value) {
+            return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static String stringOf(byte[] bytes) {
+            return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static int lengthOf(byte[] bytes) {
+            return bytes == null ? 0 : bytes.length;
+        }
+
+        private static void writeBytes(ByteBuffer buffer, byte[] bytes) {
+            buffer.putInt(bytes == null ? -1 : bytes.length);
+            if (bytes != null) {
+                buffer.put(bytes);
+            }
+        }
+
+        private static byte[] readBytes(ByteBuffer buffer) throws IOException {
+            int length = buffer.getInt();
+            if (length < -1 || length > buffer.remaining()) {
+                throw new IOException("Corrupt string length " + length);
+            }
+            if (length == -1) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+
+    public record StoreStats(String path, int expenses, long logBytes, long liveBytes, long recoveredRecords,
+                             long droppedBytes, long openMillis, long compactions) {
+    }
+}
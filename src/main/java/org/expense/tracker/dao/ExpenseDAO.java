@@ -1,7 +1,12 @@
 package org.expense.tracker.dao;
 
 import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.Money;
 import org.expense.tracker.util.DBConnection;
+import org.expense.tracker.util.EnvConfig;
+import org.expense.tracker.util.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -9,46 +14,101 @@ import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
-public class ExpenseDAO {
+public class ExpenseDAO implements ExpenseRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(ExpenseDAO.class);
 
     private static final String INSERT_EXPENSE_SQL = "INSERT INTO expenses (date, category, description, amount) VALUES (?, ?, ?, ?)";
+    private static final String RESTORE_EXPENSE_SQL = "INSERT INTO expenses (id, date, category, description, amount) VALUES (?, ?, ?, ?, ?)";
     private static final String SELECT_EXPENSE_BY_ID_SQL = "SELECT id, date, category, description, amount FROM expenses WHERE id = ?";
     private static final String SELECT_ALL_EXPENSES_SQL = "SELECT id, date, category, description, amount FROM expenses ORDER BY date DESC";
     private static final String UPDATE_EXPENSE_SQL = "UPDATE expenses SET date = ?, category = ?, description = ?, amount = ? WHERE id = ?";
     private static final String DELETE_EXPENSE_SQL = "DELETE FROM expenses WHERE id = ?";
-    private static final String SELECT_EXPENSES_BY_DATE_RANGE_SQL = "SELECT id, date, category, description, amount FROM expenses WHERE date BETWEEN ? AND ? ORDER BY date DESC";
-    private static final String SELECT_EXPENSES_BY_CATEGORY_SQL = "SELECT id, date, category, description, amount FROM expenses WHERE category = ? ORDER BY date DESC";
-    private static final String SELECT_EXPENSES_BY_AMOUNT_RANGE_SQL = "SELECT id, date, category, description, amount FROM expenses WHERE amount BETWEEN ? AND ? ORDER BY amount DESC";
+    private static final String SELECT_EXPENSES_SQL = "SELECT id, date, category, description, amount FROM expenses";
+    private static final String SELECT_EXPENSES_UPDATED_SINCE_SQL = "SELECT id, date, category, description, amount, updated_at FROM expenses WHERE updated_at >= ? ORDER BY updated_at";
+    private static final String COUNT_EXPENSES_SQL = "SELECT COUNT(*) FROM expenses";
+    private static final String SELECT_ALL_IDS_SQL = "SELECT id FROM expenses";
+    private static final int IN_CLAUSE_CHUNK_SIZE = 500;
+    private static final String SELECT_SUMMARY_SQL = "SELECT COUNT(*) AS expense_count, SUM(amount) AS amount_total FROM expenses";
+    private static final String SELECT_CATEGORY_SUMMARY_SQL = "SELECT category AS group_key, COUNT(*) AS expense_count, SUM(amount) AS amount_total FROM expenses";
+    private static final String SELECT_DAILY_SUMMARY_SQL = "SELECT date, category, COUNT(*) AS expense_count, SUM(amount) AS amount_total FROM expenses";
+    private static final String SELECT_MONTHLY_SUMMARY_SQL = "SELECT DATE_FORMAT(date, '%Y-%m') AS group_key, COUNT(*) AS expense_count, SUM(amount) AS amount_total FROM expenses";
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+
+    private final int batchSize;
+    private final int fetchSize;
+    private volatile boolean rollupReady;
+
+    public ExpenseDAO() {
+        this(EnvConfig.getInt("BATCH_SIZE", DEFAULT_BATCH_SIZE), EnvConfig.getInt("FETCH_SIZE", DEFAULT_FETCH_SIZE));
+    }
+
+    public ExpenseDAO(int batchSize, int fetchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        this.fetchSize = Math.max(1, fetchSize);
+    }
 
+    /** Loads the JDBC driver and fills the connection pool up to its idle minimum. */
+    public void warmUp() {
+        try {
+            DBConnection.getDataSource();
+        } catch (RuntimeException e) {
+            logger.warn("Database warm-up failed: {}", e.getMessage());
+        }
+    }
 
     public void addExpense(Expense expense) {
         try (Connection connection = DBConnection.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(INSERT_EXPENSE_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
-            preparedStatement.setDate(1, Date.valueOf(expense.getDate()));
-            preparedStatement.setString(2, expense.getCategory());
-            preparedStatement.setString(3, expense.getDescription());
-            preparedStatement.setBigDecimal(4, expense.getAmount());
-
-            int affectedRows = preparedStatement.executeUpdate();
-
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        expense.setId(generatedKeys.getInt(1));
-                        logger.info("Expense added successfully with ID: {}", expense.getId());
+            ensureRollup(connection);
+            connection.setAutoCommit(false);
+            try {
+                preparedStatement.setDate(1, Date.valueOf(expense.getDate()));
+                preparedStatement.setString(2, expense.getCategory());
+                preparedStatement.setString(3, expense.getDescription());
+                preparedStatement.setBigDecimal(4, expense.getAmount());
+
+                int affectedRows = preparedStatement.executeUpdate();
+
+                if (affectedRows > 0) {
+                    DailyRollup rollup = new DailyRollup();
+                    rollup.add(expense);
+                    rollup.flush(connection);
+                    int generatedId = 0;
+                    try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            generatedId = generatedKeys.getInt(1);
+                        }
                     }
+                    connection.commit();
+                    expense.setId(generatedId);
+                    logger.info("Expense added successfully with ID: {}", expense.getId());
+                } else {
+                    connection.rollback();
+                    logger.warn("Adding expense failed, no rows affected.");
                 }
-            } else {
-                logger.warn("Adding expense failed, no rows affected.");
+            } catch (SQLException e) {
+                rollbackQuietly(connection);
+                throw e;
             }
 
         } catch (SQLException e) {
             logger.error("Error adding expense: {}", e.getMessage());
+            Metrics.markFailed();
             e.printStackTrace();
         }
     }
@@ -69,6 +129,7 @@ public class ExpenseDAO {
             }
         } catch (SQLException e) {
             logger.error("Error retrieving expense by ID {}: {}", id, e.getMessage());
+            Metrics.markFailed();
             e.printStackTrace();
         }
         return expense;
@@ -86,115 +147,681 @@ public class ExpenseDAO {
             logger.debug("Retrieved {} expenses.", expenses.size());
         } catch (SQLException e) {
             logger.error("Error retrieving all expenses: {}", e.getMessage());
+            Metrics.markFailed();
             e.printStackTrace();
         }
         return expenses;
     }
 
-    public void updateExpense(Expense expense) {
+    public boolean updateExpense(Expense expense) {
         try (Connection connection = DBConnection.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_EXPENSE_SQL)) {
 
-            preparedStatement.setDate(1, Date.valueOf(expense.getDate()));
-            preparedStatement.setString(2, expense.getCategory());
-            preparedStatement.setString(3, expense.getDescription());
-            preparedStatement.setBigDecimal(4, expense.getAmount());
-            preparedStatement.setInt(5, expense.getId());
+            ensureRollup(connection);
+            connection.setAutoCommit(false);
+            try {
+                Expense previous = lockExpenses(connection, List.of(expense.getId())).get(expense.getId());
+                if (previous == null) {
+                    connection.rollback();
+                    logger.warn("Updating expense with ID {} failed, no rows affected. Expense might not exist.", expense.getId());
+                    return false;
+                }
 
-            int affectedRows = preparedStatement.executeUpdate();
-            if (affectedRows > 0) {
+                preparedStatement.setDate(1, Date.valueOf(expense.getDate()));
+                preparedStatement.setString(2, expense.getCategory());
+                preparedStatement.setString(3, expense.getDescription());
+                preparedStatement.setBigDecimal(4, expense.getAmount());
+                preparedStatement.setInt(5, expense.getId());
+                preparedStatement.executeUpdate();
+
+                DailyRollup rollup = new DailyRollup();
+                rollup.subtract(previous);
+                rollup.add(expense);
+                rollup.flush(connection);
+                connection.commit();
                 logger.info("Expense with ID {} updated successfully.", expense.getId());
-            } else {
-                logger.warn("Updating expense with ID {} failed, no rows affected. Expense might not exist.", expense.getId());
+                return true;
+            } catch (SQLException e) {
+                rollbackQuietly(connection);
+                throw e;
             }
 
         } catch (SQLException e) {
             logger.error("Error updating expense with ID {}: {}", expense.getId(), e.getMessage());
+            Metrics.markFailed();
             e.printStackTrace();
         }
+        return false;
     }
 
-    public void deleteExpense(int id) {
+    public boolean deleteExpense(int id) {
         try (Connection connection = DBConnection.getConnection();
              PreparedStatement preparedStatement = connection.prepareStatement(DELETE_EXPENSE_SQL)) {
 
-            preparedStatement.setInt(1, id);
-            int affectedRows = preparedStatement.executeUpdate();
-            if (affectedRows > 0) {
+            ensureRollup(connection);
+            connection.setAutoCommit(false);
+            try {
+                Expense previous = lockExpenses(connection, List.of(id)).get(id);
+                if (previous == null) {
+                    connection.rollback();
+                    logger.warn("Deleting expense with ID {} failed, no rows affected. Expense might not exist.", id);
+                    return false;
+                }
+
+                preparedStatement.setInt(1, id);
+                preparedStatement.executeUpdate();
+
+                DailyRollup rollup = new DailyRollup();
+                rollup.subtract(previous);
+                rollup.flush(connection);
+                connection.commit();
                 logger.info("Expense with ID {} deleted successfully.", id);
-            } else {
-                logger.warn("Deleting expense with ID {} failed, no rows affected. Expense might not exist.", id);
+                return true;
+            } catch (SQLException e) {
+                rollbackQuietly(connection);
+                throw e;
             }
 
         } catch (SQLException e) {
             logger.error("Error deleting expense with ID {}: {}", id, e.getMessage());
+            Metrics.markFailed();
             e.printStackTrace();
         }
+        return false;
     }
 
-    public List<Expense> getExpensesByDateRange(LocalDate startDate, LocalDate endDate) {
-        List<Expense> expenses = new ArrayList<>();
+    /**
+     * Inserts all expenses using JDBC batching, committing every {@code BATCH_SIZE} rows together with
+     * their rollup deltas. Generated IDs are written back into the given objects. Returns the number of
+     * rows inserted; if a chunk fails it is rolled back and the rows committed before it are kept.
+     */
+    public int addExpenses(List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return 0;
+        }
+        int inserted = 0;
         try (Connection connection = DBConnection.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EXPENSES_BY_DATE_RANGE_SQL)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_EXPENSE_SQL, Statement.RETURN_GENERATED_KEYS)) {
 
-            preparedStatement.setDate(1, Date.valueOf(startDate));
-            preparedStatement.setDate(2, Date.valueOf(endDate));
+            ensureRollup(connection);
+            connection.setAutoCommit(false);
+            DailyRollup rollup = new DailyRollup();
+            for (int from = 0; from < expenses.size(); from += batchSize) {
+                List<Expense> chunk = expenses.subList(from, Math.min(from + batchSize, expenses.size()));
+                try {
+                    for (Expense expense : chunk) {
+                        preparedStatement.setDate(1, Date.valueOf(expense.getDate()));
+                        preparedStatement.setString(2, expense.getCategory());
+                        preparedStatement.setString(3, expense.getDescription());
+                        preparedStatement.setBigDecimal(4, expense.getAmount());
+                        preparedStatement.addBatch();
+                        rollup.add(expense);
+                    }
+                    preparedStatement.executeBatch();
+                    try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
+                        for (Expense expense : chunk) {
+                            if (!generatedKeys.next()) {
+                                break;
+                            }
+                            expense.setId(generatedKeys.getInt(1));
+                        }
+                    }
+                    rollup.flush(connection);
+                    connection.commit();
+                    inserted += chunk.size();
+                    logger.debug("Committed batch of {} inserted expenses ({} of {}).", chunk.size(), inserted, expenses.size());
+                } catch (SQLException e) {
+                    rollbackQuietly(connection);
+                    preparedStatement.clearBatch();
+                    rollup.clear();
+                    for (Expense expense : chunk) {
+                        expense.setId(0);
+                    }
+                    throw e;
+                }
+            }
+            logger.info("Batch insert completed: {} expenses added.", inserted);
+        } catch (SQLException e) {
+            logger.error("Error in batch insert after {} of {} expenses: {}", inserted, expenses.size(), e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        }
+        return inserted;
+    }
 
+    /**
+     * Inserts expenses with their existing IDs (for restoring a dump) using JDBC batching, committing
+     * every {@code BATCH_SIZE} rows together with their rollup deltas. A chunk containing an ID that
+     * already exists fails as a whole and stops the restore. Returns the number of rows inserted.
+     */
+    public int restoreExpenses(List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return 0;
+        }
+        int inserted = 0;
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(RESTORE_EXPENSE_SQL)) {
+
+            ensureRollup(connection);
+            connection.setAutoCommit(false);
+            DailyRollup rollup = new DailyRollup();
+            for (int from = 0; from < expenses.size(); from += batchSize) {
+                List<Expense> chunk = expenses.subList(from, Math.min(from + batchSize, expenses.size()));
+                try {
+                    for (Expense expense : chunk) {
+                        preparedStatement.setInt(1, expense.getId());
+                        preparedStatement.setDate(2, Date.valueOf(expense.getDate()));
+                        preparedStatement.setString(3, expense.getCategory());
+                        preparedStatement.setString(4, expense.getDescription());
+                        preparedStatement.setBigDecimal(5, expense.getAmount());
+                        preparedStatement.addBatch();
+                        rollup.add(expense);
+                    }
+                    preparedStatement.executeBatch();
+                    rollup.flush(connection);
+                    connection.commit();
+                    inserted += chunk.size();
+                } catch (SQLException e) {
+                    rollbackQuietly(connection);
+                    preparedStatement.clearBatch();
+                    rollup.clear();
+                    throw e;
+                }
+            }
+            logger.info("Restore completed: {} expenses inserted with their original IDs.", inserted);
+        } catch (SQLException e) {
+            logger.error("Error restoring expenses after {} of {} rows: {}", inserted, expenses.size(), e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        }
+        return inserted;
+    }
+
+    /**
+     * Updates all expenses using JDBC batching, committing every {@code BATCH_SIZE} rows together with
+     * the rollup deltas for both their old and new date and category. Returns the number of rows updated.
+     */
+    public int updateExpenses(List<Expense> expenses) {
+        if (expenses.isEmpty()) {
+            return 0;
+        }
+        int updated = 0;
+        int processed = 0;
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(UPDATE_EXPENSE_SQL)) {
+
+            ensureRollup(connection);
+            connection.setAutoCommit(false);
+            DailyRollup rollup = new DailyRollup();
+            for (int from = 0; from < expenses.size(); from += batchSize) {
+                List<Expense> chunk = expenses.subList(from, Math.min(from + batchSize, expenses.size()));
+                try {
+                    List<Integer> chunkIds = new ArrayList<>(chunk.size());
+                    for (Expense expense : chunk) {
+                        chunkIds.add(expense.getId());
+                    }
+                    Map<Integer, Expense> previous = lockExpenses(connection, chunkIds);
+                    int chunkUpdated = 0;
+                    for (Expense expense : chunk) {
+                        // Remove as we go so a repeated ID is diffed against its latest version
+                        Expense before = previous.remove(expense.getId());
+                        if (before == null) {
+                            continue;
+                        }
+                        preparedStatement.setDate(1, Date.valueOf(expense.getDate()));
+                        preparedStatement.setString(2, expense.getCategory());
+                        preparedStatement.setString(3, expense.getDescription());
+                        preparedStatement.setBigDecimal(4, expense.getAmount());
+                        preparedStatement.setInt(5, expense.getId());
+                        preparedStatement.addBatch();
+                        rollup.subtract(before);
+                        rollup.add(expense);
+                        previous.put(expense.getId(), expense);
+                        chunkUpdated++;
+                    }
+                    if (chunkUpdated > 0) {
+                        preparedStatement.executeBatch();
+                        rollup.flush(connection);
+                    }
+                    connection.commit();
+                    updated += chunkUpdated;
+                    processed += chunk.size();
+                } catch (SQLException e) {
+                    rollbackQuietly(connection);
+                    preparedStatement.clearBatch();
+                    rollup.clear();
+                    throw e;
+                }
+            }
+            logger.info("Batch update completed: {} of {} expenses updated.", updated, expenses.size());
+        } catch (SQLException e) {
+            logger.error("Error in batch update after {} of {} expenses: {}", processed, expenses.size(), e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        }
+        return updated;
+    }
+
+    /**
+     * Deletes all given IDs using JDBC batching, committing every {@code BATCH_SIZE} rows together with
+     * their rollup deltas. Returns the number of rows deleted.
+     */
+    public int deleteExpenses(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int deleted = 0;
+        int processed = 0;
+        List<Integer> idList = new ArrayList<>(new LinkedHashSet<>(ids));
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(DELETE_EXPENSE_SQL)) {
+
+            ensureRollup(connection);
+            connection.setAutoCommit(false);
+            DailyRollup rollup = new DailyRollup();
+            for (int from = 0; from < idList.size(); from += batchSize) {
+                List<Integer> chunk = idList.subList(from, Math.min(from + batchSize, idList.size()));
+                try {
+                    Map<Integer, Expense> previous = lockExpenses(connection, chunk);
+                    for (Expense expense : previous.values()) {
+                        preparedStatement.setInt(1, expense.getId());
+                        preparedStatement.addBatch();
+                        rollup.subtract(expense);
+                    }
+                    if (!previous.isEmpty()) {
+                        preparedStatement.executeBatch();
+                        rollup.flush(connection);
+                    }
+                    connection.commit();
+                    deleted += previous.size();
+                    processed += chunk.size();
+                } catch (SQLException e) {
+                    rollbackQuietly(connection);
+                    preparedStatement.clearBatch();
+                    rollup.clear();
+                    throw e;
+                }
+            }
+            logger.info("Batch delete completed: {} of {} expenses deleted.", deleted, ids.size());
+        } catch (SQLException e) {
+            logger.error("Error in batch delete after {} of {} IDs: {}", processed, ids.size(), e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        }
+        return deleted;
+    }
+
+    /**
+     * Reads the current version of the given rows with {@code SELECT ... FOR UPDATE} so their old
+     * values can be subtracted from the rollup without racing concurrent writers.
+     */
+    private Map<Integer, Expense> lockExpenses(Connection connection, List<Integer> ids) throws SQLException {
+        Map<Integer, Expense> expenses = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+            String sql = SELECT_EXPENSES_SQL + " WHERE id IN (" + "?,".repeat(chunk.size() - 1) + "?) FOR UPDATE";
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    preparedStatement.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        Expense expense = mapResultSetToExpense(resultSet);
+                        expenses.put(expense.getId(), expense);
+                    }
+                }
+            }
+        }
+        return expenses;
+    }
+
+    private void ensureRollup(Connection connection) throws SQLException {
+        if (!rollupReady) {
+            synchronized (this) {
+                if (!rollupReady) {
+                    DailyRollup.ensureTable(connection);
+                    rollupReady = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes {@code expense_daily_rollup} from the {@code expenses} table. Needed once after rows
+     * were changed outside this DAO. Returns the number of rollup rows, or -1 on failure.
+     */
+    public int rebuildRollup() {
+        try (Connection connection = DBConnection.getConnection()) {
+            int rows = DailyRollup.rebuild(connection);
+            rollupReady = true;
+            return rows;
+        } catch (SQLException e) {
+            logger.error("Error rebuilding expense rollup: {}", e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    private static void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            logger.error("Rollback failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Runs a single parameterized query combining every criterion set on {@code query}.
+     */
+    public List<Expense> findExpenses(ExpenseQuery query) {
+        List<Expense> expenses = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        String sql = SELECT_EXPENSES_SQL + query.toWhereClause(params) + query.toOrderByClause() + query.toLimitClause();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+
+            bindParameters(preparedStatement, params);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 while (resultSet.next()) {
                     expenses.add(mapResultSetToExpense(resultSet));
                 }
             }
-            logger.debug("Retrieved {} expenses between {} and {}.", expenses.size(), startDate, endDate);
+            logger.debug("Retrieved {} expenses for {}.", expenses.size(), query);
         } catch (SQLException e) {
-            logger.error("Error retrieving expenses by date range ({} to {}): {}", startDate, endDate, e.getMessage());
+            logger.error("Error retrieving expenses for {}: {}", query, e.getMessage());
+            Metrics.markFailed();
             e.printStackTrace();
         }
         return expenses;
     }
 
-    public List<Expense> getExpensesByCategory(String category) {
-        List<Expense> expenses = new ArrayList<>();
+    /**
+     * Streams every matching row to {@code consumer} through a forward-only, read-only cursor that
+     * fetches {@code FETCH_SIZE} rows at a time, so memory use does not grow with the result size.
+     * The consumer must not keep references to the expenses it receives if constant memory is wanted.
+     * Returns the number of rows streamed.
+     */
+    public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+        long rows = 0;
+        List<Object> params = new ArrayList<>();
+        String sql = SELECT_EXPENSES_SQL + query.toWhereClause(params) + query.toOrderByClause() + query.toLimitClause();
         try (Connection connection = DBConnection.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EXPENSES_BY_CATEGORY_SQL)) {
+             PreparedStatement preparedStatement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
 
-            preparedStatement.setString(1, category);
+            preparedStatement.setFetchSize(fetchSize);
+            bindParameters(preparedStatement, params);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    consumer.accept(mapResultSetToExpense(resultSet));
+                    rows++;
+                }
+            }
+            logger.debug("Streamed {} expenses for {}.", rows, query);
+        } catch (SQLException e) {
+            logger.error("Error streaming expenses for {} after {} rows: {}", query, rows, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        }
+        return rows;
+    }
 
+    /**
+     * Streams every expense whose {@code updated_at} is at or after {@code since}, oldest change first,
+     * and returns the newest {@code updated_at} seen (or {@code since} when nothing changed). Because
+     * inserts also set {@code updated_at}, this covers new rows as well as edits, but not deletes.
+     */
+    public Timestamp streamExpensesUpdatedSince(Timestamp since, Consumer<Expense> consumer) {
+        Timestamp watermark = since;
+        long rows = 0;
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EXPENSES_UPDATED_SINCE_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            preparedStatement.setFetchSize(fetchSize);
+            preparedStatement.setTimestamp(1, since);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 while (resultSet.next()) {
-                    expenses.add(mapResultSetToExpense(resultSet));
+                    consumer.accept(mapResultSetToExpense(resultSet));
+                    Timestamp updatedAt = resultSet.getTimestamp("updated_at");
+                    if (updatedAt != null && updatedAt.after(watermark)) {
+                        watermark = updatedAt;
+                    }
+                    rows++;
                 }
             }
-            logger.debug("Retrieved {} expenses for category '{}'.", expenses.size(), category);
+            logger.debug("Streamed {} expenses updated since {}.", rows, since);
         } catch (SQLException e) {
-            logger.error("Error retrieving expenses by category '{}': {}", category, e.getMessage());
+            logger.error("Error streaming expenses updated since {}: {}", since, e.getMessage());
+            Metrics.markFailed();
             e.printStackTrace();
+            throw new IllegalStateException("Failed to read expense changes", e);
         }
-        return expenses;
+        return watermark;
     }
 
-    public List<Expense> getExpensesByAmountRange(BigDecimal minAmount, BigDecimal maxAmount) {
-        List<Expense> expenses = new ArrayList<>();
+    public long countExpenses() {
         try (Connection connection = DBConnection.getConnection();
-             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_EXPENSES_BY_AMOUNT_RANGE_SQL)) {
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(COUNT_EXPENSES_SQL)) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        } catch (SQLException e) {
+            logger.error("Error counting expenses: {}", e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+            throw new IllegalStateException("Failed to count expenses", e);
+        }
+    }
 
-            preparedStatement.setBigDecimal(1, minAmount);
-            preparedStatement.setBigDecimal(2, maxAmount);
+    public Set<Integer> getAllExpenseIds() {
+        Set<Integer> ids = new HashSet<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_IDS_SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
 
+            preparedStatement.setFetchSize(fetchSize);
             try (ResultSet resultSet = preparedStatement.executeQuery()) {
                 while (resultSet.next()) {
-                    expenses.add(mapResultSetToExpense(resultSet));
+                    ids.add(resultSet.getInt(1));
                 }
             }
-            logger.debug("Retrieved {} expenses between amount {} and {}.", expenses.size(), minAmount, maxAmount);
         } catch (SQLException e) {
-            logger.error("Error retrieving expenses by amount range ({} to {}): {}", minAmount, maxAmount, e.getMessage());
+            logger.error("Error retrieving expense IDs: {}", e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+            throw new IllegalStateException("Failed to read expense IDs", e);
+        }
+        return ids;
+    }
+
+    /**
+     * Looks up several expenses at once using chunked {@code IN} lists. Missing IDs are skipped.
+     */
+    public List<Expense> getExpensesByIds(Collection<Integer> ids) {
+        List<Expense> expenses = new ArrayList<>(ids.size());
+        List<Integer> idList = new ArrayList<>(ids);
+        try (Connection connection = DBConnection.getConnection()) {
+            for (int from = 0; from < idList.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+                List<Integer> chunk = idList.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, idList.size()));
+                String sql = SELECT_EXPENSES_SQL + " WHERE id IN (" + "?,".repeat(chunk.size() - 1) + "?)";
+                try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        preparedStatement.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                        while (resultSet.next()) {
+                            expenses.add(mapResultSetToExpense(resultSet));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error retrieving {} expenses by ID: {}", ids.size(), e.getMessage());
+            Metrics.markFailed();
             e.printStackTrace();
         }
         return expenses;
     }
 
-    private Expense mapResultSetToExpense(ResultSet resultSet) throws SQLException {
+    /**
+     * Fetches one page of expenses matching {@code query} in {@code date DESC, id DESC} order, seeking
+     * from {@code cursor} in the given direction instead of using OFFSET, so every page costs the same
+     * regardless of depth. A {@code null} cursor returns the first page. The query's own sort order and
+     * limit are ignored.
+     */
+    public ExpensePage getExpensePage(ExpenseQuery query, ExpensePage.Cursor cursor, ExpensePage.Direction direction, int pageSize) {
+        boolean forward = cursor == null || direction == ExpensePage.Direction.NEXT;
+        List<Object> params = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(SELECT_EXPENSES_SQL).append(query.toWhereClause(params));
+        if (cursor != null) {
+            Date cursorDate = Date.valueOf(cursor.getDate());
+            sql.append(params.isEmpty() ? " WHERE " : " AND ")
+                    .append(forward ? "(date < ? OR (date = ? AND id < ?))" : "(date > ? OR (date = ? AND id > ?))");
+            params.add(cursorDate);
+            params.add(cursorDate);
+            params.add(cursor.getId());
+        }
+        sql.append(forward ? " ORDER BY date DESC, id DESC" : " ORDER BY date ASC, id ASC")
+                .append(" LIMIT ").append(pageSize + 1);
+
+        List<Expense> expenses = new ArrayList<>(pageSize + 1);
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql.toString())) {
+
+            bindParameters(preparedStatement, params);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    expenses.add(mapResultSetToExpense(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error retrieving expense page for {} at {}: {}", query, cursor, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        }
+
+        // One extra row is fetched only to learn whether another page exists in the seek direction
+        boolean more = expenses.size() > pageSize;
+        if (more) {
+            expenses.remove(expenses.size() - 1);
+        }
+        if (forward) {
+            return new ExpensePage(expenses, more, cursor != null);
+        }
+        Collections.reverse(expenses);
+        return new ExpensePage(expenses, true, more);
+    }
+
+    /**
+     * Count and total of all expenses matching {@code query}, computed by the database.
+     * The query's sort order and limit are ignored.
+     */
+    public ExpenseSummary getSummary(ExpenseQuery query) {
+        boolean fromRollup = DailyRollup.canAnswer(query);
+        List<Object> params = new ArrayList<>();
+        String sql = (fromRollup ? DailyRollup.SELECT_SUMMARY_SQL : SELECT_SUMMARY_SQL) + query.toWhereClause(params);
+        try (Connection connection = DBConnection.getConnection()) {
+            if (fromRollup) {
+                ensureRollup(connection);
+            }
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                bindParameters(preparedStatement, params);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    if (resultSet.next()) {
+                        return DailyRollup.toSummary(resultSet);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error computing expense summary for {}: {}", query, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        }
+        return ExpenseSummary.EMPTY;
+    }
+
+    /**
+     * Per-category count and total for expenses matching {@code query}, ordered by category.
+     */
+    public Map<String, ExpenseSummary> getCategorySummaries(ExpenseQuery query) {
+        return DailyRollup.canAnswer(query)
+                ? getGroupedSummaries(DailyRollup.SELECT_CATEGORY_SUMMARY_SQL, true, query, "category")
+                : getGroupedSummaries(SELECT_CATEGORY_SUMMARY_SQL, false, query, "category");
+    }
+
+    /**
+     * Per-month ({@code yyyy-MM}) count and total for expenses matching {@code query}, ordered by month.
+     */
+    public Map<String, ExpenseSummary> getMonthlySummaries(ExpenseQuery query) {
+        return DailyRollup.canAnswer(query)
+                ? getGroupedSummaries(DailyRollup.SELECT_MONTHLY_SUMMARY_SQL, true, query, "month")
+                : getGroupedSummaries(SELECT_MONTHLY_SUMMARY_SQL, false, query, "month");
+    }
+
+    /**
+     * Streams per-day, per-category count and total for expenses matching {@code query}, oldest day first.
+     * Read from the rollup table when the query allows, so the result set has one row per group.
+     */
+    public long streamDailySummaries(ExpenseQuery query, DailySummaryConsumer consumer) {
+        boolean fromRollup = DailyRollup.canAnswer(query);
+        long groups = 0;
+        List<Object> params = new ArrayList<>();
+        String sql = (fromRollup ? DailyRollup.SELECT_DAILY_SUMMARY_SQL : SELECT_DAILY_SUMMARY_SQL) + query.toWhereClause(params)
+                + " GROUP BY date, category ORDER BY date, category";
+        try (Connection connection = DBConnection.getConnection()) {
+            if (fromRollup) {
+                ensureRollup(connection);
+            }
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                preparedStatement.setFetchSize(fetchSize);
+                bindParameters(preparedStatement, params);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        consumer.accept(resultSet.getDate("date").toLocalDate(), resultSet.getString("category"),
+                                resultSet.getLong("expense_count"), Money.toCents(resultSet.getBigDecimal("amount_total")));
+                        groups++;
+                    }
+                }
+            }
+            logger.debug("Streamed {} daily summaries for {}.", groups, query);
+        } catch (SQLException e) {
+            logger.error("Error streaming daily summaries for {} after {} groups: {}", query, groups, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        }
+        return groups;
+    }
+
+    private Map<String, ExpenseSummary> getGroupedSummaries(String selectSql, boolean fromRollup, ExpenseQuery query, String groupName) {
+        Map<String, ExpenseSummary> summaries = new LinkedHashMap<>();
+        List<Object> params = new ArrayList<>();
+        String sql = selectSql + query.toWhereClause(params) + " GROUP BY group_key ORDER BY group_key";
+        try (Connection connection = DBConnection.getConnection()) {
+            if (fromRollup) {
+                ensureRollup(connection);
+            }
+            try (PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+                bindParameters(preparedStatement, params);
+                try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        summaries.put(resultSet.getString("group_key"), DailyRollup.toSummary(resultSet));
+                    }
+                }
+            }
+            logger.debug("Computed {} {} summaries for {}.", summaries.size(), groupName, query);
+        } catch (SQLException e) {
+            logger.error("Error computing {} summaries for {}: {}", groupName, query, e.getMessage());
+            Metrics.markFailed();
+            e.printStackTrace();
+        }
+        return summaries;
+    }
+
+    private static void bindParameters(PreparedStatement preparedStatement, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            preparedStatement.setObject(i + 1, params.get(i));
+        }
+    }
+
+    static Expense mapResultSetToExpense(ResultSet resultSet) throws SQLException {
         int id = resultSet.getInt("id");
         LocalDate date = resultSet.getDate("date").toLocalDate();
         String category = resultSet.getString("category");
@@ -0,0 +1,183 @@
+package org.expense.tracker.dao;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Composable filter criteria for expense queries. Every criterion is optional; the ones that are set
+ * are combined with {@code AND} into a single parameterized {@code WHERE} clause. Range predicates are
+ * written as plain comparisons on the indexed columns so MySQL can use {@code idx_date},
+ * {@code idx_category} and {@code idx_amount}.
+ */
+public class ExpenseQuery {
+
+    public enum SortOrder {
+        DATE_DESC("date DESC, id DESC"),
+        DATE_ASC("date ASC, id ASC"),
+        AMOUNT_DESC("amount DESC, id DESC"),
+        AMOUNT_ASC("amount ASC, id ASC");
+
+        private final String sql;
+
+        SortOrder(String sql) {
+            this.sql = sql;
+        }
+
+        public String toSql() {
+            return sql;
+        }
+    }
+
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private String category;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private SortOrder sortOrder = SortOrder.DATE_DESC;
+    private int limit;
+
+    public static ExpenseQuery all() {
+        return new ExpenseQuery();
+    }
+
+    /** A new query with the same criteria, which can then be narrowed without affecting this one. */
+    public ExpenseQuery copy() {
+        ExpenseQuery copy = new ExpenseQuery();
+        copy.startDate = startDate;
+        copy.endDate = endDate;
+        copy.category = category;
+        copy.minAmount = minAmount;
+        copy.maxAmount = maxAmount;
+        copy.sortOrder = sortOrder;
+        copy.limit = limit;
+        return copy;
+    }
+
+    /** Inclusive lower date bound. */
+    public ExpenseQuery from(LocalDate startDate) {
+        this.startDate = startDate;
+        return this;
+    }
+
+    /** Inclusive upper date bound. */
+    public ExpenseQuery to(LocalDate endDate) {
+        this.endDate = endDate;
+        return this;
+    }
+
+    public ExpenseQuery between(LocalDate startDate, LocalDate endDate) {
+        return from(startDate).to(endDate);
+    }
+
+    /** Matches the category case-insensitively; blank values are ignored. */
+    public ExpenseQuery category(String category) {
+        this.category = category != null && !category.trim().isEmpty() ? category.trim() : null;
+        return this;
+    }
+
+    public ExpenseQuery minAmount(BigDecimal minAmount) {
+        this.minAmount = minAmount;
+        return this;
+    }
+
+    public ExpenseQuery maxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+        return this;
+    }
+
+    public ExpenseQuery sortBy(SortOrder sortOrder) {
+        this.sortOrder = sortOrder != null ? sortOrder : SortOrder.DATE_DESC;
+        return this;
+    }
+
+    /** Maximum number of rows to return; zero or less means no limit. */
+    public ExpenseQuery limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public BigDecimal getMinAmount() {
+        return minAmount;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    public SortOrder getSortOrder() {
+        return sortOrder;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Builds the {@code WHERE} clause (including the keyword, or an empty string when nothing is set)
+     * and appends the matching bind values to {@code params} in order.
+     */
+    String toWhereClause(List<Object> params) {
+        StringBuilder where = new StringBuilder();
+        if (startDate != null) {
+            appendCondition(where, "date >= ?");
+            params.add(Date.valueOf(startDate));
+        }
+        if (endDate != null) {
+            appendCondition(where, "date <= ?");
+            params.add(Date.valueOf(endDate));
+        }
+        if (category != null) {
+            // The column uses a case-insensitive collation, so plain equality keeps idx_category usable
+            appendCondition(where, "category = ?");
+            params.add(category);
+        }
+        if (minAmount != null) {
+            appendCondition(where, "amount >= ?");
+            params.add(minAmount);
+        }
+        if (maxAmount != null) {
+            appendCondition(where, "amount <= ?");
+            params.add(maxAmount);
+        }
+        return where.toString();
+    }
+
+    String toOrderByClause() {
+        return " ORDER BY " + sortOrder.toSql();
+    }
+
+    String toLimitClause() {
+        return limit > 0 ? " LIMIT " + limit : "";
+    }
+
+    private static void appendCondition(StringBuilder where, String condition) {
+        where.append(where.length() == 0 ? " WHERE " : " AND ").append(condition);
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseQuery{" +
+               "startDate=" + startDate +
+               ", endDate=" + endDate +
+               ", category='" + category + '\'' +
+               ", minAmount=" + minAmount +
+               ", maxAmount=" + maxAmount +
+               ", sortOrder=" + sortOrder +
+               ", limit=" + limit +
+               '}';
+    }
+}
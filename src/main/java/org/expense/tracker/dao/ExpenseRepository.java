@@ -0,0 +1,210 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.util.EnvConfig;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Storage operations the service layer needs from an expense store. {@link ExpenseDAO} implements it on
+ * MySQL and {@link EmbeddedExpenseRepository} on a local append-only log, selected with the
+ * {@code STORAGE} setting (see {@link #fromEnvironment()}).
+ * <p>
+ * Implementations report failures the same way: they log them and return {@code false}, {@code 0},
+ * {@code null} or an empty result. The change-tracking reads used by the replica
+ * ({@link #streamExpensesUpdatedSince}, {@link #countExpenses}, {@link #getAllExpenseIds}) throw
+ * {@link IllegalStateException} instead, because an empty answer there would look like mass deletion.
+ */
+public interface ExpenseRepository {
+
+    /** Inserts the expense and writes the generated ID back into it; the ID stays 0 on failure. */
+    void addExpense(Expense expense);
+
+    Expense getExpenseById(int id);
+
+    /** Every expense, newest first. */
+    List<Expense> getAllExpenses();
+
+    boolean updateExpense(Expense expense);
+
+    boolean deleteExpense(int id);
+
+    /** Inserts all expenses, writing generated IDs back, and returns the number inserted. */
+    int addExpenses(List<Expense> expenses);
+
+    /**
+     * Inserts expenses keeping the IDs they already carry, as when restoring a dump. Returns the number
+     * inserted; an ID that already exists stops the restore.
+     */
+    int restoreExpenses(List<Expense> expenses);
+
+    /** Updates all expenses by ID and returns the number of rows that existed and were changed. */
+    int updateExpenses(List<Expense> expenses);
+
+    /** Deletes the given IDs and returns the number of rows removed. */
+    int deleteExpenses(Collection<Integer> ids);
+
+    List<Expense> findExpenses(ExpenseQuery query);
+
+    /**
+     * Hands every expense matching {@code query} to {@code consumer} one at a time in query order, so
+     * callers never hold the whole result as {@link Expense} objects. Returns the number of expenses streamed.
+     */
+    long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer);
+
+    /**
+     * Streams every expense inserted or changed at or after {@code since}, oldest change first, and
+     * returns the newest change time seen (or {@code since} when nothing changed). Deletes are not reported.
+     */
+    Timestamp streamExpensesUpdatedSince(Timestamp since, Consumer<Expense> consumer);
+
+    long countExpenses();
+
+    Set<Integer> getAllExpenseIds();
+
+    /** Looks up several expenses at once; missing IDs are skipped. */
+    List<Expense> getExpensesByIds(Collection<Integer> ids);
+
+    /**
+     * One page in {@code date DESC, id DESC} order, seeking from {@code cursor} in {@code direction};
+     * a {@code null} cursor returns the first page. The query's sort order and limit are ignored.
+     */
+    ExpensePage getExpensePage(ExpenseQuery query, ExpensePage.Cursor cursor, ExpensePage.Direction direction, int pageSize);
+
+    /** Count and total of all expenses matching {@code query}; sort order and limit are ignored. */
+    ExpenseSummary getSummary(ExpenseQuery query);
+
+    /** Per-category count and total, ordered case-insensitively by category. */
+    Map<String, ExpenseSummary> getCategorySummaries(ExpenseQuery query);
+
+    /** Per-month ({@code yyyy-MM}) count and total, ordered by month. */
+    Map<String, ExpenseSummary> getMonthlySummaries(ExpenseQuery query);
+
+    /**
+     * Hands {@code consumer} one count and total per distinct day and category among the expenses matching
+     * {@code query}, oldest day first, and returns the number of groups. Everything a report needs can be
+     * derived from these in one pass, with memory and transfer proportional to the number of groups
+     * rather than the number of expenses. Sort order and limit are ignored.
+     */
+    default long streamDailySummaries(ExpenseQuery query, DailySummaryConsumer consumer) {
+        DailySummaryCollector collector = new DailySummaryCollector();
+        streamExpenses(query.copy().sortBy(ExpenseQuery.SortOrder.DATE_DESC).limit(0),
+                expense -> collector.add(expense.getDate().toEpochDay(), expense.getCategory(), 1, expense.getAmountCents()));
+        return collector.emit(consumer);
+    }
+
+    /**
+     * Recomputes whatever the store keeps precomputed for reports from the raw expenses. Returns the
+     * number of day/category groups afterwards, or -1 on failure.
+     */
+    int rebuildRollup();
+
+    /**
+     * Reclaims space held by superseded or deleted records. Returns the number of bytes reclaimed, or
+     * -1 when the store does not support compaction or it failed.
+     */
+    default long compact() {
+        return -1;
+    }
+
+    /**
+     * Opens connections or loads data the first real call would otherwise wait for. Called from a
+     * background thread at startup; failures are logged and left for that first call to report.
+     */
+    default void warmUp() {
+    }
+
+    /** Releases files, threads or connections held by the store. */
+    default void close() {
+    }
+
+    /** The repository this one wraps, or {@code null} for a store that wraps nothing. */
+    default ExpenseRepository getDelegate() {
+        return null;
+    }
+
+    /** This repository or the first one it (transitively) wraps that is a {@code type}, or {@code null}. */
+    default <T extends ExpenseRepository> T unwrap(Class<T> type) {
+        for (ExpenseRepository current = this; current != null; current = current.getDelegate()) {
+            if (type.isInstance(current)) {
+                return type.cast(current);
+            }
+        }
+        return null;
+    }
+
+    default List<Expense> getExpensesByDateRange(LocalDate startDate, LocalDate endDate) {
+        return findExpenses(ExpenseQuery.all().between(startDate, endDate));
+    }
+
+    default List<Expense> getExpensesByCategory(String category) {
+        return findExpenses(ExpenseQuery.all().category(category));
+    }
+
+    default List<Expense> getExpensesByAmountRange(BigDecimal minAmount, BigDecimal maxAmount) {
+        return findExpenses(ExpenseQuery.all()
+                .minAmount(minAmount)
+                .maxAmount(maxAmount)
+                .sortBy(ExpenseQuery.SortOrder.AMOUNT_DESC));
+    }
+
+    /** The repository for the interactive menu; see {@link #fromEnvironment(boolean)}. */
+    static ExpenseRepository fromEnvironment() {
+        return fromEnvironment(true);
+    }
+
+    /**
+     * Creates the repository selected by {@code STORAGE}: {@code mysql} (default) or {@code embedded},
+     * which keeps its log under {@code EMBEDDED_DATA_DIR}, wrapped as described in {@link #decorate}.
+     */
+    static ExpenseRepository fromEnvironment(boolean interactive) {
+        String storage = EnvConfig.get("STORAGE", "mysql").trim().toLowerCase();
+        ExpenseRepository repository;
+        switch (storage) {
+            case "embedded":
+                repository = EmbeddedExpenseRepository.open(Paths.get(EnvConfig.get("EMBEDDED_DATA_DIR", EmbeddedExpenseRepository.DEFAULT_DATA_DIR)));
+                break;
+            case "mysql":
+                repository = new ExpenseDAO();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown STORAGE '" + storage + "', expected 'mysql' or 'embedded'.");
+        }
+        return decorate(repository, interactive);
+    }
+
+    /**
+     * Wraps {@code repository} for use by the application. For an {@code interactive} session with
+     * {@code SNAPSHOT_ENABLED} it is wrapped in a {@link SnapshotExpenseRepository} reading
+     * {@code SNAPSHOT_PATH}. Command-line runs never are: a one-shot command would otherwise read a possibly
+     * stale snapshot before the store warms up, and rewrite the whole snapshot on exit after any change.
+     * Unless {@code METRICS_ENABLED} is false, the result is timed by a {@link MeteredExpenseRepository}.
+     */
+    static ExpenseRepository decorate(ExpenseRepository repository, boolean interactive) {
+        if (interactive && EnvConfig.getBoolean("SNAPSHOT_ENABLED", false)) {
+            repository = new SnapshotExpenseRepository(repository,
+                    Paths.get(EnvConfig.get("SNAPSHOT_PATH", SnapshotExpenseRepository.DEFAULT_SNAPSHOT_PATH)),
+                    EnvConfig.getBoolean("SNAPSHOT_ON_EXIT", true));
+        }
+        if (EnvConfig.getBoolean("METRICS_ENABLED", true)) {
+            repository = new MeteredExpenseRepository(repository);
+        }
+        return repository;
+    }
+
+    /** Receives one day/category group from {@link #streamDailySummaries}. */
+    @FunctionalInterface
+    interface DailySummaryConsumer {
+        void accept(LocalDate date, String category, long count, long totalCents);
+    }
+}
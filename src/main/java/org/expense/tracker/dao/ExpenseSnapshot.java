@@ -0,0 +1,448 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.Money;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+
+/**
+ * A read-only copy of the expenses table in a compact binary file that is opened with
+ * {@link FileChannel#map} instead of being parsed, so opening it costs the same for ten rows or ten million.
+ * <p>
+ * Layout (big-endian): a 32-byte header ({@code MAGIC}, format version, row count, reserved, creation
+ * time, heap offset), then one fixed-width 32-byte row per expense in {@code date DESC, id DESC} order
+ * ({@code id, epochDay, cents, categoryOffset, categoryLength, descriptionOffset, descriptionLength}),
+ * then a heap of UTF-8 strings the rows point into. Category strings are stored once per spelling.
+ * Because rows are date-ordered, date ranges and page cursors are found by binary search.
+ * <p>
+ * Files are written to a side file and renamed into place, so a reader only ever sees a complete snapshot.
+ */
+final class ExpenseSnapshot {
+
+    private static final int MAGIC = 0x45585053;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int ROW_BYTES = 32;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final long createdAtMillis;
+    private final long heapOffset;
+    private final long fileBytes;
+    private final Map<Long, String> categories = new ConcurrentHashMap<>();
+
+    private ExpenseSnapshot(MappedByteBuffer buffer, int size, long createdAtMillis, long heapOffset, long fileBytes) {
+        this.buffer = buffer;
+        this.size = size;
+        this.createdAtMillis = createdAtMillis;
+        this.heapOffset = heapOffset;
+        this.fileBytes = fileBytes;
+    }
+
+    /**
+     * Maps the snapshot at {@code path}. Throws {@link IOException} if the file is missing, from another
+     * format version or inconsistent with its header.
+     */
+    static ExpenseSnapshot open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileBytes = channel.size();
+            if (fileBytes < HEADER_BYTES || fileBytes > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected snapshot size " + fileBytes + " for " + path);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileBytes);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not an expense snapshot");
+            }
+            if (buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + " in " + path);
+            }
+            int size = buffer.getInt(8);
+            long heapOffset = buffer.getLong(24);
+            if (size < 0 || heapOffset != HEADER_BYTES + (long) size * ROW_BYTES || heapOffset > fileBytes) {
+                throw new IOException("Corrupt snapshot header in " + path);
+            }
+            return new ExpenseSnapshot(buffer, size, buffer.getLong(16), heapOffset, fileBytes);
+        }
+    }
+
+    /**
+     * Streams every expense from {@code source} into a new snapshot at {@code target}, replacing any
+     * existing one atomically. Returns the number of rows written.
+     */
+    static long write(Path target, ExpenseRepository source) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path rowsFile = Files.createTempFile(directory, "snapshot-rows", ".tmp");
+        Path heapFile = Files.createTempFile(directory, "snapshot-heap", ".tmp");
+        Path assembled = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            long[] counts = new long[2];
+            try (DataOutputStream rows = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(rowsFile), OUTPUT_BUFFER_SIZE));
+                 DataOutputStream heap = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(heapFile), OUTPUT_BUFFER_SIZE))) {
+                Map<String, Integer> categoryOffsets = new HashMap<>();
+                source.streamExpenses(ExpenseQuery.all().sortBy(ExpenseQuery.SortOrder.DATE_DESC), expense -> {
+                    try {
+                        byte[] category = bytesOf(expense.getCategory());
+                        Integer categoryOffset = categoryOffsets.get(expense.getCategory());
+                        if (categoryOffset == null) {
+                            categoryOffset = append(heap, category, counts);
+                            categoryOffsets.put(expense.getCategory(), categoryOffset);
+                        }
+                        byte[] description = bytesOf(expense.getDescription());
+                        int descriptionOffset = append(heap, description, counts);
+                        rows.writeInt(expense.getId());
+                        rows.writeInt(Math.toIntExact(expense.getDate().toEpochDay()));
+                        rows.writeLong(expense.getAmountCents());
+                        rows.writeInt(categoryOffset);
+                        rows.writeInt(category == null ? -1 : category.length);
+                        rows.writeInt(descriptionOffset);
+                        rows.writeInt(description == null ? -1 : description.length);
+                        counts[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            long rowCount = counts[0];
+            // Repositories log and stop on read errors, so a short stream has to be caught here
+            long expected = source.countExpenses();
+            if (rowCount != expected) {
+                throw new IOException("Read " + rowCount + " of " + expected + " expenses while writing the snapshot");
+            }
+            long heapOffset = HEADER_BYTES + rowCount * ROW_BYTES;
+            if (heapOffset + counts[1] > Integer.MAX_VALUE) {
+                throw new IOException("Ledger too large for a single mapped snapshot (" + (heapOffset + counts[1]) + " bytes)");
+            }
+            try (FileChannel out = FileChannel.open(assembled, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 FileChannel rowsIn = FileChannel.open(rowsFile, StandardOpenOption.READ);
+                 FileChannel heapIn = FileChannel.open(heapFile, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                        .putInt(MAGIC).putInt(FORMAT_VERSION).putInt((int) rowCount).putInt(0)
+                        .putLong(System.currentTimeMillis()).putLong(heapOffset).flip();
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+                transferAll(rowsIn, out);
+                transferAll(heapIn, out);
+                out.force(true);
+            }
+            Files.move(assembled, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return rowCount;
+        } finally {
+            Files.deleteIfExists(rowsFile);
+            Files.deleteIfExists(heapFile);
+            Files.deleteIfExists(assembled);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getCreatedAtMillis() {
+        return createdAtMillis;
+    }
+
+    long getFileBytes() {
+        return fileBytes;
+    }
+
+    /** Linear scan of the ID column; single lookups are rare while the snapshot is being served. */
+    Expense getExpenseById(int id) {
+        for (int row = 0; row < size; row++) {
+            if (id(row) == id) {
+                return toExpense(row);
+            }
+        }
+        return null;
+    }
+
+    List<Expense> find(ExpenseQuery query) {
+        int[] rows = select(query);
+        List<Expense> expenses = new ArrayList<>(rows.length);
+        for (int row : rows) {
+            expenses.add(toExpense(row));
+        }
+        return expenses;
+    }
+
+    long stream(ExpenseQuery query, Consumer<Expense> consumer) {
+        int[] rows = select(query);
+        for (int row : rows) {
+            consumer.accept(toExpense(row));
+        }
+        return rows.length;
+    }
+
+    ExpensePage page(ExpenseQuery query, ExpensePage.Cursor cursor, ExpensePage.Direction direction, int pageSize) {
+        boolean forward = cursor == null || direction == ExpensePage.Direction.NEXT;
+        RowFilter filter = new RowFilter(query);
+        int from = firstRowOnOrBefore(query.getEndDate());
+        int to = endRow(query);
+        List<Expense> expenses = new ArrayList<>(pageSize + 1);
+        if (forward) {
+            int start = cursor == null ? from : Math.max(from, firstRowOlderThan(cursor));
+            for (int row = start; row < to && expenses.size() <= pageSize; row++) {
+                if (filter.matches(row)) {
+                    expenses.add(toExpense(row));
+                }
+            }
+        } else {
+            int end = Math.min(to, firstRowNotNewerThan(cursor));
+            for (int row = end - 1; row >= from && expenses.size() <= pageSize; row--) {
+                if (filter.matches(row)) {
+                    expenses.add(toExpense(row));
+                }
+            }
+        }
+
+        boolean more = expenses.size() > pageSize;
+        if (more) {
+            expenses.remove(expenses.size() - 1);
+        }
+        if (forward) {
+            return new ExpensePage(expenses, more, cursor != null);
+        }
+        Collections.reverse(expenses);
+        return new ExpensePage(expenses, true, more);
+    }
+
+    ExpenseSummary summary(ExpenseQuery query) {
+        RowFilter filter = new RowFilter(query);
+        long count = 0;
+        long cents = 0;
+        int to = endRow(query);
+        for (int row = firstRowOnOrBefore(query.getEndDate()); row < to; row++) {
+            if (filter.matches(row)) {
+                count++;
+                cents += cents(row);
+            }
+        }
+        return new ExpenseSummary(count, cents);
+    }
+
+    Map<String, ExpenseSummary> categorySummaries(ExpenseQuery query) {
+        return group(query, new TreeMap<>(String.CASE_INSENSITIVE_ORDER), this::category);
+    }
+
+    Map<String, ExpenseSummary> monthlySummaries(ExpenseQuery query) {
+        Map<Integer, String> months = new HashMap<>();
+        return group(query, new TreeMap<>(), row -> months.computeIfAbsent(epochDay(row), day -> YearMonth.from(LocalDate.ofEpochDay(day)).toString()));
+    }
+
+    private Map<String, ExpenseSummary> group(ExpenseQuery query, Map<String, long[]> totals, IntFunction<String> key) {
+        RowFilter filter = new RowFilter(query);
+        int to = endRow(query);
+        for (int row = firstRowOnOrBefore(query.getEndDate()); row < to; row++) {
+            if (filter.matches(row)) {
+                long[] total = totals.computeIfAbsent(key.apply(row), k -> new long[2]);
+                total[0]++;
+                total[1] += cents(row);
+            }
+        }
+        Map<String, ExpenseSummary> summaries = new LinkedHashMap<>();
+        totals.forEach((group, total) -> summaries.put(group, new ExpenseSummary(total[0], total[1])));
+        return summaries;
+    }
+
+    private int[] select(ExpenseQuery query) {
+        RowFilter filter = new RowFilter(query);
+        int from = firstRowOnOrBefore(query.getEndDate());
+        int to = endRow(query);
+        int limit = query.getLimit() > 0 ? query.getLimit() : Integer.MAX_VALUE;
+        ExpenseQuery.SortOrder sortOrder = query.getSortOrder();
+        List<Integer> rows = new ArrayList<>();
+        if (sortOrder == ExpenseQuery.SortOrder.DATE_DESC) {
+            for (int row = from; row < to && rows.size() < limit; row++) {
+                if (filter.matches(row)) {
+                    rows.add(row);
+                }
+            }
+        } else if (sortOrder == ExpenseQuery.SortOrder.DATE_ASC) {
+            for (int row = to - 1; row >= from && rows.size() < limit; row--) {
+                if (filter.matches(row)) {
+                    rows.add(row);
+                }
+            }
+        } else {
+            for (int row = from; row < to; row++) {
+                if (filter.matches(row)) {
+                    rows.add(row);
+                }
+            }
+            Comparator<Integer> byAmount = Comparator.<Integer>comparingLong(this::cents).thenComparingInt(this::id);
+            rows.sort(sortOrder == ExpenseQuery.SortOrder.AMOUNT_ASC ? byAmount : byAmount.reversed());
+        }
+        return rows.stream().limit(limit).mapToInt(Integer::intValue).toArray();
+    }
+
+    private int endRow(ExpenseQuery query) {
+        return query.getStartDate() == null ? size : firstRowOnOrBefore(query.getStartDate().minusDays(1));
+    }
+
+    /** First row dated on or before {@code date}; 0 when {@code date} is null. */
+    private int firstRowOnOrBefore(LocalDate date) {
+        if (date == null) {
+            return 0;
+        }
+        long day = date.toEpochDay();
+        return firstRow(row -> epochDay(row) <= day);
+    }
+
+    /** First row that comes after the cursor in newest-first order. */
+    private int firstRowOlderThan(ExpensePage.Cursor cursor) {
+        long day = cursor.getDate().toEpochDay();
+        return firstRow(row -> epochDay(row) < day || (epochDay(row) == day && id(row) < cursor.getId()));
+    }
+
+    /** First row that is the cursor itself or comes after it in newest-first order. */
+    private int firstRowNotNewerThan(ExpensePage.Cursor cursor) {
+        long day = cursor.getDate().toEpochDay();
+        return firstRow(row -> epochDay(row) < day || (epochDay(row) == day && id(row) <= cursor.getId()));
+    }
+
+    /** Binary search for the first row satisfying a predicate that is false, then true, in row order. */
+    private int firstRow(IntPredicate predicate) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (predicate.test(middle)) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private int id(int row) {
+        return buffer.getInt(HEADER_BYTES + row * ROW_BYTES);
+    }
+
+    private int epochDay(int row) {
+        return buffer.getInt(HEADER_BYTES + row * ROW_BYTES + 4);
+    }
+
+    private long cents(int row) {
+        return buffer.getLong(HEADER_BYTES + row * ROW_BYTES + 8);
+    }
+
+    /** Offset and length of the row's category in the heap; equal keys mean the same stored spelling. */
+    private long categoryKey(int row) {
+        return buffer.getLong(HEADER_BYTES + row * ROW_BYTES + 16);
+    }
+
+    private String category(int row) {
+        int base = HEADER_BYTES + row * ROW_BYTES;
+        String category = categories.get(categoryKey(row));
+        if (category == null) {
+            category = string(buffer.getInt(base + 16), buffer.getInt(base + 20));
+            if (category != null) {
+                categories.put(categoryKey(row), category);
+            }
+        }
+        return category;
+    }
+
+    private String description(int row) {
+        int base = HEADER_BYTES + row * ROW_BYTES;
+        return string(buffer.getInt(base + 24), buffer.getInt(base + 28));
+    }
+
+    private String string(int offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get((int) heapOffset + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Expense toExpense(int row) {
+        return new Expense(id(row), LocalDate.ofEpochDay(epochDay(row)), category(row), description(row), Money.toBigDecimal(cents(row)));
+    }
+
+    private static byte[] bytesOf(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int append(DataOutputStream heap, byte[] bytes, long[] counts) throws IOException {
+        int offset = (int) counts[1];
+        if (bytes != null) {
+            heap.write(bytes);
+            counts[1] += bytes.length;
+        }
+        return offset;
+    }
+
+    private static void transferAll(FileChannel source, FileChannel target) throws IOException {
+        long position = 0;
+        long size = source.size();
+        while (position < size) {
+            position += source.transferTo(position, size - position, target);
+        }
+    }
+
+    /** Category and amount criteria for one query; the date range is handled by row bounds. */
+    private final class RowFilter {
+        private final String category;
+        private final long minCents;
+        private final long maxCents;
+        private final Map<Long, Boolean> categoryMatches = new HashMap<>();
+
+        private RowFilter(ExpenseQuery query) {
+            this.category = query.getCategory() != null ? query.getCategory().toLowerCase(Locale.ROOT) : null;
+            this.minCents = query.getMinAmount() != null ? Money.ceilCents(query.getMinAmount()) : Long.MIN_VALUE;
+            this.maxCents = query.getMaxAmount() != null ? Money.floorCents(query.getMaxAmount()) : Long.MAX_VALUE;
+        }
+
+        private boolean matches(int row) {
+            long amount = cents(row);
+            if (amount < minCents || amount > maxCents) {
+                return false;
+            }
+            if (category == null) {
+                return true;
+            }
+            // Rows share one heap entry per spelling, so each spelling is compared once
+            return categoryMatches.computeIfAbsent(categoryKey(row), key -> {
+                String value = category(row);
+                return value != null && value.toLowerCase(Locale.ROOT).equals(category);
+            });
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.util.Metrics;
+import org.expense.tracker.util.OperationMetrics;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Wraps another repository and records calls, errors, rows and latency of every operation under
+ * {@code dao.<method>} in {@link Metrics}. A call counts as an error when it throws or when the store
+ * marked a swallowed failure; rows are the size of the returned result, or the count for batch writes.
+ */
+public class MeteredExpenseRepository implements ExpenseRepository {
+
+    private final ExpenseRepository delegate;
+    private final OperationMetrics add = Metrics.operation("dao.addExpense");
+    private final OperationMetrics getById = Metrics.operation("dao.getExpenseById");
+    private final OperationMetrics getAll = Metrics.operation("dao.getAllExpenses");
+    private final OperationMetrics update = Metrics.operation("dao.updateExpense");
+    private final OperationMetrics delete = Metrics.operation("dao.deleteExpense");
+    private final OperationMetrics addBatch = Metrics.operation("dao.addExpenses");
+    private final OperationMetrics restoreBatch = Metrics.operation("dao.restoreExpenses");
+    private final OperationMetrics updateBatch = Metrics.operation("dao.updateExpenses");
+    private final OperationMetrics deleteBatch = Metrics.operation("dao.deleteExpenses");
+    private final OperationMetrics find = Metrics.operation("dao.findExpenses");
+    private final OperationMetrics stream = Metrics.operation("dao.streamExpenses");
+    private final OperationMetrics streamChanges = Metrics.operation("dao.streamExpensesUpdatedSince");
+    private final OperationMetrics count = Metrics.operation("dao.countExpenses");
+    private final OperationMetrics allIds = Metrics.operation("dao.getAllExpenseIds");
+    private final OperationMetrics byIds = Metrics.operation("dao.getExpensesByIds");
+    private final OperationMetrics page = Metrics.operation("dao.getExpensePage");
+    private final OperationMetrics summary = Metrics.operation("dao.getSummary");
+    private final OperationMetrics categorySummaries = Metrics.operation("dao.getCategorySummaries");
+    private final OperationMetrics monthlySummaries = Metrics.operation("dao.getMonthlySummaries");
+    private final OperationMetrics dailySummaries = Metrics.operation("dao.streamDailySummaries");
+    private final OperationMetrics rollup = Metrics.operation("dao.rebuildRollup");
+    private final OperationMetrics compaction = Metrics.operation("dao.compact");
+
+    public MeteredExpenseRepository(ExpenseRepository delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public ExpenseRepository getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public void addExpense(Expense expense) {
+        add.time(() -> {
+            delegate.addExpense(expense);
+            return expense;
+        }, added -> added.getId() > 0 ? 1 : 0);
+    }
+
+    @Override
+    public Expense getExpenseById(int id) {
+        return getById.time(() -> delegate.getExpenseById(id), expense -> 1);
+    }
+
+    @Override
+    public List<Expense> getAllExpenses() {
+        return getAll.time(delegate::getAllExpenses, List::size);
+    }
+
+    @Override
+    public boolean updateExpense(Expense expense) {
+        return update.time(() -> delegate.updateExpense(expense), updated -> updated ? 1 : 0);
+    }
+
+    @Override
+    public boolean deleteExpense(int id) {
+        return delete.time(() -> delegate.deleteExpense(id), deleted -> deleted ? 1 : 0);
+    }
+
+    @Override
+    public int addExpenses(List<Expense> expenses) {
+        return addBatch.time(() -> delegate.addExpenses(expenses), Integer::longValue);
+    }
+
+    @Override
+    public int restoreExpenses(List<Expense> expenses) {
+        return restoreBatch.time(() -> delegate.restoreExpenses(expenses), Integer::longValue);
+    }
+
+    @Override
+    public int updateExpenses(List<Expense> expenses) {
+        return updateBatch.time(() -> delegate.updateExpenses(expenses), Integer::longValue);
+    }
+
+    @Override
+    public int deleteExpenses(Collection<Integer> ids) {
+        return deleteBatch.time(() -> delegate.deleteExpenses(ids), Integer::longValue);
+    }
+
+    @Override
+    public List<Expense> findExpenses(ExpenseQuery query) {
+        return find.time(() -> delegate.findExpenses(query), List::size);
+    }
+
+    @Override
+    public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+        return stream.time(() -> delegate.streamExpenses(query, consumer), Long::longValue);
+    }
+
+    @Override
+    public Timestamp streamExpensesUpdatedSince(Timestamp since, Consumer<Expense> consumer) {
+        long[] streamed = {0};
+        return streamChanges.time(() -> delegate.streamExpensesUpdatedSince(since, expense -> {
+            streamed[0]++;
+            consumer.accept(expense);
+        }), latest -> streamed[0]);
+    }
+
+    @Override
+    public long countExpenses() {
+        return count.time(delegate::countExpenses, rows -> 1);
+    }
+
+    @Override
+    public Set<Integer> getAllExpenseIds() {
+        return allIds.time(delegate::getAllExpenseIds, Set::size);
+    }
+
+    @Override
+    public List<Expense> getExpensesByIds(Collection<Integer> ids) {
+        return byIds.time(() -> delegate.getExpensesByIds(ids), List::size);
+    }
+
+    @Override
+    public ExpensePage getExpensePage(ExpenseQuery query, ExpensePage.Cursor cursor, ExpensePage.Direction direction, int pageSize) {
+        return page.time(() -> delegate.getExpensePage(query, cursor, direction, pageSize), result -> result.getExpenses().size());
+    }
+
+    @Override
+    public ExpenseSummary getSummary(ExpenseQuery query) {
+        return summary.time(() -> delegate.getSummary(query), result -> 1);
+    }
+
+    @Override
+    public Map<String, ExpenseSummary> getCategorySummaries(ExpenseQuery query) {
+        return categorySummaries.time(() -> delegate.getCategorySummaries(query), Map::size);
+    }
+
+    @Override
+    public Map<String, ExpenseSummary> getMonthlySummaries(ExpenseQuery query) {
+        return monthlySummaries.time(() -> delegate.getMonthlySummaries(query), Map::size);
+    }
+
+    @Override
+    public long streamDailySummaries(ExpenseQuery query, DailySummaryConsumer consumer) {
+        return dailySummaries.time(() -> delegate.streamDailySummaries(query, consumer), Long::longValue);
+    }
+
+    @Override
+    public int rebuildRollup() {
+        return rollup.time(delegate::rebuildRollup, Integer::longValue);
+    }
+
+    @Override
+    public long compact() {
+        return compaction.time(delegate::compact, bytes -> 0);
+    }
+
+    @Override
+    public void warmUp() {
+        delegate.warmUp();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -0,0 +1,263 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Wraps another repository and answers reads from a memory-mapped {@link ExpenseSnapshot} until the
+ * wrapped store is reachable, so the first screen does not wait for the database.
+ * <p>
+ * On construction the snapshot (if present) is mapped and a background thread makes a first call to the
+ * wrapped repository, which opens and warms its connection pool. Reads are served from the snapshot until
+ * that call succeeds, and from the wrapped repository afterwards. The first write also switches reads over,
+ * because the snapshot no longer reflects the data. If the wrapped store stays unreachable, the snapshot
+ * keeps serving reads. Replica change-tracking calls always go to the wrapped repository.
+ * <p>
+ * {@link #saveSnapshot()} writes a fresh snapshot from the wrapped repository. {@link #close()} does the
+ * same when {@code saveOnClose} is set.
+ */
+public class SnapshotExpenseRepository implements ExpenseRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotExpenseRepository.class);
+
+    static final String DEFAULT_SNAPSHOT_PATH = "data/expenses.snapshot";
+
+    private final ExpenseRepository delegate;
+    private final Path snapshotPath;
+    private final boolean saveOnClose;
+    private final long openMillis;
+    private final int snapshotRows;
+    private volatile ExpenseSnapshot snapshot;
+    private volatile boolean delegateReady;
+
+    public SnapshotExpenseRepository(ExpenseRepository delegate, Path snapshotPath, boolean saveOnClose) {
+        this.delegate = delegate;
+        this.snapshotPath = snapshotPath;
+        this.saveOnClose = saveOnClose;
+        long start = System.nanoTime();
+        ExpenseSnapshot opened = null;
+        if (Files.exists(snapshotPath)) {
+            try {
+                opened = ExpenseSnapshot.open(snapshotPath);
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable expense snapshot {}: {}", snapshotPath, e.getMessage());
+            }
+        }
+        this.snapshot = opened;
+        this.snapshotRows = opened != null ? opened.size() : -1;
+        this.openMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (opened != null) {
+            logger.info("Mapped expense snapshot {} with {} rows in {} ms.", snapshotPath, opened.size(), openMillis);
+            Thread warmUp = new Thread(this::warmUpDelegate, "expense-store-warmup");
+            warmUp.setDaemon(true);
+            warmUp.start();
+        } else {
+            delegateReady = true;
+        }
+    }
+
+    /**
+     * Writes a snapshot of the wrapped repository's current contents. Returns the number of rows written,
+     * or -1 on failure (the previous snapshot, if any, is left in place).
+     */
+    public long saveSnapshot() {
+        long start = System.nanoTime();
+        try {
+            long rows = ExpenseSnapshot.write(snapshotPath, delegate);
+            logger.info("Wrote expense snapshot {} with {} rows in {} ms.", snapshotPath, rows,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return rows;
+        } catch (IOException | RuntimeException e) {
+            logger.error("Error writing expense snapshot {}: {}", snapshotPath, e.getMessage());
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    @Override
+    public ExpenseRepository getDelegate() {
+        return delegate;
+    }
+
+    public SnapshotStats getStats() {
+        return new SnapshotStats(snapshotPath.toString(), snapshotRows, openMillis, snapshot != null);
+    }
+
+    @Override
+    public void close() {
+        // Without a reachable store a new snapshot would be empty; the existing one stays valid
+        if (saveOnClose && delegateReady) {
+            saveSnapshot();
+        }
+        delegate.close();
+    }
+
+    private void warmUpDelegate() {
+        long start = System.nanoTime();
+        try {
+            delegate.countExpenses();
+            delegateReady = true;
+            snapshot = null;
+            logger.info("Expense store ready after {} ms; reads now go to it instead of the snapshot.",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            logger.warn("Expense store not reachable ({}); continuing to serve reads from the snapshot.", e.getMessage());
+        }
+    }
+
+    private void retireSnapshot() {
+        if (snapshot != null) {
+            snapshot = null;
+            delegateReady = true;
+            logger.info("Snapshot retired because of a write; reads now go to the expense store.");
+        }
+    }
+
+    @Override
+    public void addExpense(Expense expense) {
+        retireSnapshot();
+        delegate.addExpense(expense);
+    }
+
+    @Override
+    public Expense getExpenseById(int id) {
+        ExpenseSnapshot current = snapshot;
+        return current != null ? current.getExpenseById(id) : delegate.getExpenseById(id);
+    }
+
+    @Override
+    public List<Expense> getAllExpenses() {
+        ExpenseSnapshot current = snapshot;
+        return current != null ? current.find(ExpenseQuery.all()) : delegate.getAllExpenses();
+    }
+
+    @Override
+    public boolean updateExpense(Expense expense) {
+        retireSnapshot();
+        return delegate.updateExpense(expense);
+    }
+
+    @Override
+    public boolean deleteExpense(int id) {
+        retireSnapshot();
+        return delegate.deleteExpense(id);
+    }
+
+    @Override
+    public int addExpenses(List<Expense> expenses) {
+        retireSnapshot();
+        return delegate.addExpenses(expenses);
+    }
+
+    @Override
+    public int restoreExpenses(List<Expense> expenses) {
+        retireSnapshot();
+        return delegate.restoreExpenses(expenses);
+    }
+
+    @Override
+    public int updateExpenses(List<Expense> expenses) {
+        retireSnapshot();
+        return delegate.updateExpenses(expenses);
+    }
+
+    @Override
+    public int deleteExpenses(Collection<Integer> ids) {
+        retireSnapshot();
+        return delegate.deleteExpenses(ids);
+    }
+
+    @Override
+    public List<Expense> findExpenses(ExpenseQuery query) {
+        ExpenseSnapshot current = snapshot;
+        return current != null ? current.find(query) : delegate.findExpenses(query);
+    }
+
+    @Override
+    public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+        ExpenseSnapshot current = snapshot;
+        return current != null ? current.stream(query, consumer) : delegate.streamExpenses(query, consumer);
+    }
+
+    @Override
+    public Timestamp streamExpensesUpdatedSince(Timestamp since, Consumer<Expense> consumer) {
+        return delegate.streamExpensesUpdatedSince(since, consumer);
+    }
+
+    @Override
+    public long countExpenses() {
+        return delegate.countExpenses();
+    }
+
+    @Override
+    public Set<Integer> getAllExpenseIds() {
+        return delegate.getAllExpenseIds();
+    }
+
+    @Override
+    public List<Expense> getExpensesByIds(Collection<Integer> ids) {
+        return delegate.getExpensesByIds(ids);
+    }
+
+    @Override
+    public ExpensePage getExpensePage(ExpenseQuery query, ExpensePage.Cursor cursor, ExpensePage.Direction direction, int pageSize) {
+        ExpenseSnapshot current = snapshot;
+        return current != null ? current.page(query, cursor, direction, pageSize) : delegate.getExpensePage(query, cursor, direction, pageSize);
+    }
+
+    @Override
+    public ExpenseSummary getSummary(ExpenseQuery query) {
+        ExpenseSnapshot current = snapshot;
+        return current != null ? current.summary(query) : delegate.getSummary(query);
+    }
+
+    @Override
+    public Map<String, ExpenseSummary> getCategorySummaries(ExpenseQuery query) {
+        ExpenseSnapshot current = snapshot;
+        return current != null ? current.categorySummaries(query) : delegate.getCategorySummaries(query);
+    }
+
+    @Override
+    public Map<String, ExpenseSummary> getMonthlySummaries(ExpenseQuery query) {
+        ExpenseSnapshot current = snapshot;
+        return current != null ? current.monthlySummaries(query) : delegate.getMonthlySummaries(query);
+    }
+
+    @Override
+    public long streamDailySummaries(ExpenseQuery query, DailySummaryConsumer consumer) {
+        // With a snapshot loaded, the default folds the snapshot's rows; otherwise the store answers itself
+        ExpenseSnapshot current = snapshot;
+        return current != null ? ExpenseRepository.super.streamDailySummaries(query, consumer) : delegate.streamDailySummaries(query, consumer);
+    }
+
+    @Override
+    public int rebuildRollup() {
+        return delegate.rebuildRollup();
+    }
+
+    @Override
+    public long compact() {
+        return delegate.compact();
+    }
+
+    /**
+     * {@code rows} is -1 when no snapshot was found at startup; {@code serving} tells whether reads are
+     * still answered from it.
+     */
+    public record SnapshotStats(String path, int rows, long openMillis, boolean serving) {
+    }
+}
@@ -0,0 +1,95 @@
+package org.expense.tracker.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Percentiles and maximum of a set of expense amounts, as estimated by a quantile sketch. Each percentile
+ * is at least the exact value and at most {@code relativeError} above it.
+ */
+public class AmountDistribution {
+
+    public static final AmountDistribution EMPTY = new AmountDistribution(0, 0, 0, 0, 0, 0);
+
+    private final long count;
+    private final long p50Cents;
+    private final long p90Cents;
+    private final long p99Cents;
+    private final long maxCents;
+    private final double relativeError;
+
+    public AmountDistribution(long count, long p50Cents, long p90Cents, long p99Cents, long maxCents, double relativeError) {
+        this.count = count;
+        this.p50Cents = p50Cents;
+        this.p90Cents = p90Cents;
+        this.p99Cents = p99Cents;
+        this.maxCents = maxCents;
+        this.relativeError = relativeError;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getP50Cents() {
+        return p50Cents;
+    }
+
+    public long getP90Cents() {
+        return p90Cents;
+    }
+
+    public long getP99Cents() {
+        return p99Cents;
+    }
+
+    public long getMaxCents() {
+        return maxCents;
+    }
+
+    public BigDecimal getP50() {
+        return Money.toBigDecimal(p50Cents);
+    }
+
+    public BigDecimal getP90() {
+        return Money.toBigDecimal(p90Cents);
+    }
+
+    public BigDecimal getP99() {
+        return Money.toBigDecimal(p99Cents);
+    }
+
+    public BigDecimal getMax() {
+        return Money.toBigDecimal(maxCents);
+    }
+
+    /** Largest relative overestimate of a percentile, e.g. {@code 0.015625} for 1.5625%. */
+    public double getRelativeError() {
+        return relativeError;
+    }
+
+    @Override
+    public String toString() {
+        return "AmountDistribution{" +
+               "count=" + count +
+               ", p50=" + getP50() +
+               ", p90=" + getP90() +
+               ", p99=" + getP99() +
+               ", max=" + getMax() +
+               '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        AmountDistribution that = (AmountDistribution) o;
+        return count == that.count && p50Cents == that.p50Cents && p90Cents == that.p90Cents
+               && p99Cents == that.p99Cents && maxCents == that.maxCents && relativeError == that.relativeError;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, p50Cents, p90Cents, p99Cents, maxCents, relativeError);
+    }
+}
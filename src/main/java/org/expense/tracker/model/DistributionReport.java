@@ -0,0 +1,44 @@
+package org.expense.tracker.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Amount distributions for a set of expenses: overall, per category and per month.
+ */
+public class DistributionReport {
+
+    private final AmountDistribution overall;
+    private final Map<String, AmountDistribution> categories;
+    private final Map<String, AmountDistribution> months;
+
+    public DistributionReport(AmountDistribution overall, Map<String, AmountDistribution> categories, Map<String, AmountDistribution> months) {
+        this.overall = overall;
+        this.categories = Collections.unmodifiableMap(new LinkedHashMap<>(categories));
+        this.months = Collections.unmodifiableMap(new LinkedHashMap<>(months));
+    }
+
+    public AmountDistribution getOverall() {
+        return overall;
+    }
+
+    /** Per-category distributions, ordered case-insensitively by category. */
+    public Map<String, AmountDistribution> getCategories() {
+        return categories;
+    }
+
+    /** Per-month ({@code yyyy-MM}) distributions, ordered by month. */
+    public Map<String, AmountDistribution> getMonths() {
+        return months;
+    }
+
+    @Override
+    public String toString() {
+        return "DistributionReport{" +
+               "overall=" + overall +
+               ", categories=" + categories.size() +
+               ", months=" + months.size() +
+               '}';
+    }
+}
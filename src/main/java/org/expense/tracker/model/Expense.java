@@ -10,6 +10,7 @@ public class Expense {
     private String category;
     private String description;
     private BigDecimal amount;
+    private long amountCents;
 
     public Expense() {
     }
@@ -19,6 +20,7 @@ public class Expense {
         this.category = category;
         this.description = description;
         this.amount = amount;
+        this.amountCents = Money.toCents(amount);
     }
 
     public Expense(int id, LocalDate date, String category, String description, BigDecimal amount) {
@@ -27,6 +29,7 @@ public class Expense {
         this.category = category;
         this.description = description;
         this.amount = amount;
+        this.amountCents = Money.toCents(amount);
     }
 
     // Getters
@@ -50,6 +53,13 @@ public class Expense {
         return amount;
     }
 
+    /**
+     * The amount as a whole number of cents, for allocation-free arithmetic.
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
     // Setters
     public void setId(int id) {
         this.id = id;
@@ -69,6 +79,7 @@ public class Expense {
 
     public void setAmount(BigDecimal amount) {
         this.amount = amount;
+        this.amountCents = Money.toCents(amount);
     }
 
     @Override
@@ -0,0 +1,85 @@
+package org.expense.tracker.model;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of expenses in {@code date DESC, id DESC} order, plus the seek keys needed to fetch the
+ * neighbouring pages.
+ */
+public class ExpensePage {
+
+    public enum Direction {
+        /** Towards older expenses. */
+        NEXT,
+        /** Towards newer expenses. */
+        PREVIOUS
+    }
+
+    /**
+     * Position of a row in {@code (date, id)} order; pages are fetched relative to it.
+     */
+    public static final class Cursor {
+        private final LocalDate date;
+        private final int id;
+
+        public Cursor(LocalDate date, int id) {
+            this.date = date;
+            this.id = id;
+        }
+
+        public static Cursor of(Expense expense) {
+            return new Cursor(expense.getDate(), expense.getId());
+        }
+
+        public LocalDate getDate() {
+            return date;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public String toString() {
+            return "Cursor{date=" + date + ", id=" + id + '}';
+        }
+    }
+
+    private final List<Expense> expenses;
+    private final boolean hasNext;
+    private final boolean hasPrevious;
+
+    public ExpensePage(List<Expense> expenses, boolean hasNext, boolean hasPrevious) {
+        this.expenses = Collections.unmodifiableList(expenses);
+        this.hasNext = hasNext;
+        this.hasPrevious = hasPrevious;
+    }
+
+    public List<Expense> getExpenses() {
+        return expenses;
+    }
+
+    public boolean isEmpty() {
+        return expenses.isEmpty();
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    public boolean hasPrevious() {
+        return hasPrevious;
+    }
+
+    /** Cursor of the first (newest) row, used to fetch the previous page. */
+    public Cursor getFirstCursor() {
+        return expenses.isEmpty() ? null : Cursor.of(expenses.get(0));
+    }
+
+    /** Cursor of the last (oldest) row, used to fetch the next page. */
+    public Cursor getLastCursor() {
+        return expenses.isEmpty() ? null : Cursor.of(expenses.get(expenses.size() - 1));
+    }
+}
@@ -0,0 +1,77 @@
+package org.expense.tracker.model;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Everything the summary report shows, computed together: overall figures, per-category and per-month
+ * breakdowns, and two adjacent, non-overlapping windows of {@code trendDays} days ending on {@code asOf}
+ * for the trend.
+ */
+public class ExpenseReport {
+
+    private final ExpenseSummary summary;
+    private final Map<String, ExpenseSummary> categories;
+    private final Map<String, ExpenseSummary> months;
+    private final LocalDate asOf;
+    private final int trendDays;
+    private final ExpenseSummary recent;
+    private final ExpenseSummary previous;
+
+    public ExpenseReport(ExpenseSummary summary, Map<String, ExpenseSummary> categories, Map<String, ExpenseSummary> months,
+                         LocalDate asOf, int trendDays, ExpenseSummary recent, ExpenseSummary previous) {
+        this.summary = summary;
+        this.categories = Collections.unmodifiableMap(new LinkedHashMap<>(categories));
+        this.months = Collections.unmodifiableMap(new LinkedHashMap<>(months));
+        this.asOf = asOf;
+        this.trendDays = trendDays;
+        this.recent = recent;
+        this.previous = previous;
+    }
+
+    public ExpenseSummary getSummary() {
+        return summary;
+    }
+
+    /** Per-category figures, ordered case-insensitively by category. */
+    public Map<String, ExpenseSummary> getCategories() {
+        return categories;
+    }
+
+    /** Per-month ({@code yyyy-MM}) figures, ordered by month. */
+    public Map<String, ExpenseSummary> getMonths() {
+        return months;
+    }
+
+    public LocalDate getAsOf() {
+        return asOf;
+    }
+
+    public int getTrendDays() {
+        return trendDays;
+    }
+
+    /** Expenses from {@code asOf - (trendDays - 1)} through {@code asOf}, i.e. the last {@code trendDays} days. */
+    public ExpenseSummary getRecent() {
+        return recent;
+    }
+
+    /** Expenses from {@code asOf - (2 * trendDays - 1)} through {@code asOf - trendDays}, the window before. */
+    public ExpenseSummary getPrevious() {
+        return previous;
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseReport{" +
+               "summary=" + summary +
+               ", categories=" + categories.size() +
+               ", months=" + months.size() +
+               ", asOf=" + asOf +
+               ", recent=" + recent +
+               ", previous=" + previous +
+               '}';
+    }
+}
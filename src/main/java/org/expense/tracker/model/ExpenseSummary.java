@@ -0,0 +1,73 @@
+package org.expense.tracker.model;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Aggregate figures (row count and amount total) for a set of expenses.
+ */
+public class ExpenseSummary {
+
+    public static final ExpenseSummary EMPTY = new ExpenseSummary(0, 0L);
+
+    private final long count;
+    private final BigDecimal total;
+    private final long totalCents;
+
+    public ExpenseSummary(long count, BigDecimal total) {
+        this.count = count;
+        this.total = total != null ? total : BigDecimal.ZERO;
+        this.totalCents = Money.toCents(this.total);
+    }
+
+    public ExpenseSummary(long count, long totalCents) {
+        this.count = count;
+        this.totalCents = totalCents;
+        this.total = Money.toBigDecimal(totalCents);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    /**
+     * Average amount rounded half-up to cents, or zero when there are no expenses.
+     */
+    public BigDecimal getAverage() {
+        return Money.toBigDecimal(getAverageCents());
+    }
+
+    public long getAverageCents() {
+        return Money.averageCents(totalCents, count);
+    }
+
+    @Override
+    public String toString() {
+        return "ExpenseSummary{" +
+               "count=" + count +
+               ", total=" + total +
+               ", average=" + getAverage() +
+               '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ExpenseSummary that = (ExpenseSummary) o;
+        return count == that.count && totalCents == that.totalCents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, totalCents);
+    }
+}
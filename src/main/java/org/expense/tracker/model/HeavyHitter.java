@@ -0,0 +1,61 @@
+package org.expense.tracker.model;
+
+import java.util.Objects;
+
+/**
+ * A description or category with its estimated weight (an expense count or an amount in cents) from a
+ * bounded-memory heavy-hitters summary. The true weight lies between {@link #getLowerBound()} and
+ * {@link #getValue()}.
+ */
+public class HeavyHitter {
+
+    private final String label;
+    private final long value;
+    private final long error;
+
+    public HeavyHitter(String label, long value, long error) {
+        this.label = label;
+        this.value = value;
+        this.error = error;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /** Estimated weight, never below the true one. */
+    public long getValue() {
+        return value;
+    }
+
+    /** Largest possible overestimate of {@link #getValue()}; 0 when the value is exact. */
+    public long getError() {
+        return error;
+    }
+
+    public long getLowerBound() {
+        return Math.max(0, value - error);
+    }
+
+    @Override
+    public String toString() {
+        return "HeavyHitter{" +
+               "label='" + label + '\'' +
+               ", value=" + value +
+               ", error=" + error +
+               '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        HeavyHitter that = (HeavyHitter) o;
+        return value == that.value && error == that.error && Objects.equals(label, that.label);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(label, value, error);
+    }
+}
@@ -0,0 +1,88 @@
+package org.expense.tracker.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money helpers working on amounts held as a {@code long} number of cents.
+ * <p>
+ * The {@code amount} column is {@code DECIMAL(10,2)}, so every stored value is an exact whole number of
+ * cents and sums over any realistic ledger stay far inside the {@code long} range. Adding, averaging and
+ * comparing cents avoids allocating a {@link BigDecimal} per operation while giving exactly the same
+ * results as the equivalent {@code BigDecimal} arithmetic at scale 2.
+ */
+public final class Money {
+
+    private static final int SCALE = 2;
+
+    private Money() {
+        // Utility class
+    }
+
+    /**
+     * Converts an amount to cents. Extra decimals are rounded half-up, the same way MySQL stores them in
+     * a {@code DECIMAL(10,2)} column. Throws {@link ArithmeticException} if the result does not fit in a
+     * {@code long}.
+     */
+    public static long toCents(BigDecimal amount) {
+        if (amount == null) {
+            return 0;
+        }
+        if (amount.scale() == SCALE && amount.unscaledValue().bitLength() < 63) {
+            return amount.unscaledValue().longValue();
+        }
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Smallest whole number of cents that is {@code >= amount}, for turning an inclusive lower bound
+     * with extra decimals into an equivalent bound on cents.
+     */
+    public static long ceilCents(BigDecimal amount) {
+        return amount.movePointRight(SCALE).setScale(0, RoundingMode.CEILING).longValue();
+    }
+
+    /**
+     * Largest whole number of cents that is {@code <= amount}, the upper-bound counterpart of
+     * {@link #ceilCents(BigDecimal)}.
+     */
+    public static long floorCents(BigDecimal amount) {
+        return amount.movePointRight(SCALE).setScale(0, RoundingMode.FLOOR).longValue();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * {@code totalCents / count} rounded half-up (away from zero on ties) to whole cents, which is the
+     * same result as {@code total.divide(count, 2, RoundingMode.HALF_UP)}. Returns 0 for a zero count.
+     */
+    public static long averageCents(long totalCents, long count) {
+        if (count == 0) {
+            return 0;
+        }
+        long quotient = totalCents / count;
+        long remainder = Math.abs(totalCents % count);
+        if (remainder * 2 >= Math.abs(count)) {
+            quotient += (totalCents < 0) == (count < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    /**
+     * {@code part} as a percentage of {@code whole}, or 0 when {@code whole} is zero.
+     */
+    public static double percentOf(long part, long whole) {
+        return whole == 0 ? 0.0 : part * 100.0 / whole;
+    }
+
+    /**
+     * Formats cents as a plain decimal string with two fraction digits, e.g. {@code -1234} as {@code -12.34}.
+     */
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        return (cents < 0 ? "-" : "") + (abs / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+}
@@ -0,0 +1,65 @@
+package org.expense.tracker.model;
+
+import java.util.List;
+
+/**
+ * The descriptions and categories that account for the most expenses and the most spending, largest
+ * first. Counts are numbers of expenses and amounts are in cents; see {@link HeavyHitter} for the bounds.
+ */
+public class TopSpendersReport {
+
+    private final List<HeavyHitter> descriptionsByCount;
+    private final List<HeavyHitter> descriptionsByAmount;
+    private final List<HeavyHitter> categoriesByCount;
+    private final List<HeavyHitter> categoriesByAmount;
+    private final long totalCount;
+    private final long totalCents;
+
+    public TopSpendersReport(List<HeavyHitter> descriptionsByCount, List<HeavyHitter> descriptionsByAmount,
+                             List<HeavyHitter> categoriesByCount, List<HeavyHitter> categoriesByAmount,
+                             long totalCount, long totalCents) {
+        this.descriptionsByCount = List.copyOf(descriptionsByCount);
+        this.descriptionsByAmount = List.copyOf(descriptionsByAmount);
+        this.categoriesByCount = List.copyOf(categoriesByCount);
+        this.categoriesByAmount = List.copyOf(categoriesByAmount);
+        this.totalCount = totalCount;
+        this.totalCents = totalCents;
+    }
+
+    public List<HeavyHitter> getDescriptionsByCount() {
+        return descriptionsByCount;
+    }
+
+    /** Descriptions by total amount in cents. */
+    public List<HeavyHitter> getDescriptionsByAmount() {
+        return descriptionsByAmount;
+    }
+
+    public List<HeavyHitter> getCategoriesByCount() {
+        return categoriesByCount;
+    }
+
+    /** Categories by total amount in cents. */
+    public List<HeavyHitter> getCategoriesByAmount() {
+        return categoriesByAmount;
+    }
+
+    /** Number of expenses summarized, including those without a description. */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    @Override
+    public String toString() {
+        return "TopSpendersReport{" +
+               "descriptions=" + descriptionsByCount.size() +
+               ", categories=" + categoriesByCount.size() +
+               ", totalCount=" + totalCount +
+               ", totalCents=" + totalCents +
+               '}';
+    }
+}
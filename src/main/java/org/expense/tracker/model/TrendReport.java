@@ -0,0 +1,126 @@
+package org.expense.tracker.model;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rolling-window comparisons ending on {@code asOf}: for each window, the spending in the window and in
+ * the window of the same length just before it, overall and per category.
+ */
+public class TrendReport {
+
+    private final LocalDate asOf;
+    private final List<Window> windows;
+
+    public TrendReport(LocalDate asOf, List<Window> windows) {
+        this.asOf = asOf;
+        this.windows = List.copyOf(windows);
+    }
+
+    public LocalDate getAsOf() {
+        return asOf;
+    }
+
+    /** The windows in the order they were requested. */
+    public List<Window> getWindows() {
+        return windows;
+    }
+
+    @Override
+    public String toString() {
+        return "TrendReport{" +
+               "asOf=" + asOf +
+               ", windows=" + windows +
+               '}';
+    }
+
+    /**
+     * One window and the period it is compared with. Both ranges are inclusive; the previous range has the
+     * same number of days as the current one, except that a month-to-date window is compared with the same
+     * days of the previous month, cut off at that month's end.
+     */
+    public static final class Window {
+        private final String label;
+        private final LocalDate currentStart;
+        private final LocalDate currentEnd;
+        private final LocalDate previousStart;
+        private final LocalDate previousEnd;
+        private final ExpenseSummary current;
+        private final ExpenseSummary previous;
+        private final Map<String, ExpenseSummary> currentByCategory;
+        private final Map<String, ExpenseSummary> previousByCategory;
+
+        public Window(String label, LocalDate currentStart, LocalDate currentEnd, LocalDate previousStart, LocalDate previousEnd,
+                      ExpenseSummary current, ExpenseSummary previous,
+                      Map<String, ExpenseSummary> currentByCategory, Map<String, ExpenseSummary> previousByCategory) {
+            this.label = label;
+            this.currentStart = currentStart;
+            this.currentEnd = currentEnd;
+            this.previousStart = previousStart;
+            this.previousEnd = previousEnd;
+            this.current = current;
+            this.previous = previous;
+            this.currentByCategory = Collections.unmodifiableMap(new LinkedHashMap<>(currentByCategory));
+            this.previousByCategory = Collections.unmodifiableMap(new LinkedHashMap<>(previousByCategory));
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public LocalDate getCurrentStart() {
+            return currentStart;
+        }
+
+        public LocalDate getCurrentEnd() {
+            return currentEnd;
+        }
+
+        public LocalDate getPreviousStart() {
+            return previousStart;
+        }
+
+        public LocalDate getPreviousEnd() {
+            return previousEnd;
+        }
+
+        public long getDays() {
+            return currentEnd.toEpochDay() - currentStart.toEpochDay() + 1;
+        }
+
+        public ExpenseSummary getCurrent() {
+            return current;
+        }
+
+        public ExpenseSummary getPrevious() {
+            return previous;
+        }
+
+        /** Moving average: the current window's total per calendar day, rounded half-up to cents. */
+        public long getDailyAverageCents() {
+            return Money.averageCents(current.getTotalCents(), getDays());
+        }
+
+        /** Per-category figures for the current window, for every category with spending in either period. */
+        public Map<String, ExpenseSummary> getCurrentByCategory() {
+            return currentByCategory;
+        }
+
+        /** Per-category figures for the previous period, with the same keys as {@link #getCurrentByCategory()}. */
+        public Map<String, ExpenseSummary> getPreviousByCategory() {
+            return previousByCategory;
+        }
+
+        @Override
+        public String toString() {
+            return "Window{" +
+                   "label='" + label + '\'' +
+                   ", current=" + currentStart + ".." + currentEnd + " " + current +
+                   ", previous=" + previousStart + ".." + previousEnd + " " + previous +
+                   '}';
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.model.AmountDistribution;
+
+import java.util.Arrays;
+
+/**
+ * Mergeable streaming quantile sketch for amounts in cents, using the same log-linear buckets as
+ * {@link org.expense.tracker.util.LatencyHistogram} but with 64 sub-buckets per power of two. A quantile
+ * is reported as the upper edge of the bucket holding its rank, so it is never below the exact answer
+ * and at most {@link #RELATIVE_ERROR} (1/64, about 1.6%) above it; amounts under 0.64 are exact. Memory
+ * is a few thousand counters at most whatever the number of amounts, and nothing is ever sorted.
+ * <p>
+ * Unlike most sketches this one also supports {@link #remove(long)}, since a bucket count can simply be
+ * decremented, so it can follow updates and deletes. The maximum is exact until the largest amount is
+ * removed; after that it is only known to the bucket, see {@link #isMaxExact()}. Not thread-safe.
+ */
+public final class AmountSketch {
+
+    public static final double RELATIVE_ERROR = 1.0 / 64;
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    // Grown on demand up to the highest bucket used; typical amounts need a few hundred counters
+    private long[] counts = new long[4 * SUB_BUCKETS];
+    private long count;
+    private long max;
+    private boolean maxExact = true;
+
+    public void add(long cents) {
+        long value = Math.max(0, cents);
+        int bucket = bucketOf(value);
+        if (bucket >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(bucket + 1, counts.length * 2));
+        }
+        counts[bucket]++;
+        count++;
+        if (value > max) {
+            max = value;
+            maxExact = true;
+        }
+    }
+
+    /**
+     * Removes one occurrence of {@code cents}, which must have been added before. Removing the largest
+     * amount leaves the maximum at the upper edge of the highest non-empty bucket, no longer exact.
+     */
+    public void remove(long cents) {
+        long value = Math.max(0, cents);
+        int bucket = bucketOf(value);
+        if (bucket >= counts.length || counts[bucket] == 0) {
+            throw new IllegalArgumentException("Amount was not in the sketch: " + cents);
+        }
+        counts[bucket]--;
+        count--;
+        if (count == 0) {
+            max = 0;
+            maxExact = true;
+        } else if (value >= max || !maxExact) {
+            // Once inexact, max may sit in a bucket that this removal just emptied
+            int highest = bucketOf(max);
+            while (counts[highest] == 0) {
+                highest--;
+            }
+            max = Math.min(max, upperEdge(highest));
+            maxExact = false;
+        }
+    }
+
+    /** Adds every amount of {@code other} to this sketch. */
+    public void merge(AmountSketch other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        if (other.max > max) {
+            max = other.max;
+            maxExact = other.maxExact;
+        } else if (other.max == max) {
+            maxExact |= other.maxExact;
+        }
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public boolean isMaxExact() {
+        return maxExact;
+    }
+
+    /**
+     * The amount at {@code quantile} (0..1): the upper edge of the bucket holding that rank, capped at the
+     * maximum. Returns 0 for an empty sketch.
+     */
+    public long quantile(double quantile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperEdge(i), max);
+            }
+        }
+        return max;
+    }
+
+    public AmountDistribution toDistribution() {
+        return new AmountDistribution(count, quantile(0.5), quantile(0.9), quantile(0.99), max, RELATIVE_ERROR);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperEdge(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lower = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
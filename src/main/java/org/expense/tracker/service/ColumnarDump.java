@@ -0,0 +1,301 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.Money;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Binary columnar dump of the expense ledger, a compact alternative to CSV for backup and restore.
+ * <p>
+ * Layout: an 8-byte header ({@code MAGIC}, version), then row groups of up to {@link #GROUP_ROWS} rows.
+ * Each group starts with its row count and holds one block per column, written as
+ * {@code [byte column][int length][int crc32][data]}:
+ * <ul>
+ *   <li>ids and dates (epoch days) as zigzag varint deltas from the previous row,</li>
+ *   <li>categories dictionary-encoded: the group's new dictionary entries, then one varint index per row,</li>
+ *   <li>descriptions as a varint of (UTF-8 length + 1), 0 meaning null, followed by the bytes,</li>
+ *   <li>amounts as zigzag varint cents.</li>
+ * </ul>
+ * A group with zero rows ends the dump and is followed by the total row count. Rows are written in the
+ * repository's date-descending order and the dump carries no timestamp, so dumping a restored ledger
+ * reproduces the original file byte for byte.
+ */
+class ColumnarDump {
+
+    static final String FILE_EXTENSION = ".expdump";
+    static final int GROUP_ROWS = 64 * 1024;
+
+    private static final int MAGIC = 0x45585044;
+    private static final int VERSION = 1;
+    private static final byte COLUMN_ID = 1;
+    private static final byte COLUMN_DATE = 2;
+    private static final byte COLUMN_CATEGORY = 3;
+    private static final byte COLUMN_DESCRIPTION = 4;
+    private static final byte COLUMN_AMOUNT = 5;
+
+    private ColumnarDump() {
+    }
+
+    /**
+     * Streams every expense in the repository into {@code out}. Returns the number of rows written; fails
+     * without writing the trailer if the stream stopped short of {@link ExpenseRepository#countExpenses()},
+     * since repositories log read errors and end the stream early.
+     */
+    static long dump(ExpenseRepository repository, OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        GroupWriter writer = new GroupWriter(data);
+        long rows;
+        try {
+            rows = repository.streamExpenses(ExpenseQuery.all().sortBy(ExpenseQuery.SortOrder.DATE_DESC), writer::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        if (writer.written != rows) {
+            throw new IOException("Dump wrote " + writer.written + " rows but the repository streamed " + rows);
+        }
+        long expected;
+        try {
+            expected = repository.countExpenses();
+        } catch (IllegalStateException e) {
+            throw new IOException("Could not count expenses to verify the dump", e);
+        }
+        if (rows != expected) {
+            throw new IOException("Read " + rows + " of " + expected + " expenses while writing the dump");
+        }
+        data.writeInt(0);
+        data.writeLong(rows);
+        data.flush();
+        return rows;
+    }
+
+    /**
+     * Reads a dump and hands its rows to {@code sink} one row group at a time, with their original IDs.
+     * Returns the number of rows read; a damaged block or a missing trailer fails with an IOException.
+     */
+    static long restore(InputStream in, Consumer<List<Expense>> sink) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        try {
+            if (data.readInt() != MAGIC) {
+                throw new IOException("Not an expense dump");
+            }
+            int version = data.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported dump version " + version);
+            }
+            List<String> dictionary = new ArrayList<>();
+            long rows = 0;
+            int previousId = 0;
+            long previousDay = 0;
+            for (int groupRows = data.readInt(); groupRows > 0; groupRows = data.readInt()) {
+                ByteBuffer ids = readBlock(data, COLUMN_ID);
+                ByteBuffer dates = readBlock(data, COLUMN_DATE);
+                ByteBuffer categories = readBlock(data, COLUMN_CATEGORY);
+                ByteBuffer descriptions = readBlock(data, COLUMN_DESCRIPTION);
+                ByteBuffer amounts = readBlock(data, COLUMN_AMOUNT);
+
+                int newEntries = (int) readVarLong(categories);
+                for (int i = 0; i < newEntries; i++) {
+                    dictionary.add(readString(categories));
+                }
+                List<Expense> group = new ArrayList<>(groupRows);
+                for (int i = 0; i < groupRows; i++) {
+                    previousId += (int) unzigzag(readVarLong(ids));
+                    previousDay += unzigzag(readVarLong(dates));
+                    String category = dictionary.get((int) readVarLong(categories));
+                    String description = readString(descriptions);
+                    long cents = unzigzag(readVarLong(amounts));
+                    group.add(new Expense(previousId, LocalDate.ofEpochDay(previousDay), category, description, Money.toBigDecimal(cents)));
+                }
+                sink.accept(group);
+                rows += groupRows;
+            }
+            long expected = data.readLong();
+            if (expected != rows) {
+                throw new IOException("Dump trailer expects " + expected + " rows but " + rows + " were read");
+            }
+            return rows;
+        } catch (EOFException | IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Dump is truncated or damaged", e);
+        }
+    }
+
+    private static ByteBuffer readBlock(DataInputStream data, byte column) throws IOException {
+        byte actual = data.readByte();
+        if (actual != column) {
+            throw new IOException("Expected column " + column + " but found " + actual);
+        }
+        int length = data.readInt();
+        int crc = data.readInt();
+        if (length < 0) {
+            throw new IOException("Negative block length in column " + column);
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes);
+        if ((int) checksum.getValue() != crc) {
+            throw new IOException("Checksum mismatch in column " + column);
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /** Buffers one row group per column and writes it out when full. */
+    private static final class GroupWriter {
+        private final DataOutputStream out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private final Column ids = new Column();
+        private final Column dates = new Column();
+        private final Column newCategories = new Column();
+        private final Column categoryIndexes = new Column();
+        private final Column descriptions = new Column();
+        private final Column amounts = new Column();
+        private int groupRows;
+        private int newEntries;
+        private int previousId;
+        private long previousDay;
+        private long written;
+
+        GroupWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        void add(Expense expense) {
+            ids.writeVarLong(zigzag(expense.getId() - (long) previousId));
+            previousId = expense.getId();
+            long day = expense.getDate().toEpochDay();
+            dates.writeVarLong(zigzag(day - previousDay));
+            previousDay = day;
+            Integer index = dictionary.get(expense.getCategory());
+            if (index == null) {
+                index = dictionary.size();
+                dictionary.put(expense.getCategory(), index);
+                newCategories.writeString(expense.getCategory());
+                newEntries++;
+            }
+            categoryIndexes.writeVarLong(index);
+            descriptions.writeString(expense.getDescription());
+            amounts.writeVarLong(zigzag(expense.getAmountCents()));
+            if (++groupRows == GROUP_ROWS) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            if (groupRows == 0) {
+                return;
+            }
+            out.writeInt(groupRows);
+            writeBlock(COLUMN_ID, ids);
+            writeBlock(COLUMN_DATE, dates);
+            Column categories = new Column();
+            categories.writeVarLong(newEntries);
+            newCategories.writeTo(categories);
+            categoryIndexes.writeTo(categories);
+            writeBlock(COLUMN_CATEGORY, categories);
+            writeBlock(COLUMN_DESCRIPTION, descriptions);
+            writeBlock(COLUMN_AMOUNT, amounts);
+            written += groupRows;
+            groupRows = 0;
+            newEntries = 0;
+            newCategories.reset();
+            categoryIndexes.reset();
+        }
+
+        private void writeBlock(byte column, Column block) throws IOException {
+            CRC32 checksum = new CRC32();
+            checksum.update(block.buffer(), 0, block.size());
+            out.writeByte(column);
+            out.writeInt(block.size());
+            out.writeInt((int) checksum.getValue());
+            out.write(block.buffer(), 0, block.size());
+            block.reset();
+        }
+    }
+
+    /** A growable byte buffer with varint and string encoders. */
+    private static final class Column extends ByteArrayOutputStream {
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            write(bytes, 0, bytes.length);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        void writeTo(Column other) {
+            other.write(buf, 0, count);
+        }
+    }
+
+    private static long readVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        long length = readVarLong(buffer);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) (length - 1)];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,382 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.Money;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over expense descriptions for ranked text search.
+ * <p>
+ * Descriptions are split into lower-case tokens (runs of letters and digits). Every token is indexed in
+ * a sorted map, so prefix lookups are a range scan, and so are its trigrams, so a substring of three or
+ * more characters is found by intersecting a few posting lists and checking only those candidates.
+ * A search term matches a token exactly (score 3), as a prefix (2) or as a substring (1); all terms of
+ * a query must match and their scores are summed. The date, category and amount filters of an
+ * {@link ExpenseQuery} are applied to the indexed rows, so a search never touches the database.
+ * <p>
+ * The index is loaded once from the repository and then kept current as an {@link ExpenseChangeListener};
+ * changes made outside this process are not seen until it is rebuilt.
+ */
+public class DescriptionIndex implements ExpenseChangeListener {
+
+    static final int DEFAULT_LIMIT = 50;
+    private static final int EXACT_SCORE = 3;
+    private static final int PREFIX_SCORE = 2;
+    private static final int SUBSTRING_SCORE = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final NavigableMap<String, Postings> tokens = new TreeMap<>();
+    private final Map<String, Postings> trigrams = new HashMap<>();
+    // IDs written while load() runs; their streamed rows may be stale and are skipped
+    private Set<Integer> changedWhileLoading;
+
+    /**
+     * Indexes every expense in the repository. Writes reported to this listener while loading take
+     * precedence over the rows streamed for the same IDs.
+     */
+    public void load(ExpenseRepository repository) {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            repository.streamExpenses(ExpenseQuery.all(), expense -> {
+                lock.writeLock().lock();
+                try {
+                    if (!changedWhileLoading.contains(expense.getId())) {
+                        put(expense);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedWhileLoading = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int tokenCount() {
+        lock.readLock().lock();
+        try {
+            return tokens.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onExpenseAdded(Expense expense) {
+        write(expense.getId(), expense);
+    }
+
+    @Override
+    public void onExpenseUpdated(Expense previous, Expense updated) {
+        write(updated.getId(), updated);
+    }
+
+    @Override
+    public void onExpenseDeleted(int id, Expense previous) {
+        write(id, null);
+    }
+
+    private void write(int id, Expense expense) {
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading != null) {
+                changedWhileLoading.add(id);
+            }
+            if (expense != null) {
+                put(expense);
+            } else {
+                remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Expenses whose description matches every term of {@code text} and that pass the filters of
+     * {@code filters}, best match first, then newest first. At most {@code filters.getLimit()} results are
+     * returned, or {@value #DEFAULT_LIMIT} when no limit is set; the query's sort order is ignored.
+     */
+    public List<Expense> search(String text, ExpenseQuery filters) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(text)));
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Filter filter = new Filter(filters);
+        if (filter.matchesNothing) {
+            return new ArrayList<>();
+        }
+        int limit = filters.getLimit() > 0 ? filters.getLimit() : DEFAULT_LIMIT;
+        lock.readLock().lock();
+        try {
+            // Longest terms first: they usually have the fewest matches, which bounds the work for the rest
+            terms.sort(Comparator.comparingInt(String::length).reversed());
+            Map<Integer, Integer> scores = null;
+            for (String term : terms) {
+                scores = match(term, scores, filter);
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Integer.compare(b.getValue(), a.getValue());
+                if (byScore != 0) {
+                    return byScore;
+                }
+                Document first = documents.get(a.getKey());
+                Document second = documents.get(b.getKey());
+                int byDate = Integer.compare(second.epochDay, first.epochDay);
+                return byDate != 0 ? byDate : Integer.compare(second.id, first.id);
+            });
+            List<Expense> results = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && results.size() < limit; i++) {
+                results.add(documents.get(ranked.get(i).getKey()).toExpense());
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scores of the documents matching {@code term}, restricted to {@code previous} (the documents that
+     * matched all earlier terms, with their scores so far) unless it is {@code null}. Read lock required.
+     */
+    private Map<Integer, Integer> match(String term, Map<Integer, Integer> previous, Filter filter) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Map.Entry<String, Postings> entry : tokens.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+            int score = entry.getKey().equals(term) ? EXACT_SCORE : PREFIX_SCORE;
+            Postings postings = entry.getValue();
+            for (int i = 0; i < postings.size; i++) {
+                accept(postings.ids[i], score, previous, filter, scores);
+            }
+        }
+        if (term.length() >= 3) {
+            for (int id : substringCandidates(term)) {
+                if (!scores.containsKey(id) && documents.get(id).normalizedDescription().contains(term)) {
+                    accept(id, SUBSTRING_SCORE, previous, filter, scores);
+                }
+            }
+        }
+        return scores;
+    }
+
+    private void accept(int id, int score, Map<Integer, Integer> previous, Filter filter, Map<Integer, Integer> scores) {
+        if (previous != null) {
+            Integer earlier = previous.get(id);
+            if (earlier != null) {
+                scores.merge(id, earlier + score, Math::max);
+            }
+        } else if (filter.test(documents.get(id))) {
+            scores.merge(id, score, Math::max);
+        }
+    }
+
+    /** Documents containing every trigram of {@code term}. Read lock required. */
+    private int[] substringCandidates(String term) {
+        List<Postings> lists = new ArrayList<>();
+        for (String trigram : trigramsOf(term)) {
+            Postings postings = trigrams.get(trigram);
+            if (postings == null) {
+                return new int[0];
+            }
+            lists.add(postings);
+        }
+        lists.sort(Comparator.comparingInt(postings -> postings.size));
+        Postings smallest = lists.get(0);
+        int[] candidates = new int[smallest.size];
+        int count = 0;
+        for (int i = 0; i < smallest.size; i++) {
+            int id = smallest.ids[i];
+            boolean inAll = true;
+            for (int list = 1; list < lists.size() && inAll; list++) {
+                inAll = lists.get(list).contains(id);
+            }
+            if (inAll) {
+                candidates[count++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, count);
+    }
+
+    /** Write lock required. */
+    private void put(Expense expense) {
+        remove(expense.getId());
+        Document document = new Document(expense.getId(), (int) expense.getDate().toEpochDay(), expense.getCategory(),
+                expense.getDescription(), expense.getAmountCents());
+        documents.put(document.id, document);
+        for (String token : document.tokens()) {
+            tokens.computeIfAbsent(token, key -> new Postings()).add(document.id);
+            for (String trigram : trigramsOf(token)) {
+                trigrams.computeIfAbsent(trigram, key -> new Postings()).add(document.id);
+            }
+        }
+    }
+
+    /** Write lock required. */
+    private void remove(int id) {
+        Document document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String token : document.tokens()) {
+            removePosting(tokens, token, id);
+            for (String trigram : trigramsOf(token)) {
+                removePosting(trigrams, trigram, id);
+            }
+        }
+    }
+
+    private static void removePosting(Map<String, Postings> index, String key, int id) {
+        Postings postings = index.get(key);
+        if (postings != null && postings.remove(id) && postings.size == 0) {
+            index.remove(key);
+        }
+    }
+
+    /** Lower-case runs of letters and digits, in order of appearance. */
+    static List<String> tokenize(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                result.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> trigramsOf(String token) {
+        Set<String> result = new HashSet<>();
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            result.add(token.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private record Document(int id, int epochDay, String category, String description, long cents) {
+
+        Set<String> tokens() {
+            return new HashSet<>(tokenize(description));
+        }
+
+        String normalizedDescription() {
+            return description != null ? description.toLowerCase(Locale.ROOT) : "";
+        }
+
+        Expense toExpense() {
+            return new Expense(id, LocalDate.ofEpochDay(epochDay), category, description, Money.toBigDecimal(cents));
+        }
+    }
+
+    /** A sorted set of IDs; appends are O(1) because new expenses get increasing IDs. */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                insertAt(-position - 1, id);
+                return;
+            }
+            insertAt(size, id);
+        }
+
+        private void insertAt(int position, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+    }
+
+    /** The non-text filters of an {@link ExpenseQuery}, with amounts rounded inward to whole cents. */
+    private static final class Filter {
+        private final int minDay;
+        private final int maxDay;
+        private final String category;
+        private final long minCents;
+        private final long maxCents;
+        private final boolean matchesNothing;
+
+        Filter(ExpenseQuery query) {
+            minDay = query.getStartDate() != null ? (int) query.getStartDate().toEpochDay() : Integer.MIN_VALUE;
+            maxDay = query.getEndDate() != null ? (int) query.getEndDate().toEpochDay() : Integer.MAX_VALUE;
+            category = query.getCategory();
+            minCents = query.getMinAmount() != null ? Money.ceilCents(query.getMinAmount()) : Long.MIN_VALUE;
+            maxCents = query.getMaxAmount() != null ? Money.floorCents(query.getMaxAmount()) : Long.MAX_VALUE;
+            matchesNothing = minDay > maxDay || minCents > maxCents;
+        }
+
+        boolean test(Document document) {
+            return document.epochDay >= minDay && document.epochDay <= maxDay
+                    && (category == null || category.equalsIgnoreCase(document.category))
+                    && document.cents >= minCents && document.cents <= maxCents;
+        }
+    }
+}
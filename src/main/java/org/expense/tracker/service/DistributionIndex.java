@@ -0,0 +1,168 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.model.AmountDistribution;
+import org.expense.tracker.model.DistributionReport;
+import org.expense.tracker.model.Expense;
+
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link AmountSketch}es of expense amounts overall, per category (case-insensitive) and per month.
+ * <p>
+ * The sketches are built in one pass over the repository and then kept current as an
+ * {@link ExpenseChangeListener}: adds insert the amount, updates and deletes remove the previous one. The
+ * index becomes {@linkplain #isStale() stale}, and should be reloaded, when a write could not be applied
+ * exactly: the previous row was not available, the largest amount of a group was removed, or a write
+ * arrived while loading.
+ */
+public class DistributionIndex implements ExpenseChangeListener {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Sketches sketches = new Sketches();
+    private boolean loading;
+    private boolean changedWhileLoading;
+    private volatile boolean stale = true;
+
+    /** Builds the distributions of the expenses matching {@code query} in one pass, without an index. */
+    public static DistributionReport build(ExpenseRepository repository, ExpenseQuery query) {
+        Sketches sketches = new Sketches();
+        repository.streamExpenses(query.copy().limit(0), sketches::add);
+        return sketches.toReport();
+    }
+
+    /** Replaces the sketches with ones built from every expense in the repository. */
+    public void load(ExpenseRepository repository) {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            changedWhileLoading = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Sketches loaded = new Sketches();
+        try {
+            repository.streamExpenses(ExpenseQuery.all(), loaded::add);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                sketches = loaded;
+                loading = false;
+                // A write seen while streaming may or may not be in the loaded rows
+                stale = changedWhileLoading;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    @Override
+    public boolean needsPreviousState() {
+        return true;
+    }
+
+    @Override
+    public void onExpenseAdded(Expense expense) {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading |= loading;
+            sketches.add(expense);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onExpenseUpdated(Expense previous, Expense updated) {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading |= loading;
+            if (previous == null || !sketches.remove(previous)) {
+                stale = true;
+            }
+            sketches.add(updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onExpenseDeleted(int id, Expense previous) {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading |= loading;
+            if (previous == null || !sketches.remove(previous)) {
+                stale = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public DistributionReport toReport() {
+        lock.readLock().lock();
+        try {
+            return sketches.toReport();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Sketches {
+        private final AmountSketch overall = new AmountSketch();
+        private final Map<String, AmountSketch> categories = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<YearMonth, AmountSketch> months = new TreeMap<>();
+
+        void add(Expense expense) {
+            long cents = expense.getAmountCents();
+            overall.add(cents);
+            categories.computeIfAbsent(categoryOf(expense), key -> new AmountSketch()).add(cents);
+            months.computeIfAbsent(YearMonth.from(expense.getDate()), key -> new AmountSketch()).add(cents);
+        }
+
+        /** Returns false if the row was not in the sketches or their maxima are no longer exact. */
+        boolean remove(Expense expense) {
+            long cents = expense.getAmountCents();
+            AmountSketch category = categories.get(categoryOf(expense));
+            AmountSketch month = months.get(YearMonth.from(expense.getDate()));
+            if (category == null || month == null || overall.count() == 0) {
+                return false;
+            }
+            try {
+                overall.remove(cents);
+                category.remove(cents);
+                month.remove(cents);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            if (category.count() == 0) {
+                categories.remove(categoryOf(expense));
+            }
+            if (month.count() == 0) {
+                months.remove(YearMonth.from(expense.getDate()));
+            }
+            return overall.isMaxExact() && category.isMaxExact() && month.isMaxExact();
+        }
+
+        private static String categoryOf(Expense expense) {
+            return expense.getCategory() != null ? expense.getCategory() : "";
+        }
+
+        DistributionReport toReport() {
+            Map<String, AmountDistribution> categoryDistributions = new LinkedHashMap<>();
+            categories.forEach((category, sketch) -> categoryDistributions.put(category, sketch.toDistribution()));
+            Map<String, AmountDistribution> monthDistributions = new LinkedHashMap<>();
+            months.forEach((month, sketch) -> monthDistributions.put(month.toString(), sketch.toDistribution()));
+            return new DistributionReport(overall.toDistribution(), categoryDistributions, monthDistributions);
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.model.Expense;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of expense content fingerprints for spotting duplicate rows.
+ * <p>
+ * Two expenses are duplicates when they have the same date, amount in cents, category and description,
+ * ignoring case, surrounding whitespace and runs of inner whitespace (a missing description counts as
+ * empty). Each row is reduced to a 64-bit hash of that normalized content, so checking a new row is one
+ * hash lookup and duplicate groups are read straight off the map. Hash collisions are possible but
+ * vanishingly rare; {@link #key(Expense)} gives the exact normalized content when it matters.
+ * <p>
+ * The index is loaded once from the repository and then kept current as an {@link ExpenseChangeListener};
+ * changes made outside this process are not seen until it is rebuilt.
+ */
+public class DuplicateIndex implements ExpenseChangeListener {
+
+    /** What to do when an expense being added already exists. */
+    public enum Policy {
+        /** Add it without checking. */
+        ALLOW,
+        /** Add it, but log and print a warning naming the existing expense. */
+        FLAG,
+        /** Do not add it. In a batch, only copies beyond those already stored are added. */
+        SKIP
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final int[] NO_IDS = new int[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, Long> fingerprintsById = new HashMap<>();
+    // Sorted IDs per fingerprint; almost all arrays hold a single ID, so they are replaced rather than grown
+    private final Map<Long, int[]> idsByFingerprint = new HashMap<>();
+    private int duplicateRows;
+    // IDs written while load() runs; their streamed rows may be stale and are skipped
+    private Set<Integer> changedWhileLoading;
+
+    /**
+     * Indexes every expense in the repository. Writes reported to this listener while loading take
+     * precedence over the rows streamed for the same IDs.
+     */
+    public void load(ExpenseRepository repository) {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            repository.streamExpenses(ExpenseQuery.all(), expense -> {
+                lock.writeLock().lock();
+                try {
+                    if (!changedWhileLoading.contains(expense.getId())) {
+                        put(expense.getId(), fingerprint(expense));
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedWhileLoading = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return fingerprintsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of indexed rows that repeat an earlier row, i.e. rows minus distinct fingerprints. */
+    public int duplicateCount() {
+        lock.readLock().lock();
+        try {
+            return duplicateRows;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void onExpenseAdded(Expense expense) {
+        write(expense.getId(), expense);
+    }
+
+    @Override
+    public void onExpenseUpdated(Expense previous, Expense updated) {
+        write(updated.getId(), updated);
+    }
+
+    @Override
+    public void onExpenseDeleted(int id, Expense previous) {
+        write(id, null);
+    }
+
+    private void write(int id, Expense expense) {
+        lock.writeLock().lock();
+        try {
+            if (changedWhileLoading != null) {
+                changedWhileLoading.add(id);
+            }
+            if (expense != null) {
+                put(id, fingerprint(expense));
+            } else {
+                remove(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** IDs of the indexed expenses with the same content as {@code expense}, excluding its own ID, in ID order. */
+    public int[] duplicatesOf(Expense expense) {
+        long fingerprint = fingerprint(expense);
+        lock.readLock().lock();
+        try {
+            int[] ids = idsByFingerprint.getOrDefault(fingerprint, NO_IDS);
+            int self = Arrays.binarySearch(ids, expense.getId());
+            if (expense.getId() <= 0 || self < 0) {
+                return ids.clone();
+            }
+            int[] others = new int[ids.length - 1];
+            System.arraycopy(ids, 0, others, 0, self);
+            System.arraycopy(ids, self + 1, others, self, ids.length - self - 1);
+            return others;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The expenses of {@code batch} that are not already indexed. For each distinct content, as many
+     * copies as the index already holds are dropped and the rest are kept in order, so loading the same
+     * rows again adds nothing while repeats within a fresh batch are preserved.
+     */
+    public List<Expense> withoutIndexed(List<Expense> batch) {
+        int[] stored = indexedCopies(batch);
+        List<Expense> fresh = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            if (stored[i] == 0) {
+                fresh.add(batch.get(i));
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * For each expense of {@code batch}, the ID of the indexed expense it repeats, or 0 if it is one of the
+     * copies {@link #withoutIndexed(List)} keeps. The n-th copy of a content gets the n-th stored ID, so
+     * every dropped copy is matched to a different stored row.
+     */
+    public int[] indexedCopies(List<Expense> batch) {
+        int[] stored = new int[batch.size()];
+        Map<Long, Integer> seen = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < batch.size(); i++) {
+                long fingerprint = fingerprint(batch.get(i));
+                int copies = seen.merge(fingerprint, 1, Integer::sum);
+                int[] ids = idsByFingerprint.getOrDefault(fingerprint, NO_IDS);
+                if (copies <= ids.length) {
+                    stored[i] = ids[copies - 1];
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stored;
+    }
+
+    /** ID groups of two or more expenses sharing a fingerprint, each in ID order, ordered by first ID. */
+    public List<int[]> duplicateGroups() {
+        List<int[]> groups = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (int[] ids : idsByFingerprint.values()) {
+                if (ids.length > 1) {
+                    groups.add(ids.clone());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        groups.sort((a, b) -> Integer.compare(a[0], b[0]));
+        return groups;
+    }
+
+    /** Write lock required. */
+    private void put(int id, long fingerprint) {
+        Long previous = fingerprintsById.put(id, fingerprint);
+        if (previous != null) {
+            if (previous == fingerprint) {
+                return;
+            }
+            removeId(previous, id);
+        }
+        int[] ids = idsByFingerprint.get(fingerprint);
+        if (ids == null) {
+            idsByFingerprint.put(fingerprint, new int[]{id});
+            return;
+        }
+        int position = -Arrays.binarySearch(ids, id) - 1;
+        int[] grown = new int[ids.length + 1];
+        System.arraycopy(ids, 0, grown, 0, position);
+        grown[position] = id;
+        System.arraycopy(ids, position, grown, position + 1, ids.length - position);
+        idsByFingerprint.put(fingerprint, grown);
+        duplicateRows++;
+    }
+
+    /** Write lock required. */
+    private void remove(int id) {
+        Long fingerprint = fingerprintsById.remove(id);
+        if (fingerprint != null) {
+            removeId(fingerprint, id);
+        }
+    }
+
+    private void removeId(long fingerprint, int id) {
+        int[] ids = idsByFingerprint.get(fingerprint);
+        int position = Arrays.binarySearch(ids, id);
+        if (ids.length == 1) {
+            idsByFingerprint.remove(fingerprint);
+            return;
+        }
+        int[] shrunk = new int[ids.length - 1];
+        System.arraycopy(ids, 0, shrunk, 0, position);
+        System.arraycopy(ids, position + 1, shrunk, position, ids.length - position - 1);
+        idsByFingerprint.put(fingerprint, shrunk);
+        duplicateRows--;
+    }
+
+    /**
+     * The normalized content compared for duplicates: epoch day, cents, category and description, joined
+     * with a separator that cannot occur in normalized text.
+     */
+    static String key(Expense expense) {
+        LocalDate date = expense.getDate();
+        return (date != null ? date.toEpochDay() : "") + "\u0000" + expense.getAmountCents() + "\u0000"
+                + normalize(expense.getCategory()) + "\u0000" + normalize(expense.getDescription());
+    }
+
+    /** 64-bit FNV-1a hash of {@link #key(Expense)}, finished with a mixing step to spread close keys. */
+    static long fingerprint(Expense expense) {
+        long hash = FNV_OFFSET;
+        for (byte b : key(expense).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /** Lower case, trimmed, with inner whitespace runs collapsed to one space; {@code null} becomes empty. */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = normalized.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    normalized.append(' ');
+                    pendingSpace = false;
+                }
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+}
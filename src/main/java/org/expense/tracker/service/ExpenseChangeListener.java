@@ -0,0 +1,33 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.model.Expense;
+
+/**
+ * Callback for in-process structures that mirror the {@code expenses} table and must see every write
+ * made through {@link ExpenseService}. Callbacks run on the writing thread after the write succeeded.
+ */
+public interface ExpenseChangeListener {
+
+    /**
+     * Whether update and delete callbacks need the previous row. When no registered listener needs it,
+     * the service skips the extra lookup and passes {@code null}.
+     */
+    default boolean needsPreviousState() {
+        return false;
+    }
+
+    default void onExpenseAdded(Expense expense) {
+    }
+
+    /**
+     * @param previous the row before the update, or {@code null} if it was not available
+     */
+    default void onExpenseUpdated(Expense previous, Expense updated) {
+    }
+
+    /**
+     * @param previous the deleted row, or {@code null} if it was not available
+     */
+    default void onExpenseDeleted(int id, Expense previous) {
+    }
+}
@@ -0,0 +1,443 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.Money;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Immutable, column-oriented snapshot of the expenses table for analytics.
+ * <p>
+ * Each attribute lives in its own primitive array ({@code int} epoch days, dictionary-encoded category
+ * ids, {@code long} cents, {@code int} ids) with descriptions kept separately, which costs roughly a
+ * fifth of the memory of a {@code List<Expense>}. Filters and group-bys are plain loops over these arrays
+ * and are split across cores with fork/join once the snapshot is large enough. Rows are stored newest
+ * first ({@code date DESC, id DESC}), so filter results need no further sorting in the default order.
+ */
+public final class ExpenseColumnStore {
+
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final int size;
+    private final int[] ids;
+    private final int[] epochDays;
+    private final int[] categoryIds;
+    private final long[] cents;
+    private final String[] descriptions;
+    private final String[] categoryNames;
+    private final Map<String, Integer> categoryLookup;
+
+    private ExpenseColumnStore(Builder builder) {
+        this.size = builder.size;
+        this.ids = new int[size];
+        this.epochDays = new int[size];
+        this.categoryIds = new int[size];
+        this.cents = new long[size];
+        this.descriptions = new String[size];
+        int[] order = builder.newestFirstOrder();
+        for (int row = 0; row < size; row++) {
+            int source = order[row];
+            ids[row] = builder.ids[source];
+            epochDays[row] = builder.epochDays[source];
+            categoryIds[row] = builder.categoryIds[source];
+            cents[row] = builder.cents[source];
+            descriptions[row] = builder.descriptions[source];
+        }
+        this.categoryNames = builder.categoryNames.toArray(new String[0]);
+        this.categoryLookup = new HashMap<>(builder.categoryLookup);
+    }
+
+    /**
+     * Streams the whole table from the repository into a new snapshot.
+     */
+    public static ExpenseColumnStore load(ExpenseRepository repository) {
+        Builder builder = new Builder();
+        repository.streamExpenses(ExpenseQuery.all().sortBy(ExpenseQuery.SortOrder.DATE_DESC), builder::add);
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int categoryCount() {
+        return categoryNames.length;
+    }
+
+    /**
+     * Row positions matching {@code query}, in {@code date DESC, id DESC} order. Limit and sort order are
+     * not applied here.
+     */
+    public int[] filter(ExpenseQuery query) {
+        Predicate predicate = compile(query);
+        if (predicate.matchesNothing) {
+            return new int[0];
+        }
+        if (size < PARALLEL_THRESHOLD) {
+            return filterRange(predicate, 0, size);
+        }
+        return ForkJoinPool.commonPool().invoke(new FilterTask(predicate, 0, size));
+    }
+
+    /**
+     * Materializes the rows matching {@code query} honoring its sort order and limit.
+     */
+    public List<Expense> select(ExpenseQuery query) {
+        int[] rows = filter(query);
+        if (query.getSortOrder() != ExpenseQuery.SortOrder.DATE_DESC) {
+            rows = sortRows(rows, query.getSortOrder());
+        }
+        int count = query.getLimit() > 0 ? Math.min(query.getLimit(), rows.length) : rows.length;
+        List<Expense> expenses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            expenses.add(toExpense(rows[i]));
+        }
+        return expenses;
+    }
+
+    public Expense toExpense(int row) {
+        return new Expense(ids[row], LocalDate.ofEpochDay(epochDays[row]), categoryNames[categoryIds[row]],
+                descriptions[row], Money.toBigDecimal(cents[row]));
+    }
+
+    public ExpenseSummary summarize(ExpenseQuery query) {
+        long[][] totals = groupByCategory(query);
+        long count = 0;
+        long total = 0;
+        for (int category = 0; category < categoryNames.length; category++) {
+            count += totals[0][category];
+            total += totals[1][category];
+        }
+        return new ExpenseSummary(count, total);
+    }
+
+    /**
+     * Per-category summaries for the rows matching {@code query}, ordered by category name.
+     */
+    public Map<String, ExpenseSummary> summarizeByCategory(ExpenseQuery query) {
+        long[][] totals = groupByCategory(query);
+        Map<String, ExpenseSummary> summaries = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int category = 0; category < categoryNames.length; category++) {
+            if (totals[0][category] > 0) {
+                summaries.put(categoryNames[category], new ExpenseSummary(totals[0][category], totals[1][category]));
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Per-month ({@code yyyy-MM}) summaries for the rows matching {@code query}, ordered by month.
+     */
+    public Map<String, ExpenseSummary> summarizeByMonth(ExpenseQuery query) {
+        Predicate predicate = compile(query);
+        Map<String, ExpenseSummary> summaries = new LinkedHashMap<>();
+        if (predicate.matchesNothing || size == 0) {
+            return summaries;
+        }
+        // Rows are sorted newest first, so the month range is known from the ends
+        int firstMonth = monthIndex(epochDays[size - 1]);
+        int monthSpan = monthIndex(epochDays[0]) - firstMonth + 1;
+        long[][] totals = size < PARALLEL_THRESHOLD
+                ? groupByMonthRange(predicate, firstMonth, monthSpan, 0, size)
+                : ForkJoinPool.commonPool().invoke(new GroupTask(predicate, 0, size, firstMonth, monthSpan, true));
+        for (int month = 0; month < monthSpan; month++) {
+            if (totals[0][month] > 0) {
+                int index = firstMonth + month;
+                String key = String.format(Locale.ROOT, "%04d-%02d", Math.floorDiv(index, 12), Math.floorMod(index, 12) + 1);
+                summaries.put(key, new ExpenseSummary(totals[0][month], totals[1][month]));
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Hands every row matching {@code query} to {@code consumer} as a group of one, newest first.
+     */
+    public void streamRows(ExpenseQuery query, ExpenseRepository.DailySummaryConsumer consumer) {
+        LocalDate date = null;
+        for (int row : filter(query)) {
+            // Rows are sorted by date, so consecutive rows mostly share one LocalDate
+            if (date == null || date.toEpochDay() != epochDays[row]) {
+                date = LocalDate.ofEpochDay(epochDays[row]);
+            }
+            consumer.accept(date, categoryNames[categoryIds[row]], 1, cents[row]);
+        }
+    }
+
+    private long[][] groupByCategory(ExpenseQuery query) {
+        Predicate predicate = compile(query);
+        if (predicate.matchesNothing) {
+            return new long[2][categoryNames.length];
+        }
+        if (size < PARALLEL_THRESHOLD) {
+            return groupByCategoryRange(predicate, 0, size);
+        }
+        return ForkJoinPool.commonPool().invoke(new GroupTask(predicate, 0, size, 0, categoryNames.length, false));
+    }
+
+    private int[] filterRange(Predicate predicate, int from, int to) {
+        int[] matches = new int[Math.min(to - from, 1024)];
+        int count = 0;
+        for (int row = from; row < to; row++) {
+            if (predicate.test(row)) {
+                if (count == matches.length) {
+                    matches = Arrays.copyOf(matches, Math.min(to - from, matches.length * 2));
+                }
+                matches[count++] = row;
+            }
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    private long[][] groupByCategoryRange(Predicate predicate, int from, int to) {
+        long[] counts = new long[categoryNames.length];
+        long[] sums = new long[categoryNames.length];
+        for (int row = from; row < to; row++) {
+            if (predicate.test(row)) {
+                counts[categoryIds[row]]++;
+                sums[categoryIds[row]] += cents[row];
+            }
+        }
+        return new long[][]{counts, sums};
+    }
+
+    private long[][] groupByMonthRange(Predicate predicate, int firstMonth, int monthSpan, int from, int to) {
+        long[] counts = new long[monthSpan];
+        long[] sums = new long[monthSpan];
+        for (int row = from; row < to; row++) {
+            if (predicate.test(row)) {
+                int month = monthIndex(epochDays[row]) - firstMonth;
+                counts[month]++;
+                sums[month] += cents[row];
+            }
+        }
+        return new long[][]{counts, sums};
+    }
+
+    private int[] sortRows(int[] rows, ExpenseQuery.SortOrder sortOrder) {
+        Integer[] boxed = new Integer[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            boxed[i] = rows[i];
+        }
+        Comparator<Integer> comparator = switch (sortOrder) {
+            case DATE_ASC -> Comparator.<Integer>comparingInt(row -> epochDays[row]).thenComparingInt(row -> ids[row]);
+            case AMOUNT_DESC -> Comparator.<Integer>comparingLong(row -> cents[row]).thenComparingInt(row -> ids[row]).reversed();
+            case AMOUNT_ASC -> Comparator.<Integer>comparingLong(row -> cents[row]).thenComparingInt(row -> ids[row]);
+            default -> Comparator.<Integer>comparingInt(row -> epochDays[row]).thenComparingInt(row -> ids[row]).reversed();
+        };
+        Arrays.sort(boxed, comparator);
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = boxed[i];
+        }
+        return rows;
+    }
+
+    private Predicate compile(ExpenseQuery query) {
+        Predicate predicate = new Predicate();
+        if (query.getStartDate() != null) {
+            predicate.minDay = (int) query.getStartDate().toEpochDay();
+        }
+        if (query.getEndDate() != null) {
+            predicate.maxDay = (int) query.getEndDate().toEpochDay();
+        }
+        if (query.getCategory() != null) {
+            Integer categoryId = categoryLookup.get(query.getCategory().toLowerCase(Locale.ROOT));
+            if (categoryId == null) {
+                predicate.matchesNothing = true;
+            } else {
+                predicate.categoryId = categoryId;
+            }
+        }
+        if (query.getMinAmount() != null) {
+            predicate.minCents = Money.ceilCents(query.getMinAmount());
+        }
+        if (query.getMaxAmount() != null) {
+            predicate.maxCents = Money.floorCents(query.getMaxAmount());
+        }
+        predicate.matchesNothing |= predicate.minDay > predicate.maxDay || predicate.minCents > predicate.maxCents;
+        return predicate;
+    }
+
+    /**
+     * Months since year 0 ({@code year * 12 + month - 1}) for an epoch day, computed without allocating
+     * a {@link LocalDate} (civil-from-days conversion).
+     */
+    static int monthIndex(int epochDay) {
+        int z = epochDay + 719_468;
+        int era = Math.floorDiv(z, 146_097);
+        int dayOfEra = z - era * 146_097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+
+    private final class Predicate {
+        private int minDay = Integer.MIN_VALUE;
+        private int maxDay = Integer.MAX_VALUE;
+        private int categoryId = -1;
+        private long minCents = Long.MIN_VALUE;
+        private long maxCents = Long.MAX_VALUE;
+        private boolean matchesNothing;
+
+        private boolean test(int row) {
+            int day = epochDays[row];
+            long amount = cents[row];
+            return day >= minDay && day <= maxDay
+                    && (categoryId < 0 || categoryIds[row] == categoryId)
+                    && amount >= minCents && amount <= maxCents;
+        }
+    }
+
+    // Serializable only through RecursiveTask; tasks never leave the pool
+    @SuppressWarnings("serial")
+    private final class FilterTask extends RecursiveTask<int[]> {
+        private final Predicate predicate;
+        private final int from;
+        private final int to;
+
+        private FilterTask(Predicate predicate, int from, int to) {
+            this.predicate = predicate;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return filterRange(predicate, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            FilterTask left = new FilterTask(predicate, from, middle);
+            left.fork();
+            int[] right = new FilterTask(predicate, middle, to).compute();
+            int[] leftRows = left.join();
+            int[] merged = Arrays.copyOf(leftRows, leftRows.length + right.length);
+            System.arraycopy(right, 0, merged, leftRows.length, right.length);
+            return merged;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private final class GroupTask extends RecursiveTask<long[][]> {
+        private final Predicate predicate;
+        private final int from;
+        private final int to;
+        private final int firstGroup;
+        private final int groupCount;
+        private final boolean byMonth;
+
+        private GroupTask(Predicate predicate, int from, int to, int firstGroup, int groupCount, boolean byMonth) {
+            this.predicate = predicate;
+            this.from = from;
+            this.to = to;
+            this.firstGroup = firstGroup;
+            this.groupCount = groupCount;
+            this.byMonth = byMonth;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return byMonth
+                        ? groupByMonthRange(predicate, firstGroup, groupCount, from, to)
+                        : groupByCategoryRange(predicate, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            GroupTask left = new GroupTask(predicate, from, middle, firstGroup, groupCount, byMonth);
+            left.fork();
+            long[][] right = new GroupTask(predicate, middle, to, firstGroup, groupCount, byMonth).compute();
+            long[][] totals = left.join();
+            for (int group = 0; group < groupCount; group++) {
+                totals[0][group] += right[0][group];
+                totals[1][group] += right[1][group];
+            }
+            return totals;
+        }
+    }
+
+    /**
+     * Accumulates rows into growable column arrays. Rows are re-sorted newest first on {@link #build()}
+     * if they were not added in that order.
+     */
+    public static final class Builder {
+        private int size;
+        private int[] ids = new int[1024];
+        private int[] epochDays = new int[1024];
+        private int[] categoryIds = new int[1024];
+        private long[] cents = new long[1024];
+        private String[] descriptions = new String[1024];
+        private final List<String> categoryNames = new ArrayList<>();
+        private final Map<String, Integer> categoryLookup = new HashMap<>();
+
+        public Builder add(Expense expense) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+                cents = Arrays.copyOf(cents, capacity);
+                descriptions = Arrays.copyOf(descriptions, capacity);
+            }
+            ids[size] = expense.getId();
+            epochDays[size] = (int) expense.getDate().toEpochDay();
+            // Categories compare case-insensitively, like the column collation in MySQL
+            categoryIds[size] = categoryLookup.computeIfAbsent(expense.getCategory().toLowerCase(Locale.ROOT), key -> {
+                categoryNames.add(expense.getCategory());
+                return categoryNames.size() - 1;
+            });
+            cents[size] = expense.getAmountCents();
+            descriptions[size] = expense.getDescription();
+            size++;
+            return this;
+        }
+
+        public ExpenseColumnStore build() {
+            return new ExpenseColumnStore(this);
+        }
+
+        /**
+         * Positions of the added rows in {@code date DESC, id DESC} order; the identity permutation when
+         * they were added in that order already, as {@link #load} does.
+         */
+        private int[] newestFirstOrder() {
+            int[] order = new int[size];
+            boolean sorted = true;
+            for (int row = 0; row < size; row++) {
+                order[row] = row;
+                if (row > 0 && (epochDays[row] > epochDays[row - 1]
+                        || (epochDays[row] == epochDays[row - 1] && ids[row] > ids[row - 1]))) {
+                    sorted = false;
+                }
+            }
+            if (sorted) {
+                return order;
+            }
+            Integer[] boxed = new Integer[size];
+            for (int row = 0; row < size; row++) {
+                boxed[row] = row;
+            }
+            Arrays.sort(boxed, Comparator.<Integer>comparingInt(row -> epochDays[row]).thenComparingInt(row -> ids[row]).reversed());
+            for (int row = 0; row < size; row++) {
+                order[row] = boxed[row];
+            }
+            return order;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process copy of the {@code expenses} table.
+ * <p>
+ * The replica is loaded once, then kept fresh by polling rows whose {@code updated_at} is at or after the
+ * last watermark (minus a small overlap so rows committed slightly out of order are not missed). Local
+ * writes are applied immediately through {@link ExpenseChangeListener}. Deletes made by other clients leave
+ * no trace in {@code updated_at}, so each refresh also compares row counts and falls back to an ID scan
+ * when the replica holds more rows than the database. Rows deleted locally while a refresh runs are dropped
+ * from its results, so a refresh that read a row just before its delete cannot bring it back.
+ * <p>
+ * A lookup of an ID the replica does not hold yet, such as a row another client added since the last
+ * refresh, falls back to the repository.
+ */
+public class ExpenseReplica implements ExpenseChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpenseReplica.class);
+    private static final long WATERMARK_OVERLAP_MILLIS = 2_000;
+    private static final Comparator<Expense> NEWEST_FIRST =
+            Comparator.comparing(Expense::getDate).thenComparingInt(Expense::getId).reversed();
+
+    private final ExpenseRepository expenseRepository;
+    private final Map<Integer, Expense> expenses = new ConcurrentHashMap<>();
+    // IDs deleted locally since the current refresh started
+    private final Set<Integer> deletedSinceRefresh = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+    private final LongAdder rowsApplied = new LongAdder();
+    private final LongAdder deletesDetected = new LongAdder();
+    private ScheduledExecutorService scheduler;
+    private volatile Timestamp watermark = new Timestamp(0);
+    private volatile long lastRefreshMillis;
+    private volatile boolean loaded;
+
+    public ExpenseReplica(ExpenseRepository expenseRepository) {
+        this.expenseRepository = expenseRepository;
+    }
+
+    /**
+     * Loads the full table and schedules incremental refreshes every {@code refreshSeconds}.
+     */
+    public synchronized void start(long refreshSeconds) {
+        long start = System.nanoTime();
+        refresh();
+        logger.info("Expense replica loaded {} rows in {} ms.", expenses.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "expense-replica-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::refreshQuietly, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Pulls changes since the last watermark and reconciles deletes. Safe to call from any thread.
+     */
+    public synchronized void refresh() {
+        Timestamp since = loaded ? new Timestamp(Math.max(0, watermark.getTime() - WATERMARK_OVERLAP_MILLIS)) : new Timestamp(0);
+        long[] applied = {0};
+        deletedSinceRefresh.clear();
+        watermark = expenseRepository.streamExpensesUpdatedSince(since, expense -> {
+            if (!deletedSinceRefresh.contains(expense.getId())) {
+                expenses.put(expense.getId(), expense);
+                applied[0]++;
+            }
+        });
+        // A delete may land between the check above and the put
+        expenses.keySet().removeAll(deletedSinceRefresh);
+        rowsApplied.add(applied[0]);
+
+        if (loaded && expenses.size() > expenseRepository.countExpenses()) {
+            Set<Integer> liveIds = expenseRepository.getAllExpenseIds();
+            int before = expenses.size();
+            expenses.keySet().retainAll(liveIds);
+            deletesDetected.add(before - expenses.size());
+            logger.debug("Replica removed {} rows deleted elsewhere.", before - expenses.size());
+        }
+
+        loaded = true;
+        lastRefreshMillis = System.currentTimeMillis();
+        refreshes.increment();
+        logger.debug("Replica refresh applied {} changed rows; watermark now {}.", applied[0], watermark);
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            logger.warn("Expense replica refresh failed, serving data from {} ms ago: {}", getStalenessMillis(), e.getMessage());
+        }
+    }
+
+    /**
+     * The row with this ID, read from the repository if the replica does not hold it. Rows read through are
+     * not kept; the next refresh picks them up.
+     */
+    public Expense get(int id) {
+        Expense expense = expenses.get(id);
+        if (expense == null) {
+            misses.increment();
+            return expenseRepository.getExpenseById(id);
+        }
+        hits.increment();
+        return copyOf(expense);
+    }
+
+    /**
+     * All rows newest first, matching {@link ExpenseRepository#getAllExpenses()}.
+     */
+    public List<Expense> getAll() {
+        hits.increment();
+        List<Expense> all = new ArrayList<>(expenses.size());
+        for (Expense expense : expenses.values()) {
+            all.add(copyOf(expense));
+        }
+        all.sort(NEWEST_FIRST);
+        return all;
+    }
+
+    @Override
+    public void onExpenseAdded(Expense expense) {
+        if (expense.getId() > 0) {
+            expenses.put(expense.getId(), copyOf(expense));
+        }
+    }
+
+    @Override
+    public void onExpenseUpdated(Expense previous, Expense updated) {
+        expenses.put(updated.getId(), copyOf(updated));
+    }
+
+    @Override
+    public void onExpenseDeleted(int id, Expense previous) {
+        deletedSinceRefresh.add(id);
+        expenses.remove(id);
+    }
+
+    public long getStalenessMillis() {
+        return lastRefreshMillis == 0 ? -1 : System.currentTimeMillis() - lastRefreshMillis;
+    }
+
+    public ReplicaStats getStats() {
+        return new ReplicaStats(expenses.size(), hits.sum(), misses.sum(), refreshes.sum(), refreshFailures.sum(),
+                rowsApplied.sum(), deletesDetected.sum(), getStalenessMillis());
+    }
+
+    private static Expense copyOf(Expense expense) {
+        return new Expense(expense.getId(), expense.getDate(), expense.getCategory(), expense.getDescription(), expense.getAmount());
+    }
+
+    public record ReplicaStats(int rows, long hits, long misses, long refreshes, long refreshFailures,
+                               long rowsApplied, long deletesDetected, long stalenessMillis) {
+
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+    }
+}
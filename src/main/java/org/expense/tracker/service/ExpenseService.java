@@ -1,153 +1,985 @@
 package org.expense.tracker.service;
 
 import com.opencsv.CSVWriter;
-import org.expense.tracker.dao.ExpenseDAO;
+import org.expense.tracker.dao.AsyncExpenseRepository;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.model.DistributionReport;
 import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseReport;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.Money;
+import org.expense.tracker.model.TopSpendersReport;
+import org.expense.tracker.model.TrendReport;
+import org.expense.tracker.util.AsyncExecutor;
+import org.expense.tracker.util.CountingOutputStream;
+import org.expense.tracker.util.EnvConfig;
+import org.expense.tracker.util.Metrics;
+import org.expense.tracker.util.OperationMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 public class ExpenseService {
 
     private static final Logger logger = LoggerFactory.getLogger(ExpenseService.class);
-    private final ExpenseDAO expenseDAO;
-    private static final String EXPORT_DIR = "src/main/resources/export/";
+    private final ExpenseRepository expenseRepository;
+    private static final String DEFAULT_EXPORT_DIR = "src/main/resources/export/";
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+    static final String[] CSV_HEADER = {"ID", "Date", "Category", "Description", "Amount"};
+    private static final int DEFAULT_EXPORT_PROGRESS_ROWS = 50_000;
+    static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+    static final int DEFAULT_TOP_SPENDERS_CAPACITY = 1000;
 
-    public ExpenseService(ExpenseDAO expenseDAO) {
-        this.expenseDAO = expenseDAO;
+    private final Path exportDir;
+    private final List<ExpenseChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    private volatile ExpenseReplica replica;
+    private volatile boolean analyticsEnabled;
+    private volatile ExpenseColumnStore columnStore;
+    private volatile AsyncExecutor asyncExecutor;
+    private volatile DescriptionIndex descriptionIndex;
+    private volatile DuplicateIndex duplicateIndex;
+    private volatile DuplicateIndex.Policy duplicatePolicy;
+    private volatile TimeSeries timeSeries;
+    private volatile DistributionIndex distributionIndex;
+    private volatile TopSpendersIndex topSpendersIndex;
+    // Writes seen by the analytics snapshot and time series listeners, to tell whether a load raced a write
+    private final AtomicLong writeCount = new AtomicLong();
+    private boolean timeSeriesListening;
+
+    private final boolean metered;
+    private final OperationMetrics addMetrics = Metrics.operation("service.addExpense");
+    private final OperationMetrics addBatchMetrics = Metrics.operation("service.addExpenses");
+    private final OperationMetrics updateMetrics = Metrics.operation("service.updateExpense");
+    private final OperationMetrics updateBatchMetrics = Metrics.operation("service.updateExpenses");
+    private final OperationMetrics deleteMetrics = Metrics.operation("service.deleteExpense");
+    private final OperationMetrics deleteBatchMetrics = Metrics.operation("service.deleteExpenses");
+    private final OperationMetrics getByIdMetrics = Metrics.operation("service.getExpenseById");
+    private final OperationMetrics getAllMetrics = Metrics.operation("service.getAllExpenses");
+    private final OperationMetrics findMetrics = Metrics.operation("service.findExpenses");
+    private final OperationMetrics summaryMetrics = Metrics.operation("service.getSummary");
+    private final OperationMetrics categoryTotalsMetrics = Metrics.operation("service.getCategoryTotals");
+    private final OperationMetrics monthlyTotalsMetrics = Metrics.operation("service.getMonthlyTotals");
+    private final OperationMetrics searchMetrics = Metrics.operation("service.searchDescriptions");
+    private final OperationMetrics duplicatesMetrics = Metrics.operation("service.findDuplicateGroups");
+    private final OperationMetrics reportMetrics = Metrics.operation("service.getReport");
+    private final OperationMetrics trendsMetrics = Metrics.operation("service.getTrends");
+    private final OperationMetrics distributionsMetrics = Metrics.operation("service.getDistributions");
+    private final OperationMetrics topSpendersMetrics = Metrics.operation("service.getTopSpenders");
+    private final OperationMetrics exportMetrics = Metrics.operation("service.exportExpensesToCsv");
+
+    public ExpenseService(ExpenseRepository expenseRepository) {
+        this(expenseRepository, Paths.get(EnvConfig.get("EXPORT_PATH", DEFAULT_EXPORT_DIR)));
     }
 
-    public void addExpense(Expense expense) {
-        if (expense.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            logger.warn("Attempted to add an expense with non-positive amount: {}", expense.getAmount());
-            System.out.println("Error: Expense amount must be positive.");
+    ExpenseService(ExpenseRepository expenseRepository, Path exportDir) {
+        this.expenseRepository = expenseRepository;
+        this.exportDir = exportDir;
+        this.metered = EnvConfig.getBoolean("METRICS_ENABLED", true);
+        this.duplicatePolicy = parseDuplicatePolicy(EnvConfig.get("DUPLICATE_POLICY", "allow"));
+    }
+
+    private static DuplicateIndex.Policy parseDuplicatePolicy(String value) {
+        try {
+            return DuplicateIndex.Policy.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            logger.warn("DUPLICATE_POLICY '{}' is not one of allow, flag or skip; using allow.", value);
+            return DuplicateIndex.Policy.ALLOW;
+        }
+    }
+
+    private <T> T timed(OperationMetrics metrics, Supplier<T> call, ToLongFunction<T> rows) {
+        return metered ? metrics.time(call, rows) : call.get();
+    }
+
+    private void timed(OperationMetrics metrics, Runnable call) {
+        if (metered) {
+            metrics.time(call);
+        } else {
+            call.run();
+        }
+    }
+
+    public Path getExportDirectory() {
+        return exportDir;
+    }
+
+    public void addChangeListener(ExpenseChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(ExpenseChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Turns on the in-memory replica: loads the table once, then serves {@link #getExpenseById(int)} and
+     * {@link #getAllExpenses()} from memory while polling for changes every {@code refreshSeconds}.
+     */
+    public synchronized void enableReplica(long refreshSeconds) {
+        if (replica != null) {
+            return;
+        }
+        ExpenseReplica newReplica = new ExpenseReplica(expenseRepository);
+        // Registered before loading so deletes made meanwhile are not lost
+        addChangeListener(newReplica);
+        try {
+            newReplica.start(refreshSeconds);
+        } catch (RuntimeException e) {
+            removeChangeListener(newReplica);
+            throw e;
+        }
+        replica = newReplica;
+    }
+
+    /**
+     * Serves filters and report aggregates from an in-memory {@link ExpenseColumnStore}. The snapshot is
+     * built on first use and dropped on every write made through this service, then rebuilt lazily. A
+     * snapshot loaded while a write landed is used for that one call but not kept, and one that holds fewer
+     * rows than the repository counts (a read error ended the stream early) is not used at all.
+     */
+    public synchronized void enableAnalyticsSnapshot() {
+        if (analyticsEnabled) {
             return;
         }
-        expenseDAO.addExpense(expense);
-        logger.info("Expense added: {}", expense);
+        addChangeListener(new ExpenseChangeListener() {
+            @Override
+            public void onExpenseAdded(Expense expense) {
+                dropAnalyticsSnapshot();
+            }
+
+            @Override
+            public void onExpenseUpdated(Expense previous, Expense updated) {
+                dropAnalyticsSnapshot();
+            }
+
+            @Override
+            public void onExpenseDeleted(int id, Expense previous) {
+                dropAnalyticsSnapshot();
+            }
+        });
+        analyticsEnabled = true;
+    }
+
+    private void dropAnalyticsSnapshot() {
+        writeCount.incrementAndGet();
+        columnStore = null;
+    }
+
+    /**
+     * Size of the current analytics snapshot, or -1 if none is loaded.
+     */
+    public int getAnalyticsSnapshotSize() {
+        ExpenseColumnStore snapshot = columnStore;
+        return snapshot != null ? snapshot.size() : -1;
+    }
+
+    private ExpenseColumnStore analyticsSnapshot() {
+        if (!analyticsEnabled) {
+            return null;
+        }
+        ExpenseColumnStore snapshot = columnStore;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = columnStore;
+                if (snapshot == null) {
+                    long start = System.nanoTime();
+                    long writesBefore = writeCount.get();
+                    snapshot = ExpenseColumnStore.load(expenseRepository);
+                    // A write during the load may be missing from the snapshot; use it once, but do not keep it
+                    if (writeCount.get() != writesBefore) {
+                        return snapshot;
+                    }
+                    if (!isComplete(snapshot)) {
+                        // Callers fall back to querying the repository
+                        return null;
+                    }
+                    columnStore = snapshot;
+                    logger.info("Built analytics snapshot with {} rows and {} categories in {} ms.", snapshot.size(),
+                            snapshot.categoryCount(), (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    private boolean isComplete(ExpenseColumnStore snapshot) {
+        long expected;
+        try {
+            expected = expenseRepository.countExpenses();
+        } catch (IllegalStateException e) {
+            logger.warn("Not keeping the analytics snapshot: {}", e.getMessage());
+            return false;
+        }
+        if (snapshot.size() != expected) {
+            logger.warn("Not keeping the analytics snapshot: read {} of {} expenses.", snapshot.size(), expected);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Size of the description search index, or -1 if it has not been built yet.
+     */
+    public int getDescriptionIndexSize() {
+        DescriptionIndex index = descriptionIndex;
+        return index != null ? index.size() : -1;
+    }
+
+    private DescriptionIndex descriptionIndex() {
+        DescriptionIndex index = descriptionIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = descriptionIndex;
+                if (index == null) {
+                    long start = System.nanoTime();
+                    index = new DescriptionIndex();
+                    // Registered before loading so writes made meanwhile are not lost
+                    addChangeListener(index);
+                    index.load(expenseRepository);
+                    descriptionIndex = index;
+                    logger.info("Built description index with {} rows and {} tokens in {} ms.", index.size(),
+                            index.tokenCount(), (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Expenses whose description contains every word of {@code text} (whole word, word prefix or, for three
+     * or more characters, any substring), also matching the date, category and amount filters of
+     * {@code filters}; best matches first. The index is built from the repository on first use.
+     */
+    public List<Expense> searchDescriptions(String text, ExpenseQuery filters) {
+        return timed(searchMetrics, () -> descriptionIndex().search(text, filters), List::size);
+    }
+
+    public DuplicateIndex.Policy getDuplicatePolicy() {
+        return duplicatePolicy;
+    }
+
+    public void setDuplicatePolicy(DuplicateIndex.Policy policy) {
+        duplicatePolicy = policy;
+    }
+
+    private DuplicateIndex duplicateIndex() {
+        DuplicateIndex index = duplicateIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = duplicateIndex;
+                if (index == null) {
+                    long start = System.nanoTime();
+                    index = new DuplicateIndex();
+                    // Registered before loading so writes made meanwhile are not lost
+                    addChangeListener(index);
+                    index.load(expenseRepository);
+                    duplicateIndex = index;
+                    logger.info("Built duplicate index with {} rows and {} duplicates in {} ms.", index.size(),
+                            index.duplicateCount(), (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Stored expenses with the same date, amount, category and description as {@code expense} (ignoring
+     * case and extra whitespace), other than {@code expense} itself. The index is built on first use.
+     */
+    public List<Expense> findDuplicatesOf(Expense expense) {
+        int[] ids = duplicateIndex().duplicatesOf(expense);
+        if (ids.length == 0) {
+            return new ArrayList<>();
+        }
+        String key = DuplicateIndex.key(expense);
+        List<Expense> duplicates = new ArrayList<>(ids.length);
+        for (Expense candidate : expenseRepository.getExpensesByIds(Arrays.stream(ids).boxed().collect(Collectors.toList()))) {
+            if (DuplicateIndex.key(candidate).equals(key)) {
+                duplicates.add(candidate);
+            }
+        }
+        duplicates.sort(Comparator.comparingInt(Expense::getId));
+        return duplicates;
+    }
+
+    /**
+     * Every group of two or more stored expenses with the same content, each in ID order, groups ordered
+     * by their first ID. Only the rows of duplicate groups are read from the repository.
+     */
+    public List<List<Expense>> findDuplicateGroups() {
+        return timed(duplicatesMetrics, () -> {
+            List<int[]> groups = duplicateIndex().duplicateGroups();
+            List<Integer> ids = new ArrayList<>();
+            for (int[] group : groups) {
+                for (int id : group) {
+                    ids.add(id);
+                }
+            }
+            Map<Integer, Expense> rows = new HashMap<>(ids.size() * 2);
+            for (Expense expense : expenseRepository.getExpensesByIds(ids)) {
+                rows.put(expense.getId(), expense);
+            }
+            List<List<Expense>> result = new ArrayList<>(groups.size());
+            for (int[] group : groups) {
+                // Split on the exact content in case two different rows share a fingerprint
+                Map<String, List<Expense>> byKey = new LinkedHashMap<>();
+                for (int id : group) {
+                    Expense expense = rows.get(id);
+                    if (expense != null) {
+                        byKey.computeIfAbsent(DuplicateIndex.key(expense), key -> new ArrayList<>()).add(expense);
+                    }
+                }
+                for (List<Expense> duplicates : byKey.values()) {
+                    if (duplicates.size() > 1) {
+                        result.add(duplicates);
+                    }
+                }
+            }
+            return result;
+        }, List::size);
+    }
+
+    private TimeSeries timeSeries() {
+        TimeSeries series = timeSeries;
+        if (series == null) {
+            synchronized (this) {
+                series = timeSeries;
+                if (series == null) {
+                    if (!timeSeriesListening) {
+                        addChangeListener(new ExpenseChangeListener() {
+                            @Override
+                            public void onExpenseAdded(Expense expense) {
+                                dropTimeSeries();
+                            }
+
+                            @Override
+                            public void onExpenseUpdated(Expense previous, Expense updated) {
+                                dropTimeSeries();
+                            }
+
+                            @Override
+                            public void onExpenseDeleted(int id, Expense previous) {
+                                dropTimeSeries();
+                            }
+                        });
+                        timeSeriesListening = true;
+                    }
+                    long start = System.nanoTime();
+                    long writesBefore = writeCount.get();
+                    ExpenseColumnStore snapshot = analyticsSnapshot();
+                    series = snapshot != null ? TimeSeries.load(snapshot) : TimeSeries.load(expenseRepository);
+                    // A write during the load may be missing from the series; use it once, but do not keep it
+                    if (writeCount.get() == writesBefore) {
+                        timeSeries = series;
+                    }
+                    logger.info("Built time series over {} days and {} categories in {} ms.", series.dayCount(),
+                            series.categoryCount(), (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        return series;
+    }
+
+    private void dropTimeSeries() {
+        writeCount.incrementAndGet();
+        timeSeries = null;
+    }
+
+    /**
+     * Rolling-window trends over all expenses ending on {@code asOf}: one comparison per entry of
+     * {@code windowDays}, then month to date against the same days of the previous month. The per-day
+     * series behind it is built on first use and after each write, after which every window is O(1).
+     *
+     * @throws IllegalArgumentException if a window is not between 1 and {@link TimeSeries#MAX_WINDOW_DAYS} days
+     */
+    public TrendReport getTrends(LocalDate asOf, int... windowDays) {
+        for (int days : windowDays) {
+            TimeSeries.checkWindow(days);
+        }
+        return timed(trendsMetrics, () -> timeSeries().trends(asOf, windowDays, true), report -> report.getWindows().size());
+    }
+
+    private DistributionIndex distributionIndex() {
+        DistributionIndex index = distributionIndex;
+        if (index == null || index.isStale()) {
+            synchronized (this) {
+                index = distributionIndex;
+                if (index == null) {
+                    index = new DistributionIndex();
+                    // Registered before loading so writes made meanwhile mark the load as stale
+                    addChangeListener(index);
+                    distributionIndex = index;
+                }
+                if (index.isStale()) {
+                    long start = System.nanoTime();
+                    index.load(expenseRepository);
+                    logger.info("Built amount distributions in {} ms.", (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * p50/p90/p99 and maximum amounts overall, per category and per month for the expenses matching the
+     * date, category and amount filters of {@code query}, each percentile within
+     * {@link AmountSketch#RELATIVE_ERROR} above the exact value. Without filters the answer comes from
+     * sketches kept current by writes; with filters it takes one pass over the matching rows.
+     */
+    public DistributionReport getDistributions(ExpenseQuery query) {
+        return timed(distributionsMetrics,
+                () -> isUnfiltered(query) ? distributionIndex().toReport() : DistributionIndex.build(expenseRepository, query),
+                report -> report.getCategories().size() + report.getMonths().size());
+    }
+
+    private TopSpendersIndex topSpendersIndex() {
+        TopSpendersIndex index = topSpendersIndex;
+        if (index == null || index.isStale()) {
+            synchronized (this) {
+                index = topSpendersIndex;
+                if (index == null) {
+                    int capacity = EnvConfig.getInt("TOP_SPENDERS_CAPACITY", DEFAULT_TOP_SPENDERS_CAPACITY);
+                    if (capacity < 1) {
+                        logger.warn("TOP_SPENDERS_CAPACITY must be positive; using {}.", DEFAULT_TOP_SPENDERS_CAPACITY);
+                        capacity = DEFAULT_TOP_SPENDERS_CAPACITY;
+                    }
+                    index = new TopSpendersIndex(capacity);
+                    // Registered before loading so writes made meanwhile mark the load as stale
+                    addChangeListener(index);
+                    topSpendersIndex = index;
+                }
+                if (index.isStale()) {
+                    long start = System.nanoTime();
+                    index.load(expenseRepository);
+                    logger.info("Built top spenders in {} ms.", (System.nanoTime() - start) / 1_000_000);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * The {@code limit} descriptions and categories with the most expenses and the largest totals. Each
+     * list comes from a summary of at most {@code TOP_SPENDERS_CAPACITY} keys kept current by writes, so
+     * memory stays fixed however many distinct descriptions exist; values are exact until a summary
+     * overflows and then overestimate by at most the reported error.
+     *
+     * @throws IllegalArgumentException if {@code limit} is not between 1 and the summary capacity
+     */
+    public TopSpendersReport getTopSpenders(int limit) {
+        return timed(topSpendersMetrics, () -> {
+            TopSpendersIndex index = topSpendersIndex();
+            if (limit < 1 || limit > index.capacity()) {
+                throw new IllegalArgumentException("Limit must be between 1 and " + index.capacity() + ": " + limit);
+            }
+            return index.top(limit);
+        }, report -> report.getDescriptionsByCount().size());
+    }
+
+    public ExpenseReplica.ReplicaStats getReplicaStats() {
+        ExpenseReplica current = replica;
+        return current != null ? current.getStats() : null;
+    }
+
+    public synchronized void shutdown() {
+        if (asyncExecutor != null) {
+            asyncExecutor.close();
+            asyncExecutor = null;
+        }
+        if (replica != null) {
+            removeChangeListener(replica);
+            replica.stop();
+            replica = null;
+        }
+        expenseRepository.close();
+    }
+
+    private AsyncExecutor asyncExecutor() {
+        AsyncExecutor executor = asyncExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = asyncExecutor;
+                if (executor == null) {
+                    executor = AsyncExecutor.fromEnvironment("expense-async");
+                    asyncExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * The repository's operations as {@link CompletableFuture}s on virtual threads, bypassing the replica,
+     * analytics snapshot and change listeners of this service.
+     */
+    public AsyncExpenseRepository asyncRepository() {
+        return new AsyncExpenseRepository(expenseRepository, asyncExecutor());
+    }
+
+    public CompletableFuture<Void> addExpenseAsync(Expense expense) {
+        return asyncExecutor().run(() -> addExpense(expense));
+    }
+
+    public CompletableFuture<Void> updateExpenseAsync(Expense expense) {
+        return asyncExecutor().run(() -> updateExpense(expense));
+    }
+
+    public CompletableFuture<Void> deleteExpenseAsync(int id) {
+        return asyncExecutor().run(() -> deleteExpense(id));
+    }
+
+    public CompletableFuture<Expense> getExpenseByIdAsync(int id) {
+        return asyncExecutor().submit(() -> getExpenseById(id));
+    }
+
+    public CompletableFuture<List<Expense>> findExpensesAsync(ExpenseQuery query) {
+        return asyncExecutor().submit(() -> findExpenses(query));
+    }
+
+    public CompletableFuture<ExpenseSummary> getSummaryAsync(ExpenseQuery query) {
+        return asyncExecutor().submit(() -> getSummary(query));
+    }
+
+    public CompletableFuture<Map<String, BigDecimal>> getCategoryTotalsAsync(ExpenseQuery query) {
+        return asyncExecutor().submit(() -> getCategoryTotals(query));
+    }
+
+    public CompletableFuture<Map<String, BigDecimal>> getMonthlyTotalsAsync(ExpenseQuery query) {
+        return asyncExecutor().submit(() -> getMonthlyTotals(query));
+    }
+
+    public CompletableFuture<ExpenseReport> getReportAsync(ExpenseQuery query) {
+        return asyncExecutor().submit(() -> getReport(query));
+    }
+
+    public CompletableFuture<DistributionReport> getDistributionsAsync(ExpenseQuery query) {
+        return asyncExecutor().submit(() -> getDistributions(query));
+    }
+
+    public void addExpense(Expense expense) {
+        addExpense(expense, false);
+    }
+
+    /**
+     * Adds {@code expense}. {@code confirmedDuplicate} is true when the user has already been shown its
+     * duplicates and chose to add it anyway, so under {@link DuplicateIndex.Policy#FLAG} the warning is
+     * only logged rather than printed a second time.
+     */
+    public void addExpense(Expense expense, boolean confirmedDuplicate) {
+        timed(addMetrics, () -> {
+            if (expense.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                logger.warn("Attempted to add an expense with non-positive amount: {}", expense.getAmount());
+                System.out.println("Error: Expense amount must be positive.");
+                return;
+            }
+            DuplicateIndex.Policy policy = duplicatePolicy;
+            if (policy != DuplicateIndex.Policy.ALLOW) {
+                int[] existing = duplicateIndex().duplicatesOf(expense);
+                if (existing.length > 0) {
+                    logger.warn("Expense duplicates expense {}: {}", existing[0], expense);
+                    if (policy == DuplicateIndex.Policy.SKIP) {
+                        System.out.println("Skipped: this expense duplicates expense #" + existing[0] + ".");
+                        return;
+                    }
+                    if (!confirmedDuplicate) {
+                        System.out.println("Warning: this expense duplicates expense #" + existing[0] + ".");
+                    }
+                }
+            }
+            expenseRepository.addExpense(expense);
+            logger.info("Expense added: {}", expense);
+            if (expense.getId() > 0) {
+                for (ExpenseChangeListener listener : changeListeners) {
+                    listener.onExpenseAdded(expense);
+                }
+            }
+        });
+    }
+
+    public int addExpenses(List<Expense> expenses) {
+        return addExpenses(expenses, null);
+    }
+
+    /**
+     * Adds the batch like {@link #addExpenses(List)}. If {@code skippedAs} is given it must be as long as
+     * {@code expenses}; for each expense the duplicate policy skipped it receives the ID of the stored
+     * expense it repeats, and 0 otherwise. Only the duplicate index is consulted, no rows are read.
+     */
+    public int addExpenses(List<Expense> expenses, int[] skippedAs) {
+        return timed(addBatchMetrics, () -> {
+            List<Expense> valid = new ArrayList<>(expenses.size());
+            List<Integer> positions = new ArrayList<>(expenses.size());
+            for (int i = 0; i < expenses.size(); i++) {
+                Expense expense = expenses.get(i);
+                if (expense.getAmount() == null || expense.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                    logger.warn("Skipping expense with non-positive amount in batch: {}", expense);
+                } else {
+                    valid.add(expense);
+                    positions.add(i);
+                }
+            }
+            if (skippedAs != null) {
+                Arrays.fill(skippedAs, 0);
+            }
+            DuplicateIndex.Policy policy = duplicatePolicy;
+            if (policy != DuplicateIndex.Policy.ALLOW) {
+                int[] stored = duplicateIndex().indexedCopies(valid);
+                List<Expense> fresh = new ArrayList<>(valid.size());
+                for (int i = 0; i < valid.size(); i++) {
+                    if (stored[i] == 0) {
+                        fresh.add(valid.get(i));
+                    } else if (skippedAs != null && policy == DuplicateIndex.Policy.SKIP) {
+                        skippedAs[positions.get(i)] = stored[i];
+                    }
+                }
+                int duplicates = valid.size() - fresh.size();
+                if (duplicates > 0) {
+                    logger.warn("Batch holds {} expenses that are already stored{}.", duplicates,
+                            policy == DuplicateIndex.Policy.SKIP ? "; skipping them" : "");
+                    if (policy == DuplicateIndex.Policy.SKIP) {
+                        valid = fresh;
+                    }
+                }
+            }
+            int added = expenseRepository.addExpenses(valid);
+            logger.info("Batch added {} of {} expenses.", added, expenses.size());
+            if (!changeListeners.isEmpty()) {
+                for (Expense expense : valid) {
+                    if (expense.getId() > 0) {
+                        for (ExpenseChangeListener listener : changeListeners) {
+                            listener.onExpenseAdded(expense);
+                        }
+                    }
+                }
+            }
+            return added;
+        }, Integer::longValue);
+    }
+
+    public int updateExpenses(List<Expense> expenses) {
+        return timed(updateBatchMetrics, () -> {
+            List<Expense> valid = new ArrayList<>(expenses.size());
+            for (Expense expense : expenses) {
+                if (expense.getAmount() == null || expense.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                    logger.warn("Skipping expense update with non-positive amount in batch: {}", expense);
+                } else {
+                    valid.add(expense);
+                }
+            }
+            Map<Integer, Expense> previous = lookupPrevious(valid.stream().map(Expense::getId).collect(Collectors.toList()));
+            int updated = expenseRepository.updateExpenses(valid);
+            logger.info("Batch updated {} of {} expenses.", updated, expenses.size());
+            if (!changeListeners.isEmpty()) {
+                for (Expense expense : valid) {
+                    Expense before = previous.get(expense.getId());
+                    if (before == null && needsPreviousState()) {
+                        continue; // The row did not exist, so nothing was updated
+                    }
+                    for (ExpenseChangeListener listener : changeListeners) {
+                        listener.onExpenseUpdated(before, expense);
+                    }
+                }
+            }
+            return updated;
+        }, Integer::longValue);
+    }
+
+    public int deleteExpenses(Collection<Integer> ids) {
+        return timed(deleteBatchMetrics, () -> {
+            Map<Integer, Expense> previous = lookupPrevious(ids);
+            int deleted = expenseRepository.deleteExpenses(ids);
+            logger.info("Batch deleted {} of {} expenses.", deleted, ids.size());
+            if (!changeListeners.isEmpty()) {
+                for (Integer id : ids) {
+                    Expense before = previous.get(id);
+                    if (before == null && needsPreviousState()) {
+                        continue;
+                    }
+                    for (ExpenseChangeListener listener : changeListeners) {
+                        listener.onExpenseDeleted(id, before);
+                    }
+                }
+            }
+            return deleted;
+        }, Integer::longValue);
     }
 
     public Expense getExpenseById(int id) {
-        return expenseDAO.getExpenseById(id);
+        return timed(getByIdMetrics, () -> {
+            ExpenseReplica current = replica;
+            if (current != null) {
+                return current.get(id);
+            }
+            return expenseRepository.getExpenseById(id);
+        }, expense -> 1);
     }
 
     public List<Expense> getAllExpenses() {
-        return expenseDAO.getAllExpenses();
+        return timed(getAllMetrics, () -> {
+            ExpenseReplica current = replica;
+            if (current != null) {
+                return current.getAll();
+            }
+            return expenseRepository.getAllExpenses();
+        }, List::size);
     }
 
     public void updateExpense(Expense expense) {
-        if (expense.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
-            logger.warn("Attempted to update an expense with non-positive amount: {}", expense.getAmount());
-            System.out.println("Error: Expense amount must be positive.");
-            return;
-        }
-        expenseDAO.updateExpense(expense);
-        logger.info("Expense updated: {}", expense);
+        timed(updateMetrics, () -> {
+            if (expense.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+                logger.warn("Attempted to update an expense with non-positive amount: {}", expense.getAmount());
+                System.out.println("Error: Expense amount must be positive.");
+                return;
+            }
+            Expense previous = needsPreviousState() ? getExpenseById(expense.getId()) : null;
+            if (expenseRepository.updateExpense(expense)) {
+                logger.info("Expense updated: {}", expense);
+                for (ExpenseChangeListener listener : changeListeners) {
+                    listener.onExpenseUpdated(previous, expense);
+                }
+            }
+        });
     }
 
     public void deleteExpense(int id) {
-        expenseDAO.deleteExpense(id);
-        logger.info("Expense deleted with ID: {}", id);
+        timed(deleteMetrics, () -> {
+            Expense previous = needsPreviousState() ? getExpenseById(id) : null;
+            if (expenseRepository.deleteExpense(id)) {
+                logger.info("Expense deleted with ID: {}", id);
+                for (ExpenseChangeListener listener : changeListeners) {
+                    listener.onExpenseDeleted(id, previous);
+                }
+            }
+        });
     }
 
-    public List<Expense> filterExpenses(LocalDate startDate, LocalDate endDate, String category, BigDecimal minAmount, BigDecimal maxAmount) {
-        List<Expense> filteredExpenses = getAllExpenses(); // Start with all expenses
+    private boolean needsPreviousState() {
+        for (ExpenseChangeListener listener : changeListeners) {
+            if (listener.needsPreviousState()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        if (startDate != null && endDate != null) {
-            filteredExpenses = filteredExpenses.stream()
-                    .filter(e -> !e.getDate().isBefore(startDate) && !e.getDate().isAfter(endDate))
-                    .collect(Collectors.toList());
-            logger.debug("Filtered by date range ({} to {}): {} expenses", startDate, endDate, filteredExpenses.size());
-        }
-
-        if (category != null && !category.trim().isEmpty()) {
-            filteredExpenses = filteredExpenses.stream()
-                    .filter(e -> e.getCategory().equalsIgnoreCase(category))
-                    .collect(Collectors.toList());
-            logger.debug("Filtered by category '{}': {} expenses", category, filteredExpenses.size());
-        }
-
-        if (minAmount != null && maxAmount != null) {
-            filteredExpenses = filteredExpenses.stream()
-                    .filter(e -> e.getAmount().compareTo(minAmount) >= 0 && e.getAmount().compareTo(maxAmount) <= 0)
-                    .collect(Collectors.toList());
-            logger.debug("Filtered by amount range ({} to {}): {} expenses", minAmount, maxAmount, filteredExpenses.size());
-        } else if (minAmount != null) {
-            filteredExpenses = filteredExpenses.stream()
-                    .filter(e -> e.getAmount().compareTo(minAmount) >= 0)
-                    .collect(Collectors.toList());
-            logger.debug("Filtered by minimum amount {}: {} expenses", minAmount, filteredExpenses.size());
-        } else if (maxAmount != null) {
-            filteredExpenses = filteredExpenses.stream()
-                    .filter(e -> e.getAmount().compareTo(maxAmount) <= 0)
-                    .collect(Collectors.toList());
-            logger.debug("Filtered by maximum amount {}: {} expenses", maxAmount, filteredExpenses.size());
+    private Map<Integer, Expense> lookupPrevious(Collection<Integer> ids) {
+        Map<Integer, Expense> previous = new HashMap<>();
+        if (!needsPreviousState()) {
+            return previous;
+        }
+        ExpenseReplica current = replica;
+        if (current != null) {
+            for (Integer id : ids) {
+                Expense expense = current.get(id);
+                if (expense != null) {
+                    previous.put(id, expense);
+                }
+            }
+        } else {
+            for (Expense expense : expenseRepository.getExpensesByIds(ids)) {
+                previous.put(expense.getId(), expense);
+            }
         }
+        return previous;
+    }
 
+    public List<Expense> filterExpenses(LocalDate startDate, LocalDate endDate, String category, BigDecimal minAmount, BigDecimal maxAmount) {
+        List<Expense> filteredExpenses = findExpenses(toQuery(startDate, endDate, category, minAmount, maxAmount));
+        logger.debug("Filtered expenses (dates {} to {}, category '{}', amounts {} to {}): {} expenses",
+                startDate, endDate, category, minAmount, maxAmount, filteredExpenses.size());
         return filteredExpenses;
     }
 
+    public List<Expense> findExpenses(ExpenseQuery query) {
+        return timed(findMetrics, () -> {
+            ExpenseColumnStore snapshot = analyticsSnapshot();
+            if (snapshot != null) {
+                return snapshot.select(query);
+            }
+            return expenseRepository.findExpenses(query);
+        }, List::size);
+    }
+
+    /** Streams matching expenses to {@code consumer} without loading them into a list. Returns the count. */
+    public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+        return expenseRepository.streamExpenses(query, consumer);
+    }
+
+    public ExpensePage getExpensePage(ExpenseQuery query, ExpensePage.Cursor cursor, ExpensePage.Direction direction, int pageSize) {
+        return expenseRepository.getExpensePage(query, cursor, direction, pageSize);
+    }
+
+    /**
+     * Maps the CLI filter inputs to a query. A date range only applies when both ends are given,
+     * while either amount bound may be used on its own.
+     */
+    public static ExpenseQuery toQuery(LocalDate startDate, LocalDate endDate, String category, BigDecimal minAmount, BigDecimal maxAmount) {
+        ExpenseQuery query = ExpenseQuery.all()
+                .category(category)
+                .minAmount(minAmount)
+                .maxAmount(maxAmount);
+        if (startDate != null && endDate != null) {
+            query.between(startDate, endDate);
+        }
+        return query;
+    }
+
     public BigDecimal getTotalExpenses(List<Expense> expenses) {
-        return expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        long totalCents = 0;
+        for (Expense expense : expenses) {
+            totalCents += expense.getAmountCents();
+        }
+        return Money.toBigDecimal(totalCents);
     }
 
     public Map<String, BigDecimal> getCategoryTotals(List<Expense> expenses) {
-        return expenses.stream()
-                .collect(Collectors.groupingBy(
-                        Expense::getCategory,
-                        Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)
-                ));
+        Map<String, long[]> centsByCategory = new HashMap<>();
+        for (Expense expense : expenses) {
+            centsByCategory.computeIfAbsent(expense.getCategory(), key -> new long[1])[0] += expense.getAmountCents();
+        }
+        Map<String, BigDecimal> totals = new HashMap<>();
+        centsByCategory.forEach((category, cents) -> totals.put(category, Money.toBigDecimal(cents[0])));
+        return totals;
     }
 
     public Map<String, BigDecimal> getMonthlyTotals(List<Expense> expenses) {
-        return expenses.stream()
-                .collect(Collectors.groupingBy(
-                        expense -> expense.getDate().format(DateTimeFormatter.ofPattern("yyyy-MM")),
-                        Collectors.reducing(BigDecimal.ZERO, Expense::getAmount, BigDecimal::add)
-                ));
+        // Group on a numeric yyyyMM key and format each month once instead of once per row
+        Map<Integer, long[]> centsByMonth = new HashMap<>();
+        for (Expense expense : expenses) {
+            LocalDate date = expense.getDate();
+            int monthKey = date.getYear() * 100 + date.getMonthValue();
+            centsByMonth.computeIfAbsent(monthKey, key -> new long[1])[0] += expense.getAmountCents();
+        }
+        Map<String, BigDecimal> totals = new HashMap<>();
+        centsByMonth.forEach((monthKey, cents) ->
+                totals.put(YearMonth.of(monthKey / 100, monthKey % 100).format(MONTH_FORMATTER), Money.toBigDecimal(cents[0])));
+        return totals;
     }
 
-    public void exportExpensesToCsv(List<Expense> expenses, String filename) {
-        Path exportPath = Paths.get(EXPORT_DIR);
-        if (!Files.exists(exportPath)) {
-            try {
-                Files.createDirectories(exportPath);
-                logger.info("Created export directory: {}", exportPath);
-            } catch (IOException e) {
-                logger.error("Failed to create export directory: {}", e.getMessage());
-                System.err.println("Error: Could not create export directory.");
-                return;
+    public ExpenseSummary getSummary(ExpenseQuery query) {
+        return timed(summaryMetrics, () -> {
+            ExpenseColumnStore snapshot = analyticsSnapshot();
+            if (snapshot != null) {
+                return snapshot.summarize(query);
+            }
+            return expenseRepository.getSummary(query);
+        }, summary -> 1);
+    }
+
+    public BigDecimal getTotalExpenses(ExpenseQuery query) {
+        return getSummary(query).getTotal();
+    }
+
+    public Map<String, BigDecimal> getCategoryTotals(ExpenseQuery query) {
+        return timed(categoryTotalsMetrics, () -> {
+            ExpenseColumnStore snapshot = analyticsSnapshot();
+            if (snapshot != null) {
+                return toTotals(snapshot.summarizeByCategory(query));
+            }
+            return toTotals(expenseRepository.getCategorySummaries(query));
+        }, Map::size);
+    }
+
+    public Map<String, BigDecimal> getMonthlyTotals(ExpenseQuery query) {
+        return timed(monthlyTotalsMetrics, () -> {
+            ExpenseColumnStore snapshot = analyticsSnapshot();
+            if (snapshot != null) {
+                return toTotals(snapshot.summarizeByMonth(query));
+            }
+            return toTotals(expenseRepository.getMonthlySummaries(query));
+        }, Map::size);
+    }
+
+    /**
+     * The full summary report for {@code query} with {@link ReportEngine#DEFAULT_TREND_DAYS}-day trends
+     * ending today, computed in one pass.
+     */
+    public ExpenseReport getReport(ExpenseQuery query) {
+        return getReport(query, LocalDate.now(), ReportEngine.DEFAULT_TREND_DAYS);
+    }
+
+    public ExpenseReport getReport(ExpenseQuery query, LocalDate asOf, int trendDays) {
+        return timed(reportMetrics, () -> {
+            ExpenseColumnStore snapshot = analyticsSnapshot();
+            if (snapshot != null) {
+                return ReportEngine.build(snapshot, query, asOf, trendDays);
             }
+            return new ReportEngine(expenseRepository).build(query, asOf, trendDays);
+        }, report -> report.getCategories().size() + report.getMonths().size());
+    }
+
+    private static Map<String, BigDecimal> toTotals(Map<String, ExpenseSummary> summaries) {
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        summaries.forEach((key, summary) -> totals.put(key, summary.getTotal()));
+        return totals;
+    }
+
+    /**
+     * Recomputes the daily/category report rollup from the raw expenses. Returns the number of rollup
+     * rows written, or -1 on failure.
+     */
+    public int rebuildReportRollup() {
+        int rows = expenseRepository.rebuildRollup();
+        logger.info("Report rollup rebuild finished with {} rows.", rows);
+        return rows;
+    }
+
+    /**
+     * Compacts the underlying store. Returns the number of bytes reclaimed, or -1 when the store has
+     * nothing to compact.
+     */
+    public long compactStorage() {
+        long reclaimed = expenseRepository.compact();
+        logger.info("Storage compaction finished, {} bytes reclaimed.", reclaimed);
+        return reclaimed;
+    }
+
+    public void exportExpensesToCsv(List<Expense> expenses, String filename) {
+        if (!ensureExportDirectory()) {
+            return;
         }
 
-        String filePath = EXPORT_DIR + filename;
-        try (CSVWriter writer = new CSVWriter(new FileWriter(filePath))) {
-            String[] header = {"ID", "Date", "Category", "Description", "Amount"};
-            writer.writeNext(header);
+        Path filePath = exportDir.resolve(filename);
+        try (CSVWriter writer = new CSVWriter(Files.newBufferedWriter(filePath, StandardCharsets.UTF_8))) {
+            writer.writeNext(CSV_HEADER);
 
             for (Expense expense : expenses) {
-                String[] data = {
-                        String.valueOf(expense.getId()),
-                        expense.getDate().format(DATE_FORMATTER),
-                        expense.getCategory(),
-                        expense.getDescription(),
-                        expense.getAmount().toPlainString()
-                };
-                writer.writeNext(data);
+                writer.writeNext(toCsvRow(expense, new String[CSV_HEADER.length]));
             }
             logger.info("Expenses exported successfully to: {}", filePath);
             System.out.println("Expenses exported successfully to: " + filePath);
@@ -156,4 +988,211 @@ public class ExpenseService {
             System.err.println("Error: Failed to export expenses to CSV. " + e.getMessage());
         }
     }
+
+    /**
+     * Streams every expense matching {@code query} straight from a database cursor into a buffered CSV
+     * file. Only the current row is held in memory, so exports of any size run in constant heap.
+     * Returns the number of rows written, or -1 if the export failed. Repositories log read errors and end
+     * the stream early, so the rows written are checked against a count of the matching expenses and a
+     * short file is deleted rather than reported as an export.
+     */
+    public long exportExpensesToCsv(ExpenseQuery query, String filename) {
+        return timed(exportMetrics, () -> {
+            if (!ensureExportDirectory()) {
+                Metrics.markFailed();
+                return -1L;
+            }
+
+            Path filePath = exportDir.resolve(filename);
+            int progressInterval = EnvConfig.getInt("EXPORT_PROGRESS_ROWS", DEFAULT_EXPORT_PROGRESS_ROWS);
+            if (progressInterval < 1) {
+                logger.warn("EXPORT_PROGRESS_ROWS must be positive; using {}.", DEFAULT_EXPORT_PROGRESS_ROWS);
+                progressInterval = DEFAULT_EXPORT_PROGRESS_ROWS;
+            }
+            int interval = progressInterval;
+            long startNanos = System.nanoTime();
+            try (CountingOutputStream byteCounter = new CountingOutputStream(Files.newOutputStream(filePath));
+                 CSVWriter writer = new CSVWriter(new BufferedWriter(new OutputStreamWriter(byteCounter, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE))) {
+
+                writer.writeNext(CSV_HEADER);
+                String[] row = new String[CSV_HEADER.length];
+                long[] written = {0};
+                long rows = expenseRepository.streamExpenses(query, expense -> {
+                    writer.writeNext(toCsvRow(expense, row));
+                    if (++written[0] % interval == 0) {
+                        reportExportProgress(written[0], byteCounter.getCount(), startNanos);
+                    }
+                });
+                writer.flush();
+                if (writer.checkError()) {
+                    throw new IOException("CSV writer reported a write error");
+                }
+                long expected = countMatching(query);
+                if (rows != expected) {
+                    throw new IOException("Read " + rows + " of " + expected + " matching expenses");
+                }
+                double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-9);
+                logger.info("Streamed {} expenses ({} bytes) to {} in {} s ({} rows/s).",
+                        rows, byteCounter.getCount(), filePath, String.format("%.2f", seconds), String.format("%.0f", rows / seconds));
+                System.out.printf("Exported %d expenses (%d bytes) to: %s\n", rows, byteCounter.getCount(), filePath);
+                return rows;
+            } catch (IOException | IllegalStateException e) {
+                logger.error("Error exporting expenses to CSV: {}", e.getMessage());
+                System.err.println("Error: Failed to export expenses to CSV. " + e.getMessage());
+                Metrics.markFailed();
+                try {
+                    Files.deleteIfExists(filePath);
+                } catch (IOException deleteFailure) {
+                    logger.warn("Could not delete partial export {}: {}", filePath, deleteFailure.getMessage());
+                }
+                return -1L;
+            }
+        }, rows -> Math.max(rows, 0L));
+    }
+
+    private static boolean isUnfiltered(ExpenseQuery query) {
+        return query.getStartDate() == null && query.getEndDate() == null && query.getCategory() == null
+                && query.getMinAmount() == null && query.getMaxAmount() == null;
+    }
+
+    /**
+     * How many rows streaming {@code query} should produce, its limit included; throws IllegalStateException
+     * if the count fails.
+     */
+    public long countMatching(ExpenseQuery query) {
+        long matching = isUnfiltered(query) ? expenseRepository.countExpenses() : expenseRepository.getSummary(query).getCount();
+        return query.getLimit() > 0 ? Math.min(matching, query.getLimit()) : matching;
+    }
+
+    /**
+     * Splits the matching expenses by year-month and writes each month to its own gzip-compressed CSV
+     * under {@code EXPORT_PATH/exportName/}, {@code EXPORT_THREADS} partitions at a time, followed by a
+     * {@code manifest.csv} with row counts, sizes and SHA-256 checksums. Returns the total number of rows
+     * written, or -1 if the export failed (the manifest is then not written).
+     */
+    public long exportExpensesPartitioned(ExpenseQuery query, String exportName) {
+        if (!ensureExportDirectory()) {
+            return -1;
+        }
+        Path directory = exportDir.resolve(exportName);
+        int threads = EnvConfig.getInt("EXPORT_THREADS", PartitionedCsvExporter.defaultThreads());
+        long startNanos = System.nanoTime();
+        try {
+            List<PartitionedCsvExporter.Partition> partitions = new PartitionedCsvExporter(expenseRepository, threads).export(query, directory);
+            long rows = partitions.stream().mapToLong(PartitionedCsvExporter.Partition::rows).sum();
+            long bytes = partitions.stream().mapToLong(PartitionedCsvExporter.Partition::bytes).sum();
+            double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-9);
+            logger.info("Exported {} expenses in {} monthly partitions ({} compressed bytes) to {} in {} s.",
+                    rows, partitions.size(), bytes, directory, String.format("%.2f", seconds));
+            System.out.printf("Exported %d expenses in %d monthly files (%d bytes compressed) to: %s\n", rows, partitions.size(), bytes, directory);
+            return rows;
+        } catch (IOException e) {
+            logger.error("Error exporting partitioned expenses to {}: {}", directory, e.getMessage());
+            System.err.println("Error: Failed to export expenses. " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * Writes every expense to a binary columnar dump in the export directory. Returns the number of rows
+     * written, or -1 on failure.
+     */
+    public long dumpExpenses(String filename) {
+        if (!ensureExportDirectory()) {
+            return -1;
+        }
+        Path filePath = exportDir.resolve(filename.endsWith(ColumnarDump.FILE_EXTENSION) ? filename : filename + ColumnarDump.FILE_EXTENSION);
+        long startNanos = System.nanoTime();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(filePath), EXPORT_BUFFER_SIZE)) {
+            long rows = ColumnarDump.dump(expenseRepository, out);
+            double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-9);
+            logger.info("Dumped {} expenses ({} bytes) to {} in {} s.", rows, Files.size(filePath), filePath, String.format("%.2f", seconds));
+            System.out.println("Expenses dumped successfully to: " + filePath);
+            return rows;
+        } catch (IOException e) {
+            logger.error("Error dumping expenses to {}: {}", filePath, e.getMessage());
+            System.err.println("Error: Failed to dump expenses. " + e.getMessage());
+            // A partial dump must not be mistaken for a backup
+            try {
+                Files.deleteIfExists(filePath);
+            } catch (IOException deleteFailure) {
+                logger.warn("Could not delete partial dump {}: {}", filePath, deleteFailure.getMessage());
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Loads a dump written by {@link #dumpExpenses(String)} into the ledger, keeping the original IDs. The
+     * ledger must be empty. Returns the number of rows restored, or -1 if the dump could not be read in full
+     * or a row group was not inserted in full; restoring stops there, and rows inserted before the failure
+     * stay in the ledger.
+     */
+    public long restoreDump(Path dumpFile) {
+        if (expenseRepository.countExpenses() != 0) {
+            System.out.println("Restore needs an empty ledger; delete the existing expenses first.");
+            return -1;
+        }
+        long startNanos = System.nanoTime();
+        long[] restored = {0};
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(dumpFile), EXPORT_BUFFER_SIZE)) {
+            ColumnarDump.restore(in, group -> {
+                int inserted = restoreGroup(group);
+                restored[0] += inserted;
+                if (inserted != group.size()) {
+                    throw new UncheckedIOException(new IOException("Only " + inserted + " of " + group.size()
+                            + " expenses in a row group were inserted"));
+                }
+            });
+            double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-9);
+            logger.info("Restored {} expenses from {} in {} s.", restored[0], dumpFile, String.format("%.2f", seconds));
+            return restored[0];
+        } catch (IOException | UncheckedIOException e) {
+            String message = e instanceof UncheckedIOException ? e.getCause().getMessage() : e.getMessage();
+            logger.error("Error restoring expenses from {} after {} rows: {}", dumpFile, restored[0], message);
+            System.err.println("Error: Failed to restore expenses. " + message);
+            return -1;
+        }
+    }
+
+    private int restoreGroup(List<Expense> group) {
+        int inserted = expenseRepository.restoreExpenses(group);
+        if (!changeListeners.isEmpty()) {
+            for (Expense expense : group.subList(0, inserted)) {
+                for (ExpenseChangeListener listener : changeListeners) {
+                    listener.onExpenseAdded(expense);
+                }
+            }
+        }
+        return inserted;
+    }
+
+    static String[] toCsvRow(Expense expense, String[] row) {
+        row[0] = String.valueOf(expense.getId());
+        row[1] = expense.getDate().format(DATE_FORMATTER);
+        row[2] = expense.getCategory();
+        row[3] = expense.getDescription();
+        row[4] = expense.getAmount().toPlainString();
+        return row;
+    }
+
+    private void reportExportProgress(long rows, long bytes, long startNanos) {
+        double seconds = Math.max((System.nanoTime() - startNanos) / 1e9, 1e-9);
+        logger.info("Export progress: {} rows, {} bytes, {} rows/s", rows, bytes, String.format("%.0f", rows / seconds));
+        System.out.printf("  ... %d rows exported (%.1f MB, %.0f rows/s)\n", rows, bytes / (1024.0 * 1024.0), rows / seconds);
+    }
+
+    private boolean ensureExportDirectory() {
+        if (!Files.exists(exportDir)) {
+            try {
+                Files.createDirectories(exportDir);
+                logger.info("Created export directory: {}", exportDir);
+            } catch (IOException e) {
+                logger.error("Failed to create export directory: {}", e.getMessage());
+                System.err.println("Error: Could not create export directory.");
+                return false;
+            }
+        }
+        return true;
+    }
 }
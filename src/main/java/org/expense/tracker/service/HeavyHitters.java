@@ -0,0 +1,157 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.model.HeavyHitter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving summary of the keys with the largest total weight, in memory fixed by {@code capacity}
+ * whatever the number of distinct keys.
+ * <p>
+ * At most {@code capacity} keys are tracked. A new key arriving when the summary is full takes the place
+ * of the smallest counter and starts from that counter's value, which is recorded as its error. So a
+ * tracked key's value is never below its true weight and at most its error above it, and as long as only
+ * adds arrive any key holding more than {@code total / capacity} of the weight is always tracked. Until the
+ * first eviction every value is exact.
+ * <p>
+ * {@link #remove(String, long)} subtracts weight from a tracked key; weight removed from an untracked key
+ * is already part of other counters' errors and is only taken off the total. New keys start from the
+ * largest value ever evicted rather than the current minimum, so values stay upper bounds after removals,
+ * and no untracked key weighs more than that value, {@link #maxUntrackedWeight()}. Removals shrink the
+ * total but not that value, so after an eviction the guarantee loosens: the summary stays
+ * {@linkplain #isWithinBound() within bound}, tracking every key above {@code 2 * total / capacity}, until
+ * about half of the weight has been removed, and only then does it need rebuilding. Not thread-safe.
+ */
+public final class HeavyHitters {
+
+    private static final class Counter {
+        final String key;
+        final String label;
+        long value;
+        final long error;
+
+        Counter(String key, String label, long value, long error) {
+            this.key = key;
+            this.label = label;
+            this.value = value;
+            this.error = error;
+        }
+    }
+
+    private static final Comparator<Counter> BY_VALUE = Comparator.<Counter>comparingLong(counter -> counter.value)
+            .thenComparing(counter -> counter.key);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byValue = new TreeSet<>(BY_VALUE);
+    private long total;
+    // Largest value of an evicted counter: no untracked key can weigh more
+    private long floor;
+
+    public HeavyHitters(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds {@code weight} to {@code key}. {@code label} is shown for the key while it stays tracked;
+     * non-positive weights are ignored.
+     */
+    public void add(String key, String label, long weight) {
+        if (weight <= 0) {
+            return;
+        }
+        total += weight;
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            byValue.remove(counter);
+            counter.value += weight;
+            byValue.add(counter);
+            return;
+        }
+        if (counters.size() >= capacity) {
+            Counter smallest = byValue.pollFirst();
+            counters.remove(smallest.key);
+            floor = Math.max(floor, smallest.value);
+        }
+        counter = new Counter(key, label, floor + weight, floor);
+        counters.put(key, counter);
+        byValue.add(counter);
+    }
+
+    /**
+     * Takes {@code weight}, which must have been added for {@code key} before, off the key and the total.
+     *
+     * @return false if the summary is no longer {@linkplain #isWithinBound() within bound}, in which case a
+     *         heavy key may now be missing and the summary should be rebuilt from the remaining weights
+     */
+    public boolean remove(String key, long weight) {
+        if (weight <= 0) {
+            return isWithinBound();
+        }
+        total -= weight;
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            return isWithinBound();
+        }
+        byValue.remove(counter);
+        counter.value -= weight;
+        if (counter.value > 0) {
+            byValue.add(counter);
+        } else {
+            // Values are upper bounds, so nothing of the key is left
+            counters.remove(key);
+        }
+        return isWithinBound();
+    }
+
+    /** The {@code limit} tracked keys with the largest values, largest first. */
+    public List<HeavyHitter> top(int limit) {
+        List<HeavyHitter> top = new ArrayList<>(Math.min(limit, counters.size()));
+        Iterator<Counter> iterator = byValue.descendingIterator();
+        while (iterator.hasNext() && top.size() < limit) {
+            Counter counter = iterator.next();
+            top.add(new HeavyHitter(counter.label, counter.value, counter.error));
+        }
+        return top;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    /** Total weight added and not removed, over all keys tracked or not. */
+    public long total() {
+        return total;
+    }
+
+    /** Whether every value is exact, which holds until the first key is evicted. */
+    public boolean isExact() {
+        return floor == 0;
+    }
+
+    /** The most any key missing from {@link #top(int) top(capacity)} can weigh: the largest evicted value. */
+    public long maxUntrackedWeight() {
+        return floor;
+    }
+
+    /**
+     * Whether every key weighing more than {@code 2 * total / capacity} is still tracked. Adds alone keep
+     * {@link #maxUntrackedWeight()} within {@code total / capacity}, so this only fails after removals.
+     */
+    public boolean isWithinBound() {
+        return floor <= 2 * total / capacity;
+    }
+}
@@ -0,0 +1,207 @@
+package org.expense.tracker.service;
+
+import com.opencsv.CSVWriter;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.model.ExpenseSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes an export as one gzip-compressed CSV per year-month plus a {@code manifest.csv}.
+ * <p>
+ * The months to write come from the repository's monthly summary (served by the report rollup), so
+ * planning costs nothing per row. Each partition runs as its own task on a fixed pool of {@code threads}
+ * and streams just its month's date range from the repository, so several months are read, formatted
+ * and compressed at once. The pool size also caps how many database connections the export holds.
+ */
+class PartitionedCsvExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedCsvExporter.class);
+    private static final String[] MANIFEST_HEADER = {"Month", "File", "Rows", "Bytes", "SHA-256"};
+    static final String MANIFEST_FILE = "manifest.csv";
+
+    private final ExpenseRepository expenseRepository;
+    private final int threads;
+
+    PartitionedCsvExporter(ExpenseRepository expenseRepository, int threads) {
+        this.expenseRepository = expenseRepository;
+        this.threads = Math.max(1, threads);
+    }
+
+    static int defaultThreads() {
+        return Math.min(4, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Exports every expense matching {@code query} into {@code directory}. The query's limit is ignored.
+     * If any partition fails, or holds a different number of rows than the monthly summary planned (the
+     * repository logs read errors and ends the stream early, or expenses changed during the export), the
+     * others are cancelled, no manifest is written and the partition files are deleted again, along with
+     * {@code directory} if this call created it.
+     */
+    List<Partition> export(ExpenseQuery query, Path directory) throws IOException {
+        boolean created = !Files.exists(directory);
+        Files.createDirectories(directory);
+        Map<String, ExpenseSummary> months = expenseRepository.getMonthlySummaries(query);
+        try {
+            return export(query, months, directory);
+        } catch (IOException | RuntimeException e) {
+            deletePartial(directory, months.keySet(), created);
+            throw e;
+        }
+    }
+
+    private List<Partition> export(ExpenseQuery query, Map<String, ExpenseSummary> months, Path directory) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, months.size())), runnable -> {
+            Thread thread = new Thread(runnable, "expense-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Partition>> futures = new ArrayList<>(months.size());
+        try {
+            for (String month : months.keySet()) {
+                YearMonth yearMonth = YearMonth.parse(month);
+                futures.add(executor.submit(() -> writePartition(yearMonth, partitionQuery(query, yearMonth), directory)));
+            }
+            List<Partition> partitions = new ArrayList<>(futures.size());
+            for (Future<Partition> future : futures) {
+                partitions.add(future.get());
+            }
+            for (Partition partition : partitions) {
+                long planned = months.get(partition.month()).getCount();
+                if (partition.rows() != planned) {
+                    throw new IOException("Partition " + partition.month() + " has " + partition.rows() + " rows but "
+                            + planned + " were planned; the read failed or expenses changed during the export");
+                }
+            }
+            writeManifest(directory.resolve(MANIFEST_FILE), partitions);
+            return partitions;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("Partition export failed", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while exporting", e);
+        } finally {
+            // Not interrupted: an interrupt during FileChannel or JDBC reads would close them under the repository
+            futures.forEach(future -> future.cancel(false));
+            executor.shutdown();
+            awaitQuietly(executor);
+        }
+    }
+
+    private static void awaitQuietly(ExecutorService executor) {
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.warn("Export partitions still running after the export ended.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void deletePartial(Path directory, Collection<String> months, boolean created) {
+        try {
+            Files.deleteIfExists(directory.resolve(MANIFEST_FILE));
+            for (String month : months) {
+                Files.deleteIfExists(directory.resolve(fileName(YearMonth.parse(month))));
+            }
+            if (created) {
+                Files.deleteIfExists(directory);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not delete the partial export in {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private static String fileName(YearMonth month) {
+        return "expenses_" + month + ".csv.gz";
+    }
+
+    /** The caller's criteria narrowed to one month, keeping any tighter date bounds it already had. */
+    static ExpenseQuery partitionQuery(ExpenseQuery query, YearMonth month) {
+        LocalDate start = month.atDay(1);
+        LocalDate end = month.atEndOfMonth();
+        if (query.getStartDate() != null && query.getStartDate().isAfter(start)) {
+            start = query.getStartDate();
+        }
+        if (query.getEndDate() != null && query.getEndDate().isBefore(end)) {
+            end = query.getEndDate();
+        }
+        return query.copy().between(start, end).limit(0);
+    }
+
+    private Partition writePartition(YearMonth month, ExpenseQuery query, Path directory) throws IOException {
+        String fileName = fileName(month);
+        Path file = directory.resolve(fileName);
+        MessageDigest sha256 = newSha256();
+        long rows;
+        try (CSVWriter writer = new CSVWriter(new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(file), ExpenseService.EXPORT_BUFFER_SIZE), sha256),
+                        ExpenseService.EXPORT_BUFFER_SIZE),
+                StandardCharsets.UTF_8), ExpenseService.EXPORT_BUFFER_SIZE))) {
+
+            writer.writeNext(ExpenseService.CSV_HEADER);
+            String[] row = new String[ExpenseService.CSV_HEADER.length];
+            rows = expenseRepository.streamExpenses(query, expense -> writer.writeNext(ExpenseService.toCsvRow(expense, row)));
+            writer.flush();
+            if (writer.checkError()) {
+                throw new IOException("CSV writer reported a write error for " + fileName);
+            }
+        }
+        Partition partition = new Partition(month.toString(), fileName, rows, Files.size(file), HexFormat.of().formatHex(sha256.digest()));
+        logger.debug("Wrote export partition {}", partition);
+        return partition;
+    }
+
+    private static void writeManifest(Path manifest, List<Partition> partitions) throws IOException {
+        try (CSVWriter writer = new CSVWriter(Files.newBufferedWriter(manifest, StandardCharsets.UTF_8))) {
+            writer.writeNext(MANIFEST_HEADER);
+            for (Partition partition : partitions) {
+                writer.writeNext(new String[]{partition.month(), partition.file(), String.valueOf(partition.rows()),
+                        String.valueOf(partition.bytes()), partition.sha256()});
+            }
+            writer.flush();
+            if (writer.checkError()) {
+                throw new IOException("CSV writer reported a write error for " + manifest);
+            }
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /** One written month: its file name, data rows (excluding the header), compressed size and checksum. */
+    record Partition(String month, String file, long rows, long bytes, String sha256) {
+    }
+}
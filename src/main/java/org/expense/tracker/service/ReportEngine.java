@@ -0,0 +1,105 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.model.ExpenseReport;
+import org.expense.tracker.model.ExpenseSummary;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Computes a whole {@link ExpenseReport} in a single pass over the store's per-day, per-category groups
+ * ({@link ExpenseRepository#streamDailySummaries}), instead of one query per figure. Memory is
+ * proportional to the number of categories and months, not to the number of expenses.
+ */
+public class ReportEngine {
+
+    public static final int DEFAULT_TREND_DAYS = 7;
+
+    private final ExpenseRepository repository;
+
+    public ReportEngine(ExpenseRepository repository) {
+        this.repository = repository;
+    }
+
+    public ExpenseReport build(ExpenseQuery query, LocalDate asOf, int trendDays) {
+        Accumulator accumulator = new Accumulator(asOf, trendDays);
+        repository.streamDailySummaries(query, accumulator);
+        return accumulator.toReport();
+    }
+
+    /** Same report from an analytics snapshot, folding its matching rows one at a time. */
+    static ExpenseReport build(ExpenseColumnStore store, ExpenseQuery query, LocalDate asOf, int trendDays) {
+        Accumulator accumulator = new Accumulator(asOf, trendDays);
+        store.streamRows(query, accumulator);
+        return accumulator.toReport();
+    }
+
+    /**
+     * Folds groups of any granularity (a day/category group, or a single expense with a count of 1) into
+     * the report's figures.
+     */
+    static class Accumulator implements ExpenseRepository.DailySummaryConsumer {
+
+        private final LocalDate asOf;
+        private final int trendDays;
+        private final LocalDate recentStart;
+        private final LocalDate previousStart;
+        private final Map<String, long[]> categories = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private final Map<YearMonth, long[]> months = new TreeMap<>();
+        private final long[] total = new long[2];
+        private final long[] recent = new long[2];
+        private final long[] previous = new long[2];
+        private LocalDate lastDate;
+        private long[] lastMonth;
+
+        Accumulator(LocalDate asOf, int trendDays) {
+            this.asOf = asOf;
+            this.trendDays = trendDays;
+            // Two adjacent windows of trendDays days each, the same as TimeSeries.trends
+            this.recentStart = asOf.minusDays(trendDays - 1L);
+            this.previousStart = asOf.minusDays(2L * trendDays - 1);
+        }
+
+        @Override
+        public void accept(LocalDate date, String category, long count, long totalCents) {
+            add(total, count, totalCents);
+            add(categories.computeIfAbsent(category, key -> new long[2]), count, totalCents);
+            // Groups arrive day by day, so the month bucket rarely changes between calls
+            if (!date.equals(lastDate)) {
+                lastMonth = months.computeIfAbsent(YearMonth.from(date), key -> new long[2]);
+                lastDate = date;
+            }
+            add(lastMonth, count, totalCents);
+            if (!date.isAfter(asOf)) {
+                if (!date.isBefore(recentStart)) {
+                    add(recent, count, totalCents);
+                } else if (!date.isBefore(previousStart)) {
+                    add(previous, count, totalCents);
+                }
+            }
+        }
+
+        private static void add(long[] figures, long count, long cents) {
+            figures[0] += count;
+            figures[1] += cents;
+        }
+
+        ExpenseReport toReport() {
+            Map<String, ExpenseSummary> categorySummaries = new LinkedHashMap<>();
+            categories.forEach((category, figures) -> categorySummaries.put(category, toSummary(figures)));
+            Map<String, ExpenseSummary> monthSummaries = new LinkedHashMap<>();
+            months.forEach((month, figures) -> monthSummaries.put(month.toString(), toSummary(figures)));
+            return new ExpenseReport(toSummary(total), categorySummaries, monthSummaries, asOf, trendDays,
+                    toSummary(recent), toSummary(previous));
+        }
+
+        private static ExpenseSummary toSummary(long[] figures) {
+            return new ExpenseSummary(figures[0], figures[1]);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.Money;
+import org.expense.tracker.model.TrendReport;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable per-day spending series for trend windows.
+ * <p>
+ * Expense counts and cents are kept per calendar day, overall and per category, as prefix sums in
+ * primitive arrays indexed by {@code epochDay - firstDay}. The total of any date range is then the
+ * difference of two array entries, so a window, moving average or period-over-period comparison costs
+ * the same whatever its length. Memory is two {@code long}s per day per category plus the overall series,
+ * independent of the number of expenses. Categories compare case-insensitively; the first spelling seen
+ * is kept.
+ */
+public final class TimeSeries {
+
+    /** Longest window accepted, about a century. */
+    public static final int MAX_WINDOW_DAYS = 36_500;
+
+    private final long firstDay;
+    private final int days;
+    private final long[] counts;
+    private final long[] cents;
+    private final String[] categoryNames;
+    private final Map<String, Integer> categoryLookup;
+    // Category IDs in case-insensitive name order
+    private final int[] categoryOrder;
+    private final long[][] categoryCounts;
+    private final long[][] categoryCents;
+
+    private TimeSeries(Builder builder) {
+        categoryNames = builder.categoryNames.toArray(new String[0]);
+        categoryLookup = builder.categoryLookup;
+        categoryOrder = builder.categoryLookup.values().stream().mapToInt(Integer::intValue).toArray();
+        if (builder.size == 0) {
+            firstDay = 0;
+            days = 0;
+        } else {
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < builder.size; i++) {
+                min = Math.min(min, builder.epochDays[i]);
+                max = Math.max(max, builder.epochDays[i]);
+            }
+            firstDay = min;
+            days = Math.toIntExact(max - min + 1);
+        }
+        counts = new long[days + 1];
+        cents = new long[days + 1];
+        categoryCounts = new long[categoryNames.length][days + 1];
+        categoryCents = new long[categoryNames.length][days + 1];
+        // Daily values go one slot to the right, so the running sum below turns them into prefix sums
+        for (int i = 0; i < builder.size; i++) {
+            int slot = (int) (builder.epochDays[i] - firstDay) + 1;
+            counts[slot] += builder.counts[i];
+            cents[slot] += builder.cents[i];
+            categoryCounts[builder.categoryIds[i]][slot] += builder.counts[i];
+            categoryCents[builder.categoryIds[i]][slot] += builder.cents[i];
+        }
+        accumulate(counts);
+        accumulate(cents);
+        for (int category = 0; category < categoryNames.length; category++) {
+            accumulate(categoryCounts[category]);
+            accumulate(categoryCents[category]);
+        }
+    }
+
+    private static void accumulate(long[] values) {
+        for (int i = 1; i < values.length; i++) {
+            values[i] += values[i - 1];
+        }
+    }
+
+    /** Builds the series over every expense from the store's day/category groups. */
+    public static TimeSeries load(ExpenseRepository repository) {
+        Builder builder = new Builder();
+        repository.streamDailySummaries(ExpenseQuery.all(), builder);
+        return builder.build();
+    }
+
+    /** Builds the series from an analytics snapshot instead of the store. */
+    static TimeSeries load(ExpenseColumnStore store) {
+        Builder builder = new Builder();
+        store.streamRows(ExpenseQuery.all(), builder);
+        return builder.build();
+    }
+
+    /** First day with an expense, or {@code null} when there are none. */
+    public LocalDate getFirstDay() {
+        return days > 0 ? LocalDate.ofEpochDay(firstDay) : null;
+    }
+
+    /** Last day with an expense, or {@code null} when there are none. */
+    public LocalDate getLastDay() {
+        return days > 0 ? LocalDate.ofEpochDay(firstDay + days - 1) : null;
+    }
+
+    public int dayCount() {
+        return days;
+    }
+
+    public int categoryCount() {
+        return categoryNames.length;
+    }
+
+    /** Figures for {@code from} through {@code to}, both inclusive; days outside the series count as empty. */
+    public ExpenseSummary summarize(LocalDate from, LocalDate to) {
+        int start = slot(from.toEpochDay());
+        int end = slot(to.toEpochDay() + 1);
+        if (end <= start) {
+            return ExpenseSummary.EMPTY;
+        }
+        return new ExpenseSummary(counts[end] - counts[start], cents[end] - cents[start]);
+    }
+
+    /** Figures for one category (any case) from {@code from} through {@code to}, both inclusive. */
+    public ExpenseSummary summarize(String category, LocalDate from, LocalDate to) {
+        Integer id = categoryLookup.get(category);
+        if (id == null) {
+            return ExpenseSummary.EMPTY;
+        }
+        return summarize(id, from.toEpochDay(), to.toEpochDay());
+    }
+
+    /** Average cents per calendar day over the {@code windowDays} days ending on {@code end}. */
+    public long movingAverageCents(LocalDate end, int windowDays) {
+        checkWindow(windowDays);
+        return Money.averageCents(summarize(end.minusDays(windowDays - 1L), end).getTotalCents(), windowDays);
+    }
+
+    /**
+     * For each length in {@code windowDays}, the window of that many days ending on {@code asOf} compared with
+     * the same number of days just before it, then a month-to-date window compared with the same days of the
+     * previous month if {@code monthToDate} is set.
+     */
+    public TrendReport trends(LocalDate asOf, int[] windowDays, boolean monthToDate) {
+        List<TrendReport.Window> windows = new ArrayList<>(windowDays.length + 1);
+        for (int length : windowDays) {
+            checkWindow(length);
+            LocalDate currentStart = asOf.minusDays(length - 1L);
+            windows.add(window(length + (length == 1 ? " day" : " days"), currentStart, asOf,
+                    currentStart.minusDays(length), currentStart.minusDays(1)));
+        }
+        if (monthToDate) {
+            LocalDate monthStart = asOf.withDayOfMonth(1);
+            LocalDate previousStart = monthStart.minusMonths(1);
+            // Same day of the previous month, or its last day when that month is shorter
+            LocalDate previousEnd = previousStart.withDayOfMonth(Math.min(asOf.getDayOfMonth(), previousStart.lengthOfMonth()));
+            windows.add(window("Month to date", monthStart, asOf, previousStart, previousEnd));
+        }
+        return new TrendReport(asOf, windows);
+    }
+
+    private TrendReport.Window window(String label, LocalDate currentStart, LocalDate currentEnd, LocalDate previousStart, LocalDate previousEnd) {
+        Map<String, ExpenseSummary> currentByCategory = new LinkedHashMap<>();
+        Map<String, ExpenseSummary> previousByCategory = new LinkedHashMap<>();
+        for (int id : categoryOrder) {
+            ExpenseSummary current = summarize(id, currentStart.toEpochDay(), currentEnd.toEpochDay());
+            ExpenseSummary previous = summarize(id, previousStart.toEpochDay(), previousEnd.toEpochDay());
+            if (current.getCount() > 0 || previous.getCount() > 0) {
+                currentByCategory.put(categoryNames[id], current);
+                previousByCategory.put(categoryNames[id], previous);
+            }
+        }
+        return new TrendReport.Window(label, currentStart, currentEnd, previousStart, previousEnd,
+                summarize(currentStart, currentEnd), summarize(previousStart, previousEnd), currentByCategory, previousByCategory);
+    }
+
+    private ExpenseSummary summarize(int category, long fromDay, long toDay) {
+        int start = slot(fromDay);
+        int end = slot(toDay + 1);
+        if (end <= start) {
+            return ExpenseSummary.EMPTY;
+        }
+        long[] count = categoryCounts[category];
+        long[] total = categoryCents[category];
+        return new ExpenseSummary(count[end] - count[start], total[end] - total[start]);
+    }
+
+    /** Prefix-sum index of the start of {@code epochDay}, clamped to the series. */
+    private int slot(long epochDay) {
+        return (int) Math.max(0, Math.min(days, epochDay - firstDay));
+    }
+
+    /**
+     * Parses comma- or space-separated window lengths such as {@code "7,30,90"}.
+     *
+     * @throws IllegalArgumentException if the list is empty or a length is not a number from 1 to
+     *                                  {@link #MAX_WINDOW_DAYS}
+     */
+    public static int[] parseWindows(String text) {
+        String[] parts = text.trim().split("[,\\s]+");
+        if (parts.length == 0 || parts[0].isEmpty()) {
+            throw new IllegalArgumentException("No window sizes given");
+        }
+        int[] windows = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            try {
+                windows[i] = Integer.parseInt(parts[i]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid window size: " + parts[i]);
+            }
+            checkWindow(windows[i]);
+        }
+        return windows;
+    }
+
+    static void checkWindow(int windowDays) {
+        if (windowDays < 1 || windowDays > MAX_WINDOW_DAYS) {
+            throw new IllegalArgumentException("Window must be 1 to " + MAX_WINDOW_DAYS + " days: " + windowDays);
+        }
+    }
+
+    /** Collects day/category groups in any order. */
+    static final class Builder implements ExpenseRepository.DailySummaryConsumer {
+        private final List<String> categoryNames = new ArrayList<>();
+        private final Map<String, Integer> categoryLookup = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        private long[] epochDays = new long[256];
+        private int[] categoryIds = new int[256];
+        private long[] counts = new long[256];
+        private long[] cents = new long[256];
+        private int size;
+
+        @Override
+        public void accept(LocalDate date, String category, long count, long totalCents) {
+            if (size == epochDays.length) {
+                int capacity = size * 2;
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                categoryIds = Arrays.copyOf(categoryIds, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                cents = Arrays.copyOf(cents, capacity);
+            }
+            String name = category != null ? category : "";
+            Integer id = categoryLookup.get(name);
+            if (id == null) {
+                id = categoryNames.size();
+                categoryNames.add(name);
+                categoryLookup.put(name, id);
+            }
+            epochDays[size] = date.toEpochDay();
+            categoryIds[size] = id;
+            counts[size] = count;
+            cents[size] = totalCents;
+            size++;
+        }
+
+        TimeSeries build() {
+            return new TimeSeries(this);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.ExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.TopSpendersReport;
+
+import java.util.Locale;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * {@link HeavyHitters} summaries of the descriptions and categories with the most expenses and the largest
+ * total amounts, each tracking at most {@code capacity} keys.
+ * <p>
+ * Descriptions are matched like duplicates, ignoring case and extra whitespace, and expenses without one
+ * are left out of the description summaries; categories ignore case. The summaries are built in one pass
+ * over the repository and then kept current as an {@link ExpenseChangeListener}. Updates and deletes take
+ * the previous row off the summaries, which stay usable after an eviction until so much weight has been
+ * removed that a heavy hitter could be missing (see {@link HeavyHitters#isWithinBound()}). The index
+ * becomes {@linkplain #isStale() stale}, and should be reloaded, only then, when an update or delete
+ * arrives without the previous row, or when a write arrives while loading.
+ */
+public class TopSpendersIndex implements ExpenseChangeListener {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final int capacity;
+    private Summaries summaries;
+    private boolean loading;
+    private boolean changedWhileLoading;
+    private volatile boolean stale = true;
+
+    public TopSpendersIndex(int capacity) {
+        this.capacity = capacity;
+        this.summaries = new Summaries(capacity);
+    }
+
+    /** Replaces the summaries with ones built from every expense in the repository. */
+    public void load(ExpenseRepository repository) {
+        lock.writeLock().lock();
+        try {
+            loading = true;
+            changedWhileLoading = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        Summaries loaded = new Summaries(capacity);
+        try {
+            repository.streamExpenses(ExpenseQuery.all(), loaded::add);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                summaries = loaded;
+                loading = false;
+                // A write seen while streaming may or may not be in the loaded rows
+                stale = changedWhileLoading;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean needsPreviousState() {
+        return true;
+    }
+
+    @Override
+    public void onExpenseAdded(Expense expense) {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading |= loading;
+            summaries.add(expense);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onExpenseUpdated(Expense previous, Expense updated) {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading |= loading;
+            if (previous == null || !summaries.remove(previous)) {
+                stale = true;
+            }
+            summaries.add(updated);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onExpenseDeleted(int id, Expense previous) {
+        lock.writeLock().lock();
+        try {
+            changedWhileLoading |= loading;
+            if (previous == null || !summaries.remove(previous)) {
+                stale = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** The {@code limit} largest descriptions and categories by count and by amount. */
+    public TopSpendersReport top(int limit) {
+        lock.readLock().lock();
+        try {
+            return new TopSpendersReport(summaries.descriptionsByCount.top(limit), summaries.descriptionsByAmount.top(limit),
+                    summaries.categoriesByCount.top(limit), summaries.categoriesByAmount.top(limit),
+                    summaries.categoriesByCount.total(), summaries.categoriesByAmount.total());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static final class Summaries {
+        final HeavyHitters descriptionsByCount;
+        final HeavyHitters descriptionsByAmount;
+        final HeavyHitters categoriesByCount;
+        final HeavyHitters categoriesByAmount;
+
+        Summaries(int capacity) {
+            descriptionsByCount = new HeavyHitters(capacity);
+            descriptionsByAmount = new HeavyHitters(capacity);
+            categoriesByCount = new HeavyHitters(capacity);
+            categoriesByAmount = new HeavyHitters(capacity);
+        }
+
+        void add(Expense expense) {
+            long cents = expense.getAmountCents();
+            String description = DuplicateIndex.normalize(expense.getDescription());
+            if (!description.isEmpty()) {
+                String label = expense.getDescription().strip();
+                descriptionsByCount.add(description, label, 1);
+                descriptionsByAmount.add(description, label, cents);
+            }
+            String category = categoryOf(expense);
+            categoriesByCount.add(category.toLowerCase(Locale.ROOT), category, 1);
+            categoriesByAmount.add(category.toLowerCase(Locale.ROOT), category, cents);
+        }
+
+        /** Returns false if a summary can no longer guarantee to hold every heavy hitter. */
+        boolean remove(Expense expense) {
+            long cents = expense.getAmountCents();
+            String description = DuplicateIndex.normalize(expense.getDescription());
+            boolean withinBound = true;
+            if (!description.isEmpty()) {
+                withinBound &= descriptionsByCount.remove(description, 1);
+                withinBound &= descriptionsByAmount.remove(description, cents);
+            }
+            String category = categoryOf(expense).toLowerCase(Locale.ROOT);
+            withinBound &= categoriesByCount.remove(category, 1);
+            withinBound &= categoriesByAmount.remove(category, cents);
+            return withinBound;
+        }
+
+        private static String categoryOf(Expense expense) {
+            return expense.getCategory() != null ? expense.getCategory().strip() : "";
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.expense.tracker.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking calls on a new virtual thread each and hands back a {@link CompletableFuture}.
+ * <p>
+ * At most {@code maxConcurrency} calls run at once; the rest park on a semaphore, which costs a virtual
+ * thread almost nothing, instead of queueing inside the connection pool and eating into its borrow timeout.
+ * Every future fails with a {@link java.util.concurrent.TimeoutException} after {@code timeoutMillis}
+ * (when positive). Cancelling a future, or its timing out, never interrupts the thread running it: an
+ * interrupt during {@link java.nio.channels.FileChannel} I/O closes the channel for good, and one during a
+ * JDBC call can close the connection's socket mid-statement. A call still waiting for a permit is skipped
+ * once it gets one; a call already running finishes in the background and its result is dropped.
+ */
+public class AsyncExecutor implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncExecutor.class);
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    public AsyncExecutor(String threadName, int maxConcurrency, long timeoutMillis) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1");
+        }
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(threadName + "-", 0).factory());
+        this.permits = new Semaphore(maxConcurrency);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Sized from the environment: {@code DB_MAX_CONNECTIONS} concurrent calls and a timeout of
+     * {@code QUERY_TIMEOUT_SECONDS} (0 disables it).
+     */
+    public static AsyncExecutor fromEnvironment(String threadName) {
+        return new AsyncExecutor(threadName, EnvConfig.getInt("DB_MAX_CONNECTIONS", DBConnection.DEFAULT_MAX_CONNECTIONS),
+                TimeUnit.SECONDS.toMillis(EnvConfig.getInt("QUERY_TIMEOUT_SECONDS", 30)));
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    result.cancel(false);
+                    return;
+                }
+                try {
+                    if (!result.isDone()) {
+                        result.complete(call.get());
+                    }
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    permits.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+            return result;
+        }
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                // Not interrupted, see the class comment
+                task.cancel(false);
+            }
+        });
+        return timeoutMillis > 0 ? result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS) : result;
+    }
+
+    public CompletableFuture<Void> run(Runnable call) {
+        return submit(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Waits for all futures. As soon as one fails the result fails with that same cause and the others are
+     * cancelled, so a report built from several queries fails as a whole and names the query that broke it.
+     */
+    public static CompletableFuture<Void> allOf(CompletableFuture<?>... futures) {
+        CompletableFuture<Void> all = new CompletableFuture<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        CompletableFuture.allOf(futures).whenComplete((value, error) -> {
+            if (error == null) {
+                all.complete(null);
+            }
+        });
+        for (CompletableFuture<?> future : futures) {
+            future.whenComplete((value, error) -> {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                // Cancel the others before failing, so callers never see them still running afterwards
+                if (cause != null && failed.compareAndSet(false, true)) {
+                    for (CompletableFuture<?> other : futures) {
+                        other.cancel(false);
+                    }
+                    all.completeExceptionally(cause);
+                }
+            });
+        }
+        return all;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("Asynchronous calls still running after shutdown.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
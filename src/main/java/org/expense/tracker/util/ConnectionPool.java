@@ -0,0 +1,370 @@
+package org.expense.tracker.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small bounded JDBC connection pool.
+ * <p>
+ * At most {@code maxConnections} physical connections exist at any time. Borrowers wait up to
+ * {@code connectionTimeoutMillis} for a free slot and get an {@link SQLTimeoutException} otherwise.
+ * Connections handed out are proxies whose {@code close()} returns the physical connection to the pool,
+ * so DAO code can keep using try-with-resources. Statements and metadata they create are proxied too, so
+ * their {@code getConnection()} hands back the pooled proxy rather than the physical connection. Result
+ * sets are not, to keep row reads direct; their {@code getStatement()} is the driver's statement.
+ * <p>
+ * An idle connection that has not been used for {@code validateAfterIdleMillis} is checked with
+ * {@link Connection#isValid(int)} before it is handed out again, and replaced if the check fails.
+ */
+public class ConnectionPool implements DataSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long DEFAULT_VALIDATE_AFTER_IDLE_MILLIS = 30_000;
+    // Time to hand out a connection, including any wait for a free slot and opening a physical connection
+    private static final OperationMetrics acquireMetrics = Metrics.operation("pool.acquire");
+
+    private final String url;
+    private final Properties connectionProperties;
+    private final int maxConnections;
+    private final long connectionTimeoutMillis;
+    private final long validateAfterIdleMillis;
+
+    private final Semaphore permits;
+    private final BlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong destroyed = new AtomicLong();
+    private final AtomicLong borrowed = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private volatile boolean closed;
+
+    public ConnectionPool(String url, Properties connectionProperties, int maxConnections, long connectionTimeoutMillis) {
+        this(url, connectionProperties, maxConnections, connectionTimeoutMillis, DEFAULT_VALIDATE_AFTER_IDLE_MILLIS);
+    }
+
+    ConnectionPool(String url, Properties connectionProperties, int maxConnections, long connectionTimeoutMillis,
+                   long validateAfterIdleMillis) {
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections must be at least 1");
+        }
+        this.url = url;
+        this.connectionProperties = connectionProperties;
+        this.maxConnections = maxConnections;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.validateAfterIdleMillis = validateAfterIdleMillis;
+        this.permits = new Semaphore(maxConnections, true);
+    }
+
+    /**
+     * Opens up to {@code count} connections ahead of time so the first queries do not pay the handshake.
+     */
+    public void warmUp(int count) {
+        int target = Math.min(count, maxConnections);
+        for (int i = idle.size(); i < target; i++) {
+            try {
+                idle.offerLast(new PooledEntry(openPhysicalConnection()));
+            } catch (SQLException e) {
+                logger.warn("Connection pool warm-up stopped after {} connections: {}", i, e.getMessage());
+                return;
+            }
+        }
+        logger.info("Connection pool warmed up with {} idle connections.", idle.size());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        boolean acquiredConnection = false;
+        try {
+            Connection connection = acquire(start);
+            acquiredConnection = true;
+            return connection;
+        } finally {
+            acquireMetrics.record(start, acquiredConnection ? 1 : 0, !acquiredConnection);
+        }
+    }
+
+    private Connection acquire(long start) throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(connectionTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.addAndGet(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        if (!acquired) {
+            timeouts.incrementAndGet();
+            throw new SQLTimeoutException("Timed out after " + connectionTimeoutMillis
+                    + " ms waiting for a database connection (pool size " + maxConnections + ").");
+        }
+
+        try {
+            PooledEntry entry = takeValidIdleEntry();
+            if (entry == null) {
+                entry = new PooledEntry(openPhysicalConnection());
+            }
+            active.incrementAndGet();
+            borrowed.incrementAndGet();
+            return wrap(entry);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Pooled connections use the configured credentials.");
+    }
+
+    public PoolStats getStats() {
+        long borrowCount = borrowed.get();
+        return new PoolStats(
+                maxConnections,
+                active.get(),
+                idle.size(),
+                created.get(),
+                destroyed.get(),
+                borrowCount,
+                timeouts.get(),
+                borrowCount == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWaitNanos.get() / borrowCount),
+                TimeUnit.NANOSECONDS.toMicros(maxWaitNanos.get()));
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void close() {
+        closed = true;
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+        logger.info("Connection pool closed. {}", getStats());
+    }
+
+    private PooledEntry takeValidIdleEntry() {
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            if (System.currentTimeMillis() - entry.lastReturnedMillis < validateAfterIdleMillis || isValid(entry.connection)) {
+                return entry;
+            }
+            logger.debug("Discarding stale pooled connection.");
+            destroy(entry);
+        }
+        return null;
+    }
+
+    private Connection openPhysicalConnection() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, connectionProperties);
+        created.incrementAndGet();
+        logger.debug("Opened new physical database connection (total created: {}).", created.get());
+        return connection;
+    }
+
+    private void release(PooledEntry entry) {
+        active.decrementAndGet();
+        try {
+            if (closed || entry.connection.isClosed()) {
+                destroy(entry);
+                return;
+            }
+            if (!entry.connection.getAutoCommit()) {
+                entry.connection.rollback();
+                entry.connection.setAutoCommit(true);
+            }
+            if (entry.connection.isReadOnly()) {
+                entry.connection.setReadOnly(false);
+            }
+            entry.lastReturnedMillis = System.currentTimeMillis();
+            idle.offerFirst(entry);
+        } catch (SQLException e) {
+            logger.warn("Discarding connection that failed to reset: {}", e.getMessage());
+            destroy(entry);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void destroy(PooledEntry entry) {
+        destroyed.incrementAndGet();
+        try {
+            entry.connection.close();
+        } catch (SQLException e) {
+            logger.debug("Error closing physical connection: {}", e.getMessage());
+        }
+    }
+
+    private static boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private Connection wrap(PooledEntry entry) {
+        InvocationHandler handler = new InvocationHandler() {
+            private boolean returned;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!returned) {
+                            returned = true;
+                            release(entry);
+                        }
+                        return null;
+                    case "isClosed":
+                        return returned || entry.connection.isClosed();
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(proxy)) {
+                            return proxy;
+                        }
+                        break;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "PooledConnection[" + entry.connection + "]";
+                    default:
+                        break;
+                }
+                if (returned) {
+                    throw new SQLException("Connection has already been returned to the pool.");
+                }
+                Object result;
+                try {
+                    result = method.invoke(entry.connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+                Class<?> type = method.getReturnType();
+                if (result != null && (Statement.class.isAssignableFrom(type) || type == DatabaseMetaData.class)) {
+                    return ownedBy((Connection) proxy, type, result);
+                }
+                return result;
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, handler);
+    }
+
+    /**
+     * Proxies a statement or metadata object of the pooled connection so that its {@code getConnection()}
+     * returns {@code connection}; closing the physical connection through it would bypass the pool.
+     */
+    private static Object ownedBy(Connection connection, Class<?> type, Object target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getConnection":
+                    if (method.getParameterCount() == 0) {
+                        return connection;
+                    }
+                    break;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Logging goes through SLF4J
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+
+    private static final class PooledEntry {
+        private final Connection connection;
+        private long lastReturnedMillis = System.currentTimeMillis();
+
+        private PooledEntry(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    public record PoolStats(int maxConnections, int active, int idle, long created, long destroyed,
+                            long borrowed, long timeouts, long averageWaitMicros, long maxWaitMicros) {
+
+        @Override
+        public String toString() {
+            return String.format("PoolStats{max=%d, active=%d, idle=%d, created=%d, destroyed=%d, borrowed=%d, timeouts=%d, avgWait=%dus, maxWait=%dus}",
+                    maxConnections, active, idle, created, destroyed, borrowed, timeouts, averageWaitMicros, maxWaitMicros);
+        }
+    }
+}
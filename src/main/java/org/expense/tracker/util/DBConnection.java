@@ -3,70 +3,96 @@ package org.expense.tracker.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Properties;
 
 public class DBConnection {
 
     private static final Logger logger = LoggerFactory.getLogger(DBConnection.class);
-    private static Connection connection = null;
+    static final int DEFAULT_MAX_CONNECTIONS = 10;
+    private static final int DEFAULT_MIN_IDLE = 2;
+    private static final long DEFAULT_CONNECTION_TIMEOUT_MS = 30_000;
+
+    private static volatile ConnectionPool pool = null;
 
     private DBConnection() {
         // Private constructor to prevent instantiation
     }
 
+    /**
+     * Borrows a connection from the shared pool. Callers must close it (try-with-resources)
+     * to hand it back; closing does not tear down the physical connection.
+     */
     public static Connection getConnection() {
         try {
-            // Check if connection is null or closed
-            if (connection == null || connection.isClosed()) {
-                // Load environment variables
-                EnvConfig.load();
-                String dbUrl = EnvConfig.get("DB_URL");
-                String dbUser = EnvConfig.get("DB_USER");
-                String dbPassword = EnvConfig.get("DB_PASSWORD");
-
-                if (dbUrl == null || dbUser == null || dbPassword == null) {
-                    logger.error("Database connection properties (DB_URL, DB_USER, DB_PASSWORD) are not set in .env file.");
-                    throw new SQLException("Missing database configuration.");
-                }
-
-                // Register JDBC driver (optional for modern JDBC, but good practice)
-                Class.forName("com.mysql.cj.jdbc.Driver");
-
-                logger.info("Attempting to connect to database: {}", dbUrl);
-                connection = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
-                logger.info("Database connection established successfully.");
-            }
+            return getDataSource().getConnection();
         } catch (SQLException e) {
-            logger.error("Failed to connect to the database: {}", e.getMessage());
+            logger.error("Failed to obtain a database connection: {}", e.getMessage());
             e.printStackTrace();
-            connection = null; // Reset connection on failure
             throw new RuntimeException("Database connection failed", e);
-        } catch (ClassNotFoundException e) {
-            logger.error("MySQL JDBC Driver not found: {}", e.getMessage());
-            e.printStackTrace();
-            connection = null;
-            throw new RuntimeException("MySQL JDBC Driver not found", e);
-        } catch (Exception e) {
-            logger.error("An unexpected error occurred during database connection: {}", e.getMessage());
-            e.printStackTrace();
-            connection = null;
-            throw new RuntimeException("Unexpected error during database connection", e);
         }
-        return connection;
+    }
+
+    public static DataSource getDataSource() {
+        ConnectionPool current = pool;
+        if (current == null || current.isClosed()) {
+            synchronized (DBConnection.class) {
+                current = pool;
+                if (current == null || current.isClosed()) {
+                    current = createPool();
+                    pool = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    public static ConnectionPool.PoolStats getPoolStats() {
+        ConnectionPool current = pool;
+        return current != null ? current.getStats() : null;
     }
 
     public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-                connection = null;
-                logger.info("Database connection closed.");
-            } catch (SQLException e) {
-                logger.error("Failed to close the database connection: {}", e.getMessage());
-                e.printStackTrace();
+        synchronized (DBConnection.class) {
+            if (pool != null) {
+                pool.close();
+                pool = null;
+                logger.info("Database connection pool shut down.");
             }
         }
     }
+
+    private static ConnectionPool createPool() {
+        // Load environment variables
+        EnvConfig.load();
+        String dbUrl = EnvConfig.get("DB_URL");
+        String dbUser = EnvConfig.get("DB_USER");
+        String dbPassword = EnvConfig.get("DB_PASSWORD");
+
+        if (dbUrl == null || dbUser == null || dbPassword == null) {
+            logger.error("Database connection properties (DB_URL, DB_USER, DB_PASSWORD) are not set in .env file.");
+            throw new RuntimeException("Database connection failed", new SQLException("Missing database configuration."));
+        }
+
+        int maxConnections = EnvConfig.getInt("DB_MAX_CONNECTIONS", DEFAULT_MAX_CONNECTIONS);
+        int minIdle = EnvConfig.getInt("DB_MIN_IDLE", Math.min(DEFAULT_MIN_IDLE, maxConnections));
+        long timeoutMillis = EnvConfig.getInt("DB_CONNECTION_TIMEOUT_MS", (int) DEFAULT_CONNECTION_TIMEOUT_MS);
+
+        Properties properties = new Properties();
+        properties.setProperty("user", dbUser);
+        properties.setProperty("password", dbPassword);
+        // Lets the driver collapse JDBC batches into multi-row INSERT statements
+        properties.setProperty("rewriteBatchedStatements", "true");
+        // Statements that set a fetch size (the streaming reads in ExpenseDAO) read through a server-side
+        // cursor instead of buffering every row. This is a connection property, so it applies pool-wide, and
+        // the driver also turns on server-side prepared statements for every query on these connections.
+        properties.setProperty("useCursorFetch", "true");
+
+        logger.info("Initializing connection pool for {} (max {} connections).", dbUrl, maxConnections);
+        ConnectionPool newPool = new ConnectionPool(dbUrl, properties, maxConnections, timeoutMillis);
+        newPool.warmUp(minIdle);
+        return newPool;
+    }
 }
@@ -8,13 +8,13 @@ import org.slf4j.LoggerFactory;
 public class EnvConfig {
 
     private static final Logger logger = LoggerFactory.getLogger(EnvConfig.class);
-    private static Dotenv dotenv;
+    private static volatile Dotenv dotenv;
 
     private EnvConfig() {
         // Private constructor to prevent instantiation
     }
 
-    public static void load() {
+    public static synchronized void load() {
         if (dotenv == null) {
             try {
                 dotenv = Dotenv.configure()
@@ -37,4 +37,30 @@ public class EnvConfig {
         }
         return value;
     }
+
+    public static String get(String key, String defaultValue) {
+        if (dotenv == null) {
+            load();
+        }
+        String value = dotenv != null ? dotenv.get(key) : System.getenv(key);
+        return value != null && !value.trim().isEmpty() ? value.trim() : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Environment variable '{}' is not a valid integer ('{}'), using default {}.", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
 }
\ No newline at end of file
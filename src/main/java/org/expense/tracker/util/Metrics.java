@@ -0,0 +1,124 @@
+package org.expense.tracker.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide registry of {@link OperationMetrics}, optionally exposed over JMX and dumped to the log
+ * at a fixed interval.
+ * <p>
+ * Stores that swallow errors and return an empty result call {@link #markFailed()} in their error
+ * handlers, so callers timing the operation can tell a failure from an empty answer by comparing
+ * {@link #failureCount()} before and after the call.
+ */
+public final class Metrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+    private static final String JMX_DOMAIN = "org.expense.tracker";
+
+    private static final Map<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+    private static final ThreadLocal<long[]> failures = ThreadLocal.withInitial(() -> new long[1]);
+    private static volatile boolean jmxEnabled;
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+        // Private constructor to prevent instantiation
+    }
+
+    public static OperationMetrics operation(String name) {
+        OperationMetrics metrics = operations.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        OperationMetrics created = new OperationMetrics(name);
+        metrics = operations.putIfAbsent(name, created);
+        if (metrics != null) {
+            return metrics;
+        }
+        if (jmxEnabled) {
+            register(created);
+        }
+        return created;
+    }
+
+    /** All operations seen so far, ordered by name. */
+    public static Collection<OperationMetrics> operations() {
+        return operations.values();
+    }
+
+    public static void resetAll() {
+        operations.values().forEach(OperationMetrics::reset);
+    }
+
+    /** Notes that the current thread's operation failed even though it returned normally. */
+    public static void markFailed() {
+        failures.get()[0]++;
+    }
+
+    /** Number of failures marked on the current thread so far. */
+    public static long failureCount() {
+        return failures.get()[0];
+    }
+
+    /** Registers an MBean per operation, including operations created later. */
+    public static synchronized void enableJmx() {
+        if (jmxEnabled) {
+            return;
+        }
+        jmxEnabled = true;
+        operations.values().forEach(Metrics::register);
+        logger.info("Operation metrics exposed over JMX under {}:type=Operation.", JMX_DOMAIN);
+    }
+
+    /** Logs every operation's counters every {@code intervalSeconds} on a daemon thread. */
+    public static synchronized void startPeriodicLog(long intervalSeconds) {
+        if (reporter != null || intervalSeconds <= 0) {
+            return;
+        }
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(Metrics::logAll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void shutdown() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+            logAll();
+        }
+    }
+
+    private static void logAll() {
+        for (OperationMetrics metrics : operations.values()) {
+            if (metrics.getCalls() > 0) {
+                logger.info("Metrics: {}", metrics);
+            }
+        }
+    }
+
+    private static void register(OperationMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + ObjectName.quote(metrics.getName()));
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (JMException e) {
+            logger.warn("Could not register JMX bean for {}: {}", metrics.getName(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package org.expense.tracker.util;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Counters and a latency histogram for one named operation, such as {@code dao.findExpenses}.
+ * Obtain instances from {@link Metrics#operation(String)}.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    /** Records one call that started at {@code startNanos} (from {@link System#nanoTime()}). */
+    public void record(long startNanos, long rowCount, boolean failed) {
+        long elapsed = System.nanoTime() - startNanos;
+        calls.increment();
+        totalNanos.add(elapsed);
+        latency.record(elapsed);
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * Runs {@code call} and records it, with the row count {@code rows} derives from a non-null result.
+     * The call counts as an error if it throws or marks a failure through {@link Metrics#markFailed()}.
+     */
+    public <T> T time(Supplier<T> call, ToLongFunction<T> rows) {
+        long failuresBefore = Metrics.failureCount();
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = call.get();
+        } catch (RuntimeException | Error e) {
+            record(start, 0, true);
+            throw e;
+        }
+        record(start, result != null ? rows.applyAsLong(result) : 0, Metrics.failureCount() != failuresBefore);
+        return result;
+    }
+
+    public void time(Runnable call) {
+        time(() -> {
+            call.run();
+            return null;
+        }, result -> 0);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        long count = calls.sum();
+        return count == 0 ? 0 : totalNanos.sum() / (count * 1e6);
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtQuantile(0.50) / 1e6;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtQuantile(0.99) / 1e6;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMax() / 1e6;
+    }
+
+    @Override
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        rows.reset();
+        totalNanos.reset();
+        latency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s calls=%d errors=%d rows=%d p50=%.3fms p99=%.3fms max=%.3fms",
+                name, getCalls(), getErrors(), getRows(), getP50Millis(), getP99Millis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,26 @@
+package org.expense.tracker.util;
+
+/**
+ * JMX view of one instrumented operation, registered as
+ * {@code org.expense.tracker:type=Operation,name=<operation>}. Latencies are in milliseconds.
+ */
+public interface OperationMetricsMXBean {
+
+    String getName();
+
+    long getCalls();
+
+    long getErrors();
+
+    long getRows();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    void reset();
+}
@@ -0,0 +1,95 @@
+package org.expense.tracker.util;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Collects per-phase startup timings for {@code --startup-profile}. Phases may be recorded from any thread.
+ * When profiling is off, {@link #time(String, Supplier)} just runs the action and nothing is recorded.
+ */
+public final class StartupProfile {
+
+    private static final List<Phase> phases = new ArrayList<>();
+    private static volatile boolean enabled;
+    private static volatile long originNanos;
+    private static volatile long jvmToOriginMillis = -1;
+
+    private StartupProfile() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Starts profiling. Offsets are measured from this call; the time the JVM took to get here (class
+     * loading and logging setup) is recorded as the first phase when the OS reports the process start.
+     */
+    public static void enable() {
+        originNanos = System.nanoTime();
+        Optional<Instant> processStart = ProcessHandle.current().info().startInstant();
+        jvmToOriginMillis = processStart.map(start -> System.currentTimeMillis() - start.toEpochMilli()).orElse(-1L);
+        enabled = true;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static <T> T time(String phase, Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(phase, start, System.nanoTime());
+        }
+    }
+
+    public static void time(String phase, Runnable action) {
+        time(phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /** Records a point in time, such as the menu becoming visible. */
+    public static void mark(String event) {
+        if (enabled) {
+            long now = System.nanoTime();
+            record(event, now, now);
+        }
+    }
+
+    /** Prints every phase recorded so far, in the order they started. */
+    public static void print(PrintStream out) {
+        List<Phase> snapshot;
+        synchronized (phases) {
+            snapshot = new ArrayList<>(phases);
+        }
+        snapshot.sort((a, b) -> Long.compare(a.startMicros(), b.startMicros()));
+        out.println("\n⏱️  === STARTUP PROFILE ===");
+        if (jvmToOriginMillis >= 0) {
+            out.printf("%-36s %10s %9d ms  %s%n", "jvm start to main (incl. logging)", "", jvmToOriginMillis, "main");
+        }
+        for (Phase phase : snapshot) {
+            out.printf("%-36s %+7.1f ms %9.1f ms  %s%n", phase.name(), phase.startMicros() / 1000.0,
+                    phase.durationMicros() / 1000.0, phase.thread());
+        }
+        out.println("(offsets are from main; the duration column is how long each phase took)");
+    }
+
+    private static void record(String name, long startNanos, long endNanos) {
+        Phase phase = new Phase(name, Thread.currentThread().getName(),
+                (startNanos - originNanos) / 1000, (endNanos - startNanos) / 1000);
+        synchronized (phases) {
+            phases.add(phase);
+        }
+    }
+
+    public record Phase(String name, String thread, long startMicros, long durationMicros) {
+    }
+}
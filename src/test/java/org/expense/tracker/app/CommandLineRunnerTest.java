@@ -0,0 +1,208 @@
+package org.expense.tracker.app;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.MeteredExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.service.DuplicateIndex;
+import org.expense.tracker.service.ExpenseService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CommandLineRunnerTest {
+
+    @TempDir
+    Path dataDir;
+
+    private ExpenseService service;
+
+    @BeforeEach
+    public void createService() {
+        service = new ExpenseService(new EmbeddedExpenseRepository(dataDir.resolve("log"), false, 100));
+    }
+
+    @AfterEach
+    public void shutdownService() {
+        service.shutdown();
+    }
+
+    @Test
+    public void tokenizesQuotedArguments() {
+        assertEquals(List.of("add", "--description", "lunch with \"Sam\"", "--category=Food"),
+                CommandLineRunner.tokenize("add --description 'lunch with \"Sam\"'  --category=Food"));
+        assertEquals(List.of("a b", "c"), CommandLineRunner.tokenize("a\\ b \"c\""));
+        assertThrows(IllegalArgumentException.class, () -> CommandLineRunner.tokenize("add --category \"Food"));
+        assertEquals("x\\ty\t\tz\\\\", CommandLineRunner.row("x\ty", null, "z\\"));
+    }
+
+    @Test
+    public void runsScriptWithBatchedAdds() throws IOException {
+        Path script = dataDir.resolve("commands.txt");
+        Files.write(script, List.of(
+                "# nightly import",
+                "add --date 2024-01-05 --category Food --amount 12.50 --description \"tea\tand cake\"",
+                "add --date 2024-02-01 --category Rent --amount 900",
+                "add --date 2024-02-03 --category Food --amount -1",
+                "filter --category food",
+                "report --from 2024-02-01",
+                "bogus"));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int exitCode = new CommandLineRunner(service, new PrintStream(buffer, true, StandardCharsets.UTF_8)).run(new String[]{"--script", script.toString()});
+
+        assertEquals(CommandLineRunner.EXIT_FAILED, exitCode);
+        assertEquals(List.of(
+                "added\t1",
+                "added\t2",
+                "expense\t1\t2024-01-05\tFood\ttea\\tand cake\t12.50",
+                "total\t900.00\t1",
+                "category\tRent\t900.00",
+                "month\t2024-02\t900.00",
+                "quantile_error\t0.015625",
+                "quantiles\tall\t\t1\t900.00\t900.00\t900.00\t900.00",
+                "quantiles\tcategory\tRent\t1\t900.00\t900.00\t900.00\t900.00",
+                "quantiles\tmonth\t2024-02\t1\t900.00\t900.00\t900.00\t900.00"), buffer.toString(StandardCharsets.UTF_8).lines().toList());
+        assertEquals(2, service.getAllExpenses().size());
+    }
+
+    @Test
+    public void skipsStoredDuplicatesWhenScriptRunsAgain() throws IOException {
+        Path script = dataDir.resolve("import.txt");
+        Files.write(script, List.of(
+                "add --date 2024-01-15 --category Food --amount 25.50 --description \"Lunch at restaurant\"",
+                "add --date 2024-01-15 --category Food --amount 25.50 --description \"Lunch at restaurant\"",
+                "add --date 2024-01-19 --category Utilities --amount 120 --description \"Electricity bill\""));
+        service.setDuplicatePolicy(DuplicateIndex.Policy.SKIP);
+        String[] args = {"--script", script.toString()};
+
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        assertEquals(CommandLineRunner.EXIT_OK, new CommandLineRunner(service, new PrintStream(first, true, StandardCharsets.UTF_8)).run(args));
+        assertEquals(List.of("added\t1", "added\t2", "added\t3"), first.toString(StandardCharsets.UTF_8).lines().toList());
+
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        assertEquals(CommandLineRunner.EXIT_OK, new CommandLineRunner(service, new PrintStream(second, true, StandardCharsets.UTF_8)).run(args));
+        assertEquals(List.of("skipped\t1", "skipped\t2", "skipped\t3"), second.toString(StandardCharsets.UTF_8).lines().toList());
+        assertEquals(3, service.getAllExpenses().size());
+
+        ByteArrayOutputStream duplicates = new ByteArrayOutputStream();
+        new CommandLineRunner(service, new PrintStream(duplicates, true, StandardCharsets.UTF_8)).run(new String[]{"duplicates"});
+        assertEquals(List.of("duplicates\t2\t1,2\t2024-01-15\tFood\tLunch at restaurant\t25.50"),
+                duplicates.toString(StandardCharsets.UTF_8).lines().toList());
+    }
+
+    @Test
+    public void reportsFailedAddsThatHaveAStoredDuplicateAsErrors() throws IOException {
+        EmbeddedExpenseRepository repository = new EmbeddedExpenseRepository(dataDir.resolve("failing"), false, 100);
+        // Inserts that the repository logs and swallows, leaving the IDs unset
+        ExpenseService failing = new ExpenseService(new MeteredExpenseRepository(repository) {
+            @Override
+            public int addExpenses(List<Expense> expenses) {
+                return 0;
+            }
+        });
+        try {
+            repository.addExpense(new Expense(LocalDate.of(2024, 1, 15), "Food", "Lunch", new BigDecimal("25.50")));
+            failing.setDuplicatePolicy(DuplicateIndex.Policy.SKIP);
+            Path script = dataDir.resolve("import.txt");
+            Files.write(script, List.of(
+                    "add --date 2024-01-15 --category Food --amount 25.50 --description Lunch",
+                    "add --date 2024-01-15 --category Food --amount 25.50 --description Lunch"));
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            int exitCode = new CommandLineRunner(failing, new PrintStream(buffer, true, StandardCharsets.UTF_8)).run(new String[]{"--script", script.toString()});
+
+            // The first line repeats the stored row, the second is a new copy whose insert failed
+            assertEquals(CommandLineRunner.EXIT_FAILED, exitCode);
+            assertEquals(List.of("skipped\t1"), buffer.toString(StandardCharsets.UTF_8).lines().toList());
+        } finally {
+            failing.shutdown();
+        }
+    }
+
+    @Test
+    public void failsCommandsWithPartialOutputAndKeepsRunningTheScript() throws IOException {
+        EmbeddedExpenseRepository repository = new EmbeddedExpenseRepository(dataDir.resolve("failing"), false, 100);
+        // Reads that the repository logs and swallows after the first row, and a count that cannot run
+        ExpenseService failing = new ExpenseService(new MeteredExpenseRepository(repository) {
+            @Override
+            public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+                return getDelegate().streamExpenses(query.copy().limit(1), consumer);
+            }
+
+            @Override
+            public long countExpenses() {
+                throw new IllegalStateException("Could not count expenses");
+            }
+        });
+        try {
+            Path script = dataDir.resolve("partial.txt");
+            Files.write(script, List.of(
+                    "add --date 2024-01-05 --category Food --amount 12.50",
+                    "add --date 2024-01-06 --category Food --amount 8",
+                    "filter --category food",
+                    "list",
+                    "add --date 2024-01-07 --category Rent --amount 900"));
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            int exitCode = new CommandLineRunner(failing, new PrintStream(buffer, true, StandardCharsets.UTF_8)).run(new String[]{"--script", script.toString()});
+
+            assertEquals(CommandLineRunner.EXIT_FAILED, exitCode);
+            assertEquals(List.of(
+                    "added\t1",
+                    "added\t2",
+                    "expense\t2\t2024-01-06\tFood\t\t8.00",
+                    "expense\t2\t2024-01-06\tFood\t\t8.00",
+                    "added\t3"), buffer.toString(StandardCharsets.UTF_8).lines().toList());
+        } finally {
+            failing.shutdown();
+        }
+    }
+
+    @Test
+    public void printsTopSpendersKeptCurrentByWrites() throws IOException {
+        Path script = dataDir.resolve("payees.txt");
+        Files.write(script, List.of(
+                "add --date 2024-03-01 --category Food --amount 4.50 --description Coffee",
+                "add --date 2024-03-02 --category food --amount 4.50 --description \"  coffee \"",
+                "add --date 2024-03-03 --category Food --amount 4.75 --description Coffee",
+                "add --date 2024-03-04 --category Rent --amount 900 --description \"March rent\"",
+                "top --limit 1",
+                "add --date 2024-03-05 --category Fun --amount 15 --description Cinema",
+                "top --limit 0"));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        int exitCode = new CommandLineRunner(service, new PrintStream(buffer, true, StandardCharsets.UTF_8)).run(new String[]{"--script", script.toString()});
+
+        assertEquals(CommandLineRunner.EXIT_FAILED, exitCode);
+        service.deleteExpense(4);
+        new CommandLineRunner(service, new PrintStream(buffer, true, StandardCharsets.UTF_8)).run(new String[]{"top", "--limit", "2"});
+        assertEquals(List.of(
+                "added\t1", "added\t2", "added\t3", "added\t4",
+                "top\tdescription_count\tCoffee\t3\t0",
+                "top\tdescription_amount\tMarch rent\t900.00\t0.00",
+                "top\tcategory_count\tFood\t3\t0",
+                "top\tcategory_amount\tRent\t900.00\t0.00",
+                "added\t5",
+                "top\tdescription_count\tCoffee\t3\t0",
+                "top\tdescription_count\tCinema\t1\t0",
+                "top\tdescription_amount\tCinema\t15.00\t0.00",
+                "top\tdescription_amount\tCoffee\t13.75\t0.00",
+                "top\tcategory_count\tFood\t3\t0",
+                "top\tcategory_count\tFun\t1\t0",
+                "top\tcategory_amount\tFun\t15.00\t0.00",
+                "top\tcategory_amount\tFood\t13.75\t0.00"), buffer.toString(StandardCharsets.UTF_8).lines().toList());
+    }
+}
@@ -0,0 +1,96 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.Money;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DailyRollupTest {
+
+    /** A connection that records the parameters of every batched statement, keyed by the statement's verb. */
+    private static Connection recording(Map<String, List<List<Object>>> batches) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("prepareStatement")) {
+                        throw new SQLFeatureNotSupportedException(method.getName());
+                    }
+                    List<List<Object>> batch = batches.computeIfAbsent(((String) args[0]).split(" ")[0], verb -> new ArrayList<>());
+                    List<Object> row = new ArrayList<>();
+                    return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                            (statement, call, values) -> switch (call.getName()) {
+                                case "setDate", "setString", "setLong", "setBigDecimal" -> {
+                                    row.add(values[1]);
+                                    yield null;
+                                }
+                                case "addBatch" -> {
+                                    batch.add(new ArrayList<>(row));
+                                    row.clear();
+                                    yield null;
+                                }
+                                case "executeBatch" -> new int[batch.size()];
+                                case "close" -> null;
+                                default -> throw new SQLFeatureNotSupportedException(call.getName());
+                            });
+                });
+    }
+
+    private static Expense expense(String date, String category, long cents) {
+        return new Expense(LocalDate.parse(date), category, null, Money.toBigDecimal(cents));
+    }
+
+    private static List<Object> bucket(String date, String category, long count, long cents) {
+        return List.of(Date.valueOf(date), category, count, Money.toBigDecimal(cents));
+    }
+
+    @Test
+    public void flushWritesOneUpsertPerBucketAndDropsEmptiedOnes() throws SQLException {
+        DailyRollup rollup = new DailyRollup();
+        rollup.add(expense("2024-05-01", "Food", 450));
+        rollup.add(expense("2024-05-01", "Food", 300));
+        // An update that moves an expense to another category
+        Expense rent = expense("2024-05-02", "Rent", 90_000);
+        rollup.subtract(rent);
+        rollup.add(expense("2024-05-02", "Fun", 90_000));
+        // Added and deleted in the same transaction, so nothing to write
+        rollup.add(expense("2024-05-03", "Food", 125));
+        rollup.subtract(expense("2024-05-03", "Food", 125));
+
+        Map<String, List<List<Object>>> batches = new LinkedHashMap<>();
+        rollup.flush(recording(batches));
+        assertEquals(List.of(bucket("2024-05-01", "Food", 2, 750), bucket("2024-05-02", "Rent", -1, -90_000),
+                bucket("2024-05-02", "Fun", 1, 90_000)), batches.get("INSERT"));
+        assertEquals(List.of(List.of(Date.valueOf("2024-05-02"), "Rent")), batches.get("DELETE"));
+        assertTrue(rollup.isEmpty());
+
+        batches.clear();
+        rollup.flush(recording(batches));
+        rollup.add(expense("2024-05-04", "Food", 100));
+        rollup.flush(recording(batches));
+        // Only increments, so no bucket can have emptied
+        assertEquals(List.of("INSERT"), new ArrayList<>(batches.keySet()));
+        assertEquals(List.of(bucket("2024-05-04", "Food", 1, 100)), batches.get("INSERT"));
+    }
+
+    @Test
+    public void onlyQueriesWithoutAmountFiltersUseTheRollup() {
+        assertTrue(DailyRollup.canAnswer(ExpenseQuery.all().category("Food").between(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31))));
+        assertFalse(DailyRollup.canAnswer(ExpenseQuery.all().minAmount(new BigDecimal("10.00"))));
+        assertFalse(DailyRollup.canAnswer(ExpenseQuery.all().maxAmount(new BigDecimal("10.00"))));
+    }
+}
@@ -0,0 +1,142 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.ExpenseSummary;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmbeddedExpenseRepositoryTest {
+
+    @TempDir
+    Path dataDir;
+
+    private EmbeddedExpenseRepository open() {
+        return new EmbeddedExpenseRepository(dataDir, true, 2);
+    }
+
+    private static Expense expense(String date, String category, String amount) {
+        return new Expense(LocalDate.parse(date), category, category + " on " + date, new BigDecimal(amount));
+    }
+
+    @Test
+    public void writesSurviveReopen() {
+        EmbeddedExpenseRepository repository = open();
+        Expense lunch = expense("2024-03-01", "Food", "12.50");
+        repository.addExpense(lunch);
+        repository.addExpenses(List.of(expense("2024-03-02", "Rent", "900.00"), expense("2024-03-03", "Fun", "40.00")));
+        lunch.setAmount(new BigDecimal("13.75"));
+        assertTrue(repository.updateExpense(lunch));
+        assertTrue(repository.deleteExpense(3));
+        assertFalse(repository.deleteExpense(3));
+        repository.close();
+
+        EmbeddedExpenseRepository reopened = open();
+        assertEquals(2, reopened.countExpenses());
+        assertEquals(new BigDecimal("13.75"), reopened.getExpenseById(1).getAmount());
+        assertNull(reopened.getExpenseById(3));
+        Expense next = expense("2024-03-04", "Food", "5.00");
+        reopened.addExpense(next);
+        assertEquals(4, next.getId());
+        reopened.close();
+    }
+
+    @Test
+    public void tornTailIsCutOffOnRecovery() throws IOException {
+        EmbeddedExpenseRepository repository = open();
+        repository.addExpenses(List.of(expense("2024-01-01", "Food", "1.00"), expense("2024-01-02", "Food", "2.00")));
+        repository.close();
+        // A record header promising more bytes than were written, as left by a crash mid-append
+        Files.write(dataDir.resolve(EmbeddedExpenseRepository.LOG_FILE_NAME), new byte[]{0, 0, 0, 60, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        EmbeddedExpenseRepository recovered = open();
+        assertEquals(2, recovered.countExpenses());
+        assertEquals(7, recovered.getStats().droppedBytes());
+        recovered.addExpense(expense("2024-01-03", "Food", "3.00"));
+        recovered.close();
+
+        EmbeddedExpenseRepository again = open();
+        assertEquals(3, again.countExpenses());
+        assertEquals(0, again.getStats().droppedBytes());
+        again.close();
+    }
+
+    @Test
+    public void compactionKeepsLiveRecordsAndNeverReusesIds() {
+        EmbeddedExpenseRepository repository = open();
+        List<Expense> expenses = new ArrayList<>();
+        for (int day = 1; day <= 28; day++) {
+            expenses.add(expense(String.format("2024-02-%02d", day), day % 2 == 0 ? "Food" : "Transport", day + ".25"));
+        }
+        repository.addExpenses(expenses);
+        List<Integer> doomed = new ArrayList<>();
+        for (int id = 3; id <= 28; id++) {
+            doomed.add(id);
+        }
+        assertEquals(26, repository.deleteExpenses(doomed));
+        assertTrue(repository.compact() > 0);
+        repository.close();
+
+        EmbeddedExpenseRepository reopened = open();
+        assertEquals(2, reopened.countExpenses());
+        assertEquals(reopened.getStats().liveBytes() + 8 + 21, reopened.getStats().logBytes());
+        Expense next = expense("2024-03-01", "Food", "1.00");
+        reopened.addExpense(next);
+        assertEquals(29, next.getId());
+        reopened.close();
+    }
+
+    @Test
+    public void queriesUseDateCategoryAndAmountFilters() {
+        EmbeddedExpenseRepository repository = open();
+        repository.addExpenses(List.of(
+                expense("2024-01-10", "Food", "10.00"),
+                expense("2024-01-20", "food", "20.00"),
+                expense("2024-02-05", "Rent", "900.00"),
+                expense("2024-02-06", "Food", "30.00"),
+                expense("2024-03-01", "Food", "40.00")));
+
+        ExpenseQuery food = ExpenseQuery.all().category("FOOD").between(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 1));
+        assertEquals(List.of(5, 4, 2), ids(repository.findExpenses(food)));
+        assertEquals(List.of(2, 4, 5), ids(repository.findExpenses(food.sortBy(ExpenseQuery.SortOrder.DATE_ASC))));
+        assertEquals(List.of(4), ids(repository.findExpenses(ExpenseQuery.all().minAmount(new BigDecimal("20.001")).maxAmount(new BigDecimal("39.999")))));
+        assertEquals(List.of(3, 5), ids(repository.findExpenses(ExpenseQuery.all().sortBy(ExpenseQuery.SortOrder.AMOUNT_DESC).limit(2))));
+
+        assertEquals(new ExpenseSummary(4, 10_000), repository.getSummary(ExpenseQuery.all().category("food")));
+        Map<String, ExpenseSummary> categories = repository.getCategorySummaries(ExpenseQuery.all());
+        assertEquals(List.of("Food", "Rent"), new ArrayList<>(categories.keySet()));
+        assertEquals(new ExpenseSummary(4, 10_000), categories.get("Food"));
+        Map<String, ExpenseSummary> months = repository.getMonthlySummaries(ExpenseQuery.all());
+        assertEquals(List.of("2024-01", "2024-02", "2024-03"), new ArrayList<>(months.keySet()));
+        assertEquals(new ExpenseSummary(2, 93_000), months.get("2024-02"));
+
+        ExpensePage first = repository.getExpensePage(ExpenseQuery.all(), null, ExpensePage.Direction.NEXT, 2);
+        assertEquals(List.of(5, 4), ids(first.getExpenses()));
+        ExpensePage second = repository.getExpensePage(ExpenseQuery.all(), first.getLastCursor(), ExpensePage.Direction.NEXT, 2);
+        assertEquals(List.of(3, 2), ids(second.getExpenses()));
+        assertTrue(second.hasNext());
+        ExpensePage back = repository.getExpensePage(ExpenseQuery.all(), second.getFirstCursor(), ExpensePage.Direction.PREVIOUS, 2);
+        assertEquals(List.of(5, 4), ids(back.getExpenses()));
+        assertFalse(back.hasPrevious());
+        repository.close();
+    }
+
+    private static List<Integer> ids(List<Expense> expenses) {
+        return expenses.stream().map(Expense::getId).toList();
+    }
+}
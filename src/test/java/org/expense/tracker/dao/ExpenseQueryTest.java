@@ -0,0 +1,48 @@
+package org.expense.tracker.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ExpenseQueryTest {
+
+    @Test
+    public void emptyQueryHasNoWhereClause() {
+        List<Object> params = new ArrayList<>();
+        assertEquals("", ExpenseQuery.all().toWhereClause(params));
+        assertEquals(0, params.size());
+        assertEquals(" ORDER BY date DESC, id DESC", ExpenseQuery.all().toOrderByClause());
+    }
+
+    @Test
+    public void combinesAllCriteriaInOrder() {
+        List<Object> params = new ArrayList<>();
+        ExpenseQuery query = ExpenseQuery.all()
+                .between(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 1, 31))
+                .category("  Food ")
+                .minAmount(new BigDecimal("10.00"))
+                .maxAmount(new BigDecimal("50.00"))
+                .sortBy(ExpenseQuery.SortOrder.AMOUNT_ASC)
+                .limit(5);
+
+        assertEquals(" WHERE date >= ? AND date <= ? AND category = ? AND amount >= ? AND amount <= ?",
+                query.toWhereClause(params));
+        assertEquals(List.of(Date.valueOf("2024-01-01"), Date.valueOf("2024-01-31"), "Food",
+                new BigDecimal("10.00"), new BigDecimal("50.00")), params);
+        assertEquals(" ORDER BY amount ASC, id ASC", query.toOrderByClause());
+        assertEquals(" LIMIT 5", query.toLimitClause());
+    }
+
+    @Test
+    public void blankCategoryIsIgnored() {
+        List<Object> params = new ArrayList<>();
+        assertEquals(" WHERE amount <= ?", ExpenseQuery.all().category("   ").maxAmount(BigDecimal.TEN).toWhereClause(params));
+        assertEquals(1, params.size());
+    }
+}
@@ -0,0 +1,114 @@
+package org.expense.tracker.dao;
+
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExpenseSnapshotTest {
+
+    private static final String[] CATEGORIES = {"Food", "food", "Transport", "Rent", "Fun"};
+
+    @TempDir
+    Path dataDir;
+
+    private EmbeddedExpenseRepository source;
+
+    @BeforeEach
+    public void createSource() {
+        source = new EmbeddedExpenseRepository(dataDir.resolve("log"), false, 500);
+        Random random = new Random(12);
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            expenses.add(new Expense(LocalDate.of(2023, 1, 1).plusDays(random.nextInt(500)), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    i % 7 == 0 ? null : "item " + i, Money.toBigDecimal(1 + random.nextInt(20_000))));
+        }
+        source.addExpenses(expenses);
+    }
+
+    @AfterEach
+    public void closeSource() {
+        source.close();
+    }
+
+    @Test
+    public void snapshotAnswersQueriesLikeItsSource() throws IOException {
+        Path path = dataDir.resolve("expenses.snapshot");
+        assertEquals(3000, ExpenseSnapshot.write(path, source));
+        ExpenseSnapshot snapshot = ExpenseSnapshot.open(path);
+        assertEquals(3000, snapshot.size());
+
+        List<ExpenseQuery> queries = List.of(
+                ExpenseQuery.all(),
+                ExpenseQuery.all().category("FOOD").from(LocalDate.of(2023, 3, 1)),
+                ExpenseQuery.all().to(LocalDate.of(2023, 6, 30)).minAmount(new BigDecimal("50.005")),
+                ExpenseQuery.all().between(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 2, 28)).sortBy(ExpenseQuery.SortOrder.DATE_ASC).limit(5),
+                ExpenseQuery.all().category("rent").sortBy(ExpenseQuery.SortOrder.AMOUNT_DESC).limit(10),
+                ExpenseQuery.all().category("Travel"));
+        for (ExpenseQuery query : queries) {
+            assertEquals(source.findExpenses(query), snapshot.find(query), query.toString());
+            assertEquals(source.getSummary(query), snapshot.summary(query), query.toString());
+            assertEquals(source.getCategorySummaries(query), snapshot.categorySummaries(query), query.toString());
+            assertEquals(source.getMonthlySummaries(query), snapshot.monthlySummaries(query), query.toString());
+        }
+
+        ExpenseQuery query = ExpenseQuery.all().category("food");
+        ExpensePage expected = source.getExpensePage(query, null, ExpensePage.Direction.NEXT, 25);
+        ExpensePage actual = snapshot.page(query, null, ExpensePage.Direction.NEXT, 25);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(expected.getExpenses(), actual.getExpenses());
+            expected = source.getExpensePage(query, expected.getLastCursor(), ExpensePage.Direction.NEXT, 25);
+            actual = snapshot.page(query, actual.getLastCursor(), ExpensePage.Direction.NEXT, 25);
+        }
+        expected = source.getExpensePage(query, expected.getFirstCursor(), ExpensePage.Direction.PREVIOUS, 25);
+        actual = snapshot.page(query, actual.getFirstCursor(), ExpensePage.Direction.PREVIOUS, 25);
+        assertEquals(expected.getExpenses(), actual.getExpenses());
+        assertEquals(expected.hasPrevious(), actual.hasPrevious());
+    }
+
+    @Test
+    public void writesRetireTheSnapshot() {
+        Path path = dataDir.resolve("expenses.snapshot");
+        SnapshotExpenseRepository first = new SnapshotExpenseRepository(source, path, false);
+        assertFalse(first.getStats().serving());
+        assertEquals(3000, first.saveSnapshot());
+
+        SnapshotExpenseRepository second = new SnapshotExpenseRepository(source, path, false);
+        assertEquals(3000, second.getStats().rows());
+        second.addExpense(new Expense(LocalDate.of(2024, 1, 1), "Food", "new", new BigDecimal("1.00")));
+        assertFalse(second.getStats().serving());
+        assertEquals(3001, second.getAllExpenses().size());
+        assertTrue(Files.exists(path));
+    }
+
+    @Test
+    public void commandLineStorageNeverReadsTheSnapshot() {
+        new SnapshotExpenseRepository(source, dataDir.resolve("expenses.snapshot"), false).saveSnapshot();
+        // Another client changes the data after the snapshot was saved
+        source.deleteExpenses(List.of(1, 2, 3));
+
+        ExpenseRepository commandLine = ExpenseRepository.decorate(source, false);
+        assertNull(commandLine.unwrap(SnapshotExpenseRepository.class));
+        assertSame(source, commandLine.unwrap(EmbeddedExpenseRepository.class));
+        assertEquals(2997, commandLine.countExpenses());
+        assertEquals(2997, commandLine.getAllExpenses().size());
+    }
+}
@@ -0,0 +1,49 @@
+package org.expense.tracker.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MoneyTest {
+
+    @Test
+    public void convertsBetweenCentsAndBigDecimal() {
+        assertEquals(2550L, Money.toCents(new BigDecimal("25.50")));
+        assertEquals(2550L, Money.toCents(new BigDecimal("25.5")));
+        assertEquals(1235L, Money.toCents(new BigDecimal("12.345")));
+        assertEquals(0L, Money.toCents(null));
+        assertEquals(new BigDecimal("-0.05"), Money.toBigDecimal(-5));
+        assertEquals("1234.05", Money.format(123405));
+        assertEquals("-0.50", Money.format(-50));
+    }
+
+    @Test
+    public void averageMatchesBigDecimalHalfUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long total = random.nextInt(2_000_000) - 1_000_000;
+            long count = 1 + random.nextInt(999);
+            BigDecimal expected = Money.toBigDecimal(total).divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
+            assertEquals(expected, Money.toBigDecimal(Money.averageCents(total, count)), total + "/" + count);
+        }
+        assertEquals(0L, Money.averageCents(100, 0));
+    }
+
+    @Test
+    public void centSumsMatchBigDecimalSums() {
+        Random random = new Random(7);
+        BigDecimal expected = BigDecimal.ZERO;
+        long cents = 0;
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextInt(99_999_999) + 1, 2);
+            expected = expected.add(amount);
+            cents += Money.toCents(amount);
+        }
+        assertEquals(expected, Money.toBigDecimal(cents));
+        assertEquals(Money.toCents(expected), new ExpenseSummary(100_000, expected).getTotalCents());
+    }
+}
@@ -0,0 +1,108 @@
+package org.expense.tracker.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AmountSketchTest {
+
+    private static long exact(long[] sorted, double quantile) {
+        return sorted[(int) Math.max(1, Math.ceil(quantile * sorted.length)) - 1];
+    }
+
+    private static void assertWithinError(long[] values, AmountSketch sketch) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double quantile : new double[]{0.01, 0.5, 0.9, 0.99, 1.0}) {
+            long exact = exact(sorted, quantile);
+            long estimate = sketch.quantile(quantile);
+            assertTrue(estimate >= exact && estimate <= exact + (long) (exact * AmountSketch.RELATIVE_ERROR),
+                    quantile + ": " + estimate + " vs " + exact);
+        }
+        assertEquals(sorted.length, sketch.count());
+        assertEquals(sorted[sorted.length - 1], sketch.max());
+    }
+
+    @Test
+    public void quantilesStayWithinRelativeError() {
+        Random random = new Random(17);
+        long[] values = new long[100_000];
+        AmountSketch sketch = new AmountSketch();
+        for (int i = 0; i < values.length; i++) {
+            // Heavy-tailed, from a few cents to about a million
+            values[i] = 1 + (long) Math.exp(random.nextDouble() * 18.4);
+            sketch.add(values[i]);
+        }
+        assertWithinError(values, sketch);
+        assertEquals(AmountSketch.RELATIVE_ERROR, sketch.toDistribution().getRelativeError());
+        assertEquals(0, new AmountSketch().quantile(0.5));
+
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = AmountSketch.bucketOf(value);
+            assertTrue(value <= AmountSketch.upperEdge(bucket));
+            assertTrue(bucket == 0 || value > AmountSketch.upperEdge(bucket - 1));
+        }
+    }
+
+    @Test
+    public void mergedSketchesMatchOneSketchOverAllValues() {
+        Random random = new Random(23);
+        long[] values = new long[30_000];
+        AmountSketch[] parts = {new AmountSketch(), new AmountSketch(), new AmountSketch()};
+        AmountSketch whole = new AmountSketch();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 50 + random.nextInt(250_000);
+            parts[i % parts.length].add(values[i]);
+            whole.add(values[i]);
+        }
+        AmountSketch merged = new AmountSketch();
+        for (AmountSketch part : parts) {
+            merged.merge(part);
+        }
+        assertEquals(whole.toDistribution(), merged.toDistribution());
+        assertWithinError(values, merged);
+    }
+
+    @Test
+    public void removalsKeepQuantilesExact() {
+        AmountSketch sketch = new AmountSketch();
+        long[] values = {2550, 2550, 3000, 12000, 999_999};
+        for (long value : values) {
+            sketch.add(value);
+        }
+        sketch.remove(2550);
+        assertWithinError(new long[]{2550, 3000, 12000, 999_999}, sketch);
+        assertTrue(sketch.isMaxExact());
+
+        sketch.remove(999_999);
+        assertFalse(sketch.isMaxExact());
+        assertTrue(sketch.max() >= 12000 && sketch.max() <= 12000 + 12000 / 64);
+        assertThrows(IllegalArgumentException.class, () -> sketch.remove(77));
+
+        sketch.remove(2550);
+        sketch.remove(3000);
+        sketch.remove(12000);
+        assertEquals(0, sketch.count());
+        assertTrue(sketch.isMaxExact());
+        assertEquals(0, sketch.max());
+
+        // An inexact maximum follows later removals down instead of staying above every remaining amount
+        for (long value : new long[]{5000, 10000, 10050}) {
+            sketch.add(value);
+        }
+        sketch.remove(10050);
+        sketch.remove(10000);
+        assertTrue(sketch.max() >= 5000 && sketch.max() <= 5000 + 5000 / 64, String.valueOf(sketch.max()));
+        assertEquals(sketch.max(), sketch.quantile(1.0));
+        sketch.remove(5000);
+        assertTrue(sketch.isMaxExact());
+        assertEquals(0, sketch.max());
+    }
+}
@@ -0,0 +1,130 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.MeteredExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnarDumpTest {
+
+    private static final String[] CATEGORIES = {"Food", "food", "Transport", "Rent", "Café"};
+
+    @TempDir
+    Path dataDir;
+
+    private EmbeddedExpenseRepository source;
+
+    @BeforeEach
+    public void createSource() {
+        source = new EmbeddedExpenseRepository(dataDir.resolve("source"), false, 1000);
+        Random random = new Random(7);
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < ColumnarDump.GROUP_ROWS + 500; i++) {
+            expenses.add(new Expense(LocalDate.of(2022, 1, 1).plusDays(random.nextInt(900)), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    i % 9 == 0 ? null : "item " + i, Money.toBigDecimal(1 + random.nextInt(1_000_000))));
+        }
+        source.addExpenses(expenses);
+        source.deleteExpenses(List.of(3, 50, 51, 52));
+    }
+
+    @AfterEach
+    public void closeSource() {
+        source.close();
+    }
+
+    @Test
+    public void restoredLedgerDumpsToTheSameBytes() throws IOException {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        long rows = ColumnarDump.dump(source, first);
+        assertEquals(source.countExpenses(), rows);
+
+        EmbeddedExpenseRepository target = new EmbeddedExpenseRepository(dataDir.resolve("target"), false, 1000);
+        try {
+            ColumnarDump.restore(new ByteArrayInputStream(first.toByteArray()), target::restoreExpenses);
+            assertEquals(source.findExpenses(ExpenseQuery.all()), target.findExpenses(ExpenseQuery.all()));
+            assertEquals(source.getExpenseById(53), target.getExpenseById(53));
+
+            ByteArrayOutputStream second = new ByteArrayOutputStream();
+            ColumnarDump.dump(target, second);
+            assertTrue(Arrays.equals(first.toByteArray(), second.toByteArray()));
+        } finally {
+            target.close();
+        }
+    }
+
+    @Test
+    public void damagedDumpIsRejected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarDump.dump(source, out);
+        byte[] bytes = out.toByteArray();
+        bytes[bytes.length / 2] ^= 0x01;
+        assertThrows(IOException.class, () -> ColumnarDump.restore(new ByteArrayInputStream(bytes), group -> { }));
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() - 4);
+        assertThrows(IOException.class, () -> ColumnarDump.restore(new ByteArrayInputStream(truncated), group -> { }));
+    }
+
+    @Test
+    public void shortStreamOrShortInsertFailsTheBackup() throws IOException {
+        // Repositories log a read error and end the stream early; the dump must not look complete
+        MeteredExpenseRepository shortStream = new MeteredExpenseRepository(source) {
+            @Override
+            public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+                List<Expense> rows = getDelegate().findExpenses(query.copy().limit(1000));
+                rows.forEach(consumer);
+                return rows.size();
+            }
+        };
+        assertThrows(IOException.class, () -> ColumnarDump.dump(shortStream, new ByteArrayOutputStream()));
+        Path exportDir = dataDir.resolve("export");
+        ExpenseService dumping = new ExpenseService(shortStream, exportDir);
+        assertEquals(-1, dumping.dumpExpenses("partial"));
+        assertFalse(Files.exists(exportDir.resolve("partial" + ColumnarDump.FILE_EXTENSION)));
+
+        Path dumpFile = dataDir.resolve("full" + ColumnarDump.FILE_EXTENSION);
+        try (OutputStream out = Files.newOutputStream(dumpFile)) {
+            ColumnarDump.dump(source, out);
+        }
+        EmbeddedExpenseRepository target = new EmbeddedExpenseRepository(dataDir.resolve("target"), false, 1000);
+        try {
+            // Inserts half of each group and reports the short count, as the DAO does after a failed batch
+            List<Integer> groupsOffered = new ArrayList<>();
+            MeteredExpenseRepository shortInsert = new MeteredExpenseRepository(target) {
+                @Override
+                public int restoreExpenses(List<Expense> expenses) {
+                    groupsOffered.add(expenses.size());
+                    return getDelegate().restoreExpenses(expenses.subList(0, expenses.size() / 2));
+                }
+            };
+            ExpenseService restoring = new ExpenseService(shortInsert, exportDir);
+            assertEquals(-1, restoring.restoreDump(dumpFile));
+            assertEquals(List.of(ColumnarDump.GROUP_ROWS), groupsOffered);
+            assertEquals(ColumnarDump.GROUP_ROWS / 2, target.countExpenses());
+        } finally {
+            target.close();
+        }
+    }
+}
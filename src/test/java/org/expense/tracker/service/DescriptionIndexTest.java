@@ -0,0 +1,97 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.Money;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DescriptionIndexTest {
+
+    private static Expense expense(int id, String date, String category, String description, String amount) {
+        return new Expense(id, LocalDate.parse(date), category, description, new BigDecimal(amount));
+    }
+
+    private static List<Integer> ids(List<Expense> expenses) {
+        List<Integer> ids = new ArrayList<>();
+        expenses.forEach(expense -> ids.add(expense.getId()));
+        return ids;
+    }
+
+    @Test
+    public void ranksExactThenPrefixThenSubstringAndFollowsWrites() {
+        DescriptionIndex index = new DescriptionIndex();
+        index.onExpenseAdded(expense(1, "2024-01-01", "Food", "Coffee beans", "12.00"));
+        index.onExpenseAdded(expense(2, "2024-01-02", "Food", "Iced coffeehouse latte", "4.50"));
+        index.onExpenseAdded(expense(3, "2024-01-03", "Food", "Decoffeeinated tea", "3.00"));
+        index.onExpenseAdded(expense(4, "2024-01-04", "Transport", "Taxi to the coffee fair", "30.00"));
+        index.onExpenseAdded(expense(5, "2024-01-05", "Food", null, "1.00"));
+
+        // Exact matches first (newest first among equals), then the prefix, then the substring
+        assertEquals(List.of(4, 1, 2, 3), ids(index.search("COFFEE", ExpenseQuery.all())));
+        assertEquals(List.of(1), ids(index.search("coffee bea", ExpenseQuery.all())));
+        assertEquals(List.of(2), ids(index.search("latte ice", ExpenseQuery.all())));
+        assertEquals(List.of(1, 2, 3), ids(index.search("coffee", ExpenseQuery.all().category("food"))));
+        assertEquals(List.of(1), ids(index.search("coffee", ExpenseQuery.all().minAmount(new BigDecimal("5")).maxAmount(new BigDecimal("20")))));
+        assertEquals(List.of(3, 2), ids(index.search("offee", ExpenseQuery.all().between(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 3)))));
+        assertEquals(List.of(4), ids(index.search("coffee", ExpenseQuery.all().limit(1))));
+        assertTrue(index.search("   ", ExpenseQuery.all()).isEmpty());
+        assertTrue(index.search("tea coffeehouse", ExpenseQuery.all()).isEmpty());
+
+        Expense updated = expense(1, "2024-01-01", "Food", "Green tea", "12.00");
+        index.onExpenseUpdated(null, updated);
+        index.onExpenseDeleted(4, null);
+        assertEquals(List.of(2, 3), ids(index.search("coffee", ExpenseQuery.all())));
+        assertEquals(List.of(3, 1), ids(index.search("tea", ExpenseQuery.all())));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void matchesNaiveScanOnRandomDescriptions() {
+        String[] words = {"lunch", "lunchbox", "bus", "business", "rent", "parent", "gym", "gymnastics", "café", "tax", "taxi", "syntax"};
+        Random random = new Random(5);
+        DescriptionIndex index = new DescriptionIndex();
+        List<Expense> expenses = new ArrayList<>();
+        for (int id = 1; id <= 5_000; id++) {
+            StringBuilder description = new StringBuilder();
+            for (int word = random.nextInt(4); word >= 0; word--) {
+                description.append(words[random.nextInt(words.length)]).append(word > 0 ? " " : "");
+            }
+            Expense expense = new Expense(id, LocalDate.of(2023, 1, 1).plusDays(random.nextInt(365)), "Misc",
+                    description.toString(), Money.toBigDecimal(1 + random.nextInt(10_000)));
+            expenses.add(expense);
+            index.onExpenseAdded(expense);
+        }
+
+        for (String text : new String[]{"tax", "ax", "bus lunch", "arent", "gymn", "caf", "café rent"}) {
+            List<String> terms = DescriptionIndex.tokenize(text);
+            Set<Integer> expected = new HashSet<>();
+            for (Expense expense : expenses) {
+                String description = expense.getDescription().toLowerCase(Locale.ROOT);
+                List<String> tokens = DescriptionIndex.tokenize(description);
+                boolean all = true;
+                for (String term : terms) {
+                    boolean prefix = tokens.stream().anyMatch(token -> token.startsWith(term));
+                    all &= prefix || (term.length() >= 3 && description.contains(term));
+                }
+                if (all) {
+                    expected.add(expense.getId());
+                }
+            }
+            List<Expense> found = index.search(text, ExpenseQuery.all().limit(Integer.MAX_VALUE));
+            assertEquals(expected, new HashSet<>(ids(found)), text);
+            assertEquals(expected.size(), found.size(), text);
+        }
+    }
+}
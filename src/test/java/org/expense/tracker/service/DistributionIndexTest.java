@@ -0,0 +1,103 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.model.AmountDistribution;
+import org.expense.tracker.model.DistributionReport;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DistributionIndexTest {
+
+    private static final String[] CATEGORIES = {"Food", "food", "Rent", "Fun"};
+
+    @TempDir
+    Path dataDir;
+
+    private EmbeddedExpenseRepository repository;
+    private ExpenseService service;
+
+    @BeforeEach
+    public void createService() {
+        repository = new EmbeddedExpenseRepository(dataDir.resolve("log"), false, 1000);
+        service = new ExpenseService(repository, dataDir.resolve("export"));
+    }
+
+    @AfterEach
+    public void shutdownService() {
+        service.shutdown();
+    }
+
+    @Test
+    public void followsWritesAndMatchesExactAnswers() {
+        Random random = new Random(29);
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            expenses.add(new Expense(LocalDate.of(2024, 1, 1).plusDays(random.nextInt(90)), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    "item " + i, Money.toBigDecimal(1 + random.nextInt(500_000))));
+        }
+        service.addExpenses(expenses.subList(0, 4_000));
+        service.getDistributions(ExpenseQuery.all());
+
+        // Kept current by writes after the first build
+        service.addExpenses(expenses.subList(4_000, 5_000));
+        for (int i = 0; i < 200; i++) {
+            Expense expense = expenses.get(random.nextInt(expenses.size()));
+            service.updateExpense(new Expense(expense.getId(), expense.getDate(), expense.getCategory(), expense.getDescription(),
+                    expense.getAmount().add(BigDecimal.ONE)));
+        }
+        service.deleteExpenses(List.of(expenses.get(1).getId(), expenses.get(2).getId()));
+        DistributionReport incremental = service.getDistributions(ExpenseQuery.all());
+
+        List<Expense> stored = service.getAllExpenses();
+        assertEquals(stored.size(), incremental.getOverall().getCount());
+        assertExact(stored, null, incremental.getOverall());
+        assertExact(stored, "FOOD", incremental.getCategories().get("food"));
+        assertEquals(List.of("food", "fun", "rent"), incremental.getCategories().keySet().stream().map(String::toLowerCase).toList());
+        assertEquals(List.of("2024-01", "2024-02", "2024-03"), new ArrayList<>(incremental.getMonths().keySet()));
+
+        // A fresh one-pass build over the same rows gives the same sketches
+        DistributionIndex rebuilt = new DistributionIndex();
+        assertTrue(rebuilt.isStale());
+        rebuilt.load(repository);
+        assertFalse(rebuilt.isStale());
+        assertEquals(rebuilt.toReport().getOverall(), incremental.getOverall());
+        assertEquals(rebuilt.toReport().getCategories(), incremental.getCategories());
+        assertEquals(rebuilt.toReport().getMonths(), incremental.getMonths());
+
+        DistributionReport filtered = service.getDistributions(ExpenseQuery.all().category("rent").maxAmount(new BigDecimal("2000")));
+        assertEquals(List.of("Rent"), new ArrayList<>(filtered.getCategories().keySet()));
+        List<Expense> cheapRent = stored.stream().filter(expense -> expense.getCategory().equals("Rent")
+                && expense.getAmount().compareTo(new BigDecimal("2000")) <= 0).toList();
+        assertExact(cheapRent, null, filtered.getOverall());
+    }
+
+    private static void assertExact(List<Expense> expenses, String category, AmountDistribution distribution) {
+        long[] sorted = expenses.stream().filter(expense -> category == null || category.equalsIgnoreCase(expense.getCategory()))
+                .mapToLong(Expense::getAmountCents).sorted().toArray();
+        assertEquals(sorted.length, distribution.getCount());
+        long[] estimates = {distribution.getP50Cents(), distribution.getP90Cents(), distribution.getP99Cents()};
+        double[] quantiles = {0.5, 0.9, 0.99};
+        for (int i = 0; i < quantiles.length; i++) {
+            long exact = sorted[(int) Math.ceil(quantiles[i] * sorted.length) - 1];
+            assertTrue(estimates[i] >= exact && estimates[i] <= exact + (long) (exact * distribution.getRelativeError()),
+                    quantiles[i] + ": " + estimates[i] + " vs " + exact);
+        }
+        assertEquals(sorted[sorted.length - 1], distribution.getMaxCents());
+    }
+}
@@ -0,0 +1,84 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.model.Expense;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class DuplicateIndexTest {
+
+    private static Expense expense(int id, String date, String category, String description, String amount) {
+        return new Expense(id, LocalDate.parse(date), category, description, new BigDecimal(amount));
+    }
+
+    @Test
+    public void normalizesContentBeforeFingerprinting() {
+        Expense lunch = expense(1, "2024-01-15", "Food", "Lunch at restaurant", "25.50");
+        assertEquals(DuplicateIndex.fingerprint(lunch),
+                DuplicateIndex.fingerprint(expense(2, "2024-01-15", " food ", "lunch  AT\trestaurant ", "25.5")));
+        assertEquals(DuplicateIndex.fingerprint(expense(3, "2024-01-15", "Food", null, "1.00")),
+                DuplicateIndex.fingerprint(expense(4, "2024-01-15", "Food", "  ", "1.00")));
+        assertNotEquals(DuplicateIndex.fingerprint(lunch), DuplicateIndex.fingerprint(expense(5, "2024-01-16", "Food", "Lunch at restaurant", "25.50")));
+        assertNotEquals(DuplicateIndex.fingerprint(lunch), DuplicateIndex.fingerprint(expense(6, "2024-01-15", "Food", "Lunch at restaurant", "25.51")));
+        assertNotEquals(DuplicateIndex.fingerprint(lunch), DuplicateIndex.fingerprint(expense(7, "2024-01-15", "Food", "Lunchat restaurant", "25.50")));
+        assertNotEquals(DuplicateIndex.key(expense(8, "2024-01-15", "Food a", "b", "1.00")),
+                DuplicateIndex.key(expense(9, "2024-01-15", "Food", "a b", "1.00")));
+    }
+
+    @Test
+    public void groupsDuplicatesAndFollowsWrites() {
+        DuplicateIndex index = new DuplicateIndex();
+        index.onExpenseAdded(expense(1, "2024-01-15", "Food", "Lunch at restaurant", "25.50"));
+        index.onExpenseAdded(expense(2, "2024-01-15", "Food", "Lunch at restaurant", "25.50"));
+        index.onExpenseAdded(expense(3, "2024-01-17", "Entertainment", "Movie tickets", "30.00"));
+        index.onExpenseAdded(expense(4, "2024-01-15", "food", "lunch at restaurant", "25.50"));
+        index.onExpenseAdded(expense(5, "2024-01-19", "Utilities", "Electricity bill", "120.00"));
+
+        assertEquals(2, index.duplicateCount());
+        assertArrayEquals(new int[]{1, 2, 4}, index.duplicatesOf(expense(0, "2024-01-15", "Food", "Lunch at restaurant", "25.50")));
+        assertArrayEquals(new int[]{1, 4}, index.duplicatesOf(expense(2, "2024-01-15", "Food", "Lunch at restaurant", "25.50")));
+        assertArrayEquals(new int[0], index.duplicatesOf(expense(0, "2024-01-17", "Entertainment", "Movie tickets", "31.00")));
+        List<int[]> groups = index.duplicateGroups();
+        assertEquals(1, groups.size());
+        assertArrayEquals(new int[]{1, 2, 4}, groups.get(0));
+
+        index.onExpenseUpdated(null, expense(2, "2024-01-17", "Entertainment", "Movie tickets", "30.00"));
+        index.onExpenseDeleted(4, null);
+        groups = index.duplicateGroups();
+        assertEquals(1, groups.size());
+        assertArrayEquals(new int[]{2, 3}, groups.get(0));
+        assertEquals(1, index.duplicateCount());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void dropsOnlyCopiesAlreadyIndexed() {
+        DuplicateIndex index = new DuplicateIndex();
+        List<Expense> batch = new ArrayList<>();
+        batch.add(expense(0, "2024-01-15", "Food", "Lunch at restaurant", "25.50"));
+        batch.add(expense(0, "2024-01-15", "Food", "Lunch at restaurant", "25.50"));
+        batch.add(expense(0, "2024-01-19", "Utilities", "Electricity bill", "120.00"));
+
+        // A fresh ledger keeps repeats within the batch
+        assertEquals(batch, index.withoutIndexed(batch));
+
+        int id = 1;
+        for (Expense expense : batch) {
+            index.onExpenseAdded(expense(id++, expense.getDate().toString(), expense.getCategory(), expense.getDescription(),
+                    expense.getAmount().toPlainString()));
+        }
+        // Loading the same rows again adds nothing; a third lunch is one more than stored
+        assertEquals(List.of(), index.withoutIndexed(batch));
+        batch.add(expense(0, "2024-01-15", "Food", "Lunch at restaurant", "25.50"));
+        assertEquals(List.of(batch.get(3)), index.withoutIndexed(batch));
+        // Each dropped copy is matched to a different stored row
+        assertArrayEquals(new int[]{1, 2, 3, 0}, index.indexedCopies(batch));
+    }
+}
@@ -0,0 +1,146 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.MeteredExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.Money;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ExpenseColumnStoreTest {
+
+    private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Utilities", "Fun"};
+
+    private static List<Expense> randomExpenses(int count) {
+        Random random = new Random(11);
+        List<Expense> expenses = new ArrayList<>(count);
+        LocalDate start = LocalDate.of(2022, 1, 1);
+        for (int id = 1; id <= count; id++) {
+            expenses.add(new Expense(id, start.plusDays(random.nextInt(900)), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    "item " + id, Money.toBigDecimal(1 + random.nextInt(50_000))));
+        }
+        return expenses;
+    }
+
+    private static ExpenseColumnStore storeOf(List<Expense> expenses) {
+        ExpenseColumnStore.Builder builder = new ExpenseColumnStore.Builder();
+        expenses.forEach(builder::add);
+        return builder.build();
+    }
+
+    @Test
+    public void filterAndAggregatesMatchNaiveScan() {
+        // Large enough to exercise the fork/join path
+        List<Expense> expenses = randomExpenses(150_000);
+        ExpenseColumnStore store = storeOf(expenses);
+        ExpenseQuery query = ExpenseQuery.all()
+                .between(LocalDate.of(2022, 6, 1), LocalDate.of(2023, 6, 30))
+                .category("food")
+                .minAmount(new BigDecimal("10.005"))
+                .maxAmount(new BigDecimal("300"));
+
+        long count = 0;
+        long cents = 0;
+        Map<String, long[]> byMonth = new HashMap<>();
+        for (Expense expense : expenses) {
+            boolean matches = !expense.getDate().isBefore(query.getStartDate()) && !expense.getDate().isAfter(query.getEndDate())
+                    && expense.getCategory().equalsIgnoreCase(query.getCategory())
+                    && expense.getAmount().compareTo(query.getMinAmount()) >= 0
+                    && expense.getAmount().compareTo(query.getMaxAmount()) <= 0;
+            if (matches) {
+                count++;
+                cents += expense.getAmountCents();
+                long[] month = byMonth.computeIfAbsent(expense.getDate().toString().substring(0, 7), key -> new long[2]);
+                month[0]++;
+                month[1] += expense.getAmountCents();
+            }
+        }
+
+        List<Expense> selected = store.select(query);
+        assertEquals(count, selected.size());
+        for (int i = 1; i < selected.size(); i++) {
+            Expense newer = selected.get(i - 1);
+            Expense older = selected.get(i);
+            assertEquals(true, newer.getDate().isAfter(older.getDate())
+                    || (newer.getDate().equals(older.getDate()) && newer.getId() > older.getId()));
+        }
+        assertEquals(new ExpenseSummary(count, cents), store.summarize(query));
+        assertEquals(new ExpenseSummary(count, cents), store.summarizeByCategory(query).get("Food"));
+
+        Map<String, ExpenseSummary> months = store.summarizeByMonth(query);
+        assertEquals(byMonth.size(), months.size());
+        byMonth.forEach((month, totals) -> assertEquals(new ExpenseSummary(totals[0], totals[1]), months.get(month)));
+    }
+
+    @Test
+    public void unknownCategoryMatchesNothing() {
+        ExpenseColumnStore store = storeOf(randomExpenses(100));
+        assertEquals(0, store.filter(ExpenseQuery.all().category("Travel")).length);
+        assertEquals(100, store.filter(ExpenseQuery.all()).length);
+    }
+
+    @Test
+    public void monthIndexMatchesLocalDate() {
+        for (int day = -800_000; day < 800_000; day += 7) {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            assertEquals(date.getYear() * 12 + date.getMonthValue() - 1, ExpenseColumnStore.monthIndex(day));
+        }
+    }
+
+    @Test
+    public void snapshotRacingAWriteOrComingUpShortIsNotKept(@TempDir Path dataDir) {
+        EmbeddedExpenseRepository repository = new EmbeddedExpenseRepository(dataDir, false, 1000);
+        List<Expense> expenses = randomExpenses(500);
+        expenses.forEach(expense -> expense.setId(0));
+        repository.addExpenses(expenses);
+        ExpenseService[] service = new ExpenseService[1];
+        int[] loads = {0};
+        MeteredExpenseRepository racing = new MeteredExpenseRepository(repository) {
+            @Override
+            public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+                switch (loads[0]++) {
+                    case 0:
+                        // Another thread's write lands while the snapshot loads
+                        service[0].addExpense(new Expense(LocalDate.of(2024, 1, 1), "Food", "during load", new BigDecimal("1.00")));
+                        return super.streamExpenses(query, consumer);
+                    case 1: {
+                        // A read error the repository logs and swallows, ending the stream early
+                        List<Expense> rows = getDelegate().findExpenses(query.copy().limit(100));
+                        rows.forEach(consumer);
+                        return rows.size();
+                    }
+                    default:
+                        return super.streamExpenses(query, consumer);
+                }
+            }
+        };
+        service[0] = new ExpenseService(racing, dataDir.resolve("export"));
+        service[0].enableAnalyticsSnapshot();
+        try {
+            assertEquals(501, service[0].getReport(ExpenseQuery.all()).getSummary().getCount());
+            assertEquals(-1, service[0].getAnalyticsSnapshotSize());
+            // The short load is not served either; the repository answers instead
+            assertEquals(501, service[0].getReport(ExpenseQuery.all()).getSummary().getCount());
+            assertEquals(-1, service[0].getAnalyticsSnapshotSize());
+            assertEquals(501, service[0].getReport(ExpenseQuery.all()).getSummary().getCount());
+            assertEquals(501, service[0].getAnalyticsSnapshotSize());
+        } finally {
+            service[0].shutdown();
+            repository.close();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.MeteredExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ExpenseReplicaTest {
+
+    @TempDir
+    Path dataDir;
+
+    private EmbeddedExpenseRepository repository;
+
+    @BeforeEach
+    public void createRepository() {
+        repository = new EmbeddedExpenseRepository(dataDir.resolve("log"), false, 100);
+        for (int day = 0; day < 5; day++) {
+            repository.addExpense(new Expense(LocalDate.of(2024, 4, 1).plusDays(day), "Food", "day " + day, Money.toBigDecimal(100 + day)));
+        }
+    }
+
+    @AfterEach
+    public void closeRepository() {
+        repository.close();
+    }
+
+    @Test
+    public void missReadsThroughToTheRepository() {
+        ExpenseReplica replica = new ExpenseReplica(repository);
+        replica.refresh();
+        assertEquals(5, replica.getStats().rows());
+
+        // Added by another client since the last refresh
+        Expense added = new Expense(LocalDate.of(2024, 4, 9), "Rent", "April", Money.toBigDecimal(90_000));
+        repository.addExpense(added);
+        assertEquals(added.getId(), replica.get(added.getId()).getId());
+        assertEquals("Rent", replica.get(added.getId()).getCategory());
+        assertNull(replica.get(999));
+        assertEquals(3, replica.getStats().misses());
+        assertEquals(5, replica.getStats().rows());
+    }
+
+    @Test
+    public void refreshDoesNotRestoreRowsDeletedWhileItRan() {
+        ExpenseReplica[] replica = new ExpenseReplica[1];
+        boolean[] deleteDuringRefresh = {false};
+        // Reads every changed row, then a local delete and another client's insert commit before the rows
+        // are applied, so the row counts still match and no ID scan would catch a restored row
+        MeteredExpenseRepository racing = new MeteredExpenseRepository(repository) {
+            @Override
+            public Timestamp streamExpensesUpdatedSince(Timestamp since, Consumer<Expense> consumer) {
+                List<Expense> read = new ArrayList<>();
+                Timestamp watermark = getDelegate().streamExpensesUpdatedSince(since, read::add);
+                if (deleteDuringRefresh[0]) {
+                    deleteDuringRefresh[0] = false;
+                    getDelegate().deleteExpense(2);
+                    replica[0].onExpenseDeleted(2, null);
+                    getDelegate().addExpense(new Expense(LocalDate.of(2024, 4, 9), "Rent", "April", Money.toBigDecimal(90_000)));
+                }
+                read.forEach(consumer);
+                return watermark;
+            }
+        };
+        replica[0] = new ExpenseReplica(racing);
+        replica[0].refresh();
+        assertEquals(5, replica[0].getStats().rows());
+
+        deleteDuringRefresh[0] = true;
+        replica[0].refresh();
+        assertEquals(4, replica[0].getStats().rows());
+        assertEquals(List.of(5, 4, 3, 1), replica[0].getAll().stream().map(Expense::getId).toList());
+        assertNull(replica[0].get(2));
+
+        replica[0].refresh();
+        assertEquals(List.of(6, 5, 4, 3, 1), replica[0].getAll().stream().map(Expense::getId).toList());
+    }
+}
@@ -0,0 +1,158 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.MeteredExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpensePage;
+import org.expense.tracker.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ExpenseServiceTest {
+
+    @TempDir
+    Path dataDir;
+
+    private EmbeddedExpenseRepository repository;
+
+    @BeforeEach
+    public void createRepository() {
+        repository = new EmbeddedExpenseRepository(dataDir.resolve("log"), false, 1000);
+        List<Expense> expenses = new ArrayList<>();
+        for (int day = 0; day < 300; day++) {
+            expenses.add(new Expense(LocalDate.of(2024, 1, 1).plusDays(day), day % 2 == 0 ? "Food" : "Rent",
+                    "day " + day, Money.toBigDecimal(100 + day)));
+        }
+        repository.addExpenses(expenses);
+    }
+
+    @AfterEach
+    public void closeRepository() {
+        repository.close();
+    }
+
+    @Test
+    public void batchWritesSkipNonPositiveAmounts() {
+        ExpenseService service = new ExpenseService(repository, dataDir.resolve("export"));
+        List<Expense> added = List.of(
+                new Expense(LocalDate.of(2024, 12, 1), "Food", "bread", Money.toBigDecimal(250)),
+                new Expense(LocalDate.of(2024, 12, 1), "Food", "free sample", Money.toBigDecimal(0)),
+                new Expense(LocalDate.of(2024, 12, 2), "Fun", "cinema", Money.toBigDecimal(1_200)));
+        assertEquals(2, service.addExpenses(added));
+        assertEquals(301, added.get(0).getId());
+        assertEquals(0, added.get(1).getId());
+        assertEquals(302, added.get(2).getId());
+
+        Expense first = service.getExpenseById(1);
+        Expense second = service.getExpenseById(2);
+        assertEquals(1, service.updateExpenses(List.of(
+                new Expense(1, first.getDate(), "Groceries", first.getDescription(), Money.toBigDecimal(999)),
+                new Expense(2, second.getDate(), "Refund", second.getDescription(), Money.toBigDecimal(-500)))));
+        assertEquals("Groceries", service.getExpenseById(1).getCategory());
+        assertEquals(Money.toBigDecimal(999), service.getExpenseById(1).getAmount());
+        assertEquals("Rent", service.getExpenseById(2).getCategory());
+
+        // IDs that do not exist are not counted
+        assertEquals(2, service.deleteExpenses(List.of(3, 301, 9_999)));
+        assertEquals(300, repository.countExpenses());
+        assertNull(service.getExpenseById(301));
+    }
+
+    @Test
+    public void pagesVisitEveryRowOnceInBothDirections() {
+        ExpenseService service = new ExpenseService(repository, dataDir.resolve("export"));
+        // Ties on one date, so the (date, id) cursor has to split a day between pages
+        for (int i = 0; i < 7; i++) {
+            service.addExpense(new Expense(LocalDate.of(2024, 6, 1), "Food", "tie " + i, Money.toBigDecimal(500)));
+        }
+        ExpenseQuery query = ExpenseQuery.all().category("food");
+        List<Integer> expected = service.findExpenses(query).stream()
+                .sorted(Comparator.comparing(Expense::getDate).thenComparingInt(Expense::getId).reversed())
+                .map(Expense::getId).toList();
+
+        List<Integer> forward = new ArrayList<>();
+        ExpensePage page = service.getExpensePage(query, null, ExpensePage.Direction.NEXT, 4);
+        assertFalse(page.hasPrevious());
+        page.getExpenses().forEach(expense -> forward.add(expense.getId()));
+        while (page.hasNext()) {
+            page = service.getExpensePage(query, page.getLastCursor(), ExpensePage.Direction.NEXT, 4);
+            page.getExpenses().forEach(expense -> forward.add(expense.getId()));
+        }
+        assertEquals(expected, forward);
+
+        List<Integer> backward = new ArrayList<>(page.getExpenses().stream().map(Expense::getId).toList());
+        while (page.hasPrevious()) {
+            page = service.getExpensePage(query, page.getFirstCursor(), ExpensePage.Direction.PREVIOUS, 4);
+            backward.addAll(0, page.getExpenses().stream().map(Expense::getId).toList());
+        }
+        assertEquals(expected, backward);
+    }
+
+    @Test
+    public void streamedCsvExportFailsWhenTheReadComesUpShort() throws IOException {
+        Path exportDir = dataDir.resolve("export");
+        ExpenseService service = new ExpenseService(repository, exportDir);
+        assertEquals(150, service.exportExpensesToCsv(ExpenseQuery.all().category("food"), "food.csv"));
+        assertEquals(151, Files.readAllLines(exportDir.resolve("food.csv")).size());
+        assertEquals(20, service.exportExpensesToCsv(ExpenseQuery.all().limit(20), "first.csv"));
+
+        // A read error the repository logs and swallows, ending the stream early
+        MeteredExpenseRepository shortStream = new MeteredExpenseRepository(repository) {
+            @Override
+            public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+                List<Expense> rows = getDelegate().findExpenses(query.copy().limit(10));
+                rows.forEach(consumer);
+                return rows.size();
+            }
+        };
+        ExpenseService failing = new ExpenseService(shortStream, exportDir);
+        assertEquals(-1, failing.exportExpensesToCsv(ExpenseQuery.all(), "all.csv"));
+        assertFalse(Files.exists(exportDir.resolve("all.csv")));
+    }
+
+    @Test
+    public void topSpendersAbsorbDeletesAfterAnEviction() {
+        List<Expense> payees = new ArrayList<>();
+        for (int i = 0; i < ExpenseService.DEFAULT_TOP_SPENDERS_CAPACITY; i++) {
+            payees.add(new Expense(LocalDate.of(2024, 11, 1), "Fun", "payee " + i, Money.toBigDecimal(100)));
+        }
+        repository.addExpenses(payees);
+        int[] loads = {0};
+        MeteredExpenseRepository counting = new MeteredExpenseRepository(repository) {
+            @Override
+            public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+                loads[0]++;
+                return super.streamExpenses(query, consumer);
+            }
+        };
+        ExpenseService service = new ExpenseService(counting, dataDir.resolve("export"));
+        // More distinct descriptions than the summaries track, so some have been evicted
+        assertEquals(1_300, service.getTopSpenders(3).getTotalCount());
+        assertEquals(1, loads[0]);
+
+        for (int id = 1; id <= 10; id++) {
+            service.deleteExpense(id);
+        }
+        Expense first = service.getExpenseById(11);
+        service.updateExpense(new Expense(11, first.getDate(), "Food", first.getDescription(), Money.toBigDecimal(50_000)));
+        assertEquals(1_290, service.getTopSpenders(3).getTotalCount());
+        assertEquals("day 10", service.getTopSpenders(3).getDescriptionsByAmount().get(0).getLabel());
+        assertEquals(1, loads[0]);
+    }
+}
@@ -0,0 +1,173 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.HeavyHitter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HeavyHittersTest {
+
+    private static void assertBounds(HeavyHitters summary, Map<String, Long> exact) {
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, summary.total());
+        List<HeavyHitter> top = summary.top(summary.capacity());
+        assertTrue(top.size() <= summary.capacity());
+        for (HeavyHitter hitter : top) {
+            long weight = exact.getOrDefault(hitter.getLabel(), 0L);
+            assertTrue(hitter.getLowerBound() <= weight && weight <= hitter.getValue(), hitter + " vs " + weight);
+        }
+        // Anything above total / capacity must be tracked
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            if (entry.getValue() > total / summary.capacity()) {
+                assertTrue(top.stream().anyMatch(hitter -> hitter.getLabel().equals(entry.getKey())), entry.getKey());
+            }
+        }
+    }
+
+    @Test
+    public void exactUntilCapacityIsExceeded() {
+        HeavyHitters summary = new HeavyHitters(3);
+        summary.add("rent", "Rent", 90_000);
+        summary.add("coffee", "Coffee", 450);
+        summary.add("coffee", "coffee ", 450);
+        summary.add("lunch", "Lunch", 1_200);
+        assertTrue(summary.isExact());
+        assertEquals(List.of(new HeavyHitter("Rent", 90_000, 0), new HeavyHitter("Lunch", 1_200, 0)), summary.top(2));
+        assertEquals(new HeavyHitter("Coffee", 900, 0), summary.top(3).get(2));
+
+        summary.add("taxi", "Taxi", 2_000);
+        assertFalse(summary.isExact());
+        assertEquals(3, summary.size());
+        // Coffee was the smallest, so Taxi takes its place starting from its value
+        assertEquals(new HeavyHitter("Taxi", 2_900, 900), summary.top(2).get(1));
+        assertEquals(94_100, summary.total());
+        assertThrows(IllegalArgumentException.class, () -> new HeavyHitters(0));
+    }
+
+    @Test
+    public void skewedStreamsKeepTheirHeavyHitters() {
+        Random random = new Random(31);
+        HeavyHitters byCount = new HeavyHitters(50);
+        HeavyHitters byAmount = new HeavyHitters(50);
+        Map<String, Long> counts = new HashMap<>();
+        Map<String, Long> amounts = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Zipf-like: a few payees recur constantly among thousands of one-offs
+            String key = "payee " + (int) Math.pow(5_000, random.nextDouble() * random.nextDouble());
+            long cents = 100 + random.nextInt(20_000);
+            byCount.add(key, key, 1);
+            byAmount.add(key, key, cents);
+            counts.merge(key, 1L, Long::sum);
+            amounts.merge(key, cents, Long::sum);
+        }
+        assertFalse(byCount.isExact());
+        assertBounds(byCount, counts);
+        assertBounds(byAmount, amounts);
+        assertEquals("payee 1", byCount.top(1).get(0).getLabel());
+    }
+
+    @Test
+    public void removalsKeepValuesUpperBounds() {
+        Random random = new Random(37);
+        HeavyHitters summary = new HeavyHitters(20);
+        Map<String, Long> exact = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            if (!keys.isEmpty() && random.nextInt(3) == 0) {
+                String key = keys.remove(random.nextInt(keys.size()));
+                summary.remove(key, 1);
+                exact.merge(key, -1L, Long::sum);
+            } else {
+                String key = "k" + (int) Math.pow(400, random.nextDouble() * random.nextDouble());
+                keys.add(key);
+                summary.add(key, key, 1);
+                exact.merge(key, 1L, Long::sum);
+            }
+        }
+        exact.values().removeIf(weight -> weight == 0);
+        long total = exact.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(total, summary.total());
+        List<HeavyHitter> top = summary.top(20);
+        for (HeavyHitter hitter : top) {
+            long weight = exact.getOrDefault(hitter.getLabel(), 0L);
+            assertTrue(hitter.getLowerBound() <= weight && weight <= hitter.getValue(), hitter + " vs " + weight);
+        }
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            if (top.stream().noneMatch(hitter -> hitter.getLabel().equals(entry.getKey()))) {
+                assertTrue(entry.getValue() <= summary.maxUntrackedWeight(), entry.getKey());
+            }
+        }
+
+        HeavyHitters small = new HeavyHitters(2);
+        small.add("a", "A", 5);
+        small.remove("a", 5);
+        assertEquals(0, small.size());
+        assertEquals(List.of(), small.top(2));
+    }
+
+    @Test
+    public void removalsAfterEvictionStayWithinTheBound() {
+        HeavyHitters summary = new HeavyHitters(2);
+        summary.add("a", "A", 100);
+        summary.add("b", "B", 100);
+        summary.add("c", "C", 1);
+        // A was evicted, so C starts from its value
+        assertEquals(100, summary.maxUntrackedWeight());
+        assertTrue(summary.remove("b", 100));
+        assertTrue(summary.remove("c", 1));
+        // A is untracked but still no heavier than 2 * total / capacity
+        assertEquals(List.of(new HeavyHitter("C", 100, 100)), summary.top(2));
+        assertTrue(summary.isWithinBound());
+
+        // Half of what is left goes, so A could now be a missing heavy hitter
+        assertFalse(summary.remove("a", 50));
+        assertEquals(50, summary.total());
+    }
+
+    @Test
+    public void indexRebuildsOnlyOnceTooMuchIsRemoved(@TempDir Path dataDir) {
+        EmbeddedExpenseRepository repository = new EmbeddedExpenseRepository(dataDir, false, 100);
+        try {
+            TopSpendersIndex index = new TopSpendersIndex(2);
+            index.load(repository);
+            Map<String, Expense> stored = new HashMap<>();
+            for (String[] row : new String[][]{{"A", "100.00"}, {"B", "100.00"}, {"C", "0.01"}}) {
+                Expense expense = new Expense(LocalDate.of(2024, 5, 1), "Misc", row[0], new BigDecimal(row[1]));
+                repository.addExpense(expense);
+                index.onExpenseAdded(expense);
+                stored.put(row[0], expense);
+            }
+            Expense b = stored.remove("B");
+            repository.deleteExpense(b.getId());
+            index.onExpenseDeleted(b.getId(), b);
+            assertFalse(index.isStale());
+
+            // Deleting A, which the amount summary evicted, leaves C's counter far above the total
+            Expense a = stored.remove("A");
+            repository.deleteExpense(a.getId());
+            index.onExpenseDeleted(a.getId(), a);
+            assertTrue(index.isStale());
+            index.load(repository);
+            assertFalse(index.isStale());
+            assertEquals(List.of(new HeavyHitter("C", 1, 0)), index.top(2).getDescriptionsByAmount());
+            assertEquals(1, index.top(2).getTotalCents());
+        } finally {
+            repository.close();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.dao.MeteredExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PartitionedCsvExporterTest {
+
+    @TempDir
+    Path dataDir;
+
+    private EmbeddedExpenseRepository repository;
+
+    @BeforeEach
+    public void createRepository() {
+        repository = new EmbeddedExpenseRepository(dataDir.resolve("log"), false, 1000);
+        List<Expense> expenses = new ArrayList<>();
+        for (int day = 0; day < 400; day++) {
+            expenses.add(new Expense(LocalDate.of(2023, 11, 1).plusDays(day), day % 3 == 0 ? "Food" : "Transport",
+                    "day " + day, Money.toBigDecimal(100 + day)));
+        }
+        repository.addExpenses(expenses);
+    }
+
+    @AfterEach
+    public void closeRepository() {
+        repository.close();
+    }
+
+    @Test
+    public void writesOneVerifiedFilePerMonth() throws Exception {
+        ExpenseQuery query = ExpenseQuery.all().between(LocalDate.of(2023, 11, 15), LocalDate.of(2024, 2, 10));
+        Path directory = dataDir.resolve("export");
+        List<PartitionedCsvExporter.Partition> partitions = new PartitionedCsvExporter(repository, 3).export(query, directory);
+
+        assertEquals(List.of("2023-11", "2023-12", "2024-01", "2024-02"), partitions.stream().map(PartitionedCsvExporter.Partition::month).toList());
+        assertEquals(repository.findExpenses(query).size(), partitions.stream().mapToLong(PartitionedCsvExporter.Partition::rows).sum());
+        for (PartitionedCsvExporter.Partition partition : partitions) {
+            Path file = directory.resolve(partition.file());
+            assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file))), partition.sha256());
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+                assertEquals(partition.rows() + 1, reader.lines().count());
+            }
+        }
+        List<String> manifest = Files.readAllLines(directory.resolve(PartitionedCsvExporter.MANIFEST_FILE));
+        assertEquals(partitions.size() + 1, manifest.size());
+        assertTrue(manifest.get(1).contains(partitions.get(0).sha256()));
+    }
+
+    @Test
+    public void shortPartitionFailsTheExport() {
+        // A read error ends the stream early; the repository logs it and returns the short count
+        MeteredExpenseRepository failingJanuary = new MeteredExpenseRepository(repository) {
+            @Override
+            public long streamExpenses(ExpenseQuery query, Consumer<Expense> consumer) {
+                if (!YearMonth.from(query.getStartDate()).equals(YearMonth.of(2024, 1))) {
+                    return super.streamExpenses(query, consumer);
+                }
+                List<Expense> rows = getDelegate().findExpenses(query.copy().limit(10));
+                rows.forEach(consumer);
+                return rows.size();
+            }
+        };
+        Path directory = dataDir.resolve("export");
+        IOException failure = assertThrows(IOException.class, () -> new PartitionedCsvExporter(failingJanuary, 2).export(ExpenseQuery.all(), directory));
+        assertTrue(failure.getMessage().contains("2024-01"), failure.getMessage());
+        assertFalse(Files.exists(directory));
+    }
+
+    @Test
+    public void partitionQueryKeepsTighterBounds() {
+        ExpenseQuery query = ExpenseQuery.all().from(LocalDate.of(2024, 1, 20)).category("Food");
+        ExpenseQuery january = PartitionedCsvExporter.partitionQuery(query, YearMonth.of(2024, 1));
+        assertEquals(LocalDate.of(2024, 1, 20), january.getStartDate());
+        assertEquals(LocalDate.of(2024, 1, 31), january.getEndDate());
+        assertEquals("Food", january.getCategory());
+        assertEquals(null, query.getEndDate());
+    }
+}
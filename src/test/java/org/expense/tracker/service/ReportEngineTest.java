@@ -0,0 +1,105 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.dao.ExpenseQuery;
+import org.expense.tracker.model.Expense;
+import org.expense.tracker.model.ExpenseReport;
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.Money;
+import org.expense.tracker.model.TrendReport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ReportEngineTest {
+
+    private static final String[] CATEGORIES = {"Food", "food", "Transport", "Rent", "Fun"};
+    private static final LocalDate AS_OF = LocalDate.of(2023, 3, 15);
+
+    @TempDir
+    Path dataDir;
+
+    private EmbeddedExpenseRepository repository;
+
+    @BeforeEach
+    public void createRepository() {
+        repository = new EmbeddedExpenseRepository(dataDir, false, 1000);
+        Random random = new Random(3);
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            expenses.add(new Expense(LocalDate.of(2022, 1, 1).plusDays(random.nextInt(500)), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    "item " + i, Money.toBigDecimal(1 + random.nextInt(100_000))));
+        }
+        repository.addExpenses(expenses);
+    }
+
+    @AfterEach
+    public void closeRepository() {
+        repository.close();
+    }
+
+    private static Map<String, ExpenseSummary> caseInsensitive(Map<String, ExpenseSummary> summaries) {
+        Map<String, ExpenseSummary> copy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        copy.putAll(summaries);
+        return copy;
+    }
+
+    private void assertMatchesSeparateQueries(ExpenseReport report, ExpenseQuery query) {
+        assertEquals(repository.getSummary(query), report.getSummary());
+        // Which spelling of "Food"/"food" names the group is arbitrary, as in MySQL
+        assertEquals(caseInsensitive(repository.getCategorySummaries(query)), caseInsensitive(report.getCategories()));
+        assertEquals(repository.getMonthlySummaries(query), report.getMonths());
+        assertEquals(repository.getSummary(query.copy().between(AS_OF.minusDays(6), AS_OF)), report.getRecent());
+        assertEquals(repository.getSummary(query.copy().between(AS_OF.minusDays(13), AS_OF.minusDays(7))), report.getPrevious());
+    }
+
+    @Test
+    public void singlePassMatchesSeparateQueries() {
+        ExpenseQuery all = ExpenseQuery.all();
+        assertMatchesSeparateQueries(new ReportEngine(repository).build(all, AS_OF, 7), all);
+
+        ExpenseQuery filtered = ExpenseQuery.all().category("FOOD").minAmount(new BigDecimal("100.00"))
+                .between(LocalDate.of(2022, 6, 1), LocalDate.of(2023, 3, 31));
+        assertMatchesSeparateQueries(new ReportEngine(repository).build(filtered, AS_OF, 7), filtered);
+    }
+
+    @Test
+    public void analyticsSnapshotGivesTheSameReport() {
+        ExpenseColumnStore store = ExpenseColumnStore.load(repository);
+        ExpenseQuery query = ExpenseQuery.all().maxAmount(new BigDecimal("500"));
+        assertMatchesSeparateQueries(ReportEngine.build(store, query, AS_OF, 7), query);
+    }
+
+    @Test
+    public void trendWindowsAreAdjacentAndMatchTheTrendsScreen() {
+        EmbeddedExpenseRepository boundaries = new EmbeddedExpenseRepository(dataDir.resolve("boundaries"), false, 100);
+        try {
+            // One expense on each edge of the two 7-day windows, with amounts that tell them apart
+            int[] daysBefore = {-1, 0, 6, 7, 13, 14};
+            for (int i = 0; i < daysBefore.length; i++) {
+                boundaries.addExpense(new Expense(AS_OF.minusDays(daysBefore[i]), "Food", null, Money.toBigDecimal(1L << i)));
+            }
+            ExpenseReport report = new ReportEngine(boundaries).build(ExpenseQuery.all(), AS_OF, 7);
+            assertEquals(new ExpenseSummary(2, 2 + 4), report.getRecent());
+            assertEquals(new ExpenseSummary(2, 8 + 16), report.getPrevious());
+
+            TrendReport.Window window = new ExpenseService(boundaries, dataDir.resolve("export")).getTrends(AS_OF, 7).getWindows().get(0);
+            assertEquals(window.getCurrent(), report.getRecent());
+            assertEquals(window.getPrevious(), report.getPrevious());
+        } finally {
+            boundaries.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.expense.tracker.service;
+
+import org.expense.tracker.model.ExpenseSummary;
+import org.expense.tracker.model.TrendReport;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TimeSeriesTest {
+
+    private static final String[] CATEGORIES = {"Food", "food", "Rent", "Fun"};
+
+    private record Group(LocalDate date, String category, long cents) {
+    }
+
+    private static ExpenseSummary naive(List<Group> groups, String category, LocalDate from, LocalDate to) {
+        long count = 0;
+        long cents = 0;
+        for (Group group : groups) {
+            if (!group.date().isBefore(from) && !group.date().isAfter(to)
+                    && (category == null || category.equalsIgnoreCase(group.category()))) {
+                count++;
+                cents += group.cents();
+            }
+        }
+        return new ExpenseSummary(count, cents);
+    }
+
+    @Test
+    public void windowsMatchNaiveSums() {
+        Random random = new Random(11);
+        List<Group> groups = new ArrayList<>();
+        TimeSeries.Builder builder = new TimeSeries.Builder();
+        LocalDate first = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < 5_000; i++) {
+            Group group = new Group(first.plusDays(random.nextInt(400)), CATEGORIES[random.nextInt(CATEGORIES.length)], 1 + random.nextInt(50_000));
+            groups.add(group);
+            // Groups may arrive in any order
+            builder.accept(group.date(), group.category(), 1, group.cents());
+        }
+        TimeSeries series = builder.build();
+        assertEquals(3, series.categoryCount());
+
+        for (int i = 0; i < 200; i++) {
+            LocalDate from = first.plusDays(random.nextInt(460) - 30);
+            LocalDate to = from.plusDays(random.nextInt(120) - 10);
+            assertEquals(naive(groups, null, from, to), series.summarize(from, to), from + ".." + to);
+            assertEquals(naive(groups, "FOOD", from, to), series.summarize("FOOD", from, to), from + ".." + to);
+        }
+        assertEquals(ExpenseSummary.EMPTY, series.summarize("Travel", first, first.plusDays(400)));
+
+        LocalDate asOf = LocalDate.of(2023, 12, 31);
+        TrendReport report = series.trends(asOf, new int[]{1, 30}, true);
+        assertEquals(3, report.getWindows().size());
+        TrendReport.Window month = report.getWindows().get(1);
+        assertEquals(LocalDate.of(2023, 12, 2), month.getCurrentStart());
+        assertEquals(LocalDate.of(2023, 11, 2), month.getPreviousStart());
+        assertEquals(LocalDate.of(2023, 12, 1), month.getPreviousEnd());
+        assertEquals(naive(groups, null, month.getCurrentStart(), asOf), month.getCurrent());
+        assertEquals(naive(groups, null, month.getPreviousStart(), month.getPreviousEnd()), month.getPrevious());
+        assertEquals(naive(groups, "rent", month.getPreviousStart(), month.getPreviousEnd()), month.getPreviousByCategory().get("Rent"));
+        assertEquals(List.of("Food", "Fun", "Rent"), new ArrayList<>(month.getCurrentByCategory().keySet()));
+        assertEquals((month.getCurrent().getTotalCents() + 15) / 30, month.getDailyAverageCents());
+        assertEquals(month.getDailyAverageCents(), series.movingAverageCents(asOf, 30));
+    }
+
+    @Test
+    public void monthToDateComparesSameDaysOfPreviousMonth() {
+        TimeSeries.Builder builder = new TimeSeries.Builder();
+        builder.accept(LocalDate.of(2024, 2, 29), "Rent", 1, 90_000);
+        builder.accept(LocalDate.of(2024, 3, 31), "Rent", 2, 100_000);
+        TimeSeries series = builder.build();
+
+        TrendReport.Window monthToDate = series.trends(LocalDate.of(2024, 3, 31), new int[0], true).getWindows().get(0);
+        assertEquals(LocalDate.of(2024, 3, 1), monthToDate.getCurrentStart());
+        assertEquals(LocalDate.of(2024, 2, 1), monthToDate.getPreviousStart());
+        assertEquals(LocalDate.of(2024, 2, 29), monthToDate.getPreviousEnd());
+        assertEquals(new ExpenseSummary(2, 100_000), monthToDate.getCurrent());
+        assertEquals(new ExpenseSummary(1, 90_000), monthToDate.getPrevious());
+
+        TimeSeries empty = new TimeSeries.Builder().build();
+        assertNull(empty.getFirstDay());
+        assertEquals(ExpenseSummary.EMPTY, empty.trends(LocalDate.of(2024, 3, 31), new int[]{7}, false).getWindows().get(0).getCurrent());
+    }
+
+    @Test
+    public void parsesWindowLists() {
+        assertArrayEquals(new int[]{7, 30, 90}, TimeSeries.parseWindows(" 7, 30 90 "));
+        assertThrows(IllegalArgumentException.class, () -> TimeSeries.parseWindows(""));
+        assertThrows(IllegalArgumentException.class, () -> TimeSeries.parseWindows("7,x"));
+        assertThrows(IllegalArgumentException.class, () -> TimeSeries.parseWindows("0"));
+    }
+}
@@ -0,0 +1,109 @@
+package org.expense.tracker.util;
+
+import org.expense.tracker.dao.EmbeddedExpenseRepository;
+import org.expense.tracker.model.Expense;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AsyncExecutorTest {
+
+    @Test
+    public void independentCallsRunConcurrently() {
+        AsyncExecutor executor = new AsyncExecutor("test-async", 4, 0);
+        try {
+            CountDownLatch started = new CountDownLatch(4);
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                int value = i;
+                // Each call only finishes once all four have started, so running them one by one would time out
+                futures[i] = executor.submit(() -> {
+                    started.countDown();
+                    try {
+                        return started.await(5, TimeUnit.SECONDS) ? value : -1;
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            AsyncExecutor.allOf(futures).join();
+            for (int i = 0; i < futures.length; i++) {
+                assertEquals(i, futures[i].join());
+            }
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void timeoutCancelsTheOthersWithoutInterrupting() throws InterruptedException {
+        AsyncExecutor executor = new AsyncExecutor("test-async", 2, 200);
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Boolean> finished = new CompletableFuture<>();
+            CompletableFuture<String> slow = executor.submit(() -> {
+                try {
+                    release.await();
+                    finished.complete(!Thread.currentThread().isInterrupted());
+                    return "late";
+                } catch (InterruptedException e) {
+                    finished.complete(false);
+                    return "interrupted";
+                }
+            });
+            CompletableFuture<String> waiting = new CompletableFuture<>();
+
+            CompletionException failure = assertThrows(CompletionException.class, () -> AsyncExecutor.allOf(slow, waiting).join());
+            assertTrue(failure.getCause() instanceof TimeoutException);
+            assertTrue(waiting.isCancelled());
+            release.countDown();
+            assertTrue(finished.join());
+        } finally {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void timedOutWriteLeavesTheStoreWritable(@TempDir Path dataDir) throws InterruptedException {
+        EmbeddedExpenseRepository repository = new EmbeddedExpenseRepository(dataDir, false, 100);
+        AsyncExecutor executor = new AsyncExecutor("test-async", 1, 100);
+        try {
+            CountDownLatch done = new CountDownLatch(1);
+            // Keeps appending to the log well past the timeout, so an interrupt would land in FileChannel I/O
+            CompletableFuture<Integer> writes = executor.submit(() -> {
+                try {
+                    int added = 0;
+                    for (long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(400); System.nanoTime() < end; added++) {
+                        repository.addExpense(new Expense(LocalDate.of(2024, 1, 1), "Food", "row " + added, new BigDecimal("1.00")));
+                    }
+                    return added;
+                } finally {
+                    done.countDown();
+                }
+            });
+            CompletionException failure = assertThrows(CompletionException.class, writes::join);
+            assertTrue(failure.getCause() instanceof TimeoutException);
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            Expense next = new Expense(LocalDate.of(2024, 1, 2), "Food", "after timeout", new BigDecimal("2.00"));
+            repository.addExpense(next);
+            assertTrue(next.getId() > 0);
+            assertEquals(next.getDescription(), repository.getExpenseById(next.getId()).getDescription());
+        } finally {
+            executor.close();
+            repository.close();
+        }
+    }
+}
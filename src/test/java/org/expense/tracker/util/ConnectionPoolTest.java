@@ -0,0 +1,216 @@
+package org.expense.tracker.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConnectionPoolTest {
+
+    private static final String URL = "jdbc:pool-test:expenses";
+
+    /** State of one physical connection opened by {@link FakeDriver}. */
+    private static final class Physical {
+        volatile boolean closed;
+        volatile boolean valid = true;
+        volatile boolean autoCommit = true;
+        volatile int rollbacks;
+    }
+
+    private static final List<Physical> opened = new CopyOnWriteArrayList<>();
+
+    /** Hands out connections backed by {@link Physical} state, whose statements return them like a real driver. */
+    private static final class FakeDriver implements Driver {
+
+        @Override
+        public Connection connect(String url, Properties info) {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            Physical physical = new Physical();
+            opened.add(physical);
+            Connection[] connection = new Connection[1];
+            connection[0] = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "close" -> {
+                            physical.closed = true;
+                            yield null;
+                        }
+                        case "isClosed" -> physical.closed;
+                        case "isValid" -> physical.valid && !physical.closed;
+                        case "getAutoCommit" -> physical.autoCommit;
+                        case "setAutoCommit" -> {
+                            physical.autoCommit = (Boolean) args[0];
+                            yield null;
+                        }
+                        case "rollback" -> {
+                            physical.rollbacks++;
+                            yield null;
+                        }
+                        case "isReadOnly" -> false;
+                        case "createStatement" -> statement(Statement.class, connection[0]);
+                        case "prepareStatement" -> statement(PreparedStatement.class, connection[0]);
+                        case "hashCode" -> System.identityHashCode(proxy);
+                        case "equals" -> proxy == args[0];
+                        default -> throw new SQLFeatureNotSupportedException(method.getName());
+                    });
+            return connection[0];
+        }
+
+        private static Object statement(Class<?> type, Connection connection) {
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> switch (method.getName()) {
+                        case "getConnection" -> connection;
+                        case "close" -> null;
+                        case "executeUpdate" -> 1;
+                        default -> throw new SQLFeatureNotSupportedException(method.getName());
+                    });
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:pool-test:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    private final FakeDriver driver = new FakeDriver();
+
+    @BeforeEach
+    public void registerDriver() throws SQLException {
+        opened.clear();
+        DriverManager.registerDriver(driver);
+    }
+
+    @AfterEach
+    public void deregisterDriver() throws SQLException {
+        DriverManager.deregisterDriver(driver);
+    }
+
+    @Test
+    public void returnedConnectionsAreReused() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, new Properties(), 2, 1_000);
+        Connection first = pool.getConnection();
+        first.setAutoCommit(false);
+        first.close();
+        first.close();
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, () -> first.setAutoCommit(true));
+
+        // The same physical connection comes back, with the abandoned transaction rolled back
+        try (Connection second = pool.getConnection()) {
+            assertNotSame(first, second);
+            assertTrue(second.getAutoCommit());
+        }
+        assertEquals(1, opened.size());
+        assertEquals(1, opened.get(0).rollbacks);
+        ConnectionPool.PoolStats stats = pool.getStats();
+        assertEquals(2, stats.borrowed());
+        assertEquals(0, stats.active());
+        assertEquals(1, stats.idle());
+
+        pool.close();
+        assertTrue(opened.get(0).closed);
+        assertThrows(SQLException.class, pool::getConnection);
+    }
+
+    @Test
+    public void borrowerTimesOutWhenThePoolIsExhausted() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, new Properties(), 1, 50);
+        Connection held = pool.getConnection();
+        assertThrows(SQLTimeoutException.class, pool::getConnection);
+        assertEquals(1, pool.getStats().timeouts());
+
+        held.close();
+        try (Connection connection = pool.getConnection()) {
+            assertFalse(connection.isClosed());
+        }
+        assertEquals(1, opened.size());
+        pool.close();
+    }
+
+    @Test
+    public void invalidIdleConnectionsAreReplaced() throws SQLException {
+        // Validates every idle connection before handing it out again
+        ConnectionPool pool = new ConnectionPool(URL, new Properties(), 2, 1_000, 0);
+        pool.getConnection().close();
+        opened.get(0).valid = false;
+        try (Connection connection = pool.getConnection()) {
+            assertFalse(connection.isClosed());
+        }
+        assertEquals(2, opened.size());
+        assertTrue(opened.get(0).closed);
+        assertEquals(1, pool.getStats().destroyed());
+
+        // A connection the driver closed while borrowed is not put back
+        Connection broken = pool.getConnection();
+        opened.get(1).closed = true;
+        broken.close();
+        assertEquals(0, pool.getStats().idle());
+        pool.close();
+    }
+
+    @Test
+    public void statementsHandBackThePooledConnection() throws SQLException {
+        ConnectionPool pool = new ConnectionPool(URL, new Properties(), 1, 50);
+        Connection connection = pool.getConnection();
+        try (Statement statement = connection.createStatement();
+             PreparedStatement prepared = connection.prepareStatement("DELETE FROM expenses WHERE id = ?")) {
+            assertSame(connection, statement.getConnection());
+            assertSame(connection, prepared.getConnection());
+            assertEquals(1, prepared.executeUpdate());
+
+            // Closing through the statement returns the connection instead of closing it behind the pool
+            prepared.getConnection().close();
+        }
+        assertFalse(opened.get(0).closed);
+        assertEquals(1, pool.getStats().idle());
+        pool.getConnection().close();
+        assertEquals(1, opened.size());
+        pool.close();
+    }
+}